@@ -19,7 +19,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
-import edu.softmethod.ruburger.model.MenuItem;
 import edu.softmethod.ruburger.model.Order;
 import edu.softmethod.ruburger.model.OrderManager;
 
@@ -64,7 +63,7 @@ public class OrdersActivity extends AppCompatActivity {
         rvOrderItems.setAdapter(adapter);
 
         // Load placed orders
-        placedOrders = new ArrayList<>(OrderManager.getInstance().getPlacedOrders());
+        placedOrders = OrderManager.getInstance().getPlacedOrders();
         List<Integer> orderNumbers = new ArrayList<>();
         for (Order o : placedOrders) {
             orderNumbers.add(o.getNumber());
@@ -118,7 +117,11 @@ public class OrdersActivity extends AppCompatActivity {
     private void showOrderDetails(int orderNumber) {
         Order order = getOrderByNumber(orderNumber);
         if (order != null) {
-            adapter.setItems(order.getItems());
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < order.getItems().size(); i++) {
+                lines.add(order.getLineText(i));
+            }
+            adapter.setItems(lines);
             String total = NumberFormat.getCurrencyInstance(Locale.US).format(order.getTotal());
             tvTotalAmount.setText(total);
         }
@@ -142,7 +145,7 @@ public class OrdersActivity extends AppCompatActivity {
      * Called after canceling an order.
      */
     private void refreshOrders() {
-        placedOrders = new ArrayList<>(OrderManager.getInstance().getPlacedOrders());
+        placedOrders = OrderManager.getInstance().getPlacedOrders();
         List<Integer> orderNumbers = new ArrayList<>();
         for (Order o : placedOrders) {
             orderNumbers.add(o.getNumber());
@@ -165,14 +168,14 @@ public class OrdersActivity extends AppCompatActivity {
      * RecyclerView Adapter for displaying the items within a selected order.
      */
     private class OrderItemsAdapter extends RecyclerView.Adapter<OrderItemsAdapter.ViewHolder> {
-        private List<MenuItem> items = new ArrayList<>();
+        private List<String> items = new ArrayList<>();
 
         /**
-         * Sets the list of menu items to display and refreshes the RecyclerView.
+         * Sets the order lines to display and refreshes the RecyclerView.
          *
-         * @param newItems the new list of MenuItems
+         * @param newItems the line descriptions, with the prices frozen on the order
          */
-        void setItems(List<MenuItem> newItems) {
+        void setItems(List<String> newItems) {
             items = newItems;
             notifyDataSetChanged();
         }
@@ -186,7 +189,7 @@ public class OrdersActivity extends AppCompatActivity {
 
         @Override
         public void onBindViewHolder(ViewHolder holder, int position) {
-            holder.textView.setText(items.get(position).toString());
+            holder.textView.setText(items.get(position));
         }
 
         @Override
@@ -26,7 +26,7 @@ public enum AddOns {
     /** Cheese add-on ($1.00). */
     CHEESE(1.00);
 
-    /** The price of the add-on. */
+    /** The built-in price of the add-on. */
     private final double price;
 
     /**
@@ -39,11 +39,20 @@ public enum AddOns {
     }
 
     /**
-     * Returns the price of the add-on.
+     * Returns the price of the add-on from the current {@link PriceCatalog}.
      *
      * @return The price as a double.
      */
     public double getPrice() {
+        return PriceCatalog.current().addOnPrice(this);
+    }
+
+    /**
+     * Returns the built-in price of the add-on, used when no catalog overrides it.
+     *
+     * @return The default price as a double.
+     */
+    public double getDefaultPrice() {
         return price;
     }
 }
@@ -18,10 +18,6 @@ public class Beverage extends MenuItem {
     /** The flavor of the beverage (COLA, TEA, JUICE, etc.). */
     private Flavor flavor;
 
-    private static final double SMALL_PRICE = 1.99;
-    private static final double MEDIUM_PRICE = 2.49;
-    private static final double LARGE_PRICE = 2.99;
-
     /**
      * Constructs a Beverage with the specified size, flavor, and quantity.
      *
@@ -38,23 +34,12 @@ public class Beverage extends MenuItem {
     /**
      * Calculates the total price of the beverage based on its size and quantity.
      *
+     * @param catalog the catalog to price against
      * @return the total price as a double
      */
     @Override
-    public double price() {
-        double price = 0.0;
-        switch (size) {
-            case SMALL:
-                price = SMALL_PRICE;
-                break;
-            case MEDIUM:
-                price = MEDIUM_PRICE;
-                break;
-            case LARGE:
-                price = LARGE_PRICE;
-                break;
-        }
-        return price * quantity;
+    public double price(PriceCatalog catalog) {
+        return catalog.beveragePrice(size) * quantity;
     }
 
     /**
@@ -83,6 +68,17 @@ public class Beverage extends MenuItem {
      */
     @Override
     public String toString() {
-        return String.format("Beverage x%d: [%s, %s] — $%.2f", quantity, flavor.name(), size.name(), this.price());
+        return describe(this.price());
+    }
+
+    /**
+     * Describes the beverage followed by the given extended price.
+     *
+     * @param linePrice the extended price to show
+     * @return string summary of the beverage
+     */
+    @Override
+    public String describe(double linePrice) {
+        return String.format("Beverage x%d: [%s, %s] — $%.2f", quantity, flavor.name(), size.name(), linePrice);
     }
 }
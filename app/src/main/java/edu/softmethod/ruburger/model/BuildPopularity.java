@@ -0,0 +1,297 @@
+/**
+ * Streaming popularity statistics over the sandwich and burger builds of placed orders in
+ * the RU Burger ordering system.
+ * <p>
+ * A build is a sandwich or burger configuration (bread, protein or patty, add-ons) keyed by
+ * {@link SkuCodec#configurationOf(MenuItem)}, whether ordered on its own or inside a combo.
+ * Every placed order feeds three fixed-size structures:
+ * </p>
+ * <ul>
+ *     <li>a {@link CountMinSketch} estimating how many of each build were ordered, never
+ *     below the true count and, with probability {@code 1 - delta}, at most
+ *     {@code epsilon * N} above it, where N is the number of builds recorded;</li>
+ *     <li>a heap of the {@value #DEFAULT_TOP} builds with the highest estimates, refreshed
+ *     as each build is recorded;</li>
+ *     <li>a {@link HyperLogLog} estimating the number of distinct builds ordered.</li>
+ * </ul>
+ * <p>
+ * Memory stays the same however many orders are placed or builds the menu offers. A
+ * cancelled order's builds are taken back out with {@link #remove(Order)}: the Count-Min
+ * counters and the tracked builds' estimates go down by what the order added, and a tracked
+ * build whose estimate reaches zero is dropped. A build that is not tracked cannot be
+ * promoted by a cancellation elsewhere, since its estimate is only looked at when it is
+ * recorded again, so after cancellations the tracked builds can briefly miss a build that
+ * now ranks among them. HyperLogLog registers cannot forget a value, so
+ * {@link #getDistinctBuilds()} keeps counting builds whose every order was cancelled.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public class BuildPopularity {
+
+    /** Default overestimate bound, as a fraction of all builds recorded. */
+    public static final double DEFAULT_EPSILON = 0.002;
+
+    /** Default probability of exceeding the overestimate bound. */
+    public static final double DEFAULT_DELTA = 0.01;
+
+    /** Default HyperLogLog precision, for a standard error of about 1.6%. */
+    public static final int DEFAULT_PRECISION = 12;
+
+    /** Default number of most popular builds tracked. */
+    public static final int DEFAULT_TOP = 10;
+
+    private final CountMinSketch counts;
+    private final HyperLogLog distinct;
+    private final int top;
+
+    /** The tracked builds, least popular first. */
+    private final PriorityQueue<Build> heap =
+            new PriorityQueue<>(Comparator.comparingLong(Build::getEstimatedCount));
+
+    /** The tracked builds keyed by configuration. */
+    private final HashMap<Long, Build> tracked = new HashMap<>();
+
+    /**
+     * Constructs a tracker with the default bounds.
+     */
+    public BuildPopularity() {
+        this(DEFAULT_EPSILON, DEFAULT_DELTA, DEFAULT_PRECISION, DEFAULT_TOP);
+    }
+
+    /**
+     * Constructs a tracker.
+     *
+     * @param epsilon   the Count-Min overestimate bound, as a fraction of all builds recorded
+     * @param delta     the probability of exceeding that bound
+     * @param precision the HyperLogLog precision, from 4 to 16
+     * @param top       the number of most popular builds to track, at least 1
+     * @throws IllegalArgumentException if any argument is out of range
+     */
+    public BuildPopularity(double epsilon, double delta, int precision, int top) {
+        if (top < 1) {
+            throw new IllegalArgumentException("Must track at least one build: " + top);
+        }
+        this.counts = new CountMinSketch(epsilon, delta);
+        this.distinct = new HyperLogLog(precision);
+        this.top = top;
+    }
+
+    /**
+     * Records the builds of a placed order.
+     *
+     * @param order the placed order
+     */
+    public synchronized void record(Order order) {
+        for (MenuItem item : order.getItems()) {
+            if (item instanceof Sandwich) {
+                record((Sandwich) item, item.getQuantity());
+            } else if (item instanceof Combo) {
+                Sandwich inner = ((Combo) item).getSandwich();
+                record(inner, (long) item.getQuantity() * inner.getQuantity());
+            }
+        }
+    }
+
+    /**
+     * Takes the builds of a cancelled order back out. The order must have been recorded.
+     *
+     * @param order the cancelled order
+     */
+    public synchronized void remove(Order order) {
+        for (MenuItem item : order.getItems()) {
+            if (item instanceof Sandwich) {
+                remove((Sandwich) item, item.getQuantity());
+            } else if (item instanceof Combo) {
+                Sandwich inner = ((Combo) item).getSandwich();
+                remove(inner, (long) item.getQuantity() * inner.getQuantity());
+            }
+        }
+    }
+
+    /**
+     * Takes back one build.
+     *
+     * @param build    the sandwich or burger
+     * @param quantity how many were ordered
+     */
+    private void remove(Sandwich build, long quantity) {
+        long configuration = SkuCodec.configurationOf(build);
+        long estimate = counts.remove(configuration, quantity);
+        Build entry = tracked.get(configuration);
+        if (entry != null) {
+            heap.remove(entry);
+            if (estimate > 0) {
+                entry.estimatedCount = estimate;
+                heap.add(entry);
+            } else {
+                tracked.remove(configuration);
+            }
+        }
+    }
+
+    /**
+     * Records one build.
+     *
+     * @param build    the sandwich or burger
+     * @param quantity how many were ordered
+     */
+    private void record(Sandwich build, long quantity) {
+        long configuration = SkuCodec.configurationOf(build);
+        long estimate = counts.add(configuration, quantity);
+        distinct.add(configuration);
+        Build entry = tracked.get(configuration);
+        if (entry != null) {
+            heap.remove(entry);
+            entry.estimatedCount = estimate;
+            heap.add(entry);
+        } else if (tracked.size() < top) {
+            entry = new Build(configuration, estimate);
+            tracked.put(configuration, entry);
+            heap.add(entry);
+        } else if (estimate > heap.peek().estimatedCount) {
+            tracked.remove(heap.poll().configuration);
+            entry = new Build(configuration, estimate);
+            tracked.put(configuration, entry);
+            heap.add(entry);
+        }
+    }
+
+    /**
+     * Returns the most popular builds, most popular first.
+     *
+     * @return up to the tracked number of builds with their estimated counts
+     */
+    public synchronized List<Build> getTopBuilds() {
+        List<Build> builds = new ArrayList<>(tracked.size());
+        for (Build build : tracked.values()) {
+            builds.add(new Build(build.configuration, build.estimatedCount));
+        }
+        builds.sort(Comparator.comparingLong(Build::getEstimatedCount).reversed()
+                .thenComparingLong(Build::getConfiguration));
+        return Collections.unmodifiableList(builds);
+    }
+
+    /**
+     * Estimates how many of a build have been ordered.
+     *
+     * @param build the sandwich or burger; its quantity is ignored
+     * @return an estimate no lower than the true count
+     */
+    public synchronized long estimate(Sandwich build) {
+        return counts.estimate(SkuCodec.configurationOf(build));
+    }
+
+    /**
+     * Estimates the number of distinct builds ordered, including builds whose orders were
+     * all cancelled.
+     *
+     * @return the estimate
+     */
+    public synchronized long getDistinctBuilds() {
+        return distinct.estimate();
+    }
+
+    /**
+     * Returns the number of builds recorded, counting quantities.
+     *
+     * @return the total N
+     */
+    public synchronized long getTotalBuilds() {
+        return counts.getTotal();
+    }
+
+    /**
+     * Returns the bound that, with probability {@code 1 - delta}, no count estimate exceeds
+     * its true count by.
+     *
+     * @return {@code epsilon * N}
+     */
+    public synchronized double getCountErrorBound() {
+        return counts.getErrorBound();
+    }
+
+    /**
+     * Returns the relative standard error of {@link #getDistinctBuilds()}.
+     *
+     * @return the standard error as a fraction
+     */
+    public double getDistinctStandardError() {
+        return distinct.getStandardError();
+    }
+
+    /**
+     * Returns the memory held by the sketches.
+     *
+     * @return the size in bytes, excluding the handful of tracked builds
+     */
+    public long getMemoryBytes() {
+        return counts.getMemoryBytes() + distinct.getMemoryBytes();
+    }
+
+    /**
+     * Forgets every recorded build.
+     */
+    public synchronized void clear() {
+        counts.clear();
+        distinct.clear();
+        heap.clear();
+        tracked.clear();
+    }
+
+    /**
+     * A popular build with its estimated count.
+     */
+    public static final class Build {
+        private final long configuration;
+        private long estimatedCount;
+
+        /**
+         * Constructs a build entry.
+         *
+         * @param configuration  the configuration bits of the build's SKU
+         * @param estimatedCount the estimated number ordered
+         */
+        Build(long configuration, long estimatedCount) {
+            this.configuration = configuration;
+            this.estimatedCount = estimatedCount;
+        }
+
+        /**
+         * Returns the configuration bits of the build's SKU.
+         *
+         * @return the configuration
+         */
+        public long getConfiguration() {
+            return configuration;
+        }
+
+        /**
+         * Returns the build as a menu item with a quantity of one.
+         *
+         * @return a new {@link Sandwich} or {@link Burger}
+         */
+        public Sandwich getItem() {
+            return (Sandwich) SkuCodec.decode(SkuCodec.withQuantity(configuration, 1));
+        }
+
+        /**
+         * Returns the estimated number ordered, never below the true number.
+         *
+         * @return the estimated count
+         */
+        public long getEstimatedCount() {
+            return estimatedCount;
+        }
+    }
+}
@@ -17,12 +17,6 @@ public class Burger extends Sandwich {
     /** Whether the burger has a double patty or not. */
     private boolean doublePatty;
 
-    /** Base price for a single-patty burger. */
-    private static final double SINGLE_PRICE = 6.99;
-
-    /** Additional surcharge for double patty. */
-    private static final double DOUBLE_SURCHARGE = 2.50;
-
     /**
      * Constructs a Burger with the specified bread, patty count, add-ons, and quantity.
      * The protein is always set to {@link Protein#ROAST_BEEF}.
@@ -45,18 +39,13 @@ public class Burger extends Sandwich {
      *     <li>Multiplied by the selected quantity</li>
      * </ul>
      *
+     * @param catalog the catalog to price against
      * @return total calculated price
      */
     @Override
-    public double price() {
-        double basePrice = SINGLE_PRICE + (doublePatty ? DOUBLE_SURCHARGE : 0.0);
-
-        double addOnPrice = 0.0;
-        for (AddOns addOn : addOns) {
-            addOnPrice += addOn.getPrice();
-        }
-
-        return (basePrice + addOnPrice) * quantity;
+    public double price(PriceCatalog catalog) {
+        double basePrice = catalog.burgerSinglePrice() + (doublePatty ? catalog.burgerDoubleSurcharge() : 0.0);
+        return (basePrice + addOnPrice(catalog)) * quantity;
     }
 
     /**
@@ -69,26 +58,16 @@ public class Burger extends Sandwich {
     }
 
     /**
-     * Returns a formatted string representing the burger, including
-     * patty type, bread, add-ons, quantity, and total price.
+     * Describes the burger's patty type, bread, add-ons and quantity, without a price.
      *
-     * @return string representation of the burger
+     * @return string summary of the burger build
      */
     @Override
-    public String toString() {
+    String describeBuild() {
         StringBuilder sb = new StringBuilder("Burger, ");
         sb.append(doublePatty ? "double" : "single");
         sb.append(" (").append(bread.name()).append(")");
-        if (!addOns.isEmpty()) {
-            sb.append(" [");
-            for (int i = 0; i < addOns.size(); i++) {
-                sb.append(addOns.get(i).name());
-                if (i < addOns.size() - 1) sb.append(", ");
-            }
-            sb.append("]");
-        }
-        sb.append(" x").append(quantity);
-        sb.append(" — $").append(String.format("%.2f", this.price()));
+        appendAddOnsAndQuantity(sb);
         return sb.toString();
     }
 }
@@ -21,9 +21,6 @@ public class Combo extends MenuItem {
     /** The selected drink flavor for the combo. */
     private Flavor flavor;
 
-    /** The additional fee applied to all combos. */
-    private static final double COMBO_FEE = 2.00;
-
     /**
      * Constructs a Combo meal with the given sandwich, drink, side, and quantity.
      *
@@ -44,11 +41,39 @@ public class Combo extends MenuItem {
      * <p>
      * Price is based on: (sandwich price + combo fee) × quantity.
      *
+     * @param catalog the catalog to price against
      * @return the total price of the combo
      */
     @Override
-    public double price() {
-        return (sandwich.price() + COMBO_FEE) * quantity;
+    public double price(PriceCatalog catalog) {
+        return (sandwich.price(catalog) + catalog.comboFee()) * quantity;
+    }
+
+    /**
+     * Returns the sandwich included in the combo.
+     *
+     * @return the combo {@link Sandwich}
+     */
+    public Sandwich getSandwich() {
+        return sandwich;
+    }
+
+    /**
+     * Returns the side selected for the combo.
+     *
+     * @return the selected {@link SideType}
+     */
+    public SideType getSideType() {
+        return sideType;
+    }
+
+    /**
+     * Returns the drink flavor selected for the combo.
+     *
+     * @return the selected {@link Flavor}
+     */
+    public Flavor getFlavor() {
+        return flavor;
     }
 
     /**
@@ -60,7 +85,19 @@ public class Combo extends MenuItem {
      */
     @Override
     public String toString() {
+        return describe(this.price());
+    }
+
+    /**
+     * Describes the combo followed by the given extended price. The sandwich is shown
+     * without a price of its own, since only the combo's price is charged.
+     *
+     * @param linePrice the extended price to show
+     * @return formatted combo description
+     */
+    @Override
+    public String describe(double linePrice) {
         return String.format("Combo x%d: [%s], Side: %s, Drink: %s — $%.2f",
-                quantity, sandwich.toString(), sideType, flavor, this.price());
+                quantity, sandwich.describeBuild(), sideType, flavor, linePrice);
     }
 }
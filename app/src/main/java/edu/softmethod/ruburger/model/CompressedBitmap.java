@@ -0,0 +1,420 @@
+/**
+ * Compressed set of non-negative integers, used for order numbers in the RU Burger ordering system.
+ * <p>
+ * Values are split by their high 16 bits into chunks of 65,536. Each non-empty chunk is held
+ * in the cheaper of two containers: a sorted array of the low 16 bits while the chunk holds
+ * at most {@value #ARRAY_MAX} values (two bytes per value), or a 65,536-bit bitmap (8 KB)
+ * once it holds more. Sparse sets therefore cost about two bytes per value, and dense runs
+ * of consecutive order numbers cost at most one bit per number. Intersections work chunk by
+ * chunk, merging arrays, probing bitmaps from arrays, or ANDing bitmap words.
+ * </p>
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+public final class CompressedBitmap {
+
+    /** Largest number of values a chunk keeps in a sorted array. */
+    static final int ARRAY_MAX = 4096;
+
+    /** Number of 64-bit words in a bitmap container. */
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    /** High 16 bits of each chunk, ascending. */
+    private char[] keys = new char[4];
+
+    /** Container of each chunk, parallel to {@link #keys}. */
+    private Container[] containers = new Container[4];
+
+    /** Number of non-empty chunks. */
+    private int chunks;
+
+    /**
+     * Adds a value.
+     *
+     * @param value the value, at least 0
+     * @return true if the value was not already present
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public boolean add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        char key = (char) (value >>> 16);
+        int index = findChunk(key);
+        if (index < 0) {
+            index = -index - 1;
+            if (chunks == keys.length) {
+                keys = Arrays.copyOf(keys, chunks * 2);
+                containers = Arrays.copyOf(containers, chunks * 2);
+            }
+            System.arraycopy(keys, index, keys, index + 1, chunks - index);
+            System.arraycopy(containers, index, containers, index + 1, chunks - index);
+            keys[index] = key;
+            containers[index] = new Container();
+            chunks++;
+        }
+        return containers[index].add((char) value);
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @param value the value
+     * @return true if the value was present
+     */
+    public boolean remove(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = findChunk((char) (value >>> 16));
+        if (index < 0 || !containers[index].remove((char) value)) {
+            return false;
+        }
+        if (containers[index].cardinality == 0) {
+            System.arraycopy(keys, index + 1, keys, index, chunks - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, chunks - index - 1);
+            chunks--;
+            containers[chunks] = null;
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether a value is present.
+     *
+     * @param value the value
+     * @return true if present
+     */
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = findChunk((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * Returns the number of values present.
+     *
+     * @return the cardinality
+     */
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < chunks; i++) {
+            total += containers[i].cardinality;
+        }
+        return total;
+    }
+
+    /**
+     * Returns whether the set is empty.
+     *
+     * @return true if no values are present
+     */
+    public boolean isEmpty() {
+        return chunks == 0;
+    }
+
+    /**
+     * Returns a new set holding the values present in both this set and another.
+     *
+     * @param other the other set
+     * @return the intersection
+     */
+    public CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < chunks && j < other.chunks) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container both = containers[i].and(other.containers[j]);
+                if (both.cardinality > 0) {
+                    result.appendChunk(keys[i], both);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns an independent copy of this set.
+     *
+     * @return the copy
+     */
+    public CompressedBitmap copy() {
+        CompressedBitmap copy = new CompressedBitmap();
+        for (int i = 0; i < chunks; i++) {
+            copy.appendChunk(keys[i], containers[i].copy());
+        }
+        return copy;
+    }
+
+    /**
+     * Calls an action for every value in ascending order.
+     *
+     * @param action the action
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < chunks; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * Returns the values in ascending order.
+     *
+     * @return a new array of the values
+     */
+    public int[] toArray() {
+        int[] values = new int[cardinality()];
+        int[] position = new int[1];
+        forEach(value -> values[position[0]++] = value);
+        return values;
+    }
+
+    /**
+     * Appends a chunk whose key is greater than every existing key.
+     *
+     * @param key       the chunk key
+     * @param container the chunk's values
+     */
+    private void appendChunk(char key, Container container) {
+        if (chunks == keys.length) {
+            keys = Arrays.copyOf(keys, chunks * 2);
+            containers = Arrays.copyOf(containers, chunks * 2);
+        }
+        keys[chunks] = key;
+        containers[chunks] = container;
+        chunks++;
+    }
+
+    /**
+     * Finds a chunk by key.
+     *
+     * @param key the high 16 bits
+     * @return the chunk index, or {@code -(insertion point) - 1} if absent
+     */
+    private int findChunk(char key) {
+        return Arrays.binarySearch(keys, 0, chunks, key);
+    }
+
+    /**
+     * The low 16 bits of the values in one chunk, as a sorted array or a bitmap.
+     */
+    private static final class Container {
+        /** Sorted values while the container is an array; null once it is a bitmap. */
+        char[] values = new char[4];
+
+        /** Bitmap words once the container holds more than {@link #ARRAY_MAX} values. */
+        long[] bits;
+
+        /** Number of values held. */
+        int cardinality;
+
+        /**
+         * Adds a value.
+         *
+         * @param value the low 16 bits
+         * @return true if the value was not already present
+         */
+        boolean add(char value) {
+            if (bits != null) {
+                long mask = 1L << value;
+                long word = bits[value >>> 6];
+                if ((word & mask) != 0) {
+                    return false;
+                }
+                bits[value >>> 6] = word | mask;
+                cardinality++;
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                return add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return true;
+        }
+
+        /**
+         * Removes a value.
+         *
+         * @param value the low 16 bits
+         * @return true if the value was present
+         */
+        boolean remove(char value) {
+            if (bits != null) {
+                long mask = 1L << value;
+                long word = bits[value >>> 6];
+                if ((word & mask) == 0) {
+                    return false;
+                }
+                bits[value >>> 6] = word & ~mask;
+                cardinality--;
+                if (cardinality <= ARRAY_MAX / 2) {
+                    toArray();
+                }
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        /**
+         * Returns whether a value is present.
+         *
+         * @param value the low 16 bits
+         * @return true if present
+         */
+        boolean contains(char value) {
+            if (bits != null) {
+                return (bits[value >>> 6] & (1L << value)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        /**
+         * Intersects two containers.
+         *
+         * @param other the other container
+         * @return a new container holding the common values
+         */
+        Container and(Container other) {
+            Container result = new Container();
+            if (bits != null && other.bits != null) {
+                long[] words = new long[BITMAP_WORDS];
+                int count = 0;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] = bits[w] & other.bits[w];
+                    count += Long.bitCount(words[w]);
+                }
+                result.values = null;
+                result.bits = words;
+                result.cardinality = count;
+                if (count <= ARRAY_MAX) {
+                    result.toArray();
+                }
+                return result;
+            }
+            if (bits != null) {
+                return other.and(this);
+            }
+            result.values = new char[cardinality];
+            if (other.bits != null) {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result.values[result.cardinality++] = values[i];
+                    }
+                }
+                return result;
+            }
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < other.cardinality) {
+                if (values[i] < other.values[j]) {
+                    i++;
+                } else if (values[i] > other.values[j]) {
+                    j++;
+                } else {
+                    result.values[result.cardinality++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns an independent copy.
+         *
+         * @return the copy
+         */
+        Container copy() {
+            Container copy = new Container();
+            copy.values = values == null ? null : values.clone();
+            copy.bits = bits == null ? null : bits.clone();
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        /**
+         * Calls an action for every value in ascending order.
+         *
+         * @param high   the chunk's high bits, already shifted into place
+         * @param action the action
+         */
+        void forEach(int high, IntConsumer action) {
+            if (bits == null) {
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(high | values[i]);
+                }
+                return;
+            }
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        /**
+         * Converts an array container to a bitmap.
+         */
+        private void toBitmap() {
+            bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        /**
+         * Converts a bitmap container to a sorted array.
+         */
+        private void toArray() {
+            char[] array = new char[Math.max(4, cardinality)];
+            int n = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    array[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            values = array;
+            bits = null;
+        }
+    }
+}
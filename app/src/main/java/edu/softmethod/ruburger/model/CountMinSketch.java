@@ -0,0 +1,188 @@
+/**
+ * Count-Min sketch estimating how often {@code long} keys occur in a stream, in the RU
+ * Burger ordering system.
+ * <p>
+ * The sketch is a {@code depth x width} table of counters; each key is hashed to one counter
+ * per row, an update adds to all of them, and an estimate is the smallest of them. With
+ * {@code width = ceil(e / epsilon)} and {@code depth = ceil(ln(1 / delta))}, an estimate is
+ * never below the true count and, with probability at least {@code 1 - delta}, exceeds it by
+ * at most {@code epsilon * N}, where N is the total of all updates. Memory is fixed at
+ * {@code 8 * width * depth} bytes however many distinct keys are seen.
+ * </p>
+ * <p>
+ * Occurrences can be taken back out with {@link #remove(long, long)}, as long as no key's
+ * true count goes below zero. Every counter then still holds at least the true count of each
+ * key hashed to it, so the guarantees above hold with N the total after removals.
+ * </p>
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.util.Arrays;
+
+public final class CountMinSketch {
+
+    private final double epsilon;
+    private final double delta;
+    private final int width;
+    private final long[][] counts;
+    private final long[] seeds;
+    private long total;
+
+    /**
+     * Constructs a sketch with the given error bounds.
+     *
+     * @param epsilon the overestimate bound as a fraction of the stream total, in (0, 1)
+     * @param delta   the probability of exceeding that bound, in (0, 1)
+     * @throws IllegalArgumentException if either bound is out of range
+     */
+    public CountMinSketch(double epsilon, double delta) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("Bounds must be in (0, 1): epsilon=" + epsilon + ", delta=" + delta);
+        }
+        this.epsilon = epsilon;
+        this.delta = delta;
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        int depth = (int) Math.ceil(Math.log(1 / delta));
+        this.counts = new long[depth][width];
+        this.seeds = new long[depth];
+        for (int row = 0; row < depth; row++) {
+            seeds[row] = mix(0x9E3779B97F4A7C15L * (row + 1));
+        }
+    }
+
+    /**
+     * Adds occurrences of a key.
+     *
+     * @param key   the key
+     * @param count the number of occurrences to add, at least 0
+     * @return the key's estimated count after the update
+     */
+    public long add(long key, long count) {
+        total += count;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counts.length; row++) {
+            int column = column(row, key);
+            counts[row][column] += count;
+            estimate = Math.min(estimate, counts[row][column]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Removes occurrences of a key that were added earlier.
+     *
+     * @param key   the key
+     * @param count the number of occurrences to remove, at least 0 and at most the key's
+     *              true count
+     * @return the key's estimated count after the update
+     */
+    public long remove(long key, long count) {
+        total -= count;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counts.length; row++) {
+            int column = column(row, key);
+            counts[row][column] -= count;
+            estimate = Math.min(estimate, counts[row][column]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Estimates how often a key has occurred.
+     *
+     * @param key the key
+     * @return an estimate no lower than the true count
+     */
+    public long estimate(long key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counts.length; row++) {
+            estimate = Math.min(estimate, counts[row][column(row, key)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the total of all updates.
+     *
+     * @return the stream total N
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the bound that, with probability {@code 1 - delta}, no estimate exceeds its
+     * true count by: {@code epsilon * N}.
+     *
+     * @return the current error bound
+     */
+    public double getErrorBound() {
+        return epsilon * total;
+    }
+
+    /**
+     * Returns the overestimate bound as a fraction of the stream total.
+     *
+     * @return epsilon
+     */
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * Returns the probability of exceeding the error bound.
+     *
+     * @return delta
+     */
+    public double getDelta() {
+        return delta;
+    }
+
+    /**
+     * Returns the memory held by the counters.
+     *
+     * @return the size in bytes
+     */
+    public long getMemoryBytes() {
+        return (long) Long.BYTES * width * counts.length;
+    }
+
+    /**
+     * Resets every counter.
+     */
+    public void clear() {
+        for (long[] row : counts) {
+            Arrays.fill(row, 0);
+        }
+        total = 0;
+    }
+
+    /**
+     * Hashes a key to a column of a row.
+     *
+     * @param row the row
+     * @param key the key
+     * @return the column
+     */
+    private int column(int row, long key) {
+        return (int) Long.remainderUnsigned(mix(key ^ seeds[row]), width);
+    }
+
+    /**
+     * Scrambles a value with the SplitMix64 finalizer, so nearby keys spread over the table.
+     *
+     * @param value the value
+     * @return the scrambled value
+     */
+    static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,295 @@
+/**
+ * Compression applied to text exports of placed orders in the RU Burger ordering system.
+ * <p>
+ * Compression is a streaming stage between the text writer and the file: orders are
+ * encoded, compressed and written in {@value #BUFFER_SIZE}-byte chunks, so an export never
+ * holds more than a buffer of text or compressed output in memory.
+ * </p>
+ * <ul>
+ *   <li>{@link #NONE} writes the plain text export.</li>
+ *   <li>{@link #GZIP} writes a standard gzip file readable by any gzip tool.</li>
+ *   <li>{@link #DEFLATE_DICTIONARY} writes a zlib stream primed with a preset dictionary of
+ *       the item descriptions the menu prints. The gzip format has no way to name a
+ *       dictionary, so this is a separate format, read back with {@link #open(File)}. The
+ *       dictionary lets even the first orders of a file refer back to their item text, which
+ *       matters most for the small exports of a single register.</li>
+ * </ul>
+ * <p>
+ * A {@link #DEFLATE_DICTIONARY} file starts with the bytes {@code RBZ} and a dictionary
+ * version, followed by the zlib stream. Each version's dictionary is frozen: it is spelled
+ * out here rather than built from the menu enums, so adding a bread or flavor cannot change
+ * the bytes an older file was compressed against. A menu change that deserves a better
+ * dictionary adds a new version and keeps the old ones for reading.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+public enum ExportCompression {
+
+    /** Plain text. */
+    NONE(""),
+
+    /** Standard gzip. */
+    GZIP(".gz"),
+
+    /** zlib stream with the preset item-description dictionary. */
+    DEFLATE_DICTIONARY(".rbz");
+
+    /** Size of the buffers on both sides of the compressor. */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    /** Dictionary version written by {@link #DEFLATE_DICTIONARY}. */
+    public static final int DICTIONARY_VERSION = 1;
+
+    /** Bytes that start a {@link #DEFLATE_DICTIONARY} file, before the version byte. */
+    private static final byte[] MAGIC = {'R', 'B', 'Z'};
+
+    /** Zlib identifier (Adler-32) of each frozen dictionary, indexed by version. */
+    private static final int[] DICTIONARY_IDS = {0, 0x540727C8};
+
+    /** Names frozen into the version 1 dictionary, as the menu printed them at the time. */
+    private static final String[] V1_ADD_ONS = {"LETTUCE", "TOMATOES", "ONIONS", "AVOCADO", "CHEESE"};
+    private static final String[] V1_SIDES = {"CHIPS", "FRIES", "ONION_RINGS", "APPLE_SLICES"};
+    private static final String[] V1_FLAVORS = {"COLA", "TEA", "JUICE", "LIME", "CHERRY", "ORANGE", "GRAPE",
+            "PEACH", "MANGO", "STRAWBERRY", "RASPBERRY", "LEMON", "APPLE", "BLUEBERRY", "PINEAPPLE"};
+    private static final String[] V1_SIZES = {"SMALL", "MEDIUM", "LARGE"};
+    private static final String[] V1_BREADS = {"BRIOCHE", "WHEAT", "PRETZEL", "BAGEL", "SOURDOUGH"};
+    private static final String[] V1_PROTEINS = {"ROAST_BEEF", "SALMON", "CHICKEN"};
+
+    /** Lazily built dictionaries, indexed by version. */
+    private static final byte[][] dictionaries = new byte[DICTIONARY_IDS.length][];
+
+    private final String extension;
+
+    /**
+     * Constructs a compression option.
+     *
+     * @param extension the conventional file name suffix
+     */
+    ExportCompression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Returns the conventional file name suffix for this compression.
+     *
+     * @return the suffix, empty for {@link #NONE}
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Wraps a stream so that bytes written to the result are compressed into it. Closing the
+     * result finishes the compressed stream, releases the compressor and closes {@code out}.
+     *
+     * @param out the destination of the compressed bytes
+     * @return the stream accepting uncompressed bytes
+     * @throws IOException if a header cannot be written
+     */
+    OutputStream wrap(OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new BufferedOutputStream(new GZIPOutputStream(out, BUFFER_SIZE), BUFFER_SIZE);
+            case DEFLATE_DICTIONARY:
+                out.write(MAGIC);
+                out.write(DICTIONARY_VERSION);
+                Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+                deflater.setDictionary(dictionary(DICTIONARY_VERSION));
+                DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            def.end();
+                        }
+                    }
+                };
+                return new BufferedOutputStream(deflated, BUFFER_SIZE);
+            default:
+                return out;
+        }
+    }
+
+    /**
+     * Opens an export for reading, decompressing it if it was written with {@link #GZIP} or
+     * {@link #DEFLATE_DICTIONARY}. The format is recognized from the first bytes of the file.
+     *
+     * @param file the export
+     * @return a stream of the export's text bytes
+     * @throws IOException if the file cannot be opened or its header is corrupt
+     */
+    public static InputStream open(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        try {
+            in.mark(MAGIC.length + 1);
+            int first = in.read();
+            int second = in.read();
+            int third = in.read();
+            int version = in.read();
+            in.reset();
+            if (first == 0x1F && second == 0x8B) {
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            }
+            if (first == MAGIC[0] && second == MAGIC[1] && third == MAGIC[2]) {
+                if (version < 1 || version >= DICTIONARY_IDS.length) {
+                    throw new ZipException("Unsupported export dictionary version " + version);
+                }
+                for (int i = 0; i <= MAGIC.length; i++) {
+                    in.read();
+                }
+                return new DictionaryInflaterInputStream(in, version);
+            }
+            return in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a frozen preset dictionary, building it on first use.
+     * <p>
+     * Version 1 holds one instance of every side, beverage and combo description and every
+     * burger and sandwich prefix the menu printed, followed by the record framing. Deflate
+     * encodes nearer matches more cheaply, so the framing shared by every order comes last.
+     * </p>
+     *
+     * @param version the dictionary version
+     * @return the dictionary bytes; callers must not modify them
+     * @throws IllegalStateException if the built bytes do not match the frozen identifier
+     */
+    static synchronized byte[] dictionary(int version) {
+        if (dictionaries[version] == null) {
+            byte[] bytes = buildVersion1();
+            Adler32 adler = new Adler32();
+            adler.update(bytes);
+            if ((int) adler.getValue() != DICTIONARY_IDS[version]) {
+                throw new IllegalStateException("Export dictionary version " + version + " has changed");
+            }
+            dictionaries[version] = bytes;
+        }
+        return dictionaries[version];
+    }
+
+    /**
+     * Builds the version 1 dictionary from its frozen names.
+     *
+     * @return the dictionary bytes
+     */
+    private static byte[] buildVersion1() {
+        StringBuilder sb = new StringBuilder();
+        for (String addOn : V1_ADD_ONS) {
+            sb.append(addOn).append(", ");
+        }
+        for (String side : V1_SIDES) {
+            for (String flavor : V1_FLAVORS) {
+                sb.append("], Side: ").append(side).append(", Drink: ").append(flavor).append(" — $");
+            }
+        }
+        for (String flavor : V1_FLAVORS) {
+            for (String size : V1_SIZES) {
+                sb.append("- Beverage x1: [").append(flavor).append(", ").append(size).append("] — $");
+            }
+        }
+        for (String side : V1_SIDES) {
+            for (String size : V1_SIZES) {
+                sb.append("- Side x1: [").append(side).append(", ").append(size).append("] — $");
+            }
+        }
+        for (String bread : V1_BREADS) {
+            for (String protein : V1_PROTEINS) {
+                sb.append("Sandwich, ").append(protein).append(" (").append(bread).append(") [");
+            }
+            sb.append("Burger, single (").append(bread).append(") [");
+            sb.append("Burger, double (").append(bread).append(") [");
+        }
+        sb.append("- Combo x1: [");
+        sb.append(" x1 — $");
+        sb.append("\nTotal: $");
+        sb.append("====================================\n").append("Order #");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Inflater stream that supplies the preset dictionary when the zlib header asks for it.
+     * {@link InflaterInputStream} on its own reports end of stream at that point.
+     */
+    private static final class DictionaryInflaterInputStream extends InflaterInputStream {
+        private final int version;
+        private boolean closed;
+
+        /**
+         * Wraps a zlib stream written by {@link #DEFLATE_DICTIONARY}.
+         *
+         * @param in      the compressed stream, positioned after any header
+         * @param version the version of the dictionary it was compressed against
+         */
+        DictionaryInflaterInputStream(InputStream in, int version) {
+            super(in, new Inflater(), BUFFER_SIZE);
+            this.version = version;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            try {
+                while (true) {
+                    int n = inf.inflate(b, off, len);
+                    if (n > 0) {
+                        return n;
+                    }
+                    if (inf.finished()) {
+                        return -1;
+                    }
+                    if (inf.needsDictionary()) {
+                        if (inf.getAdler() != DICTIONARY_IDS[version]) {
+                            throw new ZipException("Export was compressed with a different dictionary");
+                        }
+                        inf.setDictionary(dictionary(version));
+                    } else if (inf.needsInput()) {
+                        fill();
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage() != null ? e.getMessage() : "Invalid compressed export");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                inf.end();
+                in.close();
+            }
+        }
+    }
+}
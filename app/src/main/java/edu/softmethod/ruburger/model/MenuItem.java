@@ -37,9 +37,29 @@ public abstract class MenuItem implements Serializable {
     }
 
     /**
-     * Calculates and returns the total price for the item based on quantity and item-specific pricing rules.
+     * Calculates and returns the total price for the item based on quantity and item-specific pricing rules,
+     * using the currently published {@link PriceCatalog}.
      *
      * @return the total price
      */
-    public abstract double price();
+    public double price() {
+        return price(PriceCatalog.current());
+    }
+
+    /**
+     * Calculates the total price for the item using the prices of the given catalog snapshot.
+     *
+     * @param catalog the catalog to price against
+     * @return the total price
+     */
+    public abstract double price(PriceCatalog catalog);
+
+    /**
+     * Describes the item ending in the given extended price, such as the line price frozen
+     * when its order was placed. {@link #toString()} describes it at its current price.
+     *
+     * @param linePrice the extended price to show
+     * @return string summary of the item
+     */
+    public abstract String describe(double linePrice);
 }
@@ -4,34 +4,161 @@
  * An order contains a list of {@link MenuItem} objects and maintains a unique order number.
  * It provides methods to add or remove items, calculate subtotal, tax, and total.
  * </p>
+ * <p>
+ * Once an order is placed its line prices, subtotal, tax and total are frozen, so later
+ * price changes never alter a placed order and reading its totals does no repricing.
+ * </p>
+ * <p>
+ * Items are held in a {@link PersistentVector}: every edit produces a new immutable version
+ * that shares structure with the previous one. {@link #getItems()} therefore returns a stable
+ * snapshot without copying, and {@link #undo()} and {@link #redo()} just switch versions.
+ * </p>
  *
  * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
  */
 
 package edu.softmethod.ruburger.model;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.List;
 
 public class Order {
 
-    /** Static counter to assign unique order numbers. */
-    private static int nextOrderNumber = 1;
+    /** Source of unique order numbers shared by all orders. */
+    private static volatile OrderNumberAllocator numberAllocator = new OrderNumberAllocator();
+
+    /** The unique number for this order, or 0 until the order is placed. */
+    private int number;
+
+    /** The current version of the menu items in this order. */
+    private PersistentVector<MenuItem> items;
+
+    /** Edits that can be undone, most recent first; null once placed. */
+    private ArrayDeque<Edit> undoStack;
+
+    /** Undone edits that can be redone, most recent first; null once placed. */
+    private ArrayDeque<Edit> redoStack;
+
+    /** Version of the {@link PriceCatalog} the order was priced under when placed, or 0 if not placed. */
+    private long catalogVersion;
+
+    /** Unit price of each line, frozen at placement; null until placed. */
+    private double[] unitPrices;
+
+    /** Extended (unit × quantity) price of each line, frozen at placement; null until placed. */
+    private double[] linePrices;
 
-    /** The unique number for this order. */
-    private final int number;
+    /** Incremental promotion state, or null if no promotions apply. */
+    private PromotionEngine.Evaluation promotions;
 
-    /** The list of menu items in this order. */
-    private ArrayList<MenuItem> items;
+    /** The catalog {@link #promotions} was last evaluated against. */
+    private PriceCatalog promotionCatalog;
+
+    /** Placement time in epoch milliseconds, or 0 if not placed. */
+    private long placedAt;
+
+    /** Promotion discount frozen at placement. */
+    private double placedDiscount;
+
+    /** Subtotal frozen at placement. */
+    private double placedSubtotal;
+
+    /** Tax frozen at placement. */
+    private double placedTax;
+
+    /** Total frozen at placement. */
+    private double placedTotal;
 
     /** The sales tax rate applied to all orders (6.625%). */
-    private static final double TAX_RATE = 0.06625;
+    static final double TAX_RATE = 0.06625;
 
     /**
-     * Constructs a new Order with a unique order number and an empty item list.
+     * One cart edit, recorded as the item versions before and after it.
+     */
+    private static final class Edit {
+        final PersistentVector<MenuItem> before;
+        final PersistentVector<MenuItem> after;
+        final MenuItem item;
+        final boolean added;
+
+        /**
+         * Constructs an edit record.
+         *
+         * @param before the items before the edit
+         * @param after  the items after the edit
+         * @param item   the added or removed item, or null if the order was cleared
+         * @param added  true if {@code item} was added, false if it was removed
+         */
+        Edit(PersistentVector<MenuItem> before, PersistentVector<MenuItem> after, MenuItem item, boolean added) {
+            this.before = before;
+            this.after = after;
+            this.item = item;
+            this.added = added;
+        }
+    }
+
+    /**
+     * Constructs a new Order with an empty item list. The order receives its unique
+     * number from the shared {@link OrderNumberAllocator} when it is placed, so numbers
+     * always ascend in placement order.
      */
     public Order() {
-        this.number = nextOrderNumber++;
-        this.items = new ArrayList<>();
+        this(0);
+    }
+
+    /**
+     * Constructs a new Order with an already reserved order number and an empty item list.
+     *
+     * @param number the order number
+     */
+    Order(int number) {
+        this.number = number;
+        this.items = PersistentVector.empty();
+        this.undoStack = new ArrayDeque<>();
+        this.redoStack = new ArrayDeque<>();
+    }
+
+    /**
+     * Constructs a placeholder that keeps a cancelled order's number and placement time in a
+     * sorted index, so the cancelled order can be swapped out without shifting the orders after
+     * it. The placeholder is not placed and is never handed out of the index.
+     *
+     * @param cancelled the cancelled order
+     * @return the placeholder
+     */
+    static Order placeholderFor(Order cancelled) {
+        Order placeholder = new Order(cancelled.number);
+        placeholder.placedAt = cancelled.placedAt;
+        return placeholder;
+    }
+
+    /**
+     * Assigns the order's number before placement.
+     *
+     * @param number the reserved order number
+     */
+    void renumber(int number) {
+        checkNotPlaced();
+        this.number = number;
+    }
+
+    /**
+     * Replaces the allocator used to number new orders, e.g. with a file-backed allocator
+     * shared by several registers.
+     *
+     * @param allocator the allocator to use
+     */
+    public static void setNumberAllocator(OrderNumberAllocator allocator) {
+        numberAllocator = allocator;
+    }
+
+    /**
+     * Returns the allocator used to number new orders.
+     *
+     * @return the {@link OrderNumberAllocator}
+     */
+    public static OrderNumberAllocator getNumberAllocator() {
+        return numberAllocator;
     }
 
     /**
@@ -40,7 +167,8 @@ public class Order {
      * @param item the menu item to add
      */
     public void addItem(MenuItem item) {
-        items.add(item);
+        checkNotPlaced();
+        record(new Edit(items, items.plus(item), item, true));
     }
 
     /**
@@ -49,62 +177,362 @@ public class Order {
      * @param item the menu item to remove
      */
     public void removeItem(MenuItem item) {
-        items.remove(item);
+        checkNotPlaced();
+        int index = items.indexOf(item);
+        if (index >= 0) {
+            record(new Edit(items, items.without(index), item, false));
+        }
     }
 
     /**
      * Clears all items from the order.
      */
     public void clear() {
-        items.clear();
+        checkNotPlaced();
+        if (!items.isEmpty()) {
+            record(new Edit(items, PersistentVector.empty(), null, false));
+        }
+    }
+
+    /**
+     * Reverts the most recent add, remove or clear that has not been undone.
+     *
+     * @return true if an edit was undone, false if there was nothing to undo
+     */
+    public boolean undo() {
+        checkNotPlaced();
+        Edit edit = undoStack.poll();
+        if (edit == null) {
+            return false;
+        }
+        redoStack.push(edit);
+        apply(edit.before, edit.item, !edit.added);
+        return true;
+    }
+
+    /**
+     * Re-applies the most recently undone edit.
+     *
+     * @return true if an edit was redone, false if there was nothing to redo
+     */
+    public boolean redo() {
+        checkNotPlaced();
+        Edit edit = redoStack.poll();
+        if (edit == null) {
+            return false;
+        }
+        undoStack.push(edit);
+        apply(edit.after, edit.item, edit.added);
+        return true;
+    }
+
+    /**
+     * Returns whether there is an edit that {@link #undo()} would revert.
+     *
+     * @return true if undo is possible
+     */
+    public boolean canUndo() {
+        return undoStack != null && !undoStack.isEmpty();
+    }
+
+    /**
+     * Returns whether there is an edit that {@link #redo()} would re-apply.
+     *
+     * @return true if redo is possible
+     */
+    public boolean canRedo() {
+        return redoStack != null && !redoStack.isEmpty();
+    }
+
+    /**
+     * Applies a new edit and makes it the only redo-able future.
+     *
+     * @param edit the edit
+     */
+    private void record(Edit edit) {
+        undoStack.push(edit);
+        redoStack.clear();
+        apply(edit.after, edit.item, edit.added);
+    }
+
+    /**
+     * Switches to an item version and updates the promotion state incrementally. If the
+     * catalog has been reloaded since the state was built, the items still in it were priced
+     * under the old catalog, so the state is rebuilt instead.
+     *
+     * @param version the items to switch to
+     * @param item    the item added or removed by the switch, or null to rebuild promotions
+     * @param added   true if {@code item} is in {@code version} but not the previous version
+     */
+    private void apply(PersistentVector<MenuItem> version, MenuItem item, boolean added) {
+        items = version;
+        if (promotions == null) {
+            return;
+        }
+        PriceCatalog catalog = PriceCatalog.current();
+        if (item == null || catalog != promotionCatalog) {
+            promotions.rebuild(items, catalog);
+            promotionCatalog = catalog;
+        } else if (added) {
+            promotions.itemAdded(item, catalog);
+        } else {
+            promotions.itemRemoved(item, catalog);
+        }
+    }
+
+    /**
+     * Attaches promotion state that is updated as items are added or removed.
+     *
+     * @param promotions the evaluation to attach, or null to detach
+     */
+    void attachPromotions(PromotionEngine.Evaluation promotions) {
+        checkNotPlaced();
+        this.promotions = promotions;
+        promotionCatalog = null;
+        if (promotions != null) {
+            promotionCatalog = PriceCatalog.current();
+            promotions.rebuild(items, promotionCatalog);
+        }
+    }
+
+    /**
+     * Freezes the order's prices against a catalog snapshot. Called once when the order is placed.
+     *
+     * @param catalog  the catalog the order is priced under
+     * @param placedAt the placement time in epoch milliseconds
+     */
+    void place(PriceCatalog catalog, long placedAt) {
+        checkNotPlaced();
+        int count = items.size();
+        double[] lines = new double[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = items.get(i).price(catalog);
+        }
+        freeze(catalog.getVersion(), placedAt, lines, runningDiscount(catalog));
+    }
+
+    /**
+     * Reverts a placement that could not be made durable, so the order can be edited and
+     * placed again. The order loses its number and its undo and redo history.
+     */
+    void unplace() {
+        number = 0;
+        catalogVersion = 0;
+        placedAt = 0;
+        placedDiscount = 0;
+        placedSubtotal = 0;
+        placedTax = 0;
+        placedTotal = 0;
+        unitPrices = null;
+        linePrices = null;
+        undoStack = new ArrayDeque<>();
+        redoStack = new ArrayDeque<>();
+    }
+
+    /**
+     * Restores an already placed order from persisted line prices without repricing it.
+     *
+     * @param catalogVersion the catalog version the order was placed under
+     * @param placedAt       the placement time in epoch milliseconds
+     * @param items          the order's items
+     * @param lines          the frozen extended price of each line
+     * @param discount       the frozen promotion discount
+     */
+    void restorePlaced(long catalogVersion, long placedAt, List<MenuItem> items, double[] lines, double discount) {
+        checkNotPlaced();
+        this.items = PersistentVector.copyOf(items);
+        freeze(catalogVersion, placedAt, lines, discount);
+    }
+
+    /**
+     * Stores the frozen line prices and derives unit prices, subtotal, tax and total.
+     *
+     * @param version  the catalog version
+     * @param placedAt the placement time in epoch milliseconds
+     * @param lines    the extended price of each line
+     * @param discount the promotion discount
+     */
+    private void freeze(long version, long placedAt, double[] lines, double discount) {
+        double[] units = new double[lines.length];
+        double subtotal = 0.0;
+        for (int i = 0; i < lines.length; i++) {
+            int quantity = items.get(i).getQuantity();
+            units[i] = quantity == 0 ? 0.0 : lines[i] / quantity;
+            subtotal += lines[i];
+        }
+        discount = Math.min(subtotal, discount);
+        subtotal -= discount;
+        catalogVersion = version;
+        this.placedAt = placedAt;
+        placedDiscount = discount;
+        placedSubtotal = subtotal;
+        placedTax = subtotal * TAX_RATE;
+        placedTotal = placedSubtotal + placedTax;
+        unitPrices = units;
+        linePrices = lines;
+        undoStack = null;
+        redoStack = null;
+    }
+
+    /**
+     * Returns whether the order has been placed and its prices frozen.
+     *
+     * @return true if placed
+     */
+    public boolean isPlaced() {
+        return linePrices != null;
+    }
+
+    /**
+     * Throws if the order has already been placed.
+     */
+    private void checkNotPlaced() {
+        if (isPlaced()) {
+            throw new IllegalStateException("Order #" + number + " has already been placed");
+        }
     }
 
     /**
      * Returns the unique order number.
      *
-     * @return the order number
+     * @return the order number, or 0 if the order has not been placed
      */
     public int getNumber() {
         return number;
     }
 
     /**
-     * Returns the list of items in the order.
+     * Returns the time the order was placed.
      *
-     * @return a list of {@link MenuItem} objects
+     * @return the placement time in epoch milliseconds, or 0 if not placed
      */
-    public ArrayList<MenuItem> getItems() {
+    public long getPlacedAt() {
+        return placedAt;
+    }
+
+    /**
+     * Returns the version of the price catalog the order was placed under.
+     *
+     * @return the catalog version, or 0 if the order has not been placed
+     */
+    public long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    /**
+     * Returns the items in the order as an immutable snapshot. Later edits produce a new
+     * version and never change a list already returned.
+     *
+     * @return a read-only list of {@link MenuItem} objects
+     */
+    public List<MenuItem> getItems() {
         return items;
     }
 
     /**
-     * Calculates the subtotal (before tax) of the order.
+     * Returns the unit price of a line: frozen if placed, otherwise from the current catalog.
+     *
+     * @param index the line index
+     * @return the unit price
+     */
+    public double getUnitPrice(int index) {
+        if (unitPrices != null) {
+            return unitPrices[index];
+        }
+        MenuItem item = items.get(index);
+        return item.getQuantity() == 0 ? 0.0 : item.price() / item.getQuantity();
+    }
+
+    /**
+     * Returns the extended price of a line: frozen if placed, otherwise from the current catalog.
+     *
+     * @param index the line index
+     * @return the extended line price
+     */
+    public double getLinePrice(int index) {
+        return linePrices != null ? linePrices[index] : items.get(index).price();
+    }
+
+    /**
+     * Describes a line with its {@link #getLinePrice(int) line price}, so a placed order
+     * shows what was charged even after the catalog changes.
+     *
+     * @param index the line index
+     * @return the line description
+     */
+    public String getLineText(int index) {
+        return items.get(index).describe(getLinePrice(index));
+    }
+
+    /**
+     * Returns the promotion discount: frozen if placed, otherwise the running discount.
+     *
+     * @return the discount amount
+     */
+    public double getDiscount() {
+        if (linePrices != null) {
+            return placedDiscount;
+        }
+        return runningDiscount(PriceCatalog.current());
+    }
+
+    /**
+     * Returns the discount earned by the unplaced order under a catalog, first rebuilding
+     * the promotion state if it was evaluated against a different catalog.
+     *
+     * @param catalog the catalog the order is currently priced under
+     * @return the discount amount, or 0 if no promotions apply
+     */
+    private double runningDiscount(PriceCatalog catalog) {
+        if (promotions == null) {
+            return 0.0;
+        }
+        if (catalog != promotionCatalog) {
+            promotions.rebuild(items, catalog);
+            promotionCatalog = catalog;
+        }
+        return promotions.getDiscount();
+    }
+
+    /**
+     * Calculates the subtotal (before tax, after promotion discounts) of the order,
+     * or returns the frozen subtotal if placed.
      *
      * @return the subtotal amount
      */
     public double getSubtotal() {
+        if (linePrices != null) {
+            return placedSubtotal;
+        }
+        PriceCatalog catalog = PriceCatalog.current();
         double total = 0.0;
         for (MenuItem item : items) {
-            total += item.price();
+            total += item.price(catalog);
         }
-        return total;
+        return total - Math.min(total, runningDiscount(catalog));
     }
 
     /**
-     * Calculates the tax based on the subtotal and a fixed tax rate.
+     * Calculates the tax based on the subtotal and a fixed tax rate, or returns the frozen tax if placed.
      *
      * @return the tax amount
      */
     public double getTax() {
+        if (linePrices != null) {
+            return placedTax;
+        }
         return getSubtotal() * TAX_RATE;
     }
 
     /**
-     * Calculates the total amount including subtotal and tax.
+     * Calculates the total amount including subtotal and tax, or returns the frozen total if placed.
      *
      * @return the total price of the order
      */
     public double getTotal() {
+        if (linePrices != null) {
+            return placedTotal;
+        }
         return getSubtotal() + getTax();
     }
 }
@@ -0,0 +1,354 @@
+/**
+ * Off-heap archive of placed order lines backed by memory-mapped segment files
+ * in the RU Burger ordering system.
+ * <p>
+ * Each line item is written as a fixed-width 32-byte record into a mapped segment file
+ * inside the archive directory. Record data lives in the OS page cache rather than the
+ * Java heap, so the amount of archived history has no effect on garbage collection.
+ * Records are read in place through absolute buffer reads, without copying them onto the
+ * heap or creating {@link MenuItem} objects.
+ * </p>
+ * <p>
+ * Records are appended in placement order, so order numbers ascend across segments and
+ * lookups by order number use binary search. Empty slots are recognised by a zero order
+ * number, which lets an archive be reopened and appended to after a restart.
+ * {@link #replaceAll(List)} rewrites the archive from a list of placed orders when the
+ * orders were rebuilt some other way, for example by recovery or an import.
+ * </p>
+ * <p>
+ * An {@link OrderManager} with an archive attached keeps its line history here instead of
+ * in an on-heap {@link OrderHistoryStore}. The placed {@link Order} objects themselves stay
+ * on the heap for the UI, snapshots and exports.
+ * </p>
+ *
+ * <p>Record layout: order number (int), flags (int), timestamp (long), SKU (long),
+ * quantity (int), price in cents (int).</p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class OrderArchive implements OrderLineHistory, Closeable {
+
+    /** Size of a single line record in bytes. */
+    public static final int RECORD_SIZE = 32;
+
+    /** Number of records held by one segment file. */
+    private static final int SEGMENT_RECORDS = 1 << 16;
+
+    /** Size of a segment file in bytes (2 MiB). */
+    private static final long SEGMENT_BYTES = (long) SEGMENT_RECORDS * RECORD_SIZE;
+
+    /** Flag bit set on records that belong to a cancelled order. */
+    private static final int FLAG_CANCELLED = 1;
+
+    private static final int OFF_NUMBER = 0;
+    private static final int OFF_FLAGS = 4;
+    private static final int OFF_TIMESTAMP = 8;
+    private static final int OFF_SKU = 16;
+    private static final int OFF_QUANTITY = 24;
+    private static final int OFF_CENTS = 28;
+
+    /** Directory holding the segment files. */
+    private final File directory;
+
+    /** Mapped segments in order; only the last one receives appends. */
+    private final ArrayList<MappedByteBuffer> segments = new ArrayList<>();
+
+    /** Total number of records written across all segments. */
+    private long size;
+
+    /**
+     * Opens (or creates) an archive in the given directory and maps its existing segments.
+     *
+     * @param directory the directory holding the segment files
+     * @throws IOException if the directory cannot be created or a segment cannot be mapped
+     */
+    public OrderArchive(File directory) throws IOException {
+        this.directory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create archive directory " + directory);
+        }
+        for (int index = 0; segmentFile(index).exists(); index++) {
+            segments.add(map(index));
+        }
+        if (!segments.isEmpty()) {
+            size = (long) (segments.size() - 1) * SEGMENT_RECORDS + countRecords(segments.get(segments.size() - 1));
+        }
+    }
+
+    /**
+     * Appends every line of a placed order.
+     *
+     * @param order     the placed order
+     * @param timestamp the placement time in epoch milliseconds
+     * @throws IOException if a new segment file cannot be mapped
+     */
+    public synchronized void append(Order order, long timestamp) throws IOException {
+        List<MenuItem> items = order.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            MenuItem item = items.get(i);
+            appendRow(order.getNumber(), timestamp, SkuCodec.encode(item),
+                    item.getQuantity(), OrderHistoryStore.toCents(order.getLinePrice(i)));
+        }
+    }
+
+    /**
+     * Appends a single line record, mapping a new segment when the current one is full.
+     *
+     * @param orderNumber the order number (must be positive)
+     * @param timestamp   the placement timestamp
+     * @param sku         the packed SKU
+     * @param quantity    the quantity ordered
+     * @param cents       the extended price in cents
+     * @throws IOException if a new segment file cannot be mapped
+     */
+    public synchronized void appendRow(int orderNumber, long timestamp, long sku, int quantity, int cents)
+            throws IOException {
+        int slot = (int) (size % SEGMENT_RECORDS);
+        if (slot == 0 && size / SEGMENT_RECORDS == segments.size()) {
+            segments.add(map(segments.size()));
+        }
+        MappedByteBuffer segment = segments.get((int) (size / SEGMENT_RECORDS));
+        int base = slot * RECORD_SIZE;
+        segment.putInt(base + OFF_FLAGS, 0);
+        segment.putLong(base + OFF_TIMESTAMP, timestamp);
+        segment.putLong(base + OFF_SKU, sku);
+        segment.putInt(base + OFF_QUANTITY, quantity);
+        segment.putInt(base + OFF_CENTS, cents);
+        // The order number is written last since a non-zero number marks the slot as used.
+        segment.putInt(base + OFF_NUMBER, orderNumber);
+        size++;
+    }
+
+    /**
+     * Replaces the archive's records with the lines of the given orders. Slots beyond the
+     * new end are cleared and segments no longer needed are deleted, so a reopened archive
+     * sees exactly these orders.
+     *
+     * @param orders the placed orders, in ascending number order
+     * @throws IOException if a segment cannot be mapped or deleted
+     */
+    public synchronized void replaceAll(List<Order> orders) throws IOException {
+        long previous = size;
+        size = 0;
+        for (Order order : orders) {
+            append(order, order.getPlacedAt());
+        }
+        int needed = (int) ((size + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS);
+        long keptRows = Math.min(previous, (long) needed * SEGMENT_RECORDS);
+        for (long row = size; row < keptRows; row++) {
+            MappedByteBuffer segment = segments.get((int) (row / SEGMENT_RECORDS));
+            segment.putInt((int) (row % SEGMENT_RECORDS) * RECORD_SIZE + OFF_NUMBER, 0);
+        }
+        while (segments.size() > needed) {
+            int index = segments.size() - 1;
+            segments.remove(index);
+            if (!segmentFile(index).delete()) {
+                throw new IOException("Cannot delete archive segment " + segmentFile(index));
+            }
+        }
+    }
+
+    /**
+     * Flags every record of the given order as cancelled.
+     *
+     * @param orderNumber the cancelled order number
+     */
+    public synchronized void markCancelled(int orderNumber) {
+        for (long row = firstRow(orderNumber); row < size && numberAt(row) == orderNumber; row++) {
+            MappedByteBuffer segment = segments.get((int) (row / SEGMENT_RECORDS));
+            int flagsOffset = (int) (row % SEGMENT_RECORDS) * RECORD_SIZE + OFF_FLAGS;
+            segment.putInt(flagsOffset, segment.getInt(flagsOffset) | FLAG_CANCELLED);
+        }
+    }
+
+    /**
+     * Visits every non-cancelled record in placement order.
+     *
+     * @param visitor the callback receiving each record
+     */
+    @Override
+    public synchronized void scan(OrderHistoryStore.LineVisitor visitor) {
+        visitRange(0, size, visitor);
+    }
+
+    /**
+     * Returns the sum of the prices of all non-cancelled records, read in place.
+     *
+     * @return the total sales in cents, before tax
+     */
+    @Override
+    public synchronized long totalCents() {
+        long[] total = new long[1];
+        visitRange(0, size, (number, timestamp, sku, quantity, cents) -> total[0] += cents);
+        return total[0];
+    }
+
+    /**
+     * Visits the records of a single order using binary search on the order number.
+     *
+     * @param orderNumber the order to read
+     * @param visitor     the callback receiving each record
+     * @return true if the order was found and is not cancelled
+     */
+    public synchronized boolean readOrder(int orderNumber, OrderHistoryStore.LineVisitor visitor) {
+        long first = firstRow(orderNumber);
+        long end = first;
+        while (end < size && numberAt(end) == orderNumber) {
+            end++;
+        }
+        if (end == first || (flagsAt(first) & FLAG_CANCELLED) != 0) {
+            return false;
+        }
+        visitRange(first, end, visitor);
+        return true;
+    }
+
+    /**
+     * Returns the number of records written, including cancelled ones.
+     *
+     * @return the record count
+     */
+    @Override
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Forces all mapped segments to be written to storage.
+     */
+    public synchronized void flush() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Flushes the archive. Mapped buffers are released when they are garbage collected.
+     */
+    @Override
+    public synchronized void close() {
+        flush();
+        segments.clear();
+    }
+
+    /**
+     * Visits the non-cancelled records in {@code [from, to)}.
+     *
+     * @param from    the first row
+     * @param to      the row after the last one
+     * @param visitor the callback receiving each record
+     */
+    private void visitRange(long from, long to, OrderHistoryStore.LineVisitor visitor) {
+        for (long row = from; row < to; row++) {
+            MappedByteBuffer segment = segments.get((int) (row / SEGMENT_RECORDS));
+            int base = (int) (row % SEGMENT_RECORDS) * RECORD_SIZE;
+            if ((segment.getInt(base + OFF_FLAGS) & FLAG_CANCELLED) != 0) {
+                continue;
+            }
+            visitor.visit(segment.getInt(base + OFF_NUMBER),
+                    segment.getLong(base + OFF_TIMESTAMP),
+                    segment.getLong(base + OFF_SKU),
+                    segment.getInt(base + OFF_QUANTITY),
+                    segment.getInt(base + OFF_CENTS));
+        }
+    }
+
+    /**
+     * Binary searches for the first row whose order number is not less than the given one.
+     *
+     * @param orderNumber the order number to find
+     * @return the first matching row, or {@link #size} if none
+     */
+    private long firstRow(int orderNumber) {
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (numberAt(mid) < orderNumber) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Reads the order number of a row in place.
+     *
+     * @param row the row index
+     * @return the stored order number
+     */
+    private int numberAt(long row) {
+        return segments.get((int) (row / SEGMENT_RECORDS))
+                .getInt((int) (row % SEGMENT_RECORDS) * RECORD_SIZE + OFF_NUMBER);
+    }
+
+    /**
+     * Reads the flags of a row in place.
+     *
+     * @param row the row index
+     * @return the stored flags
+     */
+    private int flagsAt(long row) {
+        return segments.get((int) (row / SEGMENT_RECORDS))
+                .getInt((int) (row % SEGMENT_RECORDS) * RECORD_SIZE + OFF_FLAGS);
+    }
+
+    /**
+     * Counts the used slots at the start of a segment by binary searching for the first
+     * record with a zero order number.
+     *
+     * @param segment the mapped segment
+     * @return the number of used records
+     */
+    private static int countRecords(MappedByteBuffer segment) {
+        int low = 0;
+        int high = SEGMENT_RECORDS;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (segment.getInt(mid * RECORD_SIZE + OFF_NUMBER) != 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Maps the segment file with the given index, creating it if needed.
+     *
+     * @param index the segment index
+     * @return the mapped buffer
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    private MappedByteBuffer map(int index) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile(index), "rw")) {
+            return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        }
+    }
+
+    /**
+     * Returns the file used for the segment with the given index.
+     *
+     * @param index the segment index
+     * @return the segment file
+     */
+    private File segmentFile(int index) {
+        return new File(directory, String.format(Locale.US, "orders-%05d.seg", index));
+    }
+}
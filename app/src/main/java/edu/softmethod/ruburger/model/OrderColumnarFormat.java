@@ -0,0 +1,491 @@
+/**
+ * Compact columnar binary export of placed orders, with a matching reader, in the RU Burger
+ * ordering system.
+ * <p>
+ * A file holds one row per order line. Rows are grouped into blocks of up to
+ * {@value #BLOCK_ROWS}, and each block stores its columns one after another, every column
+ * prefixed by its length in bytes so a reader can skip the columns it does not need:
+ * </p>
+ * <pre>
+ * header:  int magic "RBX1", int version, long row count, int order count
+ * block:   int rows
+ *          int length, order numbers   zigzag varint deltas from the previous row
+ *          int length, timestamps      zigzag varint deltas from the previous row
+ *          int length, SKUs            varint dictionary size, varint configurations,
+ *                                      then one varint dictionary index per row
+ *          int length, quantities      varint
+ *          int length, cents           zigzag varint
+ *          int length, order totals    zigzag varint: the order's total in cents, including
+ *                                      discount and tax, on its first line; 0 on the others
+ * </pre>
+ * <p>
+ * SKUs are dictionary-encoded by their {@link SkuCodec#configuration(long) configuration}
+ * (the packed enums without the quantity), so the handful of distinct menu configurations
+ * in a block cost a byte or two per row. Consecutive lines of one order share a number and
+ * timestamp, so those columns mostly hold single zero bytes. Files are written to a
+ * temporary file and renamed into place; they are read through a memory mapping. A file
+ * that is truncated or otherwise damaged, or has another version, is reported with an
+ * {@link IOException}.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+public final class OrderColumnarFormat {
+
+    /** Magic number identifying a columnar export ("RBX1"). */
+    private static final int MAGIC = 0x52425831;
+
+    /** Format version written, and the only one read. */
+    private static final int VERSION = 2;
+
+    /** Size of the file header in bytes. */
+    private static final int HEADER_BYTES = 20;
+
+    /** Maximum number of rows per block. */
+    public static final int BLOCK_ROWS = 4096;
+
+    /**
+     * Private constructor; this class only exposes static helpers.
+     */
+    private OrderColumnarFormat() {
+    }
+
+    /**
+     * Writes the lines of placed orders to a columnar export, replacing the file atomically.
+     * Orders without lines have no row to carry their total and are left out.
+     *
+     * @param orders the placed orders
+     * @param file   the destination
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(List<Order> orders, File file) throws IOException {
+        long rows = 0;
+        for (Order order : orders) {
+            rows += order.getItems().size();
+        }
+        File temp = File.createTempFile(file.getName() + ".", ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(rows);
+                out.writeInt(orders.size());
+
+                BlockWriter block = new BlockWriter();
+                for (Order order : orders) {
+                    List<MenuItem> items = order.getItems();
+                    int orderCents = OrderHistoryStore.toCents(order.getTotal());
+                    for (int i = 0; i < items.size(); i++) {
+                        MenuItem item = items.get(i);
+                        block.add(order.getNumber(), order.getPlacedAt(), SkuCodec.encode(item),
+                                item.getQuantity(), OrderHistoryStore.toCents(order.getLinePrice(i)),
+                                i == 0 ? orderCents : 0);
+                        if (block.rows == BLOCK_ROWS) {
+                            block.writeTo(out);
+                        }
+                    }
+                }
+                if (block.rows > 0) {
+                    block.writeTo(out);
+                }
+                out.flush();
+                fileOut.getFD().sync();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Cannot move export into place: " + file);
+            }
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Visits every line in a columnar export, in the order written.
+     *
+     * @param file    the export
+     * @param visitor the callback receiving each line
+     * @throws IOException if the file cannot be read, is not a columnar export or is damaged
+     */
+    public static void scan(File file, OrderHistoryStore.LineVisitor visitor) throws IOException {
+        ByteBuffer buffer = open(file);
+        long rows;
+        try {
+            rows = scanBlocks(buffer, visitor);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw damaged(file, e);
+        }
+        checkRowCount(buffer, rows, file);
+    }
+
+    /**
+     * Decodes the blocks of a mapped export, visiting every line.
+     *
+     * @param buffer  the export, positioned at the first block
+     * @param visitor the callback receiving each line
+     * @return the number of rows decoded
+     * @throws IOException if a block holds more rows than the format allows
+     */
+    private static long scanBlocks(ByteBuffer buffer, OrderHistoryStore.LineVisitor visitor) throws IOException {
+        long seen = 0;
+        int[] numbers = new int[BLOCK_ROWS];
+        long[] timestamps = new long[BLOCK_ROWS];
+        long[] skus = new long[BLOCK_ROWS];
+        int[] quantities = new int[BLOCK_ROWS];
+        int[] cents = new int[BLOCK_ROWS];
+        long[] dictionary = new long[16];
+        while (buffer.hasRemaining()) {
+            int rows = readRows(buffer);
+            seen += rows;
+
+            buffer.getInt();
+            int number = 0;
+            for (int r = 0; r < rows; r++) {
+                number += (int) readZigzag(buffer);
+                numbers[r] = number;
+            }
+
+            buffer.getInt();
+            long timestamp = 0;
+            for (int r = 0; r < rows; r++) {
+                timestamp += readZigzag(buffer);
+                timestamps[r] = timestamp;
+            }
+
+            buffer.getInt();
+            int dictionarySize = (int) readVarLong(buffer);
+            if (dictionary.length < dictionarySize) {
+                dictionary = new long[dictionarySize];
+            }
+            for (int d = 0; d < dictionarySize; d++) {
+                dictionary[d] = readVarLong(buffer);
+            }
+            for (int r = 0; r < rows; r++) {
+                skus[r] = dictionary[(int) readVarLong(buffer)];
+            }
+
+            buffer.getInt();
+            for (int r = 0; r < rows; r++) {
+                quantities[r] = (int) readVarLong(buffer);
+            }
+
+            buffer.getInt();
+            for (int r = 0; r < rows; r++) {
+                cents[r] = (int) readZigzag(buffer);
+            }
+            skipColumn(buffer);
+
+            for (int r = 0; r < rows; r++) {
+                visitor.visit(numbers[r], timestamps[r], SkuCodec.withQuantity(skus[r], quantities[r]),
+                        quantities[r], cents[r]);
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * Sums the order totals in a columnar export, including discounts and tax, decoding only
+     * the order totals column.
+     *
+     * @param file the export
+     * @return the total in cents
+     * @throws IOException if the file cannot be read, is not a columnar export or is damaged
+     */
+    public static long totalCents(File file) throws IOException {
+        ByteBuffer buffer = open(file);
+        long total = 0;
+        long seen = 0;
+        try {
+            while (buffer.hasRemaining()) {
+                int rows = readRows(buffer);
+                seen += rows;
+                for (int column = 0; column < 5; column++) {
+                    skipColumn(buffer);
+                }
+                buffer.getInt();
+                for (int r = 0; r < rows; r++) {
+                    total += readZigzag(buffer);
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw damaged(file, e);
+        }
+        checkRowCount(buffer, seen, file);
+        return total;
+    }
+
+    /**
+     * Returns the number of rows recorded in a columnar export's header.
+     *
+     * @param file the export
+     * @return the row count
+     * @throws IOException if the file cannot be read or is not a columnar export
+     */
+    public static long rowCount(File file) throws IOException {
+        return open(file).getLong(2 * Integer.BYTES);
+    }
+
+    /**
+     * Maps an export and validates its header.
+     *
+     * @param file the export
+     * @return a buffer positioned at the first block
+     * @throws IOException if the file cannot be read or is not a columnar export
+     */
+    private static ByteBuffer open(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a columnar order export: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported columnar export version " + version + ": " + file);
+        }
+        buffer.getLong();
+        buffer.getInt();
+        return buffer;
+    }
+
+    /**
+     * Reads the row count that starts a block.
+     *
+     * @param buffer the export, positioned at a block
+     * @return the number of rows in the block
+     * @throws IOException if the count is out of range
+     */
+    private static int readRows(ByteBuffer buffer) throws IOException {
+        int rows = buffer.getInt();
+        if (rows < 1 || rows > BLOCK_ROWS) {
+            throw new IOException("Invalid block of " + rows + " rows");
+        }
+        return rows;
+    }
+
+    /**
+     * Skips a length-prefixed column.
+     *
+     * @param buffer the export, positioned at the column
+     */
+    private static void skipColumn(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * Checks that the blocks held as many rows as the header promised, which catches a file
+     * cut off at a block boundary.
+     *
+     * @param buffer the mapped export
+     * @param rows   the number of rows decoded
+     * @param file   the export
+     * @throws IOException if the counts differ
+     */
+    private static void checkRowCount(ByteBuffer buffer, long rows, File file) throws IOException {
+        long expected = buffer.getLong(2 * Integer.BYTES);
+        if (rows != expected) {
+            throw new IOException("Columnar export holds " + rows + " of " + expected + " rows: " + file);
+        }
+    }
+
+    /**
+     * Builds the error reported for a file whose contents end early or contradict themselves.
+     *
+     * @param file  the export
+     * @param cause the decoding failure
+     * @return the exception to throw
+     */
+    private static IOException damaged(File file, RuntimeException cause) {
+        return new IOException("Truncated or corrupt columnar export: " + file, cause);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint.
+     *
+     * @param buffer the source
+     * @return the value
+     */
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Reads a zigzag-encoded signed varint.
+     *
+     * @param buffer the source
+     * @return the value
+     */
+    private static long readZigzag(ByteBuffer buffer) {
+        long raw = readVarLong(buffer);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    /**
+     * Accumulates one block of rows and encodes it column by column.
+     */
+    private static final class BlockWriter {
+        final int[] numbers = new int[BLOCK_ROWS];
+        final long[] timestamps = new long[BLOCK_ROWS];
+        final long[] configurations = new long[BLOCK_ROWS];
+        final int[] quantities = new int[BLOCK_ROWS];
+        final int[] cents = new int[BLOCK_ROWS];
+        final int[] orderCents = new int[BLOCK_ROWS];
+        final HashMap<Long, Integer> dictionary = new HashMap<>();
+        final ByteSink column = new ByteSink();
+        int rows;
+
+        /**
+         * Adds a row.
+         *
+         * @param number     the order number
+         * @param timestamp  the placement timestamp
+         * @param sku        the packed SKU
+         * @param quantity   the quantity ordered
+         * @param cents      the extended price in cents
+         * @param orderCents the order's total in cents on its first line, 0 on the others
+         */
+        void add(int number, long timestamp, long sku, int quantity, int cents, int orderCents) {
+            numbers[rows] = number;
+            timestamps[rows] = timestamp;
+            configurations[rows] = SkuCodec.configuration(sku);
+            quantities[rows] = quantity;
+            this.cents[rows] = cents;
+            this.orderCents[rows] = orderCents;
+            rows++;
+        }
+
+        /**
+         * Encodes the block, writes it and resets for the next one.
+         *
+         * @param out the destination
+         * @throws IOException if writing fails
+         */
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(rows);
+
+            long previous = 0;
+            for (int r = 0; r < rows; r++) {
+                column.writeZigzag(numbers[r] - previous);
+                previous = numbers[r];
+            }
+            column.flushTo(out);
+
+            previous = 0;
+            for (int r = 0; r < rows; r++) {
+                column.writeZigzag(timestamps[r] - previous);
+                previous = timestamps[r];
+            }
+            column.flushTo(out);
+
+            dictionary.clear();
+            long[] entries = new long[rows];
+            int[] indexes = new int[rows];
+            for (int r = 0; r < rows; r++) {
+                Integer index = dictionary.get(configurations[r]);
+                if (index == null) {
+                    index = dictionary.size();
+                    dictionary.put(configurations[r], index);
+                    entries[index] = configurations[r];
+                }
+                indexes[r] = index;
+            }
+            column.writeVarLong(dictionary.size());
+            for (long entry : Arrays.copyOf(entries, dictionary.size())) {
+                column.writeVarLong(entry);
+            }
+            for (int r = 0; r < rows; r++) {
+                column.writeVarLong(indexes[r]);
+            }
+            column.flushTo(out);
+
+            for (int r = 0; r < rows; r++) {
+                column.writeVarLong(quantities[r]);
+            }
+            column.flushTo(out);
+
+            for (int r = 0; r < rows; r++) {
+                column.writeZigzag(cents[r]);
+            }
+            column.flushTo(out);
+
+            for (int r = 0; r < rows; r++) {
+                column.writeZigzag(orderCents[r]);
+            }
+            column.flushTo(out);
+            rows = 0;
+        }
+    }
+
+    /**
+     * Growable byte buffer used to encode one column before its length is known.
+     */
+    private static final class ByteSink {
+        byte[] bytes = new byte[BLOCK_ROWS * 2];
+        int length;
+
+        /**
+         * Appends an unsigned LEB128 varint.
+         *
+         * @param value the value, treated as unsigned
+         */
+        void writeVarLong(long value) {
+            if (bytes.length - length < 10) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        /**
+         * Appends a zigzag-encoded signed varint.
+         *
+         * @param value the value
+         */
+        void writeZigzag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * Writes the column prefixed by its length and clears the buffer.
+         *
+         * @param out the destination
+         * @throws IOException if writing fails
+         */
+        void flushTo(DataOutputStream out) throws IOException {
+            out.writeInt(length);
+            out.write(bytes, 0, length);
+            length = 0;
+        }
+    }
+}
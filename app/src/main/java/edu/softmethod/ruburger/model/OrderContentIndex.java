@@ -0,0 +1,189 @@
+/**
+ * Inverted index from item attributes to the placed orders containing them in the RU Burger
+ * ordering system.
+ * <p>
+ * Each attribute maps to a {@link CompressedBitmap} of the numbers of the placed orders that
+ * contain it. The attributes are the menu enums ({@link Protein}, {@link Bread},
+ * {@link AddOns}, {@link Flavor}, {@link SideType} and {@link Size}) and the item classes
+ * ({@code Sandwich.class}, {@code Burger.class}, {@code Combo.class}, {@code Side.class},
+ * {@code Beverage.class}). A combo also contributes the attributes of the sandwich or burger
+ * it wraps, its side type and its drink flavor.
+ * </p>
+ * <p>
+ * A query intersects the bitmaps of its attributes, smallest first, so its cost depends on
+ * the size of the matching sets rather than on the number of orders. The bitmaps are kept per
+ * order, so the intersection is a candidate set: for "salmon on pretzel" it also holds an
+ * order with a salmon sandwich on wheat and a burger on pretzel.
+ * {@link OrderManager#findOrders(Object...)} checks each candidate with
+ * {@link #matches(Order, Object...)}, which requires one item to carry every attribute.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class OrderContentIndex {
+
+    /** Bitmaps of order numbers, keyed by enum constant or item class. */
+    private final HashMap<Object, CompressedBitmap> postings = new HashMap<>();
+
+    /**
+     * Indexes a placed order.
+     *
+     * @param order the placed order
+     */
+    public synchronized void add(Order order) {
+        for (Object attribute : attributes(order)) {
+            postings.computeIfAbsent(attribute, key -> new CompressedBitmap()).add(order.getNumber());
+        }
+    }
+
+    /**
+     * Removes a cancelled order from the index.
+     *
+     * @param order the cancelled order
+     */
+    public synchronized void remove(Order order) {
+        for (Object attribute : attributes(order)) {
+            CompressedBitmap bitmap = postings.get(attribute);
+            if (bitmap != null) {
+                bitmap.remove(order.getNumber());
+                if (bitmap.isEmpty()) {
+                    postings.remove(attribute);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the numbers of the placed orders containing every given attribute, possibly on
+     * different items.
+     *
+     * @param attributes menu enum constants and item classes
+     * @return a new bitmap of matching order numbers
+     * @throws IllegalArgumentException if no attributes are given or one is not indexable
+     */
+    public synchronized CompressedBitmap query(Object... attributes) {
+        if (attributes.length == 0) {
+            throw new IllegalArgumentException("At least one attribute is required");
+        }
+        CompressedBitmap[] bitmaps = new CompressedBitmap[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            checkAttribute(attributes[i]);
+            bitmaps[i] = postings.get(attributes[i]);
+            if (bitmaps[i] == null) {
+                return new CompressedBitmap();
+            }
+        }
+        Arrays.sort(bitmaps, Comparator.comparingInt(CompressedBitmap::cardinality));
+        CompressedBitmap result = bitmaps[0].copy();
+        for (int i = 1; i < bitmaps.length && !result.isEmpty(); i++) {
+            result = result.and(bitmaps[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Counts the placed orders containing every given attribute, possibly on different items.
+     *
+     * @param attributes menu enum constants and item classes
+     * @return the number of matching orders
+     * @throws IllegalArgumentException if no attributes are given or one is not indexable
+     */
+    public int count(Object... attributes) {
+        return query(attributes).cardinality();
+    }
+
+    /**
+     * Removes every order from the index.
+     */
+    public synchronized void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Returns whether one item of an order carries every given attribute. A combo counts as
+     * one item together with the sandwich or burger, side and drink it wraps.
+     *
+     * @param order      the order
+     * @param attributes menu enum constants and item classes
+     * @return true if a single item has all the attributes
+     */
+    static boolean matches(Order order, Object... attributes) {
+        List<Object> wanted = Arrays.asList(attributes);
+        Set<Object> itemAttributes = new HashSet<>();
+        for (MenuItem item : order.getItems()) {
+            itemAttributes.clear();
+            addAttributes(itemAttributes, item);
+            if (itemAttributes.containsAll(wanted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects the distinct attributes of an order's items.
+     *
+     * @param order the order
+     * @return the attributes
+     */
+    static Set<Object> attributes(Order order) {
+        Set<Object> attributes = new HashSet<>();
+        for (MenuItem item : order.getItems()) {
+            addAttributes(attributes, item);
+        }
+        return attributes;
+    }
+
+    /**
+     * Adds the attributes of one item.
+     *
+     * @param attributes the set to add to
+     * @param item       the item
+     */
+    private static void addAttributes(Set<Object> attributes, MenuItem item) {
+        attributes.add(item.getClass());
+        if (item instanceof Sandwich) {
+            Sandwich sandwich = (Sandwich) item;
+            attributes.add(sandwich.getBread());
+            attributes.add(sandwich.getProtein());
+            attributes.addAll(sandwich.getAddOns());
+        } else if (item instanceof Combo) {
+            Combo combo = (Combo) item;
+            addAttributes(attributes, combo.getSandwich());
+            attributes.add(combo.getSideType());
+            attributes.add(combo.getFlavor());
+        } else if (item instanceof Side) {
+            attributes.add(((Side) item).getType());
+            attributes.add(((Side) item).getSize());
+        } else if (item instanceof Beverage) {
+            attributes.add(((Beverage) item).getFlavor());
+            attributes.add(((Beverage) item).getSize());
+        }
+    }
+
+    /**
+     * Throws unless an attribute is a menu enum constant or an item class.
+     *
+     * @param attribute the attribute
+     */
+    private static void checkAttribute(Object attribute) {
+        if (attribute instanceof Protein || attribute instanceof Bread || attribute instanceof AddOns
+                || attribute instanceof Flavor || attribute instanceof SideType || attribute instanceof Size) {
+            return;
+        }
+        if (attribute instanceof Class && MenuItem.class.isAssignableFrom((Class<?>) attribute)) {
+            return;
+        }
+        throw new IllegalArgumentException("Not an indexed attribute: " + attribute);
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * Maintains a rolling text export of placed orders by appending only what changed since the
+ * previous run in the RU Burger ordering system.
+ * <p>
+ * The export file uses the format of {@link OrderManager#exportOrders(File)}, with one extra
+ * record type for orders cancelled after they were exported:
+ * </p>
+ * <pre>
+ * Cancelled Order #N
+ * ====================================
+ * </pre>
+ * <p>
+ * A checkpoint file next to the export records the high-water mark of the last run: the
+ * manager's journal sequence, the highest order number exported and the length of the export
+ * file. Each run truncates the export back to that length (dropping anything a crashed run
+ * appended without checkpointing), appends orders numbered above the high-water mark and the
+ * cancellations journaled after it, syncs, and then replaces the checkpoint atomically. The
+ * cost of a run is proportional to the activity since the last one.
+ * </p>
+ * <p>
+ * Journal sequences survive restarts, so a run after recovery continues the export as long
+ * as nothing was cancelled between the checkpoint and the recovered state. The run rewrites
+ * the whole export from the snapshot instead when the manager has no journal, when the
+ * manager's cancellation log starts after the checkpoint (cancellations in between are not
+ * known), when the checkpoint is ahead of the journal, or when the checkpoint is missing or
+ * unreadable.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.util.List;
+
+public class OrderDeltaExporter {
+
+    /** Magic number identifying a checkpoint file ("RBC2"). */
+    private static final int MAGIC = 0x52424332;
+
+    /** Prefix of a cancellation record. */
+    static final String CANCELLED_PREFIX = "Cancelled Order #";
+
+    /**
+     * What a single run wrote.
+     */
+    public static final class Result {
+        private final int ordersWritten;
+        private final int cancellationsWritten;
+        private final boolean fullRewrite;
+
+        /**
+         * Constructs a result.
+         *
+         * @param ordersWritten        the number of order records written
+         * @param cancellationsWritten the number of cancellation records written
+         * @param fullRewrite          true if the whole export was rewritten
+         */
+        Result(int ordersWritten, int cancellationsWritten, boolean fullRewrite) {
+            this.ordersWritten = ordersWritten;
+            this.cancellationsWritten = cancellationsWritten;
+            this.fullRewrite = fullRewrite;
+        }
+
+        /**
+         * Returns the number of order records written.
+         *
+         * @return the order count
+         */
+        public int getOrdersWritten() {
+            return ordersWritten;
+        }
+
+        /**
+         * Returns the number of cancellation records written.
+         *
+         * @return the cancellation count
+         */
+        public int getCancellationsWritten() {
+            return cancellationsWritten;
+        }
+
+        /**
+         * Returns whether the run rewrote the whole export instead of appending.
+         *
+         * @return true for a full rewrite
+         */
+        public boolean isFullRewrite() {
+            return fullRewrite;
+        }
+    }
+
+    private final File exportFile;
+    private final File checkpointFile;
+
+    /**
+     * Constructs an exporter for a rolling export and its checkpoint.
+     *
+     * @param exportFile     the rolling export file
+     * @param checkpointFile the file holding the high-water mark of the last run
+     */
+    public OrderDeltaExporter(File exportFile, File checkpointFile) {
+        this.exportFile = exportFile;
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Brings the export up to date with a snapshot of the manager's state.
+     *
+     * @param snapshot the state to export, normally {@link OrderManager#snapshot()}
+     * @return what the run wrote
+     * @throws IOException if the export or checkpoint cannot be written
+     */
+    public synchronized Result export(OrderManager.Snapshot snapshot) throws IOException {
+        List<Order> orders = snapshot.getPlacedOrders();
+        List<Integer> cancellations = snapshot.getCancellations();
+        long sequence = snapshot.getJournalSequence();
+        long[] checkpoint = readCheckpoint();
+        boolean full = checkpoint == null || sequence == 0
+                || checkpoint[0] < snapshot.getCancellationLogStart() || checkpoint[0] > sequence
+                || !exportFile.exists() || exportFile.length() < checkpoint[2];
+        int lastNumber = full ? 0 : (int) checkpoint[1];
+        int cancellationsSeen = full ? 0 : firstAfter(snapshot.getCancellationSequences(), checkpoint[0]);
+
+        int ordersWritten = 0;
+        int cancellationsWritten = 0;
+        int highest = lastNumber;
+        DecimalFormat df = new DecimalFormat("0.00");
+        try (RandomAccessFile raf = new RandomAccessFile(exportFile, "rw")) {
+            raf.setLength(full ? 0 : checkpoint[2]);
+        }
+        try (FileOutputStream fileOut = new FileOutputStream(exportFile, true);
+             Writer writer = new OutputStreamWriter(new BufferedOutputStream(fileOut, 1 << 16),
+                     StandardCharsets.UTF_8)) {
+            if (!full) {
+                for (int i = cancellationsSeen; i < cancellations.size(); i++) {
+                    int number = cancellations.get(i);
+                    if (number <= lastNumber) {
+                        writer.write(CANCELLED_PREFIX + number + "\n");
+                        writer.write(OrderExportJob.SEPARATOR);
+                        cancellationsWritten++;
+                    }
+                }
+            }
+            for (int i = firstAbove(orders, lastNumber); i < orders.size(); i++) {
+                Order order = orders.get(i);
+                if (order.getNumber() > lastNumber) {
+                    OrderExportJob.writeOrder(writer, order, df);
+                    highest = Math.max(highest, order.getNumber());
+                    ordersWritten++;
+                }
+            }
+            writer.flush();
+            fileOut.getFD().sync();
+        }
+        writeCheckpoint(sequence, highest, exportFile.length());
+        return new Result(ordersWritten, cancellationsWritten, full);
+    }
+
+    /**
+     * Finds where orders numbered above a mark begin. Orders are placed in ascending number
+     * order, so a binary search narrows the scan to the new tail of the list.
+     *
+     * @param orders     the placed orders
+     * @param lastNumber the high-water mark
+     * @return the index of the first order numbered above the mark
+     */
+    private static int firstAbove(List<Order> orders, int lastNumber) {
+        int low = 0;
+        int high = orders.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (orders.get(mid).getNumber() <= lastNumber) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first cancellation journaled after a sequence. Cancellations are journaled
+     * in order, so their sequences ascend.
+     *
+     * @param sequences the journal sequence of each cancellation
+     * @param sequence  the checkpointed journal sequence
+     * @return the index of the first cancellation after it
+     */
+    private static int firstAfter(List<Long> sequences, long sequence) {
+        int low = 0;
+        int high = sequences.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sequences.get(mid) <= sequence) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Reads the checkpoint.
+     *
+     * @return {journal sequence, last order number, export length}, or null if there is no
+     *         readable checkpoint
+     */
+    private long[] readCheckpoint() {
+        if (!checkpointFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            return new long[] {in.readLong(), in.readInt(), in.readLong()};
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the checkpoint atomically.
+     *
+     * @param sequence     the journal sequence the export reflects
+     * @param lastNumber   the highest order number exported
+     * @param exportLength the length of the export file
+     * @throws IOException if the checkpoint cannot be written
+     */
+    private void writeCheckpoint(long sequence, int lastNumber, long exportLength) throws IOException {
+        File temp = new File(checkpointFile.getAbsoluteFile().getParentFile(), checkpointFile.getName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            out.writeInt(MAGIC);
+            out.writeLong(sequence);
+            out.writeInt(lastNumber);
+            out.writeLong(exportLength);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        if (!temp.renameTo(checkpointFile)) {
+            temp.delete();
+            throw new IOException("Cannot move checkpoint into place: " + checkpointFile);
+        }
+    }
+}
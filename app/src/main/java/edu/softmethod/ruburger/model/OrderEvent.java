@@ -0,0 +1,107 @@
+/**
+ * Immutable notification of a change to orders in the RU Burger ordering system.
+ * <p>
+ * Events are published by {@link OrderManager} through its {@link OrderEventPublisher}
+ * when an order is placed or cancelled, and when an item is added to or removed from
+ * the current order.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+public final class OrderEvent {
+
+    /**
+     * The kind of change an event describes.
+     */
+    public enum Type {
+        /** An order was placed; {@link #getOrder()} is the placed order. */
+        PLACED,
+
+        /** A placed order was cancelled; {@link #getOrder()} is the cancelled order. */
+        CANCELLED,
+
+        /** An item was added to the current order; {@link #getItem()} is the item. */
+        ITEM_ADDED,
+
+        /** An item was removed from the current order; {@link #getItem()} is the item. */
+        ITEM_REMOVED
+    }
+
+    private final Type type;
+    private final Order order;
+    private final MenuItem item;
+    private final long timestamp;
+
+    /**
+     * Constructs an event.
+     *
+     * @param type      the kind of change
+     * @param order     the order the change applies to
+     * @param item      the added or removed item, or null for order-level events
+     * @param timestamp the time of the change in epoch milliseconds
+     */
+    public OrderEvent(Type type, Order order, MenuItem item, long timestamp) {
+        this.type = type;
+        this.order = order;
+        this.item = item;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Returns the kind of change.
+     *
+     * @return the event type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the order the change applies to.
+     *
+     * @return the order
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Returns the number of the order the change applies to. Unplaced orders have number 0.
+     *
+     * @return the order number
+     */
+    public int getOrderNumber() {
+        return order.getNumber();
+    }
+
+    /**
+     * Returns the added or removed item.
+     *
+     * @return the item, or null for {@link Type#PLACED} and {@link Type#CANCELLED} events
+     */
+    public MenuItem getItem() {
+        return item;
+    }
+
+    /**
+     * Returns the time of the change.
+     *
+     * @return the timestamp in epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns a short description of the event.
+     *
+     * @return the description
+     */
+    @Override
+    public String toString() {
+        return type + (item == null ? " #" + order.getNumber() : " " + item);
+    }
+}
@@ -0,0 +1,345 @@
+/**
+ * Publishes {@link OrderEvent}s to any number of subscribers with per-subscriber backpressure
+ * in the RU Burger ordering system.
+ * <p>
+ * The {@link Subscriber} and {@link Subscription} interfaces follow the Reactive Streams
+ * contract of {@code java.util.concurrent.Flow}, which is not available below Android API 30.
+ * Each subscriber gets its own bounded buffer and receives events on the delivery executor,
+ * never on the publishing thread, and only as many as it has requested. Publishing never
+ * blocks: when a subscriber's buffer is full the event is dropped for that subscriber and
+ * counted, so a slow kitchen display or analytics consumer cannot slow order intake.
+ * Events are delivered to each subscriber in publication order.
+ * </p>
+ * <p>
+ * A subscriber is told where it missed events. Once its buffer overflows it takes no more
+ * events until the buffered ones are delivered, then receives
+ * {@link Subscriber#onDropped(long)} with the number missed, and only then events published
+ * after the gap. A subscriber that must not diverge, such as one persisting orders, can
+ * resynchronize from {@link OrderManager#snapshot()} at that point.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class OrderEventPublisher {
+
+    /** Default number of undelivered events buffered per subscriber. */
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    /**
+     * Receives events from a publisher, mirroring {@code Flow.Subscriber}.
+     */
+    public interface Subscriber {
+        /**
+         * Called once before any other method with the subscription used to request events.
+         *
+         * @param subscription the new subscription
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called for each requested event.
+         *
+         * @param event the event
+         */
+        void onNext(OrderEvent event);
+
+        /**
+         * Called when events were dropped because the subscriber's buffer was full. The
+         * signal comes after every event published before the first one dropped and before
+         * any event published after the last one dropped. It does not use up demand.
+         *
+         * @param count the number of consecutive events missed
+         */
+        void onDropped(long count);
+
+        /**
+         * Called if {@link #onNext(OrderEvent)} or {@link #onDropped(long)} throws, or a
+         * non-positive number of events is requested; no further events are delivered. Like every other signal, it is called on
+         * the delivery executor.
+         *
+         * @param error the failure
+         */
+        void onError(Throwable error);
+
+        /**
+         * Called when the publisher is closed and every buffered event has been delivered.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Links one subscriber to the publisher, mirroring {@code Flow.Subscription}.
+     */
+    public interface Subscription {
+        /**
+         * Adds {@code n} to the number of events the subscriber is willing to receive.
+         *
+         * @param n the number of additional events, which must be positive
+         */
+        void request(long n);
+
+        /**
+         * Stops delivery to the subscriber and releases its buffer.
+         */
+        void cancel();
+    }
+
+    /** Executor delivering events to subscribers. */
+    private final Executor executor;
+
+    /** Undelivered-event capacity of each subscriber. */
+    private final int bufferSize;
+
+    /** Active subscriptions. */
+    private final CopyOnWriteArrayList<BufferedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /** Number of events dropped across all subscribers because their buffers were full. */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** Whether {@link #close()} has been called. */
+    private volatile boolean closed;
+
+    /**
+     * Constructs a publisher delivering on a single daemon thread with the default buffer size.
+     */
+    public OrderEventPublisher() {
+        this(newDeliveryExecutor(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a publisher.
+     *
+     * @param executor   the executor delivering events to subscribers
+     * @param bufferSize the number of undelivered events buffered per subscriber
+     */
+    public OrderEventPublisher(Executor executor, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Adds a subscriber. Its {@link Subscriber#onSubscribe(Subscription)} is called on the
+     * delivery executor, and it receives only events published after this call.
+     *
+     * @param subscriber the subscriber to add
+     */
+    public void subscribe(Subscriber subscriber) {
+        BufferedSubscription subscription = new BufferedSubscription(subscriber);
+        if (closed) {
+            subscription.done = true;
+        } else {
+            subscriptions.add(subscription);
+        }
+        subscription.schedule();
+    }
+
+    /**
+     * Offers an event to every subscriber without blocking. Subscribers whose buffers are
+     * full miss the event.
+     *
+     * @param event the event to publish
+     * @return the number of subscribers that missed the event
+     */
+    public int publish(OrderEvent event) {
+        if (closed) {
+            return 0;
+        }
+        int missed = 0;
+        for (BufferedSubscription subscription : subscriptions) {
+            if (!subscription.offer(event)) {
+                missed++;
+            }
+        }
+        return missed;
+    }
+
+    /**
+     * Returns the number of active subscribers.
+     *
+     * @return the subscriber count
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Returns the number of event deliveries dropped because a subscriber's buffer was full.
+     *
+     * @return the total dropped count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns whether any subscriber is active, letting callers skip building events nobody reads.
+     *
+     * @return true if there is at least one subscriber
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Completes every subscription once its buffered events have been delivered.
+     * Events published afterwards are ignored.
+     */
+    public void close() {
+        closed = true;
+        for (BufferedSubscription subscription : subscriptions) {
+            subscription.done = true;
+            subscription.schedule();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * Creates the default single-threaded delivery executor.
+     *
+     * @return the executor
+     */
+    private static ExecutorService newDeliveryExecutor() {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "order-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A subscription with a bounded buffer, drained on the executor as demand allows.
+     * At most one drain runs at a time, so events reach the subscriber serially and in order.
+     */
+    private final class BufferedSubscription implements Subscription, Runnable {
+        private final Subscriber subscriber;
+        private final ArrayBlockingQueue<OrderEvent> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /** Events dropped since the buffer overflowed and not yet signalled; while positive,
+         *  new events are dropped too, so none is delivered ahead of the gap. */
+        private final AtomicLong gap = new AtomicLong();
+        private boolean subscribed;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+
+        /** Failure to signal from the next drain, set by an invalid request. */
+        private volatile Throwable error;
+
+        /**
+         * Constructs a subscription for a subscriber.
+         *
+         * @param subscriber the subscriber
+         */
+        BufferedSubscription(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Buffers an event and schedules delivery.
+         *
+         * @param event the event
+         * @return false if the buffer was full, or a gap is waiting to be signalled, and the
+         *         event was dropped
+         */
+        boolean offer(OrderEvent event) {
+            if (gap.get() > 0 || !buffer.offer(event)) {
+                gap.incrementAndGet();
+                dropped.incrementAndGet();
+                schedule();
+                return false;
+            }
+            schedule();
+            return true;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                if (error == null) {
+                    error = new IllegalArgumentException("request must be positive: " + n);
+                }
+                schedule();
+                return;
+            }
+            demand.accumulateAndGet(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            buffer.clear();
+        }
+
+        /**
+         * Runs a drain on the executor unless one is already pending.
+         */
+        void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * Delivers buffered events up to the current demand.
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!subscribed) {
+                    subscribed = true;
+                    subscriber.onSubscribe(this);
+                }
+                if (!cancelled && error != null) {
+                    cancel();
+                    subscriber.onError(error);
+                }
+                while (!cancelled && demand.get() > 0) {
+                    OrderEvent event = buffer.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    try {
+                        subscriber.onNext(event);
+                    } catch (RuntimeException e) {
+                        cancel();
+                        subscriber.onError(e);
+                    }
+                }
+                if (!cancelled && gap.get() > 0 && buffer.isEmpty()) {
+                    try {
+                        subscriber.onDropped(gap.getAndSet(0));
+                    } catch (RuntimeException e) {
+                        cancel();
+                        subscriber.onError(e);
+                    }
+                }
+                if (!cancelled && done && buffer.isEmpty()) {
+                    cancelled = true;
+                    subscriber.onComplete();
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
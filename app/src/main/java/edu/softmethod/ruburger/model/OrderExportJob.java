@@ -0,0 +1,579 @@
+/**
+ * Exports placed orders to a text file as a cancellable job in the RU Burger ordering system.
+ * <p>
+ * The job writes the same human-readable format as {@link OrderManager#exportOrders(File)}
+ * into a temporary file next to the target, syncs it, and renames it over the target, so
+ * readers of the target only ever see the previous complete export or the new complete
+ * export. Progress (orders and bytes written) is reported to an optional {@link Listener}
+ * as the job runs, and {@link #cancel()} stops it between orders, leaving the target untouched.
+ * </p>
+ * <p>
+ * The text can be compressed on the way to disk with an {@link ExportCompression}. After the
+ * job completes it reports the compressed size, the compression ratio and the throughput.
+ * </p>
+ * <p>
+ * An uncompressed export can also be formatted in parallel. The orders are split into shards
+ * of {@value #SHARD_ORDERS} orders. Worker threads format each shard into its own buffer, and
+ * the job writes the finished buffers in order with positional {@link FileChannel} writes. At
+ * most a few shards per worker are held in memory at a time, and the file is byte-identical
+ * to the sequential export.
+ * </p>
+ * <p>
+ * A job exports the list of orders it was constructed with, normally an
+ * {@link OrderManager.Snapshot}, so it never blocks or is disturbed by order intake.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class OrderExportJob implements Runnable {
+
+    /** Line written after every record of the text export. */
+    static final String SEPARATOR = "====================================\n";
+
+    /** Number of orders written between progress callbacks. */
+    private static final int PROGRESS_INTERVAL = 256;
+
+    /** Number of orders formatted together by one worker in a parallel export. */
+    static final int SHARD_ORDERS = 2048;
+
+    /** Number of shards per worker that may be formatted ahead of the writer. */
+    private static final int SHARDS_IN_FLIGHT_PER_WORKER = 2;
+
+    /**
+     * The lifecycle state of a job.
+     */
+    public enum Status {
+        /** Created but not yet running. */
+        PENDING,
+
+        /** Writing the temporary file. */
+        RUNNING,
+
+        /** The export was moved into place. */
+        COMPLETED,
+
+        /** Cancelled before completion; the target was not changed. */
+        CANCELLED,
+
+        /** Failed with an I/O error; the target was not changed. */
+        FAILED
+    }
+
+    /**
+     * Receives progress and completion callbacks on the thread running the job.
+     */
+    public interface Listener {
+        /**
+         * Called periodically while orders are written, and once after the last order.
+         *
+         * @param ordersWritten the number of orders written so far
+         * @param totalOrders   the number of orders being exported
+         * @param bytesWritten  the number of text bytes written so far, before compression
+         */
+        void onProgress(int ordersWritten, int totalOrders, long bytesWritten);
+
+        /**
+         * Called once when the job completes, is cancelled or fails.
+         *
+         * @param job the finished job; see {@link OrderExportJob#getStatus()}
+         */
+        void onFinished(OrderExportJob job);
+    }
+
+    private final List<Order> orders;
+    private final File target;
+    private final Listener listener;
+    private final ExportCompression compression;
+    private final int parallelism;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile Status status = Status.PENDING;
+    private volatile boolean cancelRequested;
+    private volatile int ordersWritten;
+    private volatile long bytesWritten;
+    private volatile long compressedBytes;
+    private volatile long elapsedNanos;
+    private volatile IOException error;
+
+    /**
+     * Constructs a job exporting the given orders.
+     *
+     * @param orders   the placed orders to export; must not change while the job runs
+     * @param target   the file to replace with the export
+     * @param listener the callback receiving progress, or null
+     */
+    public OrderExportJob(List<Order> orders, File target, Listener listener) {
+        this(orders, target, ExportCompression.NONE, listener);
+    }
+
+    /**
+     * Constructs a job exporting the given orders through a compression stage.
+     *
+     * @param orders      the placed orders to export; must not change while the job runs
+     * @param target      the file to replace with the export
+     * @param compression the compression applied to the text
+     * @param listener    the callback receiving progress, or null
+     */
+    public OrderExportJob(List<Order> orders, File target, ExportCompression compression, Listener listener) {
+        this(orders, target, compression, 1, listener);
+    }
+
+    /**
+     * Constructs a job exporting the given orders through a compression stage, formatting
+     * them on several worker threads when the export is uncompressed.
+     *
+     * @param orders      the placed orders to export; must not change while the job runs
+     * @param target      the file to replace with the export
+     * @param compression the compression applied to the text
+     * @param parallelism the number of worker threads formatting orders; 1 for a sequential export
+     * @param listener    the callback receiving progress, or null
+     * @throws IllegalArgumentException if parallelism is less than 1, or greater than 1 for a
+     *                                  compressed export
+     */
+    public OrderExportJob(List<Order> orders, File target, ExportCompression compression, int parallelism,
+                          Listener listener) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        if (parallelism > 1 && compression != ExportCompression.NONE) {
+            throw new IllegalArgumentException("Parallel exports cannot be compressed");
+        }
+        this.orders = orders;
+        this.target = target;
+        this.compression = compression;
+        this.parallelism = parallelism;
+        this.listener = listener;
+    }
+
+    /**
+     * Writes the export and moves it into place. Runs at most once.
+     */
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (status != Status.PENDING) {
+                return;
+            }
+            status = cancelRequested ? Status.CANCELLED : Status.RUNNING;
+        }
+        if (status == Status.RUNNING) {
+            File temp = null;
+            try {
+                File directory = target.getAbsoluteFile().getParentFile();
+                temp = File.createTempFile(target.getName() + ".", ".tmp", directory);
+                boolean complete = parallelism > 1 ? writeParallel(temp) : write(temp);
+                status = complete ? Status.COMPLETED : Status.CANCELLED;
+                if (status == Status.COMPLETED && !temp.renameTo(target)) {
+                    throw new IOException("Cannot move export into place: " + target);
+                }
+            } catch (IOException e) {
+                error = e;
+                status = Status.FAILED;
+            } finally {
+                if (temp != null && status != Status.COMPLETED) {
+                    temp.delete();
+                }
+            }
+        }
+        finished.countDown();
+        if (listener != null) {
+            listener.onFinished(this);
+        }
+    }
+
+    /**
+     * Writes every order to the temporary file, stopping early if cancelled.
+     *
+     * @param temp the temporary file
+     * @return true if every order was written, false if the job was cancelled
+     * @throws IOException if writing fails
+     */
+    private boolean write(File temp) throws IOException {
+        DecimalFormat df = new DecimalFormat("0.00");
+        int total = orders.size();
+        long start = System.nanoTime();
+        try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+            CountingOutputStream stored = new CountingOutputStream(
+                    new BufferedOutputStream(fileOut, ExportCompression.BUFFER_SIZE), false);
+            CountingOutputStream text = new CountingOutputStream(compression.wrap(stored), true);
+            int written = 0;
+            try (Writer writer = new OutputStreamWriter(text, StandardCharsets.UTF_8)) {
+                for (Order order : orders) {
+                    if (cancelRequested) {
+                        return false;
+                    }
+                    writeOrder(writer, order, df);
+                    written++;
+                    if (written % PROGRESS_INTERVAL == 0) {
+                        reportProgress(written, total, text.count);
+                    }
+                }
+            }
+            fileOut.getFD().sync();
+            compressedBytes = stored.count;
+            elapsedNanos = System.nanoTime() - start;
+            reportProgress(written, total, text.count);
+            return !cancelRequested;
+        }
+    }
+
+    /**
+     * Writes every order to the temporary file, formatting shards on worker threads and
+     * writing them in order, stopping early if cancelled.
+     *
+     * @param temp the temporary file
+     * @return true if every order was written, false if the job was cancelled
+     * @throws IOException if formatting or writing fails
+     */
+    private boolean writeParallel(File temp) throws IOException {
+        int total = orders.size();
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "order-export-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<ShardBuffer>> pending = new ArrayDeque<>();
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+             FileChannel channel = raf.getChannel()) {
+            int nextShard = 0;
+            int written = 0;
+            long position = 0;
+            while (written < total) {
+                while (nextShard < total && pending.size() < parallelism * SHARDS_IN_FLIGHT_PER_WORKER) {
+                    int from = nextShard;
+                    int to = Math.min(total, from + SHARD_ORDERS);
+                    pending.add(workers.submit(() -> formatShard(from, to)));
+                    nextShard = to;
+                }
+                if (cancelRequested) {
+                    return false;
+                }
+                ByteBuffer buffer = await(pending.poll()).toBuffer();
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                written = Math.min(total, written + SHARD_ORDERS);
+                reportProgress(written, total, position);
+            }
+            channel.force(true);
+            compressedBytes = position;
+            elapsedNanos = System.nanoTime() - start;
+            reportProgress(written, total, position);
+            return !cancelRequested;
+        } finally {
+            for (Future<ShardBuffer> future : pending) {
+                future.cancel(true);
+            }
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Formats a range of orders into a buffer.
+     *
+     * @param from the index of the first order
+     * @param to   the index after the last order
+     * @return the formatted text
+     * @throws IOException if formatting fails
+     */
+    private ShardBuffer formatShard(int from, int to) throws IOException {
+        DecimalFormat df = new DecimalFormat("0.00");
+        ShardBuffer buffer = new ShardBuffer((to - from) * 160);
+        try (Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8)) {
+            for (int i = from; i < to; i++) {
+                writeOrder(writer, orders.get(i), df);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Waits for a shard to be formatted.
+     *
+     * @param future the pending shard
+     * @return the formatted shard
+     * @throws IOException if formatting failed or the wait was interrupted
+     */
+    private static ShardBuffer await(Future<ShardBuffer> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while formatting export");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Cannot format export", cause);
+        }
+    }
+
+    /**
+     * Writes one order in the human-readable export format. Orders with a known placement
+     * time end with a {@code Placed:} line holding it in epoch milliseconds, so merges can
+     * interleave exports with journals by time.
+     *
+     * @param writer the destination
+     * @param order  the placed order
+     * @param df     the format used for the total
+     * @throws IOException if writing fails
+     */
+    static void writeOrder(Writer writer, Order order, DecimalFormat df) throws IOException {
+        writer.write("Order #" + order.getNumber() + "\n");
+        for (int i = 0; i < order.getItems().size(); i++) {
+            writer.write("- " + order.getLineText(i) + "\n");
+        }
+        writer.write("Total: $" + df.format(order.getTotal()) + "\n");
+        if (order.getPlacedAt() != 0) {
+            writer.write("Placed: " + order.getPlacedAt() + "\n");
+        }
+        writer.write(SEPARATOR);
+    }
+
+    /**
+     * Records progress and notifies the listener.
+     *
+     * @param written the orders written
+     * @param total   the orders being exported
+     * @param bytes   the bytes written
+     */
+    private void reportProgress(int written, int total, long bytes) {
+        ordersWritten = written;
+        bytesWritten = bytes;
+        if (listener != null) {
+            listener.onProgress(written, total, bytes);
+        }
+    }
+
+    /**
+     * Asks the job to stop. A running job stops before its next order and deletes its
+     * temporary file; a pending job will not start.
+     *
+     * @return false if the job had already finished
+     */
+    public boolean cancel() {
+        cancelRequested = true;
+        return finished.getCount() > 0;
+    }
+
+    /**
+     * Waits for the job to finish.
+     *
+     * @return the final status
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Status await() throws InterruptedException {
+        finished.await();
+        return status;
+    }
+
+    /**
+     * Returns whether the job has completed, been cancelled or failed.
+     *
+     * @return true if finished
+     */
+    public boolean isDone() {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * Returns the current state of the job.
+     *
+     * @return the status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the number of orders written at the last progress report.
+     *
+     * @return the orders written
+     */
+    public int getOrdersWritten() {
+        return ordersWritten;
+    }
+
+    /**
+     * Returns the number of bytes written at the last progress report.
+     *
+     * @return the bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns the compression applied to the export.
+     *
+     * @return the compression
+     */
+    public ExportCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Returns the size of the written file.
+     *
+     * @return the bytes stored on disk, or 0 until every order has been written
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * Returns how many times smaller the file is than the text it holds.
+     *
+     * @return the text size divided by the stored size, or 0 until every order has been written
+     */
+    public double getCompressionRatio() {
+        long stored = compressedBytes;
+        return stored == 0 ? 0 : (double) bytesWritten / stored;
+    }
+
+    /**
+     * Returns the time spent writing, compressing and syncing the export.
+     *
+     * @return the elapsed time in nanoseconds, or 0 until every order has been written
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the export throughput, measured in text bytes before compression.
+     *
+     * @return bytes per second, or 0 until every order has been written
+     */
+    public double getThroughput() {
+        long nanos = elapsedNanos;
+        return nanos == 0 ? 0 : bytesWritten * 1e9 / nanos;
+    }
+
+    /**
+     * Returns the number of worker threads formatting the export.
+     *
+     * @return the parallelism, 1 for a sequential export
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the number of orders being exported.
+     *
+     * @return the total order count
+     */
+    public int getTotalOrders() {
+        return orders.size();
+    }
+
+    /**
+     * Returns the file the export replaces.
+     *
+     * @return the target file
+     */
+    public File getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns the error that made the job fail.
+     *
+     * @return the I/O error, or null unless the status is {@link Status#FAILED}
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Byte buffer holding one formatted shard, exposed without copying.
+     */
+    private static final class ShardBuffer extends ByteArrayOutputStream {
+        /**
+         * Constructs a buffer.
+         *
+         * @param size the initial capacity
+         */
+        ShardBuffer(int size) {
+            super(size);
+        }
+
+        /**
+         * Wraps the bytes written so far.
+         *
+         * @return a buffer over the formatted text
+         */
+        ByteBuffer toBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    /**
+     * Output stream that counts the bytes passing through it.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final boolean closeUnderlying;
+        long count;
+
+        /**
+         * Wraps a stream.
+         *
+         * @param out             the underlying stream
+         * @param closeUnderlying false to only flush the underlying stream on close, so the
+         *                        file can be synced once the compressor has finished
+         */
+        CountingOutputStream(OutputStream out, boolean closeUnderlying) {
+            super(out);
+            this.closeUnderlying = closeUnderlying;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closeUnderlying) {
+                super.close();
+            } else {
+                flush();
+            }
+        }
+    }
+}
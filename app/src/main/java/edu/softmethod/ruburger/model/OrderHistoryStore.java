@@ -0,0 +1,218 @@
+/**
+ * Columnar, append-only index of placed order lines in the RU Burger ordering system.
+ * <p>
+ * Every line item of a placed {@link Order} is kept as one row across parallel primitive
+ * columns (order number, placement timestamp, SKU and price in cents); the quantity is read
+ * back from the SKU, which already packs it. Columns grow in fixed-size chunks, so appending
+ * never copies existing rows, and a row costs 24 bytes of column data.
+ * </p>
+ * <p>
+ * A line held as a {@link MenuItem} with its add-on list costs well over 100 bytes of
+ * objects, so the rows would be about 5&times; smaller if they were the only copy of the
+ * history. They are not: {@link OrderManager} still keeps every placed {@link Order}, because
+ * snapshots, journal recovery, text exports, cancellation and the content index all read the
+ * order objects. The store is therefore a secondary index that adds about 28 bytes per line
+ * (the columns plus the cancellation bit set's share) rather than saving heap. What it buys is
+ * line-level analytics, such as {@link #scan(LineVisitor)} and {@link #totalCents()}, that
+ * stream through a few primitive arrays instead of walking every order's item list.
+ * </p>
+ * <p>
+ * Rows are appended in placement order, so order numbers are ascending and the rows of one
+ * order are contiguous. Cancelled orders are flagged rather than removed.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+public class OrderHistoryStore implements OrderLineHistory {
+
+    /** Number of rows per chunk (must be a power of two). */
+    private static final int CHUNK_SHIFT = 10;
+
+    /** Rows held by a single chunk. */
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    /** Mask used to find a row's offset inside its chunk. */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Receives one row at a time from {@link #scan(LineVisitor)}.
+     */
+    public interface LineVisitor {
+        /**
+         * Called for each line item in the store.
+         *
+         * @param orderNumber the order the line belongs to
+         * @param timestamp   the placement time in epoch milliseconds
+         * @param sku         the packed SKU, see {@link SkuCodec}
+         * @param quantity    the quantity ordered
+         * @param priceCents  the extended line price in cents
+         */
+        void visit(int orderNumber, long timestamp, long sku, int quantity, int priceCents);
+    }
+
+    private final ArrayList<int[]> orderNumbers = new ArrayList<>();
+    private final ArrayList<long[]> timestamps = new ArrayList<>();
+    private final ArrayList<long[]> skus = new ArrayList<>();
+    private final ArrayList<int[]> priceCents = new ArrayList<>();
+
+    /** Rows belonging to cancelled orders. */
+    private final BitSet cancelled = new BitSet();
+
+    /** The number of rows appended so far. */
+    private int size;
+
+    /**
+     * Appends every line of a placed order.
+     *
+     * @param order     the placed order
+     * @param timestamp the placement time in epoch milliseconds
+     */
+    public synchronized void append(Order order, long timestamp) {
+        List<MenuItem> items = order.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            MenuItem item = items.get(i);
+            appendRow(order.getNumber(), timestamp, SkuCodec.encode(item), toCents(order.getLinePrice(i)));
+        }
+    }
+
+    /**
+     * Appends every line of a batch of placed orders under a single lock acquisition.
+     *
+     * @param orders    the placed orders
+     * @param timestamp the placement time in epoch milliseconds
+     */
+    public synchronized void appendAll(List<Order> orders, long timestamp) {
+        for (Order order : orders) {
+            append(order, timestamp);
+        }
+    }
+
+    /**
+     * Appends a single row, allocating a new chunk in every column when needed.
+     *
+     * @param orderNumber the order number
+     * @param timestamp   the placement timestamp
+     * @param sku         the packed SKU, including the quantity
+     * @param cents       the extended price in cents
+     */
+    public synchronized void appendRow(int orderNumber, long timestamp, long sku, int cents) {
+        int offset = size & CHUNK_MASK;
+        if (offset == 0) {
+            orderNumbers.add(new int[CHUNK_SIZE]);
+            timestamps.add(new long[CHUNK_SIZE]);
+            skus.add(new long[CHUNK_SIZE]);
+            priceCents.add(new int[CHUNK_SIZE]);
+        }
+        int chunk = size >>> CHUNK_SHIFT;
+        orderNumbers.get(chunk)[offset] = orderNumber;
+        timestamps.get(chunk)[offset] = timestamp;
+        skus.get(chunk)[offset] = sku;
+        priceCents.get(chunk)[offset] = cents;
+        size++;
+    }
+
+    /**
+     * Flags every row of the given order as cancelled.
+     *
+     * @param orderNumber the cancelled order number
+     */
+    public synchronized void markCancelled(int orderNumber) {
+        for (int row = firstRow(orderNumber); row < size && orderNumberAt(row) == orderNumber; row++) {
+            cancelled.set(row);
+        }
+    }
+
+    /**
+     * Visits every row that does not belong to a cancelled order, in placement order.
+     *
+     * @param visitor the callback receiving each row
+     */
+    @Override
+    public synchronized void scan(LineVisitor visitor) {
+        for (int chunk = 0, base = 0; base < size; chunk++, base += CHUNK_SIZE) {
+            int[] numbers = orderNumbers.get(chunk);
+            long[] times = timestamps.get(chunk);
+            long[] codes = skus.get(chunk);
+            int[] cents = priceCents.get(chunk);
+            int limit = Math.min(CHUNK_SIZE, size - base);
+            for (int i = 0; i < limit; i++) {
+                if (!cancelled.get(base + i)) {
+                    visitor.visit(numbers[i], times[i], codes[i], SkuCodec.quantity(codes[i]), cents[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the sum of all non-cancelled line prices in cents.
+     *
+     * @return the total sales in cents, before tax
+     */
+    @Override
+    public synchronized long totalCents() {
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            if (!cancelled.get(row)) {
+                total += priceCents.get(row >>> CHUNK_SHIFT)[row & CHUNK_MASK];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of rows stored, including cancelled ones.
+     *
+     * @return the row count
+     */
+    @Override
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Returns the order number stored at a row.
+     *
+     * @param row the row index
+     * @return the order number
+     */
+    private int orderNumberAt(int row) {
+        return orderNumbers.get(row >>> CHUNK_SHIFT)[row & CHUNK_MASK];
+    }
+
+    /**
+     * Binary searches the ascending order number column for the first row of an order.
+     *
+     * @param orderNumber the order number to find
+     * @return the first row whose order number is not less than {@code orderNumber}
+     */
+    private int firstRow(int orderNumber) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (orderNumberAt(mid) < orderNumber) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Converts a dollar amount to whole cents, rounding half up.
+     *
+     * @param amount the dollar amount
+     * @return the amount in cents
+     */
+    static int toCents(double amount) {
+        return (int) Math.round(amount * 100.0);
+    }
+}
@@ -0,0 +1,516 @@
+/**
+ * Embedded HTTP endpoint that feeds orders from web and kiosk front-ends into
+ * {@link OrderManager} in the RU Burger ordering system.
+ * <p>
+ * The server listens on the loopback interface and accepts {@code POST /orders} with either
+ * a JSON body ({@code Content-Type: application/json}) or a binary body of packed SKUs
+ * ({@code Content-Type: application/octet-stream}); see {@link OrderRequestDecoder}.
+ * Connections are kept alive between requests. Decoded orders are handed to a single
+ * batching thread that places them through {@link OrderManager#placeOrders} in
+ * micro-batches, so many concurrent requests share one numbering step and one journal flush.
+ * </p>
+ * <p>
+ * A request may carry an {@code Idempotency-Key} header. A retried submission with a key
+ * that has already been accepted is not placed again; it receives the original order number
+ * with {@code "duplicate": true}. A key is forgotten if its submission is rejected or fails
+ * to be placed, so the client can retry it. The most recent keys are remembered up to a
+ * fixed capacity.
+ * </p>
+ * <p>
+ * Responses are JSON: {@code {"order": 42}} on success, {@code {"error": "..."}} otherwise.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OrderIngestServer implements Closeable {
+
+    /** Path accepting order submissions. */
+    public static final String ORDERS_PATH = "/orders";
+
+    /** Header carrying the client's idempotency key. */
+    public static final String IDEMPOTENCY_HEADER = "idempotency-key";
+
+    /** Largest accepted request body in bytes. */
+    private static final int MAX_BODY = 64 * 1024;
+
+    /** Largest accepted request line or header line in bytes. */
+    private static final int MAX_LINE = 8 * 1024;
+
+    /** Number of idempotency keys remembered. */
+    private static final int KEY_CAPACITY = 100_000;
+
+    /** Capacity of the queue between request handlers and the batching thread. */
+    private static final int QUEUE_CAPACITY = 10_000;
+
+    /** Marks a Content-Length header that is not a non-negative integer. */
+    private static final int INVALID_LENGTH = -1;
+
+    /**
+     * A decoded order waiting to be placed, with the future completed by the batcher.
+     */
+    private static final class Pending {
+        final Order order;
+        final String key;
+        final CompletableFuture<Integer> result;
+
+        /**
+         * Constructs a pending placement.
+         *
+         * @param order  the decoded order
+         * @param key    the idempotency key, or null
+         * @param result completed with the order number once placed
+         */
+        Pending(Order order, String key, CompletableFuture<Integer> result) {
+            this.order = order;
+            this.key = key;
+            this.result = result;
+        }
+    }
+
+    private final OrderManager manager;
+    private final int maxBatch;
+    private final long maxDelayMillis;
+    private final ServerSocket serverSocket;
+    private final ExecutorService handlers;
+    private final BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ConcurrentHashMap<String, CompletableFuture<Integer>> keys = new ConcurrentHashMap<>();
+    /** Remembered keys with the submission each was recorded for, oldest first. */
+    private final ConcurrentLinkedQueue<Map.Entry<String, CompletableFuture<Integer>>> keyOrder =
+            new ConcurrentLinkedQueue<>();
+    private final AtomicInteger keyCount = new AtomicInteger();
+    private final Thread acceptor;
+    private final Thread batcher;
+    private volatile boolean running = true;
+
+    /**
+     * Starts a server on the loopback interface.
+     *
+     * @param manager        the manager orders are placed into
+     * @param port           the port to listen on, or 0 for any free port
+     * @param handlerThreads the number of threads serving connections
+     * @param maxBatch       the largest number of orders placed in one batch
+     * @param maxDelayMillis how long the batcher waits to fill a batch after the first order arrives
+     * @throws IOException if the port cannot be bound
+     */
+    public OrderIngestServer(OrderManager manager, int port, int handlerThreads, int maxBatch, long maxDelayMillis)
+            throws IOException {
+        this.manager = manager;
+        this.maxBatch = maxBatch;
+        this.maxDelayMillis = maxDelayMillis;
+        this.serverSocket = new ServerSocket(port, 512, InetAddress.getLoopbackAddress());
+        this.handlers = Executors.newFixedThreadPool(handlerThreads, r -> {
+            Thread thread = new Thread(r, "order-ingest-handler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.acceptor = new Thread(this::acceptLoop, "order-ingest-acceptor");
+        this.batcher = new Thread(this::batchLoop, "order-ingest-batcher");
+        acceptor.setDaemon(true);
+        batcher.setDaemon(true);
+        acceptor.start();
+        batcher.start();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and shuts down the worker threads.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        handlers.shutdownNow();
+        batcher.interrupt();
+    }
+
+    /**
+     * Accepts connections and hands each to a handler thread.
+     */
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                handlers.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Serves requests on one keep-alive connection until the client closes it.
+     *
+     * @param socket the client connection
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             InputStream in = new BufferedInputStream(s.getInputStream());
+             OutputStream out = new BufferedOutputStream(s.getOutputStream())) {
+            byte[] body = new byte[1024];
+            while (running) {
+                String requestLine = readLine(in);
+                if (requestLine == null) {
+                    return;
+                }
+                int contentLength = 0;
+                String contentType = "";
+                String key = null;
+                boolean keepAlive = !requestLine.endsWith("HTTP/1.0");
+                String header;
+                while ((header = readLine(in)) != null && !header.isEmpty()) {
+                    int colon = header.indexOf(':');
+                    if (colon <= 0) {
+                        continue;
+                    }
+                    String name = header.substring(0, colon).trim().toLowerCase(Locale.US);
+                    String value = header.substring(colon + 1).trim();
+                    if (name.equals("content-length")) {
+                        contentLength = parseLength(value);
+                    } else if (name.equals("content-type")) {
+                        contentType = value.toLowerCase(Locale.US);
+                    } else if (name.equals(IDEMPOTENCY_HEADER)) {
+                        key = value;
+                    } else if (name.equals("connection")) {
+                        keepAlive = !value.equalsIgnoreCase("close");
+                    }
+                }
+                if (contentLength == INVALID_LENGTH) {
+                    respond(out, 400, "{\"error\":\"invalid content length\"}", false);
+                    return;
+                }
+                if (contentLength > MAX_BODY) {
+                    respond(out, 413, "{\"error\":\"body too large\"}", false);
+                    return;
+                }
+                if (body.length < contentLength) {
+                    body = new byte[contentLength];
+                }
+                readFully(in, body, contentLength);
+                String[] parts = requestLine.split(" ");
+                if (parts.length < 2 || !parts[1].equals(ORDERS_PATH)) {
+                    respond(out, 404, "{\"error\":\"not found\"}", keepAlive);
+                } else if (!parts[0].equals("POST")) {
+                    respond(out, 405, "{\"error\":\"method not allowed\"}", keepAlive);
+                } else {
+                    handleOrder(out, body, contentLength, contentType, key, keepAlive);
+                }
+                if (!keepAlive) {
+                    return;
+                }
+            }
+        } catch (SocketException e) {
+            // Client went away.
+        } catch (IOException | RuntimeException e) {
+            if (running) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Decodes an order submission, deduplicates it by idempotency key, queues it for
+     * placement and writes the response once it has been placed.
+     *
+     * @param out         the response stream
+     * @param body        the request body buffer
+     * @param length      the number of valid body bytes
+     * @param contentType the lower-cased content type
+     * @param key         the idempotency key, or null
+     * @param keepAlive   whether the connection stays open
+     * @throws IOException if the response cannot be written
+     */
+    private void handleOrder(OutputStream out, byte[] body, int length, String contentType, String key,
+                             boolean keepAlive) throws IOException {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        if (key != null) {
+            CompletableFuture<Integer> existing = keys.putIfAbsent(key, result);
+            if (existing != null) {
+                Integer number = await(existing);
+                if (number == null) {
+                    respond(out, 409, "{\"error\":\"original submission failed\"}", keepAlive);
+                } else {
+                    respond(out, 200, "{\"order\":" + number + ",\"duplicate\":true}", keepAlive);
+                }
+                return;
+            }
+            rememberKey(key, result);
+        }
+        Order order;
+        try {
+            order = contentType.startsWith("application/octet-stream")
+                    ? OrderRequestDecoder.decodeBinary(body, length)
+                    : OrderRequestDecoder.decodeJson(new String(body, 0, length, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            fail(key, result);
+            respond(out, 400, "{\"error\":\"" + escape(e.getMessage()) + "\"}", keepAlive);
+            return;
+        }
+        try {
+            queue.put(new Pending(order, key, result));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(key, result);
+            respond(out, 503, "{\"error\":\"shutting down\"}", false);
+            return;
+        }
+        Integer number = await(result);
+        if (number == null) {
+            respond(out, 500, "{\"error\":\"placement failed\"}", keepAlive);
+        } else {
+            respond(out, 200, "{\"order\":" + number + "}", keepAlive);
+        }
+    }
+
+    /**
+     * Drains queued orders and places them in micro-batches.
+     */
+    private void batchLoop() {
+        ArrayList<Pending> batch = new ArrayList<>(maxBatch);
+        ArrayList<Order> orders = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+                while (batch.size() < maxBatch) {
+                    if (queue.drainTo(batch, maxBatch - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            for (Pending pending : batch) {
+                orders.add(pending.order);
+            }
+            try {
+                manager.placeOrders(orders);
+                for (Pending pending : batch) {
+                    pending.result.complete(pending.order.getNumber());
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                for (Pending pending : batch) {
+                    fail(pending.key, pending.result);
+                }
+            }
+            batch.clear();
+            orders.clear();
+        }
+    }
+
+    /**
+     * Records a key for FIFO eviction once the capacity is exceeded. Eviction only removes
+     * the key if it still maps to the same submission, so a key that was forgotten and then
+     * accepted again is not dropped early by its older record.
+     *
+     * @param key    the accepted idempotency key
+     * @param result the submission the key was accepted for
+     */
+    private void rememberKey(String key, CompletableFuture<Integer> result) {
+        keyOrder.add(new AbstractMap.SimpleImmutableEntry<>(key, result));
+        if (keyCount.incrementAndGet() > KEY_CAPACITY) {
+            Map.Entry<String, CompletableFuture<Integer>> oldest = keyOrder.poll();
+            if (oldest != null) {
+                keys.remove(oldest.getKey(), oldest.getValue());
+                keyCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Completes a submission as failed. Its idempotency key is forgotten first, so a client
+     * that sees the failure can retry under the same key.
+     *
+     * @param key    the idempotency key, or null
+     * @param result the submission's result future
+     */
+    private void fail(String key, CompletableFuture<Integer> result) {
+        if (key != null) {
+            keys.remove(key, result);
+        }
+        result.complete(null);
+    }
+
+    /**
+     * Parses a Content-Length header value.
+     *
+     * @param value the header value
+     * @return the length, or {@link #INVALID_LENGTH} if it is not a non-negative integer
+     */
+    private static int parseLength(String value) {
+        try {
+            int length = Integer.parseInt(value);
+            return length < 0 ? INVALID_LENGTH : length;
+        } catch (NumberFormatException e) {
+            return INVALID_LENGTH;
+        }
+    }
+
+    /**
+     * Waits for a placement result.
+     *
+     * @param future the result future
+     * @return the order number, or null if placement failed or the wait was interrupted
+     */
+    private static Integer await(CompletableFuture<Integer> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes a JSON response.
+     *
+     * @param out       the response stream
+     * @param status    the HTTP status code
+     * @param json      the response body
+     * @param keepAlive whether the connection stays open
+     * @throws IOException if writing fails
+     */
+    private static void respond(OutputStream out, int status, String json, boolean keepAlive) throws IOException {
+        byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + " " + reason(status) + "\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + payload.length + "\r\n"
+                + (keepAlive ? "" : "Connection: close\r\n")
+                + "\r\n";
+        out.write(head.getBytes(StandardCharsets.US_ASCII));
+        out.write(payload);
+        out.flush();
+    }
+
+    /**
+     * Returns the reason phrase for the status codes this server uses.
+     *
+     * @param status the status code
+     * @return the reason phrase
+     */
+    private static String reason(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 409:
+                return "Conflict";
+            case 413:
+                return "Payload Too Large";
+            case 503:
+                return "Service Unavailable";
+            default:
+                return "Internal Server Error";
+        }
+    }
+
+    /**
+     * Escapes a message for embedding in a JSON string.
+     *
+     * @param message the message
+     * @return the escaped message
+     */
+    private static String escape(String message) {
+        return String.valueOf(message).replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Reads a CRLF- or LF-terminated ASCII line.
+     *
+     * @param in the input stream
+     * @return the line without its terminator, or null at end of stream
+     * @throws IOException if reading fails or the line is too long
+     */
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                int end = sb.length();
+                if (end > 0 && sb.charAt(end - 1) == '\r') {
+                    sb.setLength(end - 1);
+                }
+                return sb.toString();
+            }
+            if (sb.length() >= MAX_LINE) {
+                throw new IOException("Request line too long");
+            }
+            sb.append((char) c);
+        }
+        return sb.length() == 0 ? null : sb.toString();
+    }
+
+    /**
+     * Reads exactly {@code length} bytes.
+     *
+     * @param in     the input stream
+     * @param buffer the destination
+     * @param length the number of bytes to read
+     * @throws IOException if the stream ends early
+     */
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buffer, read, length - read);
+            if (n < 0) {
+                throw new IOException("Unexpected end of request body");
+            }
+            read += n;
+        }
+    }
+}
@@ -0,0 +1,599 @@
+/**
+ * Append-only journal of order placements and cancellations in the RU Burger ordering system.
+ * <p>
+ * Each entry carries a sequence number and is written as a binary record framed by its
+ * length and a CRC-32 of its contents, and every append is synced to storage before it
+ * returns. Placed orders are stored compactly as their frozen line prices and packed
+ * {@link SkuCodec} SKUs, so replaying the journal restores them without repricing.
+ * </p>
+ * <p>
+ * A record torn by a crash at the end of the journal is detected on open and truncated
+ * away. A damaged record anywhere else, or a length prefix that cannot belong to a real
+ * entry, fails the read instead of silently dropping the entries after it.
+ * </p>
+ * <p>
+ * An append either completes, synced, or counts for nothing: the sequence number and length
+ * only advance once the sync succeeds. A failed append cuts the file back to the last synced
+ * entry where it can, and the journal then refuses further appends, so nothing is ever
+ * written after entries whose fate is unknown. Reopening the journal resumes from the file.
+ * </p>
+ * <p>
+ * {@link #getLength()} gives the byte offset just past the last entry, which
+ * {@link OrderSnapshots} stores with each snapshot. Opening the journal at that offset
+ * with {@link #OrderJournal(File, long, long)} scans and replays only the entries written
+ * after the snapshot, so startup time tracks the journal tail rather than the whole history.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+public class OrderJournal implements Closeable {
+
+    /** Entry type for a placed order. */
+    private static final byte TYPE_PLACED = 1;
+
+    /** Entry type for a cancelled order. */
+    private static final byte TYPE_CANCELLED = 2;
+
+    /** Size of the length and checksum that frame every entry. */
+    private static final int FRAME_BYTES = 2 * Integer.BYTES;
+
+    /** Largest entry accepted; longer length prefixes are treated as damage. */
+    static final int MAX_ENTRY_BYTES = 1 << 20;
+
+    /**
+     * Receives journal entries during {@link #replay(long, Visitor)}.
+     */
+    public interface Visitor {
+        /**
+         * Called for a placed order entry.
+         *
+         * @param sequence the entry sequence number
+         * @param order    the restored, already placed order
+         */
+        void placed(long sequence, Order order);
+
+        /**
+         * Called for a cancellation entry.
+         *
+         * @param sequence    the entry sequence number
+         * @param orderNumber the cancelled order number
+         */
+        void cancelled(long sequence, int orderNumber);
+    }
+
+    /** The journal file. */
+    private final File file;
+
+    /** The file stream, synced after every append. */
+    private final FileOutputStream fileOut;
+
+    /** Buffered stream appending to the journal file. */
+    private final DataOutputStream out;
+
+    /** Reusable buffer used to frame each entry. */
+    private final ByteArrayOutputStream entry = new ByteArrayOutputStream(256);
+
+    /** Checksum computed over each entry as it is written. */
+    private final CRC32 crc = new CRC32();
+
+    /** Stream writing an entry into {@link #entry} while updating {@link #crc}. */
+    private final DataOutputStream data = new DataOutputStream(new CheckedOutputStream(entry, crc));
+
+    /** Offset the journal was opened at; the entries before it are not read again. */
+    private final long baseOffset;
+
+    /** Sequence number of the last entry before {@link #baseOffset}. */
+    private final long baseSequence;
+
+    /** Sequence number of the last entry written. */
+    private long lastSequence;
+
+    /** Length in bytes of the complete entries written. */
+    private long length;
+
+    /** The failure of an earlier append, after which no more are accepted, or null. */
+    private IOException failure;
+
+    /**
+     * Opens (or creates) a journal, reading it from the start and truncating any torn
+     * record at its end.
+     *
+     * @param file the journal file
+     * @throws IOException if the file cannot be read or opened for appending, or is damaged
+     */
+    public OrderJournal(File file) throws IOException {
+        this(file, 0, 0);
+    }
+
+    /**
+     * Opens a journal whose first {@code offset} bytes are known to hold complete entries
+     * up to {@code sequence}, for example the position stored with a snapshot. Only the
+     * entries after the offset are read, and any torn record at the end is truncated.
+     *
+     * @param file     the journal file
+     * @param offset   the byte offset just past the entry with the given sequence, or 0
+     * @param sequence the sequence number of the last entry before the offset, or 0
+     * @throws IOException if the file cannot be read or opened for appending, is damaged, or
+     *                     does not continue with entry {@code sequence + 1} at the offset
+     */
+    public OrderJournal(File file, long offset, long sequence) throws IOException {
+        if (offset < 0 || sequence < 0 || (offset == 0) != (sequence == 0)) {
+            throw new IllegalArgumentException("Invalid journal position " + sequence + " at " + offset);
+        }
+        long fileLength = file.length();
+        if (offset > fileLength) {
+            throw new IOException("Journal " + file + " is shorter than position " + offset);
+        }
+        this.file = file;
+        this.baseOffset = offset;
+        this.baseSequence = sequence;
+        long[] last = {sequence};
+        long validLength = offset;
+        if (fileLength > offset) {
+            validLength = read(file, offset, sequence, Long.MAX_VALUE, null, last);
+            if (validLength < fileLength) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(validLength);
+                }
+            }
+        }
+        lastSequence = last[0];
+        length = validLength;
+        fileOut = new FileOutputStream(file, true);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut));
+    }
+
+    /**
+     * Appends a placement entry for an order that has already been placed.
+     *
+     * @param order the placed order
+     * @return the sequence number of the new entry
+     * @throws IOException if the entry cannot be written and synced, or an earlier append failed
+     */
+    public synchronized long appendPlaced(Order order) throws IOException {
+        checkUsable();
+        try {
+            begin(TYPE_PLACED, lastSequence + 1);
+            writeOrder(data, order);
+            return commit(frame(), 1);
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    /**
+     * Appends placement entries for a batch of placed orders with a single sync. The batch
+     * is written as a whole or not at all.
+     *
+     * @param orders the placed orders
+     * @return the sequence number of the last new entry
+     * @throws IOException if the entries cannot be written and synced, or an earlier append failed
+     */
+    public synchronized long appendPlaced(List<Order> orders) throws IOException {
+        checkUsable();
+        try {
+            long bytes = 0;
+            long sequence = lastSequence;
+            for (Order order : orders) {
+                begin(TYPE_PLACED, ++sequence);
+                writeOrder(data, order);
+                bytes += frame();
+            }
+            return commit(bytes, orders.size());
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    /**
+     * Appends a cancellation entry.
+     *
+     * @param orderNumber the cancelled order number
+     * @return the sequence number of the new entry
+     * @throws IOException if the entry cannot be written and synced, or an earlier append failed
+     */
+    public synchronized long appendCancelled(int orderNumber) throws IOException {
+        checkUsable();
+        try {
+            begin(TYPE_CANCELLED, lastSequence + 1);
+            data.writeInt(orderNumber);
+            return commit(frame(), 1);
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    /**
+     * Throws if an earlier append failed.
+     *
+     * @throws IOException describing the earlier failure
+     */
+    private void checkUsable() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal " + file + " failed earlier and must be reopened", failure);
+        }
+    }
+
+    /**
+     * Records a failed append and cuts the file back to the last synced entry, so entries
+     * whose sync failed are not replayed on the next open.
+     *
+     * @param e the failure
+     * @return the same failure, for the caller to throw
+     */
+    private IOException fail(IOException e) {
+        failure = e;
+        try {
+            fileOut.getChannel().truncate(length);
+        } catch (IOException truncateFailure) {
+            e.addSuppressed(truncateFailure);
+        }
+        return e;
+    }
+
+    /**
+     * Starts a new entry in the entry buffer.
+     *
+     * @param type     the entry type
+     * @param sequence the entry's sequence number
+     * @throws IOException if writing fails
+     */
+    private void begin(byte type, long sequence) throws IOException {
+        entry.reset();
+        crc.reset();
+        data.writeByte(type);
+        data.writeLong(sequence);
+    }
+
+    /**
+     * Syncs the framed entries to storage, then counts them as written.
+     *
+     * @param bytes   the framed size of the entries
+     * @param entries the number of entries
+     * @return the sequence number of the last entry
+     * @throws IOException if the entries cannot be synced
+     */
+    private long commit(long bytes, int entries) throws IOException {
+        sync();
+        length += bytes;
+        lastSequence += entries;
+        return lastSequence;
+    }
+
+    /**
+     * Writes the entry buffer preceded by its length and checksum.
+     *
+     * @return the number of bytes written
+     * @throws IOException if the entry is too long or cannot be written
+     */
+    private int frame() throws IOException {
+        int size = entry.size();
+        if (size > MAX_ENTRY_BYTES) {
+            throw new IOException("Journal entry of " + size + " bytes exceeds " + MAX_ENTRY_BYTES);
+        }
+        out.writeInt(size);
+        out.writeInt((int) crc.getValue());
+        entry.writeTo(out);
+        return FRAME_BYTES + size;
+    }
+
+    /**
+     * Flushes buffered entries and forces them to storage.
+     *
+     * @throws IOException if the file cannot be written or synced
+     */
+    private void sync() throws IOException {
+        out.flush();
+        fileOut.getFD().sync();
+    }
+
+    /**
+     * Returns the sequence number of the last entry written.
+     *
+     * @return the last sequence number, or 0 if the journal is empty
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Returns the byte offset just past the last entry written. Together with
+     * {@link #getLastSequence()} it is a position the journal can later be reopened at.
+     *
+     * @return the length in bytes of the complete entries
+     */
+    public synchronized long getLength() {
+        return length;
+    }
+
+    /**
+     * Replays every entry whose sequence number is greater than {@code afterSequence}.
+     * Entries before the offset the journal was opened at are only read if
+     * {@code afterSequence} precedes them.
+     *
+     * @param afterSequence entries up to and including this sequence are skipped
+     * @param visitor       the callback receiving each entry
+     * @throws IOException if the journal cannot be read or is damaged
+     */
+    public synchronized void replay(long afterSequence, Visitor visitor) throws IOException {
+        out.flush();
+        if (afterSequence >= baseSequence) {
+            read(file, baseOffset, baseSequence, afterSequence, visitor, new long[1]);
+        } else {
+            read(file, 0, 0, afterSequence, visitor, new long[1]);
+        }
+    }
+
+    /**
+     * Flushes and closes the journal. After a failed append, the entries it left unsynced
+     * are discarded instead of flushed.
+     *
+     * @throws IOException if the stream cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (failure != null) {
+            fileOut.close(); // Drop the failed entries still in the buffer
+        } else {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads complete entries from a journal file, starting at an entry boundary.
+     *
+     * @param file          the journal file
+     * @param offset        the byte offset of the first entry to read
+     * @param sequence      the sequence number of the entry before the offset, or 0
+     * @param afterSequence entries up to and including this sequence are skipped
+     * @param visitor       the callback receiving each entry, or null to only scan
+     * @param last          receives the sequence number of the last complete entry
+     * @return the byte offset just past the valid, complete entries
+     * @throws IOException if the file cannot be read, is damaged, or does not continue
+     *                     with entry {@code sequence + 1} at the offset
+     */
+    private static long read(File file, long offset, long sequence, long afterSequence, Visitor visitor,
+                             long[] last) throws IOException {
+        try (EntryReader reader = new EntryReader(file, offset)) {
+            while (reader.next()) {
+                if (reader.sequence != ++sequence) {
+                    throw new IOException("Expected journal entry " + sequence + " but found "
+                            + reader.sequence + " in " + file);
+                }
+                last[0] = reader.sequence;
+                if (visitor != null && reader.sequence > afterSequence) {
+                    if (reader.type == TYPE_PLACED) {
+                        visitor.placed(reader.sequence, reader.readOrder());
+                    } else if (reader.type == TYPE_CANCELLED) {
+                        visitor.cancelled(reader.sequence, reader.readCancelledNumber());
+                    } else {
+                        throw new IOException("Unknown journal entry type " + reader.type + " in " + file);
+                    }
+                }
+            }
+            return offset + reader.validLength;
+        }
+    }
+
+    /**
+     * Writes a placed order as its number, placement data and frozen lines.
+     *
+     * @param out   the destination
+     * @param order the placed order
+     * @throws IOException if writing fails
+     */
+    static void writeOrder(DataOutput out, Order order) throws IOException {
+        List<MenuItem> items = order.getItems();
+        out.writeInt(order.getNumber());
+        out.writeLong(order.getPlacedAt());
+        out.writeLong(order.getCatalogVersion());
+        out.writeInt(OrderHistoryStore.toCents(order.getDiscount()));
+        out.writeInt(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            out.writeLong(SkuCodec.encode(items.get(i)));
+            out.writeInt(OrderHistoryStore.toCents(order.getLinePrice(i)));
+        }
+    }
+
+    /**
+     * Reads an order written by {@link #writeOrder(DataOutput, Order)} and restores it as placed.
+     *
+     * @param in the source
+     * @return the restored order
+     * @throws IOException if reading fails
+     */
+    static Order readOrder(DataInput in) throws IOException {
+        Order order = new Order(in.readInt());
+        long placedAt = in.readLong();
+        long catalogVersion = in.readLong();
+        double discount = in.readInt() / 100.0;
+        int count = in.readInt();
+        double[] lines = new double[count];
+        ArrayList<MenuItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(SkuCodec.decode(in.readLong()));
+            lines[i] = in.readInt() / 100.0;
+        }
+        order.restorePlaced(catalogVersion, placedAt, items, lines, discount);
+        return order;
+    }
+
+    /**
+     * Pull-style reader returning the complete entries of a journal file one at a time. It
+     * holds a single entry in memory, so callers can interleave several journals. Reading
+     * stops at the end of the file or at a torn final entry: one cut short by the end of the
+     * file, one whose checksum fails and which ends the file, or a zero-filled tail. Any
+     * other damage throws.
+     */
+    static final class EntryReader implements Closeable {
+        private final File file;
+        private final DataInputStream in;
+        private final CRC32 crc = new CRC32();
+        private byte[] buffer = new byte[256];
+        private DataInputStream entry;
+
+        /** Bytes from the start offset to the end of the file when it was opened. */
+        private final long available;
+
+        /** The type of the entry just read. */
+        byte type;
+
+        /** The sequence number of the entry just read. */
+        long sequence;
+
+        /** The length in bytes of the complete entries read so far, from the start offset. */
+        long validLength;
+
+        /**
+         * Opens a journal file for reading from its first entry.
+         *
+         * @param file the journal file
+         * @throws IOException if the file cannot be opened
+         */
+        EntryReader(File file) throws IOException {
+            this(file, 0);
+        }
+
+        /**
+         * Opens a journal file for reading from the entry at a byte offset.
+         *
+         * @param file   the journal file
+         * @param offset the byte offset of an entry boundary
+         * @throws IOException if the file cannot be opened
+         */
+        EntryReader(File file, long offset) throws IOException {
+            this.file = file;
+            FileInputStream fileIn = new FileInputStream(file);
+            try {
+                fileIn.getChannel().position(offset);
+                available = fileIn.getChannel().size() - offset;
+            } catch (IOException e) {
+                fileIn.close();
+                throw e;
+            }
+            in = new DataInputStream(new BufferedInputStream(fileIn, 1 << 16));
+        }
+
+        /**
+         * Reads the next complete entry's header.
+         *
+         * @return false at the end of the journal or at a torn entry
+         * @throws IOException if the file cannot be read or an entry before the end is damaged
+         */
+        boolean next() throws IOException {
+            long remaining = available - validLength;
+            if (remaining < FRAME_BYTES) {
+                return false;
+            }
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length == 0 && checksum == 0 && restIsZero()) {
+                return false;
+            }
+            if (length < 1 + Long.BYTES || length > MAX_ENTRY_BYTES) {
+                throw damaged("Invalid entry length " + length);
+            }
+            if (FRAME_BYTES + (long) length > remaining) {
+                return false;
+            }
+            if (buffer.length < length) {
+                buffer = new byte[length];
+            }
+            in.readFully(buffer, 0, length);
+            crc.reset();
+            crc.update(buffer, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                if (FRAME_BYTES + (long) length == remaining) {
+                    return false;
+                }
+                throw damaged("Checksum mismatch");
+            }
+            entry = new DataInputStream(new ByteArrayInputStream(buffer, 0, length));
+            type = entry.readByte();
+            sequence = entry.readLong();
+            validLength += FRAME_BYTES + length;
+            return true;
+        }
+
+        /**
+         * Returns whether every byte after the current frame header is zero, as in a tail
+         * the file system extended but never wrote.
+         *
+         * @return true for a zero-filled tail
+         * @throws IOException if the file cannot be read
+         */
+        private boolean restIsZero() throws IOException {
+            int b;
+            while ((b = in.read()) == 0) {
+                // keep scanning
+            }
+            return b < 0;
+        }
+
+        /**
+         * Builds an error for a damaged entry at the current position.
+         *
+         * @param problem what is wrong with the entry
+         * @return the exception to throw
+         */
+        private IOException damaged(String problem) {
+            return new IOException(problem + " in journal entry after sequence " + sequence + " of " + file);
+        }
+
+        /**
+         * Returns whether the entry just read records a placed order.
+         *
+         * @return true for a placement, false for a cancellation
+         */
+        boolean isPlaced() {
+            return type == TYPE_PLACED;
+        }
+
+        /**
+         * Decodes the placed order of the entry just read.
+         *
+         * @return the restored, already placed order
+         * @throws IOException if the entry is malformed
+         */
+        Order readOrder() throws IOException {
+            return OrderJournal.readOrder(entry);
+        }
+
+        /**
+         * Decodes the order number of the cancellation entry just read.
+         *
+         * @return the cancelled order number
+         * @throws IOException if the entry is malformed
+         */
+        int readCancelledNumber() throws IOException {
+            return entry.readInt();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
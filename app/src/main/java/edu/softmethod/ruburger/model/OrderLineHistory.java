@@ -0,0 +1,36 @@
+/**
+ * Read access to the line-item history of placed orders in the RU Burger ordering system.
+ * <p>
+ * Implemented by the on-heap {@link OrderHistoryStore} and the off-heap {@link OrderArchive},
+ * so analytics can read whichever one an {@link OrderManager} is currently keeping its
+ * history in through {@link OrderManager#getHistory()}.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+public interface OrderLineHistory {
+
+    /**
+     * Visits every line that does not belong to a cancelled order, in placement order.
+     *
+     * @param visitor the callback receiving each line
+     */
+    void scan(OrderHistoryStore.LineVisitor visitor);
+
+    /**
+     * Returns the sum of all non-cancelled line prices in cents.
+     *
+     * @return the total sales in cents, before tax
+     */
+    long totalCents();
+
+    /**
+     * Returns the number of lines stored, including those of cancelled orders.
+     *
+     * @return the line count
+     */
+    long size();
+}
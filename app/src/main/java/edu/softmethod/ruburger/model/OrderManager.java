@@ -4,18 +4,51 @@
  * Handles the current active order, a list of placed orders, and provides methods
  * for modifying, placing, canceling, and exporting orders to a file.
  * </p>
+ * <p>
+ * Placed orders are kept in a {@link PersistentVector} and published, together with the
+ * journal position, as an immutable {@link Snapshot} after every placement or cancellation.
+ * Taking a snapshot is a single volatile read, so exports and analytics can iterate a
+ * consistent point-in-time view for as long as they like without locking out order intake.
+ * </p>
+ * <p>
+ * Placement timestamps never decrease, even if the wall clock steps back, and every snapshot
+ * carries an {@link OrderTimeIndex} answering time-range queries and windowed rollups.
+ * An {@link OrderContentIndex} maps item attributes to the orders containing them.
+ * </p>
+ * <p>
+ * Besides the single current order, any number of carts can be built at once, for example
+ * by several clerks and a kiosk. Each cart is opened with {@link #openCart()} and addressed
+ * by the handle it returns. Carts live in a concurrent map and each is guarded by its own
+ * monitor, so building carts never takes the manager's lock; only placing one does. A cart's
+ * edit events are published under its monitor, so subscribers see them in edit order. Carts
+ * left idle can be expired.
+ * </p>
  *
  * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
  */
 
 package edu.softmethod.ruburger.model;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.text.DecimalFormat;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class OrderManager {
 
@@ -25,19 +58,251 @@ public class OrderManager {
     /** The current in-progress order. */
     private Order currentOrder;
 
-    /** The list of all placed orders. */
-    private ArrayList<Order> placedOrders;
+    /**
+     * The placed orders in number order; replaced, never modified, on every change. A cancelled
+     * order leaves a placeholder in its slot until one slot in {@link #COMPACT_RATIO} holds one.
+     */
+    private PersistentVector<Order> placedOrders;
+
+    /** Number of slots in {@link #placedOrders} holding a placeholder for a cancelled order. */
+    private int cancelledSlots;
+
+    /** The placed orders are compacted once more than one slot in this many holds a placeholder. */
+    private static final int COMPACT_RATIO = 8;
+
+    /** Numbers of orders cancelled since {@link #cancellationLogStart}, in cancellation order. */
+    private PersistentVector<Integer> cancellations;
+
+    /** Journal sequence of each entry in {@link #cancellations}. */
+    private PersistentVector<Long> cancellationSequences;
+
+    /** Journal sequence the cancellation log started after; earlier cancellations are not in it. */
+    private long cancellationLogStart;
+
+    /** The placed orders sorted by placement time; replaced, never modified, on every change. */
+    private OrderTimeIndex timeIndex;
+
+    /** Latest placement timestamp handed out or restored, so timestamps never decrease. */
+    private long lastPlacedAt;
+
+    /** Latest published point-in-time view of the placed orders. */
+    private volatile Snapshot state;
+
+    /** Inverted index from item attributes to placed order numbers. */
+    private final OrderContentIndex contentIndex = new OrderContentIndex();
+
+    /** Streaming counts of the sandwich and burger builds placed. */
+    private final BuildPopularity popularity = new BuildPopularity();
+
+    /** Columnar line-item history appended on every placement, or null while an archive holds it. */
+    private OrderHistoryStore history;
+
+    /** Journal receiving every placement and cancellation, or null if not persisted. */
+    private OrderJournal journal;
+
+    /** Sequence number of the last journal entry reflected in {@link #placedOrders}. */
+    private long journalSequence;
+
+    /** Journal byte offset just past the entry {@link #journalSequence}. */
+    private long journalOffset;
+
+    /** Background executor writing periodic snapshots, or null if not running. */
+    private ScheduledExecutorService snapshotExecutor;
+
+    /** Optional off-heap archive holding the line-item history instead of {@link #history}. */
+    private OrderArchive archive;
+
+    /** Compiled promotions applied to new orders, or null if none. */
+    private PromotionEngine promotionEngine;
+
+    /** Publisher notifying subscribers of placements, cancellations and cart edits. */
+    private final OrderEventPublisher events = new OrderEventPublisher();
+
+    /** Open carts keyed by handle; each cart is guarded by its own monitor. */
+    private final ConcurrentHashMap<Long, Cart> carts = new ConcurrentHashMap<>();
+
+    /** Source of cart handles. */
+    private final AtomicLong nextCartHandle = new AtomicLong();
+
+    /** Background executor expiring idle carts, or null if not running. */
+    private ScheduledExecutorService cartExpiryExecutor;
+
+    /** Background executor running export jobs, created on first use. */
+    private ExecutorService exportExecutor;
+
+    /**
+     * An open cart: an unplaced order plus the time it was last used.
+     */
+    private static final class Cart {
+        final Order order;
+        long lastUsedNanos = System.nanoTime();
+        boolean closed;
+
+        /**
+         * Constructs a cart around an empty order.
+         *
+         * @param order the unplaced order
+         */
+        Cart(Order order) {
+            this.order = order;
+        }
+
+        /**
+         * Checks that the cart is still open and records that it was used. Called with the
+         * cart's monitor held.
+         *
+         * @param handle the cart handle, for the error message
+         * @throws IllegalArgumentException if the cart was placed, discarded or expired
+         */
+        void use(long handle) {
+            if (closed) {
+                throw new IllegalArgumentException("Unknown or expired cart: " + handle);
+            }
+            lastUsedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Immutable, point-in-time view of the manager's placed orders.
+     */
+    public static final class Snapshot {
+        private final PersistentVector<Order> placedOrders;
+        private final int cancelledSlots;
+        private List<Order> livePlacedOrders;
+        private final PersistentVector<Integer> cancellations;
+        private final PersistentVector<Long> cancellationSequences;
+        private final OrderTimeIndex timeIndex;
+        private final long cancellationLogStart;
+        private final long journalSequence;
+        private final long journalOffset;
+        private final long takenAt;
+
+        /**
+         * Constructs a snapshot.
+         *
+         * @param placedOrders          the placed orders at this point, with placeholders
+         * @param cancelledSlots        the number of placeholders among them
+         * @param cancellations         the numbers of orders cancelled since the log started
+         * @param cancellationSequences the journal sequence of each cancellation
+         * @param timeIndex             the placed orders sorted by placement time
+         * @param cancellationLogStart  the journal sequence the cancellation log started after
+         * @param journalSequence       the last journal entry reflected in {@code placedOrders}
+         * @param journalOffset         the journal byte offset just past that entry
+         * @param takenAt               the time the state was published in epoch milliseconds
+         */
+        Snapshot(PersistentVector<Order> placedOrders, int cancelledSlots,
+                 PersistentVector<Integer> cancellations, PersistentVector<Long> cancellationSequences,
+                 OrderTimeIndex timeIndex,
+                 long cancellationLogStart, long journalSequence, long journalOffset, long takenAt) {
+            this.placedOrders = placedOrders;
+            this.cancelledSlots = cancelledSlots;
+            this.cancellations = cancellations;
+            this.cancellationSequences = cancellationSequences;
+            this.timeIndex = timeIndex;
+            this.cancellationLogStart = cancellationLogStart;
+            this.journalSequence = journalSequence;
+            this.journalOffset = journalOffset;
+            this.takenAt = takenAt;
+        }
+
+        /**
+         * Returns the placed orders, in placement order. If orders were cancelled since the
+         * list was last compacted, the first call copies it without their placeholders.
+         *
+         * @return a read-only list of placed orders
+         */
+        public List<Order> getPlacedOrders() {
+            if (cancelledSlots == 0) {
+                return placedOrders;
+            }
+            if (livePlacedOrders == null) {
+                livePlacedOrders = Collections.unmodifiableList(withoutPlaceholders(placedOrders));
+            }
+            return livePlacedOrders;
+        }
+
+        /**
+         * Returns the numbers of orders cancelled since the cancellation log started, oldest first.
+         * The log restarts on launch, on recovery, when a journal is attached and after an
+         * import; {@link #getCancellationLogStart()} tells where.
+         *
+         * @return a read-only list of cancelled order numbers
+         */
+        public List<Integer> getCancellations() {
+            return cancellations;
+        }
+
+        /**
+         * Returns the journal sequence of each entry in {@link #getCancellations()}, so a
+         * reader can find the cancellations written after a journal position it recorded.
+         *
+         * @return a read-only list of journal sequences, all 0 if no journal is attached
+         */
+        public List<Long> getCancellationSequences() {
+            return cancellationSequences;
+        }
+
+        /**
+         * Returns the placed orders indexed by placement time.
+         *
+         * @return the time index
+         */
+        public OrderTimeIndex getTimeIndex() {
+            return timeIndex;
+        }
 
-    /** Decimal format for exporting totals. */
-    private static final DecimalFormat df = new DecimalFormat("0.00");
+        /**
+         * Returns the journal sequence the cancellation log started after. The log holds every
+         * cancellation journaled after this sequence, so a reader that recorded a journal
+         * position at or after it can resume from {@link #getCancellationSequences()}.
+         *
+         * @return the starting journal sequence
+         */
+        public long getCancellationLogStart() {
+            return cancellationLogStart;
+        }
+
+        /**
+         * Returns the sequence number of the last journal entry reflected in this snapshot.
+         *
+         * @return the journal sequence, or 0 if no journal is attached
+         */
+        public long getJournalSequence() {
+            return journalSequence;
+        }
+
+        /**
+         * Returns the journal byte offset just past the entry {@link #getJournalSequence()},
+         * where recovery from this state can resume reading the journal.
+         *
+         * @return the journal offset, or 0 if no journal is attached
+         */
+        public long getJournalOffset() {
+            return journalOffset;
+        }
+
+        /**
+         * Returns the time this state was published.
+         *
+         * @return the time in epoch milliseconds
+         */
+        public long getTakenAt() {
+            return takenAt;
+        }
+    }
 
     /**
-     * Private constructor to enforce singleton pattern.
+     * Constructs an independent manager. The application uses the {@link #getInstance()}
+     * singleton; {@link ShardedOrderManager} creates one manager per register or store.
      * Initializes a new current order and an empty placed order list.
      */
-    private OrderManager() {
+    OrderManager() {
         currentOrder = new Order();
-        placedOrders = new ArrayList<>();
+        placedOrders = PersistentVector.empty();
+        timeIndex = OrderTimeIndex.empty();
+        history = new OrderHistoryStore();
+        restartCancellationLog();
+        publishState();
     }
 
     /**
@@ -62,12 +327,570 @@ public class OrderManager {
     }
 
     /**
-     * Returns the list of all previously placed orders.
+     * Returns the list of all previously placed orders as a read-only snapshot.
+     * Later placements and cancellations never change a list already returned.
+     *
+     * @return a read-only list of {@link Order} objects
+     */
+    public List<Order> getPlacedOrders() {
+        return state.getPlacedOrders();
+    }
+
+    /**
+     * Returns a consistent point-in-time view of the placed orders without locking.
+     *
+     * @return the latest {@link Snapshot}
+     */
+    public Snapshot snapshot() {
+        return state;
+    }
+
+    /**
+     * Publishes the current placed orders and journal position as the latest snapshot.
+     * Called with the manager's lock held after every change.
+     */
+    private void publishState() {
+        state = new Snapshot(placedOrders, cancelledSlots, cancellations, cancellationSequences, timeIndex,
+                cancellationLogStart, journalSequence, journalOffset, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the timestamp for a placement: the wall-clock time, or the previous placement
+     * time if the clock has stepped back since. Called with the manager's lock held.
+     *
+     * @return the placement time in epoch milliseconds
+     */
+    private long nextPlacementTime() {
+        lastPlacedAt = Math.max(lastPlacedAt, System.currentTimeMillis());
+        return lastPlacedAt;
+    }
+
+    /**
+     * Returns the orders placed in a time range, found by binary search in the time index
+     * of the latest snapshot.
+     *
+     * @param from the start of the range, inclusive, in epoch milliseconds
+     * @param to   the end of the range, exclusive, in epoch milliseconds
+     * @return a read-only list of the orders in placement-time order
+     */
+    public List<Order> getOrdersBetween(long from, long to) {
+        return state.getTimeIndex().range(from, to);
+    }
+
+    /**
+     * Aggregates the orders placed in a time range into fixed windows, for example
+     * {@link OrderTimeIndex#MINUTE} or {@link OrderTimeIndex#HOUR}, reading only the orders
+     * in the range from the time index of the latest snapshot.
+     *
+     * @param from         the start of the range, inclusive, in epoch milliseconds
+     * @param to           the end of the range, exclusive, in epoch milliseconds
+     * @param windowMillis the window length in milliseconds
+     * @return the non-empty windows, in time order
+     */
+    public List<OrderTimeIndex.Window> rollup(long from, long to, long windowMillis) {
+        return state.getTimeIndex().rollup(from, to, windowMillis);
+    }
+
+    /**
+     * Starts a new, empty cancellation log after the current journal sequence.
+     */
+    private void restartCancellationLog() {
+        cancellations = PersistentVector.empty();
+        cancellationSequences = PersistentVector.empty();
+        cancellationLogStart = journalSequence;
+    }
+
+    /**
+     * Returns the store currently holding the line history of the placed orders: the
+     * attached {@link OrderArchive}, or the on-heap {@link OrderHistoryStore} when none is
+     * attached. A store returned before an archive is attached or detached stops receiving
+     * lines, so read it promptly rather than keeping it.
+     *
+     * @return the active {@link OrderLineHistory}, never null
+     */
+    public synchronized OrderLineHistory getHistory() {
+        return archive != null ? archive : history;
+    }
+
+    /**
+     * Visits every line of the placed orders, in placement order, from whichever store
+     * holds the line history: the attached archive or the on-heap history.
+     *
+     * @param visitor the callback receiving each line
+     */
+    public void scanLines(OrderHistoryStore.LineVisitor visitor) {
+        getHistory().scan(visitor);
+    }
+
+    /**
+     * Returns the publisher of order events. Subscribers are notified of every placement,
+     * cancellation and current-order edit without polling {@link #getPlacedOrders()}.
+     *
+     * @return the {@link OrderEventPublisher}
+     */
+    public OrderEventPublisher getEvents() {
+        return events;
+    }
+
+    /**
+     * Returns the inverted index from item attributes to placed order numbers.
+     *
+     * @return the {@link OrderContentIndex}
+     */
+    public OrderContentIndex getContentIndex() {
+        return contentIndex;
+    }
+
+    /**
+     * Returns the streaming statistics over the sandwich and burger builds of placed orders.
+     * A cancellation takes its order's builds back out of the counts and top builds; only the
+     * distinct-build estimate keeps counting builds whose every order was cancelled.
+     *
+     * @return the {@link BuildPopularity}
+     */
+    public BuildPopularity getPopularity() {
+        return popularity;
+    }
+
+    /**
+     * Returns the placed orders with an item carrying every given attribute, for example
+     * {@code findOrders(Protein.SALMON, Bread.PRETZEL)} for a salmon sandwich on pretzel. The
+     * content index narrows the search to orders holding all the attributes, and each of those
+     * is checked for a single item that has them.
+     *
+     * @param attributes menu enum constants and item classes; see {@link OrderContentIndex}
+     * @return the matching orders in ascending number order
+     * @throws IllegalArgumentException if no attributes are given or one is not indexable
+     */
+    public List<Order> findOrders(Object... attributes) {
+        List<Order> placed = state.placedOrders;
+        List<Order> found = new ArrayList<>();
+        contentIndex.query(attributes).forEach(number -> {
+            int index = indexOfNumber(placed, number);
+            if (index >= 0 && placed.get(index).isPlaced()
+                    && OrderContentIndex.matches(placed.get(index), attributes)) {
+                found.add(placed.get(index));
+            }
+        });
+        return found;
+    }
+
+    /**
+     * Returns the orders placed in a time range with an item carrying every given attribute,
+     * for example {@code findOrdersBetween(hourAgo, now, Combo.class, SideType.APPLE_SLICES)}. Whichever
+     * of the time range and the attribute match is smaller is walked and checked against the other.
+     *
+     * @param from       the start of the range, inclusive, in epoch milliseconds
+     * @param to         the end of the range, exclusive, in epoch milliseconds
+     * @param attributes menu enum constants and item classes; see {@link OrderContentIndex}
+     * @return the matching orders in placement-time order
+     * @throws IllegalArgumentException if no attributes are given or one is not indexable
+     */
+    public List<Order> findOrdersBetween(long from, long to, Object... attributes) {
+        List<Order> inRange = state.getTimeIndex().range(from, to);
+        CompressedBitmap matches = contentIndex.query(attributes);
+        List<Order> found = new ArrayList<>();
+        if (inRange.size() <= matches.cardinality()) {
+            for (Order order : inRange) {
+                if (matches.contains(order.getNumber()) && OrderContentIndex.matches(order, attributes)) {
+                    found.add(order);
+                }
+            }
+            return found;
+        }
+        for (Order order : findOrders(attributes)) {
+            if (order.getPlacedAt() >= from && order.getPlacedAt() < to) {
+                found.add(order);
+            }
+        }
+        found.sort(Comparator.comparingLong(Order::getPlacedAt).thenComparingInt(Order::getNumber));
+        return found;
+    }
+
+    /**
+     * Finds the slot of an order number with a binary search; placed orders are kept in
+     * ascending number order, and a cancelled order's placeholder keeps its number.
+     *
+     * @param placed the placed orders, with placeholders
+     * @param number the order number
+     * @return the index of the order or its placeholder, or -1 if the number is not held
+     */
+    private static int indexOfNumber(List<Order> placed, int number) {
+        int low = 0;
+        int high = placed.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midNumber = placed.get(mid).getNumber();
+            if (midNumber < number) {
+                low = mid + 1;
+            } else if (midNumber > number) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies the placed orders leaving out the placeholders of cancelled orders.
+     *
+     * @param placed the placed orders, with placeholders
+     * @return the orders still placed, in number order
+     */
+    private static ArrayList<Order> withoutPlaceholders(List<Order> placed) {
+        ArrayList<Order> kept = new ArrayList<>(placed.size());
+        for (Order order : placed) {
+            if (order.isPlaced()) {
+                kept.add(order);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Publishes an event if anyone is subscribed.
+     *
+     * @param type  the kind of change
+     * @param order the order the change applies to
+     * @param item  the added or removed item, or null
+     */
+    private void publish(OrderEvent.Type type, Order order, MenuItem item) {
+        if (events.hasSubscribers()) {
+            events.publish(new OrderEvent(type, order, item, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Attaches an off-heap archive to hold the line-item history in place of the on-heap
+     * {@link OrderHistoryStore}. The archive is rewritten from the placed orders, so it matches
+     * them even if it was last written by another run; after that it receives every placement
+     * and cancellation, and is rewritten again on recovery and import. Detaching rebuilds the
+     * on-heap history.
+     *
+     * @param archive the archive to write to, or null to detach
+     * @throws IOException if the archive cannot be rewritten
+     */
+    public synchronized void setArchive(OrderArchive archive) throws IOException {
+        if (archive != null) {
+            archive.replaceAll(state.getPlacedOrders());
+            history = null;
+        } else if (history == null) {
+            history = new OrderHistoryStore();
+            for (Order order : state.getPlacedOrders()) {
+                history.append(order, order.getPlacedAt());
+            }
+        }
+        this.archive = archive;
+    }
+
+    /**
+     * Returns the attached off-heap archive.
+     *
+     * @return the {@link OrderArchive}, or null if none is attached
+     */
+    public OrderArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * Attaches a journal that receives every subsequent placement and cancellation.
+     *
+     * @param journal the journal to write to, or null to detach
+     */
+    public synchronized void setJournal(OrderJournal journal) {
+        this.journal = journal;
+        journalSequence = journal == null ? 0 : journal.getLastSequence();
+        journalOffset = journal == null ? 0 : journal.getLength();
+        restartCancellationLog();
+        publishState();
+    }
+
+    /**
+     * Returns the attached journal.
+     *
+     * @return the {@link OrderJournal}, or null if none is attached
+     */
+    public synchronized OrderJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Rebuilds the placed orders from the newest snapshot plus the journal entries written
+     * after it, then attaches the journal for further writes. Any unplaced items in the
+     * current order are discarded. The journal was read in full when it was opened; use
+     * {@link #recover(OrderSnapshots, File)} to read only the entries after the snapshot.
+     *
+     * @param snapshots the snapshot store
+     * @param journal   the journal holding entries newer than the snapshot
+     * @return the time taken to become ready, in milliseconds
+     * @throws IOException if the snapshot or journal cannot be read
+     */
+    public synchronized long recover(OrderSnapshots snapshots, OrderJournal journal) throws IOException {
+        long start = System.nanoTime();
+        restore(snapshots.loadNewest(), journal);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Rebuilds the placed orders from the newest snapshot, then opens the journal at the
+     * offset stored with the snapshot, replays the entries written after it and attaches
+     * the journal for further writes; {@link #getJournal()} returns it. The journal is only
+     * read from that offset on, so its share of startup time tracks the entries written
+     * since the snapshot. Any unplaced items in the current order are discarded.
+     *
+     * @param snapshots   the snapshot store
+     * @param journalFile the journal file, created if missing
+     * @return the time taken to become ready, in milliseconds
+     * @throws IOException if the snapshot or journal cannot be read, or the journal does
+     *                     not continue where the snapshot ends
+     */
+    public synchronized long recover(OrderSnapshots snapshots, File journalFile) throws IOException {
+        long start = System.nanoTime();
+        OrderSnapshots.Snapshot snapshot = snapshots.loadNewest();
+        OrderJournal opened = snapshot == null || snapshot.getJournalOffset() == 0
+                ? new OrderJournal(journalFile)
+                : new OrderJournal(journalFile, snapshot.getJournalOffset(), snapshot.getSequence());
+        restore(snapshot, opened);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Replaces the placed orders with a snapshot's plus the journal entries after it and
+     * attaches the journal.
+     *
+     * @param snapshot the newest snapshot, or null if there is none
+     * @param journal  the journal holding entries newer than the snapshot
+     * @throws IOException if the journal cannot be read
+     */
+    private void restore(OrderSnapshots.Snapshot snapshot, OrderJournal journal) throws IOException {
+        LinkedHashMap<Integer, Order> orders = new LinkedHashMap<>();
+        long after = 0;
+        if (snapshot != null) {
+            after = snapshot.getSequence();
+            for (Order order : snapshot.getOrders()) {
+                orders.put(order.getNumber(), order);
+            }
+        }
+        journal.replay(after, new OrderJournal.Visitor() {
+            @Override
+            public void placed(long sequence, Order order) {
+                orders.put(order.getNumber(), order);
+            }
+
+            @Override
+            public void cancelled(long sequence, int orderNumber) {
+                orders.remove(orderNumber);
+            }
+        });
+        placedOrders = PersistentVector.copyOf(sortedByNumber(orders.values()));
+        cancelledSlots = 0;
+        rebuildIndexes();
+        setJournal(journal);
+        currentOrder = new Order();
+        attachPromotions(currentOrder);
+    }
+
+    /**
+     * Adds the placed orders described by a text export, for example to rebuild state from
+     * an export or to consolidate another register's orders. The file is parsed before the
+     * manager is locked, so intake is only held up while the orders are added. Orders that
+     * are already placed with the same number, lines and total are skipped, so importing a
+     * file twice adds nothing; an order whose number is placed with different contents
+     * rejects the whole import. Imported orders are journaled, the archive is rewritten to
+     * include them, and the cancellation log restarts so delta exports pick them up.
      *
-     * @return a list of {@link Order} objects
+     * @param file a file written by {@link #exportOrders(File)}
+     * @return the number of orders imported
+     * @throws IOException if the file cannot be read or parsed, an order number is already
+     *                     used by a different order, or the journal cannot be written
      */
-    public ArrayList<Order> getPlacedOrders() {
-        return placedOrders;
+    public int importOrders(File file) throws IOException {
+        List<Order> imported = OrderTextParser.readOrders(file);
+        synchronized (this) {
+            HashMap<Integer, Order> placedByNumber = new HashMap<>();
+            for (Order order : state.getPlacedOrders()) {
+                placedByNumber.put(order.getNumber(), order);
+            }
+            ArrayList<Order> added = new ArrayList<>();
+            ArrayList<Integer> collisions = new ArrayList<>();
+            for (Order order : imported) {
+                Order placed = placedByNumber.get(order.getNumber());
+                if (placed == null) {
+                    added.add(order);
+                } else if (!sameContents(placed, order)) {
+                    collisions.add(order.getNumber());
+                }
+            }
+            if (!collisions.isEmpty()) {
+                throw new IOException("Order numbers already used by different orders: " + collisions);
+            }
+            if (added.isEmpty()) {
+                return 0;
+            }
+            if (journal != null) {
+                journalSequence = journal.appendPlaced(added);
+                journalOffset = journal.getLength();
+            }
+            ArrayList<Order> merged = new ArrayList<>(state.getPlacedOrders());
+            merged.addAll(added);
+            placedOrders = PersistentVector.copyOf(sortedByNumber(merged));
+            cancelledSlots = 0;
+            rebuildIndexes();
+            restartCancellationLog();
+            publishState();
+            return added.size();
+        }
+    }
+
+    /**
+     * Returns whether two placed orders list the same lines and total, as an export would
+     * show them.
+     *
+     * @param a the first order
+     * @param b the second order
+     * @return true if every line and the total match
+     */
+    private static boolean sameContents(Order a, Order b) {
+        int lines = a.getItems().size();
+        if (lines != b.getItems().size()
+                || OrderHistoryStore.toCents(a.getTotal()) != OrderHistoryStore.toCents(b.getTotal())) {
+            return false;
+        }
+        for (int i = 0; i < lines; i++) {
+            if (!a.getLineText(i).equals(b.getLineText(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns orders in ascending number order, which the history store and delta export
+     * rely on. Orders are normally already in that order, so this usually just checks.
+     *
+     * @param orders the orders
+     * @return the orders sorted by number
+     */
+    private static List<Order> sortedByNumber(Collection<Order> orders) {
+        ArrayList<Order> sorted = new ArrayList<>(orders);
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i - 1).getNumber() > sorted.get(i).getNumber()) {
+                sorted.sort(Comparator.comparingInt(Order::getNumber));
+                break;
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Rebuilds the line-item history (on the heap or in the archive), time index, content
+     * index and build popularity from the placed orders, and makes sure their numbers are
+     * never handed out again and later placements are not timestamped before them.
+     *
+     * @throws IOException if the archive cannot be rewritten
+     */
+    private void rebuildIndexes() throws IOException {
+        history = archive == null ? new OrderHistoryStore() : null;
+        contentIndex.clear();
+        popularity.clear();
+        int highest = 0;
+        for (Order order : placedOrders) {
+            if (history != null) {
+                history.append(order, order.getPlacedAt());
+            }
+            contentIndex.add(order);
+            popularity.record(order);
+            highest = Math.max(highest, order.getNumber());
+            lastPlacedAt = Math.max(lastPlacedAt, order.getPlacedAt());
+        }
+        timeIndex = OrderTimeIndex.of(placedOrders);
+        Order.getNumberAllocator().skipPast(highest);
+        if (archive != null) {
+            archive.replaceAll(placedOrders);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the placed orders from the latest published state, without
+     * taking the manager's lock.
+     *
+     * @param snapshots the snapshot store to write to
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void writeSnapshot(OrderSnapshots snapshots) throws IOException {
+        Snapshot snapshot = state;
+        snapshots.write(snapshot.getJournalSequence(), snapshot.getJournalOffset(), snapshot.getPlacedOrders());
+    }
+
+    /**
+     * Starts writing snapshots in the background at a fixed period.
+     *
+     * @param snapshots    the snapshot store to write to
+     * @param periodMillis the time between snapshots in milliseconds
+     */
+    public synchronized void startSnapshots(OrderSnapshots snapshots, long periodMillis) {
+        stopSnapshots();
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                writeSnapshot(snapshots);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops background snapshots, if running.
+     */
+    public synchronized void stopSnapshots() {
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdown();
+            snapshotExecutor = null;
+        }
+    }
+
+    /**
+     * Sets the promotions applied to the current order and every order after it.
+     *
+     * @param promotionEngine the compiled promotions, or null to disable promotions
+     */
+    public void setPromotionEngine(PromotionEngine promotionEngine) {
+        this.promotionEngine = promotionEngine;
+        attachPromotions(currentOrder);
+    }
+
+    /**
+     * Attaches a fresh promotion evaluation for the current time of day to an order.
+     *
+     * @param order the unplaced order
+     */
+    private void attachPromotions(Order order) {
+        attachPromotions(order, System.currentTimeMillis());
+    }
+
+    /**
+     * Attaches a fresh promotion evaluation for the time of day of the given instant. Orders
+     * are re-evaluated at their placement time, so a cart opened before a time-windowed
+     * promotion starts or ends is discounted by the window it is placed in.
+     *
+     * @param order the unplaced order
+     * @param time  the instant in epoch milliseconds
+     */
+    private void attachPromotions(Order order, long time) {
+        if (promotionEngine == null) {
+            order.attachPromotions(null);
+            return;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int minuteOfDay = calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+        order.attachPromotions(promotionEngine.newEvaluation(minuteOfDay));
     }
 
     /**
@@ -77,6 +900,7 @@ public class OrderManager {
      */
     public void addItemToCurrentOrder(MenuItem item) {
         currentOrder.addItem(item);
+        publish(OrderEvent.Type.ITEM_ADDED, currentOrder, item);
     }
 
     /**
@@ -85,48 +909,462 @@ public class OrderManager {
      * @param item the item to remove
      */
     public void removeItemFromCurrentOrder(MenuItem item) {
-        currentOrder.removeItem(item);
+        Order order = currentOrder;
+        if (order.getItems().contains(item)) {
+            order.removeItem(item);
+            publish(OrderEvent.Type.ITEM_REMOVED, order, item);
+        }
+    }
+
+    /**
+     * Opens a new, empty cart.
+     *
+     * @return the handle addressing the cart
+     */
+    public long openCart() {
+        Order order = new Order();
+        attachPromotions(order);
+        long handle = nextCartHandle.incrementAndGet();
+        carts.put(handle, new Cart(order));
+        return handle;
+    }
+
+    /**
+     * Looks up an open cart without locking.
+     *
+     * @param handle the cart handle
+     * @return the cart
+     * @throws IllegalArgumentException if no cart is open under the handle
+     */
+    private Cart cart(long handle) {
+        Cart cart = carts.get(handle);
+        if (cart == null) {
+            throw new IllegalArgumentException("Unknown or expired cart: " + handle);
+        }
+        return cart;
+    }
+
+    /**
+     * Adds a {@link MenuItem} to a cart.
+     *
+     * @param handle the cart handle
+     * @param item   the item to add
+     * @throws IllegalArgumentException if no cart is open under the handle
+     */
+    public void addItemToCart(long handle, MenuItem item) {
+        Cart cart = cart(handle);
+        synchronized (cart) {
+            cart.use(handle);
+            cart.order.addItem(item);
+            publish(OrderEvent.Type.ITEM_ADDED, cart.order, item);
+        }
+    }
+
+    /**
+     * Removes a {@link MenuItem} from a cart.
+     *
+     * @param handle the cart handle
+     * @param item   the item to remove
+     * @return true if the item was in the cart
+     * @throws IllegalArgumentException if no cart is open under the handle
+     */
+    public boolean removeItemFromCart(long handle, MenuItem item) {
+        Cart cart = cart(handle);
+        synchronized (cart) {
+            cart.use(handle);
+            if (!cart.order.getItems().contains(item)) {
+                return false;
+            }
+            cart.order.removeItem(item);
+            publish(OrderEvent.Type.ITEM_REMOVED, cart.order, item);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the items in a cart.
+     *
+     * @param handle the cart handle
+     * @return a read-only list of the items at this moment
+     * @throws IllegalArgumentException if no cart is open under the handle
+     */
+    public List<MenuItem> getCartItems(long handle) {
+        Cart cart = cart(handle);
+        synchronized (cart) {
+            cart.use(handle);
+            return cart.order.getItems();
+        }
+    }
+
+    /**
+     * Prices a cart, including promotions and tax.
+     *
+     * @param handle the cart handle
+     * @return the total the cart would be placed at now
+     * @throws IllegalArgumentException if no cart is open under the handle
+     */
+    public double getCartTotal(long handle) {
+        Cart cart = cart(handle);
+        synchronized (cart) {
+            cart.use(handle);
+            return cart.order.getTotal();
+        }
+    }
+
+    /**
+     * Places a cart and closes its handle. An empty cart is not placed and stays open. The
+     * cart is only closed once the order is placed, so a cart whose placement fails stays
+     * open with its items and can be placed again.
+     *
+     * @param handle the cart handle
+     * @return the placed order, or null if the cart was empty
+     * @throws IllegalArgumentException if no cart is open under the handle
+     * @throws UncheckedIOException     if the order cannot be journaled
+     */
+    public Order placeCart(long handle) {
+        Cart cart = cart(handle);
+        synchronized (cart) {
+            cart.use(handle);
+            if (cart.order.getItems().isEmpty()) {
+                return null;
+            }
+            Order placed = placeOrders(Collections.singletonList(cart.order)).get(0);
+            cart.closed = true;
+            carts.remove(handle, cart);
+            return placed;
+        }
+    }
+
+    /**
+     * Discards a cart without placing it.
+     *
+     * @param handle the cart handle
+     * @return false if no cart was open under the handle
+     */
+    public boolean discardCart(long handle) {
+        Cart cart = carts.get(handle);
+        if (cart == null) {
+            return false;
+        }
+        synchronized (cart) {
+            if (cart.closed) {
+                return false;
+            }
+            cart.closed = true;
+            carts.remove(handle, cart);
+            return true;
+        }
+    }
+
+    /**
+     * Returns the number of open carts.
+     *
+     * @return the open cart count
+     */
+    public int getOpenCartCount() {
+        return carts.size();
+    }
+
+    /**
+     * Discards every cart that has not been used for at least the given time.
+     *
+     * @param idleMillis the idle time after which a cart is abandoned
+     * @return the number of carts discarded
+     */
+    public int expireIdleCarts(long idleMillis) {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        int expired = 0;
+        for (Map.Entry<Long, Cart> entry : carts.entrySet()) {
+            Cart cart = entry.getValue();
+            synchronized (cart) {
+                if (!cart.closed && cart.lastUsedNanos - cutoff <= 0) {
+                    cart.closed = true;
+                    carts.remove(entry.getKey(), cart);
+                    expired++;
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Starts expiring idle carts in the background, checking a few times per idle period.
+     *
+     * @param idleMillis the idle time after which a cart is abandoned
+     */
+    public synchronized void startCartExpiry(long idleMillis) {
+        stopCartExpiry();
+        cartExpiryExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cart-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleMillis / 4);
+        cartExpiryExecutor.scheduleWithFixedDelay(() -> expireIdleCarts(idleMillis), period, period,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops expiring idle carts in the background, if running.
+     */
+    public synchronized void stopCartExpiry() {
+        if (cartExpiryExecutor != null) {
+            cartExpiryExecutor.shutdown();
+            cartExpiryExecutor = null;
+        }
     }
 
     /**
      * Finalizes the current order and adds it to the placed orders list.
      * A new current order is initialized after placement.
      * If the current order is empty, it is not placed.
+     *
+     * @throws UncheckedIOException if the order cannot be journaled; it is then not placed
+     *                              and stays the current order
      */
-    public void placeCurrentOrder() {
+    public synchronized void placeCurrentOrder() {
         if (!currentOrder.getItems().isEmpty()) {
-            placedOrders.add(currentOrder);
-            currentOrder = new Order(); // Create a new order with incremented number
+            long timestamp = nextPlacementTime();
+            currentOrder.renumber(Order.getNumberAllocator().next());
+            if (promotionEngine != null) {
+                attachPromotions(currentOrder, timestamp);
+            }
+            currentOrder.place(PriceCatalog.current(), timestamp);
+            try {
+                commitPlaced(Collections.singletonList(currentOrder), timestamp);
+            } finally {
+                if (currentOrder.isPlaced()) {
+                    currentOrder = new Order(); // Numbered when it is placed
+                    attachPromotions(currentOrder);
+                }
+            }
         }
     }
 
     /**
-     * Cancels a previously placed order.
+     * Journals newly priced orders, then adds them to the placed orders, the indexes and the
+     * line history, publishes the new state and notifies subscribers. The journal is written
+     * first and either takes the whole batch or none of it, so if it fails the orders are
+     * reverted to unplaced orders and nothing else changes. Called with the manager's lock held.
+     *
+     * @param batch     the orders, numbered and priced, in number order
+     * @param timestamp their placement time in epoch milliseconds
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    private void commitPlaced(List<Order> batch, long timestamp) {
+        if (journal != null) {
+            try {
+                journalSequence = journal.appendPlaced(batch);
+                journalOffset = journal.getLength();
+            } catch (IOException e) {
+                for (Order order : batch) {
+                    order.unplace();
+                }
+                throw new UncheckedIOException("Cannot journal placed orders", e);
+            }
+        }
+        PersistentVector<Order> placed = placedOrders;
+        OrderTimeIndex indexed = timeIndex;
+        for (Order order : batch) {
+            placed = placed.plus(order);
+            indexed = indexed.plus(order);
+            contentIndex.add(order);
+            popularity.record(order);
+        }
+        placedOrders = placed;
+        timeIndex = indexed;
+        if (archive == null) {
+            history.appendAll(batch, timestamp);
+        } else {
+            try {
+                for (Order order : batch) {
+                    archive.append(order, timestamp);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        publishState();
+        for (Order order : batch) {
+            publish(OrderEvent.Type.PLACED, order, null);
+        }
+    }
+
+    /**
+     * Places a batch of finished carts at once. Numbers are reserved for the whole batch in
+     * one step, so the orders receive consecutive numbers in iteration order.
+     * All orders are priced against one catalog snapshot, share one placement timestamp and
+     * are appended to the history, archive and journal in a single pass. Empty carts are skipped.
+     * The batch is checked before anything is numbered, and journaled as a whole before it is
+     * added, so a rejected batch places nothing.
+     *
+     * @param orders the carts to place
+     * @return the placed orders, in the order they were numbered
+     * @throws IllegalStateException    if any of the orders has already been placed
+     * @throws IllegalArgumentException if the same order appears more than once in the batch
+     * @throws UncheckedIOException     if the batch cannot be journaled; its orders are then unplaced
+     */
+    public synchronized List<Order> placeOrders(Collection<Order> orders) {
+        ArrayList<Order> batch = new ArrayList<>(orders.size());
+        Set<Order> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Order order : orders) {
+            if (order.isPlaced()) {
+                throw new IllegalStateException("Order #" + order.getNumber() + " has already been placed");
+            }
+            if (!seen.add(order)) {
+                throw new IllegalArgumentException("The same order appears more than once in the batch");
+            }
+            if (!order.getItems().isEmpty()) {
+                batch.add(order);
+            }
+        }
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        int number = Order.getNumberAllocator().nextRange(batch.size());
+        PriceCatalog catalog = PriceCatalog.current();
+        long timestamp = nextPlacementTime();
+        for (Order order : batch) {
+            order.renumber(number++);
+            if (promotionEngine != null) {
+                attachPromotions(order, timestamp);
+            }
+            order.place(catalog, timestamp);
+        }
+        commitPlaced(batch, timestamp);
+        return batch;
+    }
+
+    /**
+     * Cancels a previously placed order, taking it out of the indexes, the line history and
+     * the build popularity counts. The order is found by binary search on its number and its
+     * slots in the placed orders and time index are given placeholders, so a cancellation
+     * takes amortized O(log n) however many orders are placed. The cancellation is journaled
+     * first, so an order whose cancellation cannot be written stays placed.
      *
      * @param order the order to cancel and remove from the list
+     * @throws UncheckedIOException if the cancellation cannot be journaled
      */
-    public void cancelOrder(Order order) {
-        placedOrders.remove(order);
+    public synchronized void cancelOrder(Order order) {
+        int index = indexOfNumber(placedOrders, order.getNumber());
+        if (index >= 0 && placedOrders.get(index) == order) {
+            if (journal != null) {
+                try {
+                    journalSequence = journal.appendCancelled(order.getNumber());
+                    journalOffset = journal.getLength();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot journal the cancellation of order #"
+                            + order.getNumber(), e);
+                }
+            }
+            timeIndex = timeIndex.without(order);
+            contentIndex.remove(order);
+            popularity.remove(order);
+            placedOrders = placedOrders.with(index, Order.placeholderFor(order));
+            cancelledSlots++;
+            if (cancelledSlots * COMPACT_RATIO > placedOrders.size()) {
+                placedOrders = PersistentVector.copyOf(withoutPlaceholders(placedOrders));
+                cancelledSlots = 0;
+            }
+            if (archive == null) {
+                history.markCancelled(order.getNumber());
+            } else {
+                archive.markCancelled(order.getNumber());
+            }
+            cancellations = cancellations.plus(order.getNumber());
+            cancellationSequences = cancellationSequences.plus(journalSequence);
+            publishState();
+            publish(OrderEvent.Type.CANCELLED, order, null);
+        }
     }
 
     /**
      * Exports all placed orders to the specified file in a human-readable format.
-     * Each order includes its items and total cost.
+     * Each order includes its items and total cost. The export reads one {@link Snapshot},
+     * so orders placed or cancelled while it runs neither disturb nor appear in it, and it
+     * replaces the file only once the export is complete.
      *
      * @param file the file to write the orders to
      */
     public void exportOrders(File file) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for (Order order : placedOrders) {
-                writer.write("Order #" + order.getNumber() + "\n");
-                for (MenuItem item : order.getItems()) {
-                    writer.write("- " + item.toString() + "\n");
-                }
-                writer.write("Total: $" + df.format(order.getTotal()) + "\n");
-                writer.write("====================================\n");
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        OrderExportJob job = exportOrders(file, ExportCompression.NONE);
+        if (job.getError() != null) {
+            job.getError().printStackTrace();
+        }
+    }
+
+    /**
+     * Exports all placed orders in the human-readable format, streaming the text through
+     * a compression stage on its way to the file.
+     *
+     * @param file        the file to write the orders to
+     * @param compression the compression applied to the text
+     * @return the finished job, reporting its status, compression ratio and throughput
+     */
+    public OrderExportJob exportOrders(File file, ExportCompression compression) {
+        OrderExportJob job = new OrderExportJob(state.getPlacedOrders(), file, compression, null);
+        job.run();
+        return job;
+    }
+
+    /**
+     * Exports all placed orders in the human-readable format, formatting ranges of orders on
+     * several worker threads. The file is byte-identical to {@link #exportOrders(File)}.
+     *
+     * @param file        the file to write the orders to
+     * @param parallelism the number of worker threads, for example the number of processors
+     * @return the finished job, reporting its status and throughput
+     */
+    public OrderExportJob exportOrdersParallel(File file, int parallelism) {
+        OrderExportJob job = new OrderExportJob(state.getPlacedOrders(), file, ExportCompression.NONE,
+                parallelism, null);
+        job.run();
+        return job;
+    }
+
+    /**
+     * Exports the lines of all placed orders in the compact {@link OrderColumnarFormat},
+     * replacing the file atomically.
+     *
+     * @param file the file to write the export to
+     * @throws IOException if the export cannot be written
+     */
+    public void exportOrdersColumnar(File file) throws IOException {
+        OrderColumnarFormat.write(state.getPlacedOrders(), file);
+    }
+
+    /**
+     * Starts exporting all placed orders on a background thread. The export covers the
+     * orders placed when this method is called.
+     *
+     * @param file     the file to replace with the export
+     * @param listener the callback receiving progress and completion, or null
+     * @return the running job, which can be cancelled or awaited
+     */
+    public OrderExportJob exportOrdersAsync(File file, OrderExportJob.Listener listener) {
+        return exportOrdersAsync(file, ExportCompression.NONE, listener);
+    }
+
+    /**
+     * Starts exporting all placed orders on a background thread through a compression stage.
+     * The export covers the orders placed when this method is called.
+     *
+     * @param file        the file to replace with the export
+     * @param compression the compression applied to the text
+     * @param listener    the callback receiving progress and completion, or null
+     * @return the running job, which can be cancelled or awaited
+     */
+    public synchronized OrderExportJob exportOrdersAsync(File file, ExportCompression compression,
+                                                      OrderExportJob.Listener listener) {
+        if (exportExecutor == null) {
+            exportExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "order-export");
+                thread.setDaemon(true);
+                return thread;
+            });
         }
+        OrderExportJob job = new OrderExportJob(state.getPlacedOrders(), file, compression, listener);
+        exportExecutor.execute(job);
+        return job;
     }
 }
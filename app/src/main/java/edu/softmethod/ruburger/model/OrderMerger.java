@@ -0,0 +1,431 @@
+/**
+ * Consolidates the exports or journals of several registers into one ordered stream in the
+ * RU Burger ordering system.
+ * <p>
+ * Every input must already be ordered by placement time and then order number, as text
+ * exports and journals are when written. The merger keeps one pending record per input in a
+ * binary heap and repeatedly emits the smallest, so merging N records from k inputs takes
+ * O(N log k) time and holds only k records in memory, however large the inputs are, plus
+ * {@link CompressedBitmap}s of the order numbers merged so far, overall and from each input,
+ * which settle whether a record collides with another input in constant time.
+ * </p>
+ * <p>
+ * Inputs may be text exports written by {@link OrderManager#exportOrders(File)} or
+ * {@link OrderDeltaExporter}, or {@link OrderJournal} files; the kind is recognized from the
+ * first byte. Both record placement times, so text and journal orders interleave by time.
+ * Orders without a placement time (imported orders in a journal, or orders in exports
+ * written before times were recorded) and cancellation records keep their position
+ * relative to the records of their own input; untimed orders at the start of an input
+ * merge by number, ahead of timed ones.
+ * </p>
+ * <p>
+ * Each order number must come from a single input: an order whose number was already merged
+ * from another input fails the merge, since the merged export could not tell the two apart.
+ * A cancellation record only applies to its own input's orders, so one naming an order merged
+ * from another input is dropped. The merged stream is written in the text export format,
+ * cancellation records included, so {@link OrderTextParser#readOrders(File)} applies them
+ * when it reads the result back.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public final class OrderMerger {
+
+    /**
+     * Receives the merged records in order.
+     */
+    public interface Handler {
+        /**
+         * Called for each placed order.
+         *
+         * @param source the index of the input the order came from
+         * @param order  the placed order
+         * @throws IOException if the handler cannot record the order
+         */
+        void order(int source, Order order) throws IOException;
+
+        /**
+         * Called for each cancellation record, except those naming an order merged from
+         * another input.
+         *
+         * @param source the index of the input the record came from
+         * @param number the cancelled order number
+         * @throws IOException if the handler cannot record the cancellation
+         */
+        void cancelled(int source, int number) throws IOException;
+    }
+
+    /**
+     * Counts and totals of a merge.
+     */
+    public static final class Totals {
+        private final int sources;
+        private long orders;
+        private long lines;
+        private long cancellations;
+        private long totalCents;
+
+        /**
+         * Constructs empty totals.
+         *
+         * @param sources the number of inputs merged
+         */
+        Totals(int sources) {
+            this.sources = sources;
+        }
+
+        /**
+         * Returns the number of inputs merged.
+         *
+         * @return the input count
+         */
+        public int getSources() {
+            return sources;
+        }
+
+        /**
+         * Returns the number of orders merged.
+         *
+         * @return the order count
+         */
+        public long getOrders() {
+            return orders;
+        }
+
+        /**
+         * Returns the number of order lines merged.
+         *
+         * @return the line count
+         */
+        public long getLines() {
+            return lines;
+        }
+
+        /**
+         * Returns the number of cancellation records merged.
+         *
+         * @return the cancellation count
+         */
+        public long getCancellations() {
+            return cancellations;
+        }
+
+        /**
+         * Returns the sum of the merged order totals, including tax. Cancellation records
+         * do not reduce it.
+         *
+         * @return the gross total in cents
+         */
+        public long getTotalCents() {
+            return totalCents;
+        }
+    }
+
+    /**
+     * Private constructor; this class only exposes static helpers.
+     */
+    private OrderMerger() {
+    }
+
+    /**
+     * Merges inputs into one text export, replacing the output file atomically.
+     *
+     * @param inputs the sorted exports or journals
+     * @param output the merged export
+     * @return the counts and totals of the merge
+     * @throws IOException if an input cannot be read or is out of order, two inputs hold the
+     *                     same order number, or the output cannot be written
+     */
+    public static Totals merge(List<File> inputs, File output) throws IOException {
+        DecimalFormat df = new DecimalFormat("0.00");
+        File temp = File.createTempFile(output.getName() + ".", ".tmp", output.getAbsoluteFile().getParentFile());
+        Totals totals;
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(temp);
+                 Writer writer = new OutputStreamWriter(new BufferedOutputStream(fileOut, 1 << 16),
+                         StandardCharsets.UTF_8)) {
+                totals = merge(inputs, new Handler() {
+                    @Override
+                    public void order(int source, Order order) throws IOException {
+                        OrderExportJob.writeOrder(writer, order, df);
+                    }
+
+                    @Override
+                    public void cancelled(int source, int number) throws IOException {
+                        writer.write(OrderDeltaExporter.CANCELLED_PREFIX + number + "\n");
+                        writer.write(OrderExportJob.SEPARATOR);
+                    }
+                });
+                writer.flush();
+                fileOut.getFD().sync();
+            }
+            if (!temp.renameTo(output)) {
+                throw new IOException("Cannot move merged export into place: " + output);
+            }
+        } finally {
+            temp.delete();
+        }
+        return totals;
+    }
+
+    /**
+     * Merges inputs, delivering each record to a handler in merged order.
+     *
+     * @param inputs  the sorted exports or journals
+     * @param handler the callback receiving each record
+     * @return the counts and totals of the merge
+     * @throws IOException if an input cannot be read or is out of order, two inputs hold the
+     *                     same order number, or the handler fails
+     */
+    public static Totals merge(List<File> inputs, Handler handler) throws IOException {
+        Totals totals = new Totals(inputs.size());
+        PriorityQueue<Source> heap = new PriorityQueue<>(Math.max(1, inputs.size()), (a, b) -> {
+            if (a.timestamp != b.timestamp) {
+                return Long.compare(a.timestamp, b.timestamp);
+            }
+            if (a.number != b.number) {
+                return Integer.compare(a.number, b.number);
+            }
+            return Integer.compare(a.index, b.index);
+        });
+        List<Source> sources = new ArrayList<>(inputs.size());
+        CompressedBitmap merged = new CompressedBitmap();
+        try {
+            for (int i = 0; i < inputs.size(); i++) {
+                Source source = open(inputs.get(i), i);
+                sources.add(source);
+                if (source.advance()) {
+                    heap.add(source);
+                }
+            }
+            while (!heap.isEmpty()) {
+                Source source = heap.poll();
+                if (source.cancelled) {
+                    int number = source.cancelledNumber;
+                    if (!merged.contains(number) || source.numbers.contains(number)) {
+                        handler.cancelled(source.index, number);
+                        totals.cancellations++;
+                    }
+                } else {
+                    int number = source.order.getNumber();
+                    if (merged.contains(number) && !source.numbers.contains(number)) {
+                        throw new IOException("Order #" + number + " appears in both "
+                                + owner(sources, number).file + " and " + source.file);
+                    }
+                    merged.add(number);
+                    source.numbers.add(number);
+                    handler.order(source.index, source.order);
+                    totals.orders++;
+                    totals.lines += source.order.getItems().size();
+                    totals.totalCents += OrderHistoryStore.toCents(source.order.getTotal());
+                }
+                if (source.advance()) {
+                    heap.add(source);
+                }
+            }
+        } finally {
+            for (Source source : sources) {
+                source.close();
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Finds the input an order number was merged from, to name it when the merge fails.
+     *
+     * @param sources the inputs
+     * @param number  an order number already merged
+     * @return the input that merged the number first
+     */
+    private static Source owner(List<Source> sources, int number) {
+        for (Source source : sources) {
+            if (source.numbers.contains(number)) {
+                return source;
+            }
+        }
+        throw new IllegalStateException("Order #" + number + " was not merged");
+    }
+
+    /**
+     * Opens an input, recognizing a journal by the length that starts each entry frame. No
+     * entry is longer than {@link OrderJournal#MAX_ENTRY_BYTES}, far below 16 MB, so a
+     * journal's first byte is 0, which never begins a text export.
+     *
+     * @param file  the input
+     * @param index the position of the input in the merge
+     * @return the source positioned before its first record
+     * @throws IOException if the input cannot be opened
+     */
+    private static Source open(File file, int index) throws IOException {
+        int first;
+        try (InputStream in = new FileInputStream(file)) {
+            first = in.read();
+        }
+        return first == 0 ? new JournalSource(file, index) : new TextSource(file, index);
+    }
+
+    /**
+     * One input of the merge, exposing its pending record and that record's sort key.
+     */
+    private abstract static class Source implements Closeable {
+        final File file;
+        final int index;
+
+        /** Placement time of the pending record, or of the previous order for a cancellation. */
+        long timestamp;
+
+        /** Number of the pending order, or of the previous order for a cancellation. */
+        int number;
+
+        /** Whether the pending record is a cancellation. */
+        boolean cancelled;
+
+        /** The pending order, if it is not a cancellation. */
+        Order order;
+
+        /** The order number named by the pending cancellation. */
+        int cancelledNumber;
+
+        /** Numbers of the orders merged from this input so far. */
+        final CompressedBitmap numbers = new CompressedBitmap();
+
+        /**
+         * Constructs a source.
+         *
+         * @param file  the input
+         * @param index the position of the input in the merge
+         */
+        Source(File file, int index) {
+            this.file = file;
+            this.index = index;
+        }
+
+        /**
+         * Reads the next record into the pending fields without updating the sort key.
+         *
+         * @return false at the end of the input
+         * @throws IOException if the input cannot be read
+         */
+        abstract boolean read() throws IOException;
+
+        /**
+         * Moves to the next record and updates the sort key, checking that the input is sorted.
+         * Cancellations, and untimed orders after a timed one, keep the previous key.
+         *
+         * @return false at the end of the input
+         * @throws IOException if the input cannot be read or is out of order
+         */
+        final boolean advance() throws IOException {
+            if (!read()) {
+                return false;
+            }
+            if (!cancelled && (order.getPlacedAt() != 0 || timestamp == 0)) {
+                long placedAt = order.getPlacedAt();
+                if (placedAt < timestamp || (placedAt == timestamp && order.getNumber() < number)) {
+                    throw new IOException("Input is not sorted by time and order number at order #"
+                            + order.getNumber() + ": " + file);
+                }
+                timestamp = placedAt;
+                number = order.getNumber();
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    /**
+     * Source reading a text export.
+     */
+    private static final class TextSource extends Source {
+        private final OrderTextParser.RecordReader reader;
+
+        /**
+         * Maps a text export.
+         *
+         * @param file  the export
+         * @param index the position of the input in the merge
+         * @throws IOException if the file cannot be mapped
+         */
+        TextSource(File file, int index) throws IOException {
+            super(file, index);
+            reader = new OrderTextParser.RecordReader(file);
+        }
+
+        @Override
+        boolean read() throws IOException {
+            if (!reader.next()) {
+                return false;
+            }
+            cancelled = reader.cancelled;
+            if (cancelled) {
+                cancelledNumber = reader.number;
+                order = null;
+            } else {
+                order = OrderTextParser.restoreOrder(reader.number, reader.items, reader.lineCents,
+                        reader.totalCents, reader.placedAt);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Source reading a journal.
+     */
+    private static final class JournalSource extends Source {
+        private final OrderJournal.EntryReader reader;
+
+        /**
+         * Opens a journal.
+         *
+         * @param file  the journal file
+         * @param index the position of the input in the merge
+         * @throws IOException if the file cannot be opened
+         */
+        JournalSource(File file, int index) throws IOException {
+            super(file, index);
+            reader = new OrderJournal.EntryReader(file);
+        }
+
+        @Override
+        boolean read() throws IOException {
+            if (!reader.next()) {
+                return false;
+            }
+            cancelled = !reader.isPlaced();
+            if (cancelled) {
+                cancelledNumber = reader.readCancelledNumber();
+                order = null;
+            } else {
+                order = reader.readOrder();
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Hands out unique order numbers in the RU Burger ordering system.
+ * <p>
+ * A file-backed allocator leases blocks of numbers from a shared allocation file. The file
+ * holds the next number that has not yet been leased; leasing takes an exclusive file lock,
+ * reads that number, advances it by the block size and syncs the file before releasing the
+ * lock. Numbers inside a leased block are then handed out with no further coordination,
+ * so several registers (processes) sharing one file never issue the same number, and a
+ * restarted register continues after the last leased block. Numbers left in a block when
+ * a register shuts down are skipped, never reused. A file that exists but does not hold
+ * exactly one positive number is reported as corrupt rather than restarting at 1. Several
+ * allocators in one process may share a file; their leases are serialized in memory, since
+ * a file lock is held by the whole process. Numbers recovered or imported from elsewhere are
+ * written past with {@link #skipPast(int)}.
+ * </p>
+ * <p>
+ * The in-memory allocator keeps the original behaviour of counting up from 1 per launch.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntUnaryOperator;
+
+public class OrderNumberAllocator {
+
+    /** Default number of order numbers leased at once. */
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+
+    /** Monitors serializing leases within this process, keyed by canonical file path. */
+    private static final ConcurrentHashMap<String, Object> LEASE_MONITORS = new ConcurrentHashMap<>();
+
+    /** The shared allocation file, or null for an in-memory allocator. */
+    private final File file;
+
+    /** Number of order numbers leased per block. */
+    private final int blockSize;
+
+    /** The next number to hand out from the current block. */
+    private int next;
+
+    /** The first number after the current block. */
+    private int end;
+
+    /**
+     * Constructs an in-memory allocator that counts up from 1.
+     */
+    public OrderNumberAllocator() {
+        this.file = null;
+        this.blockSize = Integer.MAX_VALUE;
+        this.next = 1;
+        this.end = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Constructs an allocator that leases blocks from a shared allocation file.
+     * No block is leased until the first number is requested.
+     *
+     * @param file      the allocation file, created on first lease if missing
+     * @param blockSize the number of order numbers leased at once
+     */
+    public OrderNumberAllocator(File file, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        this.file = file;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the next unique order number, leasing a new block when the current one runs out.
+     *
+     * @return the order number
+     * @throws UncheckedIOException if a new block cannot be leased
+     */
+    public synchronized int next() {
+        if (next == end) {
+            lease(blockSize);
+        }
+        return next++;
+    }
+
+    /**
+     * Reserves {@code count} consecutive order numbers in one step. If the current block
+     * cannot hold them all, its remaining numbers are skipped and a block large enough for
+     * the request is leased.
+     *
+     * @param count the number of order numbers to reserve
+     * @return the first reserved number; the rest follow consecutively
+     * @throws UncheckedIOException if a new block cannot be leased
+     */
+    public synchronized int nextRange(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        if (end - next < count) {
+            lease(Math.max(count, blockSize));
+        }
+        int first = next;
+        next += count;
+        return first;
+    }
+
+    /**
+     * Ensures numbers up to and including {@code number} are never handed out again.
+     * Used after recovering or importing persisted orders, whose numbers may lie beyond any
+     * block leased so far. A file-backed allocator skips the rest of its block if needed and
+     * advances the allocation file under its lock, so no register leases those numbers later.
+     *
+     * @param number the highest number known to be in use
+     * @throws UncheckedIOException if the allocation file cannot be read, written or locked, or is corrupt
+     */
+    public synchronized void skipPast(int number) {
+        if (file == null) {
+            if (next <= number) {
+                next = number + 1;
+            }
+            return;
+        }
+        if (next <= number) {
+            next = Math.min(number + 1, end);
+        }
+        if (number >= end && number > 0) {
+            update(stored -> Math.max(stored, number + 1));
+        }
+    }
+
+    /**
+     * Leases a block of numbers from the allocation file.
+     *
+     * @param size the number of order numbers to lease
+     * @throws UncheckedIOException if the file cannot be read, written or locked, or is corrupt
+     */
+    private void lease(int size) {
+        if (file == null) {
+            throw new IllegalStateException("Order numbers exhausted");
+        }
+        int start = update(stored -> {
+            if ((long) stored + size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Order numbers exhausted");
+            }
+            return stored + size;
+        });
+        next = start;
+        end = start + size;
+    }
+
+    /**
+     * Replaces the next unleased number in the allocation file under an exclusive lock and
+     * syncs the file. Updates by other allocators of the same file in this process are
+     * excluded by a shared monitor, and other processes by the file lock.
+     *
+     * @param advance computes the new stored number from the current one
+     * @return the number stored before the update
+     * @throws UncheckedIOException if the file cannot be read, written or locked, or is corrupt
+     */
+    private int update(IntUnaryOperator advance) {
+        try {
+            Object monitor = LEASE_MONITORS.computeIfAbsent(file.getCanonicalPath(), path -> new Object());
+            synchronized (monitor) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                     FileChannel channel = raf.getChannel()) {
+                    FileLock lock = channel.lock();
+                    try {
+                        int stored = readNext(channel);
+                        int updated = advance.applyAsInt(stored);
+                        if (updated != stored) {
+                            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+                            buffer.putInt(updated).flip();
+                            while (buffer.hasRemaining()) {
+                                channel.write(buffer, buffer.position());
+                            }
+                            channel.force(true);
+                        }
+                        return stored;
+                    } finally {
+                        lock.release();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot lease order numbers from " + file, e);
+        }
+    }
+
+    /**
+     * Reads the next unleased number from the locked allocation file.
+     *
+     * @param channel the locked file's channel
+     * @return the stored number, or 1 if the file is empty
+     * @throws IOException if the file cannot be read or does not hold exactly one positive number
+     */
+    private int readNext(FileChannel channel) throws IOException {
+        long length = channel.size();
+        if (length == 0) {
+            return 1;
+        }
+        if (length != Integer.BYTES) {
+            throw new IOException("Corrupt allocation file " + file + ": " + length + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new IOException("Corrupt allocation file " + file + ": truncated while reading");
+            }
+        }
+        buffer.flip();
+        int start = buffer.getInt();
+        if (start < 1) {
+            throw new IOException("Corrupt allocation file " + file + ": next number " + start);
+        }
+        return start;
+    }
+}
@@ -0,0 +1,499 @@
+/**
+ * Decodes orders submitted by web and kiosk front-ends in the RU Burger ordering system.
+ * <p>
+ * Two encodings are accepted. The binary encoding is a sequence of big-endian 8-byte
+ * {@link SkuCodec} SKUs, one per line item. The JSON encoding is an object with an
+ * {@code items} array, where each item is either {@code {"sku": 12345}} or a readable
+ * description:
+ * </p>
+ * <pre>
+ * {"items": [
+ *   {"type": "burger", "bread": "BRIOCHE", "double": true, "addOns": ["CHEESE"], "quantity": 2},
+ *   {"type": "sandwich", "bread": "WHEAT", "protein": "CHICKEN", "addOns": [], "quantity": 1},
+ *   {"type": "combo", "sandwich": {"type": "sandwich", ...}, "side": "CHIPS", "drink": "COLA", "quantity": 1},
+ *   {"type": "side", "side": "FRIES", "size": "LARGE", "quantity": 1},
+ *   {"type": "beverage", "flavor": "COLA", "size": "SMALL", "quantity": 3}
+ * ]}
+ * </pre>
+ * <p>
+ * Malformed input is reported with an {@link IllegalArgumentException}.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class OrderRequestDecoder {
+
+    /** Largest quantity accepted for a single line. */
+    private static final int MAX_QUANTITY = 1000;
+
+    /** Deepest nesting of JSON arrays and objects accepted; real orders need three or four. */
+    private static final int MAX_DEPTH = 32;
+
+    /**
+     * Private constructor; this class only exposes static helpers.
+     */
+    private OrderRequestDecoder() {
+    }
+
+    /**
+     * Decodes a binary order made of big-endian 8-byte SKUs.
+     *
+     * @param body   the request body
+     * @param length the number of valid bytes in {@code body}
+     * @return a new, unplaced order
+     * @throws IllegalArgumentException if the body is empty, misaligned or holds an invalid SKU
+     */
+    public static Order decodeBinary(byte[] body, int length) {
+        if (length == 0 || length % Long.BYTES != 0) {
+            throw new IllegalArgumentException("Binary order must be a non-empty sequence of 8-byte SKUs");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(body, 0, length);
+        Order order = new Order();
+        while (buffer.hasRemaining()) {
+            order.addItem(checkQuantity(SkuCodec.decode(buffer.getLong())));
+        }
+        return order;
+    }
+
+    /**
+     * Decodes a JSON order.
+     *
+     * @param json the request body
+     * @return a new, unplaced order
+     * @throws IllegalArgumentException if the JSON is malformed or describes an invalid item
+     */
+    public static Order decodeJson(String json) {
+        Object root = new JsonReader(json).readDocument();
+        if (!(root instanceof Map)) {
+            throw new IllegalArgumentException("Order must be a JSON object");
+        }
+        Object items = ((Map<?, ?>) root).get("items");
+        if (!(items instanceof List) || ((List<?>) items).isEmpty()) {
+            throw new IllegalArgumentException("Order must have a non-empty \"items\" array");
+        }
+        Order order = new Order();
+        for (Object item : (List<?>) items) {
+            order.addItem(checkQuantity(toItem(item)));
+        }
+        return order;
+    }
+
+    /**
+     * Converts one parsed JSON item into a {@link MenuItem}.
+     *
+     * @param value the parsed item
+     * @return the menu item
+     */
+    private static MenuItem toItem(Object value) {
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Each item must be a JSON object");
+        }
+        Map<?, ?> item = (Map<?, ?>) value;
+        if (item.containsKey("sku")) {
+            return SkuCodec.decode(number(item, "sku"));
+        }
+        int quantity = quantity(item);
+        String type = string(item, "type");
+        switch (type) {
+            case "burger":
+                return new Burger(enumValue(Bread.class, item, "bread"),
+                        Boolean.TRUE.equals(item.get("double")), addOns(item), quantity);
+            case "sandwich":
+                return new Sandwich(enumValue(Bread.class, item, "bread"),
+                        enumValue(Protein.class, item, "protein"), addOns(item), quantity);
+            case "combo":
+                MenuItem inner = toItem(item.get("sandwich"));
+                if (!(inner instanceof Sandwich)) {
+                    throw new IllegalArgumentException("Combo sandwich must be a sandwich or burger");
+                }
+                return new Combo((Sandwich) inner, enumValue(Flavor.class, item, "drink"),
+                        enumValue(SideType.class, item, "side"), quantity);
+            case "side":
+                return new Side(enumValue(SideType.class, item, "side"), enumValue(Size.class, item, "size"), quantity);
+            case "beverage":
+                return new Beverage(enumValue(Size.class, item, "size"), enumValue(Flavor.class, item, "flavor"), quantity);
+            default:
+                throw new IllegalArgumentException("Unknown item type: " + type);
+        }
+    }
+
+    /**
+     * Reads the quantity of a described item, rejecting values outside {@code 1..MAX_QUANTITY}
+     * before they are narrowed to an {@code int}.
+     *
+     * @param item the parsed item
+     * @return the quantity
+     */
+    private static int quantity(Map<?, ?> item) {
+        long quantity = number(item, "quantity");
+        if (quantity < 1 || quantity > MAX_QUANTITY) {
+            throw new IllegalArgumentException("Invalid quantity: " + quantity);
+        }
+        return (int) quantity;
+    }
+
+    /**
+     * Rejects items with a quantity outside {@code 1..MAX_QUANTITY}, and combos whose sandwich
+     * quantity is outside {@code 1..}{@link SkuCodec#MAX_INNER_QUANTITY}, the most a SKU can hold.
+     *
+     * @param item the decoded item
+     * @return the same item
+     */
+    private static MenuItem checkQuantity(MenuItem item) {
+        if (item.getQuantity() < 1 || item.getQuantity() > MAX_QUANTITY) {
+            throw new IllegalArgumentException("Invalid quantity: " + item.getQuantity());
+        }
+        if (item instanceof Combo) {
+            int inner = ((Combo) item).getSandwich().getQuantity();
+            if (inner < 1 || inner > SkuCodec.MAX_INNER_QUANTITY) {
+                throw new IllegalArgumentException("Invalid combo sandwich quantity: " + inner);
+            }
+        }
+        return item;
+    }
+
+    /**
+     * Reads the optional add-on list of a sandwich or burger.
+     *
+     * @param item the parsed item
+     * @return the add-ons
+     */
+    private static ArrayList<AddOns> addOns(Map<?, ?> item) {
+        ArrayList<AddOns> addOns = new ArrayList<>();
+        Object raw = item.get("addOns");
+        if (raw == null) {
+            return addOns;
+        }
+        if (!(raw instanceof List)) {
+            throw new IllegalArgumentException("\"addOns\" must be an array");
+        }
+        for (Object name : (List<?>) raw) {
+            addOns.add(AddOns.valueOf(String.valueOf(name)));
+        }
+        return addOns;
+    }
+
+    /**
+     * Reads a required enum field by constant name.
+     *
+     * @param type the enum class
+     * @param item the parsed item
+     * @param key  the field name
+     * @param <E>  the enum type
+     * @return the enum constant
+     */
+    private static <E extends Enum<E>> E enumValue(Class<E> type, Map<?, ?> item, String key) {
+        return Enum.valueOf(type, string(item, key));
+    }
+
+    /**
+     * Reads a required string field.
+     *
+     * @param item the parsed item
+     * @param key  the field name
+     * @return the string value
+     */
+    private static String string(Map<?, ?> item, String key) {
+        Object value = item.get(key);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Missing string field \"" + key + "\"");
+        }
+        return (String) value;
+    }
+
+    /**
+     * Reads a required integral number field.
+     *
+     * @param item the parsed item
+     * @param key  the field name
+     * @return the number
+     */
+    private static long number(Map<?, ?> item, String key) {
+        Object value = item.get(key);
+        if (!(value instanceof Long)) {
+            throw new IllegalArgumentException("Missing integer field \"" + key + "\"");
+        }
+        return (Long) value;
+    }
+
+    /**
+     * Minimal JSON reader producing maps, lists, strings, longs, doubles, booleans and null.
+     * Nesting is limited to {@link #MAX_DEPTH}, so a body of repeated brackets is rejected
+     * instead of overflowing the stack.
+     */
+    private static final class JsonReader {
+        private final String text;
+        private int pos;
+        private int depth;
+
+        /**
+         * Constructs a reader over the given text.
+         *
+         * @param text the JSON text
+         */
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        /**
+         * Reads a complete document and checks nothing follows it.
+         *
+         * @return the parsed value
+         */
+        Object readDocument() {
+            Object value = readValue();
+            skipWhitespace();
+            if (pos != text.length()) {
+                throw error("Unexpected trailing content");
+            }
+            return value;
+        }
+
+        /**
+         * Reads any JSON value.
+         *
+         * @return the parsed value
+         */
+        private Object readValue() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error("Unexpected end of input");
+            }
+            char c = text.charAt(pos);
+            switch (c) {
+                case '{':
+                    enter();
+                    Map<String, Object> object = readObject();
+                    depth--;
+                    return object;
+                case '[':
+                    enter();
+                    List<Object> array = readArray();
+                    depth--;
+                    return array;
+                case '"':
+                    return readString();
+                case 't':
+                    expect("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    expect("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    expect("null");
+                    return null;
+                default:
+                    return readNumber();
+            }
+        }
+
+        /**
+         * Counts one more level of nesting.
+         */
+        private void enter() {
+            if (++depth > MAX_DEPTH) {
+                throw error("Nesting deeper than " + MAX_DEPTH);
+            }
+        }
+
+        /**
+         * Reads an object.
+         *
+         * @return the fields of the object
+         */
+        private Map<String, Object> readObject() {
+            HashMap<String, Object> map = new HashMap<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw error("Expected field name");
+                }
+                String key = readString();
+                skipWhitespace();
+                if (peek() != ':') {
+                    throw error("Expected ':'");
+                }
+                pos++;
+                map.put(key, readValue());
+                skipWhitespace();
+                char c = next();
+                if (c == '}') {
+                    return map;
+                }
+                if (c != ',') {
+                    throw error("Expected ',' or '}'");
+                }
+            }
+        }
+
+        /**
+         * Reads an array.
+         *
+         * @return the elements of the array
+         */
+        private List<Object> readArray() {
+            ArrayList<Object> list = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return list;
+            }
+            while (true) {
+                list.add(readValue());
+                skipWhitespace();
+                char c = next();
+                if (c == ']') {
+                    return list;
+                }
+                if (c != ',') {
+                    throw error("Expected ',' or ']'");
+                }
+            }
+        }
+
+        /**
+         * Reads a string, handling the standard escapes.
+         *
+         * @return the string contents
+         */
+        private String readString() {
+            pos++;
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char escape = next();
+                switch (escape) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("Bad unicode escape");
+                        }
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        sb.append(escape);
+                }
+            }
+        }
+
+        /**
+         * Reads a number as a Long if integral, otherwise as a Double.
+         *
+         * @return the number
+         */
+        private Object readNumber() {
+            int start = pos;
+            boolean integral = true;
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c == '.' || c == 'e' || c == 'E') {
+                    integral = false;
+                } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                    break;
+                }
+                pos++;
+            }
+            if (start == pos) {
+                throw error("Unexpected character");
+            }
+            String number = text.substring(start, pos);
+            try {
+                return integral ? (Object) Long.parseLong(number) : (Object) Double.parseDouble(number);
+            } catch (NumberFormatException e) {
+                throw error("Bad number " + number);
+            }
+        }
+
+        /**
+         * Consumes an expected literal.
+         *
+         * @param literal the literal text
+         */
+        private void expect(String literal) {
+            if (!text.startsWith(literal, pos)) {
+                throw error("Expected " + literal);
+            }
+            pos += literal.length();
+        }
+
+        /**
+         * Skips JSON whitespace.
+         */
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        /**
+         * Returns the current character without consuming it.
+         *
+         * @return the current character
+         */
+        private char peek() {
+            if (pos >= text.length()) {
+                throw error("Unexpected end of input");
+            }
+            return text.charAt(pos);
+        }
+
+        /**
+         * Consumes and returns the current character.
+         *
+         * @return the consumed character
+         */
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        /**
+         * Builds an error describing the current position.
+         *
+         * @param message the problem
+         * @return the exception to throw
+         */
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at offset " + pos);
+        }
+    }
+}
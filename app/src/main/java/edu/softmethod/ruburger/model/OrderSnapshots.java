@@ -0,0 +1,194 @@
+/**
+ * Compact point-in-time snapshots of placed orders in the RU Burger ordering system.
+ * <p>
+ * A snapshot records every placed order together with the sequence number of the last
+ * {@link OrderJournal} entry it includes and the journal's byte offset just past that
+ * entry. Recovery loads the newest snapshot, opens the journal at that offset and replays
+ * only the entries written after it, so the journal's share of startup time tracks its
+ * tail rather than the whole history. Snapshots are written to a temporary file and renamed
+ * into place, so a crash mid-write never damages the previous snapshot.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+public class OrderSnapshots {
+
+    /** Marker at the start of every snapshot file ("RBS2"). */
+    private static final int MAGIC = 0x52425332;
+
+    /** Prefix of snapshot file names. */
+    private static final String PREFIX = "snapshot-";
+
+    /** Suffix of snapshot file names. */
+    private static final String SUFFIX = ".bin";
+
+    /** Number of snapshot files kept after a successful write. */
+    private static final int KEEP = 2;
+
+    /**
+     * A loaded snapshot: the placed orders and the journal position they include.
+     */
+    public static class Snapshot {
+        private final long sequence;
+        private final long journalOffset;
+        private final ArrayList<Order> orders;
+
+        /**
+         * Constructs a loaded snapshot.
+         *
+         * @param sequence      the last journal sequence included
+         * @param journalOffset the journal byte offset just past that entry, or 0 if no journal was attached
+         * @param orders        the placed orders, in placement order
+         */
+        Snapshot(long sequence, long journalOffset, ArrayList<Order> orders) {
+            this.sequence = sequence;
+            this.journalOffset = journalOffset;
+            this.orders = orders;
+        }
+
+        /**
+         * Returns the last journal sequence number included in the snapshot.
+         *
+         * @return the sequence number
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Returns the journal byte offset just past the last entry included in the snapshot,
+         * where {@link OrderJournal#OrderJournal(File, long, long)} can resume reading.
+         *
+         * @return the offset, or 0 if no journal was attached
+         */
+        public long getJournalOffset() {
+            return journalOffset;
+        }
+
+        /**
+         * Returns the placed orders stored in the snapshot.
+         *
+         * @return the orders, in placement order
+         */
+        public ArrayList<Order> getOrders() {
+            return orders;
+        }
+    }
+
+    /** Directory holding the snapshot files. */
+    private final File directory;
+
+    /**
+     * Constructs a snapshot store in the given directory.
+     *
+     * @param directory the directory holding snapshot files
+     * @throws IOException if the directory cannot be created
+     */
+    public OrderSnapshots(File directory) throws IOException {
+        this.directory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create snapshot directory " + directory);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given placed orders and removes older snapshots.
+     *
+     * @param sequence      the last journal sequence reflected in {@code orders}
+     * @param journalOffset the journal byte offset just past that entry, or 0 if no journal was attached
+     * @param orders        the placed orders
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized void write(long sequence, long journalOffset, List<Order> orders) throws IOException {
+        File target = fileFor(sequence);
+        File temp = new File(directory, target.getName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeLong(sequence);
+            out.writeLong(journalOffset);
+            out.writeInt(orders.size());
+            for (Order order : orders) {
+                OrderJournal.writeOrder(out, order);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Cannot move snapshot into place: " + target);
+        }
+        File[] files = listSnapshots();
+        for (int i = 0; i < files.length - KEEP; i++) {
+            files[i].delete();
+        }
+    }
+
+    /**
+     * Loads the newest snapshot.
+     *
+     * @return the newest {@link Snapshot}, or null if there is none
+     * @throws IOException if the snapshot cannot be read
+     */
+    public synchronized Snapshot loadNewest() throws IOException {
+        File[] files = listSnapshots();
+        if (files.length == 0) {
+            return null;
+        }
+        File newest = files[files.length - 1];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(newest), 1 << 16))) {
+            int magic = in.readInt();
+            if (magic != MAGIC) {
+                throw new IOException("Not a snapshot file: " + newest);
+            }
+            long sequence = in.readLong();
+            long journalOffset = in.readLong();
+            int count = in.readInt();
+            ArrayList<Order> orders = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                orders.add(OrderJournal.readOrder(in));
+            }
+            return new Snapshot(sequence, journalOffset, orders);
+        }
+    }
+
+    /**
+     * Lists complete snapshot files, oldest first. Names are zero-padded, so name order is sequence order.
+     *
+     * @return the snapshot files
+     */
+    private File[] listSnapshots() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * Returns the file name used for a snapshot at the given sequence.
+     *
+     * @param sequence the journal sequence
+     * @return the snapshot file
+     */
+    private File fileFor(long sequence) {
+        return new File(directory, String.format(Locale.US, "%s%019d%s", PREFIX, sequence, SUFFIX));
+    }
+}
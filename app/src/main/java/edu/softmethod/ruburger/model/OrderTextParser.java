@@ -0,0 +1,652 @@
+/**
+ * Streaming parser for the text export written by {@link OrderManager#exportOrders(File)}
+ * in the RU Burger ordering system.
+ * <p>
+ * The parser walks a memory-mapped file byte by byte with a single cursor. It matches
+ * literals and enum constant names against pre-encoded byte arrays and reads numbers and
+ * prices digit by digit, so it uses no regular expressions, no {@code String.split} and no
+ * per-line strings. It understands every item description the menu classes produce, and
+ * the {@code Cancelled Order #N} records written by {@link OrderDeltaExporter}.
+ * </p>
+ * <p>
+ * Results are delivered either as rebuilt {@link MenuItem}s per order through a
+ * {@link Handler}, or as flat line records through an {@link OrderHistoryStore.LineVisitor}.
+ * Records restore the placement time from the optional {@code Placed:} line; records
+ * without one, such as those in older exports, carry a timestamp of 0.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+public final class OrderTextParser {
+
+    /**
+     * Receives the records of an export in file order.
+     */
+    public interface Handler {
+        /**
+         * Called for each order record.
+         *
+         * @param number     the order number
+         * @param items      the order's items; the list is not reused by the parser
+         * @param lineCents  the price listed for each item, in cents
+         * @param totalCents the order total, including tax, in cents
+         * @param placedAt   the placement time in epoch milliseconds, or 0 if not recorded
+         */
+        void order(int number, List<MenuItem> items, int[] lineCents, int totalCents, long placedAt);
+
+        /**
+         * Called for each cancellation record.
+         *
+         * @param number the cancelled order number
+         */
+        void cancelled(int number);
+    }
+
+    private static final byte[] ORDER = ascii("Order #");
+    private static final byte[] CANCELLED = ascii(OrderDeltaExporter.CANCELLED_PREFIX);
+    private static final byte[] ITEM = ascii("- ");
+    private static final byte[] TOTAL = ascii("Total: $");
+    private static final byte[] PLACED = ascii("Placed: ");
+    private static final byte[] SANDWICH = ascii("Sandwich, ");
+    private static final byte[] BURGER = ascii("Burger, ");
+    private static final byte[] COMBO = ascii("Combo x");
+    private static final byte[] SIDE = ascii("Side x");
+    private static final byte[] BEVERAGE = ascii("Beverage x");
+    private static final byte[] SINGLE = ascii("single");
+    private static final byte[] DOUBLE = ascii("double");
+    private static final byte[] OPEN_PAREN = ascii(" (");
+    private static final byte[] CLOSE_PAREN = ascii(")");
+    private static final byte[] ADD_ONS_OPEN = ascii(" [");
+    private static final byte[] ITEM_OPEN = ascii(": [");
+    private static final byte[] LIST_SEPARATOR = ascii(", ");
+    private static final byte[] LIST_CLOSE = ascii("]");
+    private static final byte[] QUANTITY = ascii(" x");
+    private static final byte[] COMBO_SIDE = ascii("], Side: ");
+    private static final byte[] COMBO_DRINK = ascii(", Drink: ");
+
+    private static final Bread[] BREADS = Bread.values();
+    private static final Protein[] PROTEINS = Protein.values();
+    private static final AddOns[] ADD_ONS = AddOns.values();
+    private static final SideType[] SIDE_TYPES = SideType.values();
+    private static final Size[] SIZES = Size.values();
+    private static final Flavor[] FLAVORS = Flavor.values();
+    private static final byte[][] BREAD_NAMES = names(BREADS);
+    private static final byte[][] PROTEIN_NAMES = names(PROTEINS);
+    private static final byte[][] ADD_ON_NAMES = names(ADD_ONS);
+    private static final byte[][] SIDE_TYPE_NAMES = names(SIDE_TYPES);
+    private static final byte[][] SIZE_NAMES = names(SIZES);
+    private static final byte[][] FLAVOR_NAMES = names(FLAVORS);
+
+    /**
+     * Private constructor; this class only exposes static helpers.
+     */
+    private OrderTextParser() {
+    }
+
+    /**
+     * Parses an export, delivering each order and cancellation record to a handler.
+     *
+     * @param file    the export
+     * @param handler the callback receiving each record
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static void parse(File file, Handler handler) throws IOException {
+        RecordReader reader = new RecordReader(file);
+        while (reader.next()) {
+            if (reader.cancelled) {
+                handler.cancelled(reader.number);
+            } else {
+                handler.order(reader.number, reader.items, reader.lineCents, reader.totalCents,
+                        reader.placedAt);
+            }
+        }
+    }
+
+    /**
+     * Parses an export into flat line records: order number, placement time (0 if not
+     * recorded), packed SKU, quantity and listed price in cents. Cancellation records are skipped.
+     *
+     * @param file    the export
+     * @param visitor the callback receiving each line
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static void scan(File file, OrderHistoryStore.LineVisitor visitor) throws IOException {
+        parse(file, new Handler() {
+            @Override
+            public void order(int number, List<MenuItem> items, int[] lineCents, int totalCents,
+                              long placedAt) {
+                for (int i = 0; i < items.size(); i++) {
+                    MenuItem item = items.get(i);
+                    visitor.visit(number, placedAt, SkuCodec.encode(item), item.getQuantity(), lineCents[i]);
+                }
+            }
+
+            @Override
+            public void cancelled(int number) {
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the placed orders described by an export. Cancellation records remove the
+     * orders they name. Each order's frozen line prices are the listed item prices; the
+     * listed total is authoritative, and any difference between it and the line prices
+     * plus tax is carried as the order's discount.
+     *
+     * @param file the export
+     * @return the placed orders, in file order
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static List<Order> readOrders(File file) throws IOException {
+        LinkedHashMap<Integer, Order> orders = new LinkedHashMap<>();
+        parse(file, new Handler() {
+            @Override
+            public void order(int number, List<MenuItem> items, int[] lineCents, int totalCents,
+                              long placedAt) {
+                orders.put(number, restoreOrder(number, items, lineCents, totalCents, placedAt));
+            }
+
+            @Override
+            public void cancelled(int number) {
+                orders.remove(number);
+            }
+        });
+        return new ArrayList<>(orders.values());
+    }
+
+    /**
+     * Rebuilds a placed order from a parsed record. The listed total is authoritative; any
+     * difference between it and the line prices plus tax is carried as the discount.
+     *
+     * @param number     the order number
+     * @param items      the order's items
+     * @param lineCents  the price listed for each item, in cents
+     * @param totalCents the order total, including tax, in cents
+     * @param placedAt   the placement time in epoch milliseconds, or 0 if not recorded
+     * @return the placed order
+     */
+    static Order restoreOrder(int number, List<MenuItem> items, int[] lineCents, int totalCents,
+                              long placedAt) {
+        Order order = new Order(number);
+        double[] lines = new double[lineCents.length];
+        long sum = 0;
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = lineCents[i] / 100.0;
+            sum += lineCents[i];
+        }
+        double discount = (sum - totalCents / (1 + Order.TAX_RATE)) / 100.0;
+        if (Math.abs(discount) < 0.005) {
+            discount = 0.0;
+        }
+        order.restorePlaced(0L, placedAt, items, lines, discount);
+        return order;
+    }
+
+    /**
+     * Maps a file read-only.
+     *
+     * @param file the file
+     * @return the mapped contents
+     * @throws IOException if the file cannot be mapped
+     */
+    private static ByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Encodes an ASCII literal.
+     *
+     * @param text the literal
+     * @return its bytes
+     */
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Encodes the constant names of an enum.
+     *
+     * @param values the enum constants
+     * @return the encoded names, indexed by ordinal
+     */
+    private static byte[][] names(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = ascii(values[i].name());
+        }
+        return names;
+    }
+
+    /**
+     * Pull-style reader returning the records of an export one at a time, for callers that
+     * interleave several exports. After {@link #next()} returns true the fields describe the
+     * record just read.
+     */
+    static final class RecordReader {
+        private final Cursor in;
+        private final ArrayList<MenuItem> buffer = new ArrayList<>();
+        private int[] cents = new int[16];
+
+        /** Whether the record is a cancellation rather than an order. */
+        boolean cancelled;
+
+        /** The order number of the record. */
+        int number;
+
+        /** The order's items; a new list for each record. Null for cancellations. */
+        List<MenuItem> items;
+
+        /** The price listed for each item, in cents. Null for cancellations. */
+        int[] lineCents;
+
+        /** The order total, including tax, in cents. 0 for cancellations. */
+        int totalCents;
+
+        /** The placement time in epoch milliseconds. 0 for cancellations and untimed orders. */
+        long placedAt;
+
+        /**
+         * Maps an export and positions the reader before its first record.
+         *
+         * @param file the export
+         * @throws IOException if the file cannot be mapped
+         */
+        RecordReader(File file) throws IOException {
+            in = new Cursor(map(file), file);
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @return false at the end of the export
+         * @throws IOException if the record is malformed
+         */
+        boolean next() throws IOException {
+            if (!in.skipBlankLines()) {
+                return false;
+            }
+            if (in.consume(CANCELLED)) {
+                cancelled = true;
+                number = in.readInt();
+                in.endLine();
+                in.skipSeparator();
+                items = null;
+                lineCents = null;
+                totalCents = 0;
+                placedAt = 0;
+                return true;
+            }
+            in.expect(ORDER);
+            cancelled = false;
+            number = in.readInt();
+            in.endLine();
+            buffer.clear();
+            while (in.consume(ITEM)) {
+                if (buffer.size() == cents.length) {
+                    cents = Arrays.copyOf(cents, cents.length * 2);
+                }
+                buffer.add(in.readItem());
+                cents[buffer.size() - 1] = in.lastPriceCents;
+                in.endLine();
+            }
+            in.expect(TOTAL);
+            totalCents = in.readCents();
+            in.endLine();
+            placedAt = 0;
+            if (in.consume(PLACED)) {
+                placedAt = in.readLong();
+                in.endLine();
+            }
+            in.skipSeparator();
+            items = new ArrayList<>(buffer);
+            lineCents = Arrays.copyOf(cents, buffer.size());
+            return true;
+        }
+    }
+
+    /**
+     * Reading position within a mapped export.
+     */
+    private static final class Cursor {
+        private final ByteBuffer buffer;
+        private final File file;
+        private final int limit;
+        private int pos;
+
+        /** Price of the item most recently read by {@link #readItem()}, in cents. */
+        int lastPriceCents;
+
+        /**
+         * Constructs a cursor at the start of a buffer.
+         *
+         * @param buffer the mapped export
+         * @param file   the export, for error messages
+         */
+        Cursor(ByteBuffer buffer, File file) {
+            this.buffer = buffer;
+            this.file = file;
+            this.limit = buffer.limit();
+        }
+
+        /**
+         * Reads one item description, including its trailing price.
+         *
+         * @return the item
+         * @throws IOException if the description is malformed
+         */
+        MenuItem readItem() throws IOException {
+            if (consume(SANDWICH)) {
+                return readSandwichBody(true, true);
+            }
+            if (peek(BURGER)) {
+                return readSandwichBody(false, true);
+            }
+            if (consume(COMBO)) {
+                int quantity = readInt();
+                expect(ITEM_OPEN);
+                Sandwich inner = readSandwichBody(consume(SANDWICH), false);
+                expect(COMBO_SIDE);
+                SideType side = readEnum(SIDE_TYPES, SIDE_TYPE_NAMES);
+                expect(COMBO_DRINK);
+                Flavor flavor = readEnum(FLAVORS, FLAVOR_NAMES);
+                lastPriceCents = readPrice();
+                return new Combo(inner, flavor, side, quantity);
+            }
+            if (consume(SIDE)) {
+                int quantity = readInt();
+                expect(ITEM_OPEN);
+                SideType type = readEnum(SIDE_TYPES, SIDE_TYPE_NAMES);
+                expect(LIST_SEPARATOR);
+                Size size = readEnum(SIZES, SIZE_NAMES);
+                expect(LIST_CLOSE);
+                lastPriceCents = readPrice();
+                return new Side(type, size, quantity);
+            }
+            if (consume(BEVERAGE)) {
+                int quantity = readInt();
+                expect(ITEM_OPEN);
+                Flavor flavor = readEnum(FLAVORS, FLAVOR_NAMES);
+                expect(LIST_SEPARATOR);
+                Size size = readEnum(SIZES, SIZE_NAMES);
+                expect(LIST_CLOSE);
+                lastPriceCents = readPrice();
+                return new Beverage(size, flavor, quantity);
+            }
+            throw error("Unknown item");
+        }
+
+        /**
+         * Reads the part of a sandwich or burger description after its type prefix.
+         *
+         * @param sandwich true if the {@code "Sandwich, "} prefix was consumed, false to
+         *                 consume a {@code "Burger, "} prefix
+         * @param priced   true if a price must follow; false inside a combo, where older
+         *                 exports still print one and it is skipped
+         * @return the sandwich or burger
+         * @throws IOException if the description is malformed
+         */
+        Sandwich readSandwichBody(boolean sandwich, boolean priced) throws IOException {
+            Protein protein = null;
+            boolean doublePatty = false;
+            if (sandwich) {
+                protein = readEnum(PROTEINS, PROTEIN_NAMES);
+            } else {
+                expect(BURGER);
+                if (consume(DOUBLE)) {
+                    doublePatty = true;
+                } else {
+                    expect(SINGLE);
+                }
+            }
+            expect(OPEN_PAREN);
+            Bread bread = readEnum(BREADS, BREAD_NAMES);
+            expect(CLOSE_PAREN);
+            ArrayList<AddOns> addOns = new ArrayList<>();
+            if (consume(ADD_ONS_OPEN)) {
+                do {
+                    addOns.add(readEnum(ADD_ONS, ADD_ON_NAMES));
+                } while (consume(LIST_SEPARATOR));
+                expect(LIST_CLOSE);
+            }
+            expect(QUANTITY);
+            int quantity = readInt();
+            if (priced) {
+                lastPriceCents = readPrice();
+            } else if (pos < limit && buffer.get(pos) == ' ') {
+                readPrice();
+            }
+            return sandwich ? new Sandwich(bread, protein, addOns, quantity)
+                    : new Burger(bread, doublePatty, addOns, quantity);
+        }
+
+        /**
+         * Skips empty lines.
+         *
+         * @return true if there is more input
+         */
+        boolean skipBlankLines() {
+            while (pos < limit && (buffer.get(pos) == '\n' || buffer.get(pos) == '\r')) {
+                pos++;
+            }
+            return pos < limit;
+        }
+
+        /**
+         * Consumes the separator line that ends a record.
+         *
+         * @throws IOException if the line is not a separator
+         */
+        void skipSeparator() throws IOException {
+            if (pos >= limit || buffer.get(pos) != '=') {
+                throw error("Expected separator");
+            }
+            while (pos < limit && buffer.get(pos) == '=') {
+                pos++;
+            }
+            endLine();
+        }
+
+        /**
+         * Consumes the end of the current line.
+         *
+         * @throws IOException if anything but a line break follows
+         */
+        void endLine() throws IOException {
+            if (pos < limit && buffer.get(pos) == '\r') {
+                pos++;
+            }
+            if (pos < limit) {
+                if (buffer.get(pos) != '\n') {
+                    throw error("Expected end of line");
+                }
+                pos++;
+            }
+        }
+
+        /**
+         * Tests whether a literal follows without consuming it.
+         *
+         * @param literal the literal
+         * @return true if it follows
+         */
+        boolean peek(byte[] literal) {
+            if (limit - pos < literal.length) {
+                return false;
+            }
+            for (int i = 0; i < literal.length; i++) {
+                if (buffer.get(pos + i) != literal[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Consumes a literal if it follows.
+         *
+         * @param literal the literal
+         * @return true if it was consumed
+         */
+        boolean consume(byte[] literal) {
+            if (!peek(literal)) {
+                return false;
+            }
+            pos += literal.length;
+            return true;
+        }
+
+        /**
+         * Consumes a literal that must follow.
+         *
+         * @param literal the literal
+         * @throws IOException if it does not follow
+         */
+        void expect(byte[] literal) throws IOException {
+            if (!consume(literal)) {
+                throw error("Expected \"" + new String(literal, StandardCharsets.UTF_8) + "\"");
+            }
+        }
+
+        /**
+         * Reads an enum constant by the longest matching name.
+         *
+         * @param values the enum constants
+         * @param names  their encoded names
+         * @param <E>    the enum type
+         * @return the constant
+         * @throws IOException if no name matches
+         */
+        <E extends Enum<E>> E readEnum(E[] values, byte[][] names) throws IOException {
+            int best = -1;
+            for (int i = 0; i < names.length; i++) {
+                if (peek(names[i]) && (best < 0 || names[i].length > names[best].length)) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                throw error("Unknown " + values[0].getDeclaringClass().getSimpleName());
+            }
+            pos += names[best].length;
+            return values[best];
+        }
+
+        /**
+         * Reads an unsigned decimal integer.
+         *
+         * @return the value
+         * @throws IOException if no digit follows
+         */
+        int readInt() throws IOException {
+            int start = pos;
+            int value = 0;
+            while (pos < limit) {
+                int digit = buffer.get(pos) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+                pos++;
+            }
+            if (pos == start) {
+                throw error("Expected number");
+            }
+            return value;
+        }
+
+        /**
+         * Reads an unsigned decimal long.
+         *
+         * @return the value
+         * @throws IOException if no digit follows or the value overflows
+         */
+        long readLong() throws IOException {
+            int start = pos;
+            long value = 0;
+            while (pos < limit) {
+                int digit = buffer.get(pos) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                if (value > (Long.MAX_VALUE - digit) / 10) {
+                    throw error("Number too large");
+                }
+                value = value * 10 + digit;
+                pos++;
+            }
+            if (pos == start) {
+                throw error("Expected number");
+            }
+            return value;
+        }
+
+        /**
+         * Reads the {@code " — $12.34"} price that ends an item description. Any bytes
+         * between the space and the dollar sign are skipped, so the dash parses whatever
+         * charset the export was written in.
+         *
+         * @return the price in cents
+         * @throws IOException if the price is malformed
+         */
+        int readPrice() throws IOException {
+            if (pos >= limit || buffer.get(pos) != ' ') {
+                throw error("Expected price");
+            }
+            int end = Math.min(limit, pos + 8);
+            while (pos < end && buffer.get(pos) != '$') {
+                pos++;
+            }
+            if (pos == end) {
+                throw error("Expected price");
+            }
+            pos++;
+            return readCents();
+        }
+
+        /**
+         * Reads a price with two decimals, accepting either '.' or ',' as the separator.
+         *
+         * @return the price in cents
+         * @throws IOException if the price is malformed
+         */
+        int readCents() throws IOException {
+            int whole = readInt();
+            if (pos >= limit || (buffer.get(pos) != '.' && buffer.get(pos) != ',')) {
+                throw error("Expected decimal separator");
+            }
+            pos++;
+            int start = pos;
+            int fraction = readInt();
+            if (pos - start != 2) {
+                throw error("Expected two decimals");
+            }
+            return whole * 100 + fraction;
+        }
+
+        /**
+         * Builds an error describing the current position.
+         *
+         * @param message the problem
+         * @return the exception to throw
+         */
+        IOException error(String message) {
+            return new IOException(message + " at byte " + pos + " of " + file);
+        }
+    }
+}
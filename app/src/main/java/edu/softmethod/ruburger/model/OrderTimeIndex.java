@@ -0,0 +1,308 @@
+/**
+ * Immutable index of placed orders sorted by placement time in the RU Burger ordering system.
+ * <p>
+ * Orders are held in a {@link PersistentVector} ordered by placement time and then order
+ * number. A time range is located with two binary searches and returned as a view, so
+ * {@link #range(long, long)} costs O(log n) however many orders it spans, and
+ * {@link #rollup(long, long, long)} reads only the orders inside the range. Placement
+ * timestamps are assigned in non-decreasing order, so new orders are appended at the end;
+ * each change returns a new index that shares structure with this one.
+ * </p>
+ * <p>
+ * Removing an order swaps a placeholder into its slot in O(log n) instead of shifting every
+ * later order. Placeholders are skipped by every read and dropped in one pass once they make
+ * up an eighth of the index, so removals cost amortized O(log n).
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public final class OrderTimeIndex {
+
+    /** One minute in milliseconds, for per-minute rollups. */
+    public static final long MINUTE = 60_000L;
+
+    /** One hour in milliseconds, for per-hour rollups. */
+    public static final long HOUR = 60 * MINUTE;
+
+    /** Order of the index: placement time, then order number. */
+    private static final Comparator<Order> TIME_ORDER =
+            Comparator.comparingLong(Order::getPlacedAt).thenComparingInt(Order::getNumber);
+
+    /** Shared empty index. */
+    private static final OrderTimeIndex EMPTY = new OrderTimeIndex(PersistentVector.empty(), 0);
+
+    /** The index is compacted once more than one slot in this many holds a placeholder. */
+    private static final int COMPACT_RATIO = 8;
+
+    /**
+     * Aggregates of the orders placed within one window of a rollup.
+     */
+    public static final class Window {
+        private final long start;
+        private final long end;
+        private final int orders;
+        private final long totalCents;
+
+        /**
+         * Constructs a window.
+         *
+         * @param start      the first millisecond of the window
+         * @param end        the millisecond after the window
+         * @param orders     the number of orders placed within it
+         * @param totalCents the sum of their totals, including tax, in cents
+         */
+        Window(long start, long end, int orders, long totalCents) {
+            this.start = start;
+            this.end = end;
+            this.orders = orders;
+            this.totalCents = totalCents;
+        }
+
+        /**
+         * Returns the start of the window.
+         *
+         * @return the first millisecond of the window, in epoch milliseconds
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the end of the window.
+         *
+         * @return the millisecond after the window, in epoch milliseconds
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        /**
+         * Returns the number of orders placed within the window.
+         *
+         * @return the order count
+         */
+        public int getOrders() {
+            return orders;
+        }
+
+        /**
+         * Returns the sum of the totals of the orders placed within the window.
+         *
+         * @return the total, including tax, in cents
+         */
+        public long getTotalCents() {
+            return totalCents;
+        }
+    }
+
+    private final PersistentVector<Order> orders;
+
+    /** Number of slots in {@link #orders} holding a placeholder for a removed order. */
+    private final int removed;
+
+    /**
+     * Constructs an index over orders already in time order.
+     *
+     * @param orders  the orders sorted by placement time, then number
+     * @param removed the number of placeholders among them
+     */
+    private OrderTimeIndex(PersistentVector<Order> orders, int removed) {
+        this.orders = orders;
+        this.removed = removed;
+    }
+
+    /**
+     * Returns the empty index.
+     *
+     * @return the empty index
+     */
+    public static OrderTimeIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds an index over placed orders in any order.
+     *
+     * @param placed the placed orders
+     * @return the new index
+     */
+    public static OrderTimeIndex of(Collection<Order> placed) {
+        ArrayList<Order> sorted = new ArrayList<>(placed);
+        sorted.sort(TIME_ORDER);
+        return new OrderTimeIndex(PersistentVector.copyOf(sorted), 0);
+    }
+
+    /**
+     * Returns a new index that also holds an order. Appending an order placed no earlier
+     * than the last indexed one takes effectively constant time.
+     *
+     * @param order the placed order
+     * @return the new index
+     */
+    public OrderTimeIndex plus(Order order) {
+        int size = orders.size();
+        if (size == 0 || TIME_ORDER.compare(orders.get(size - 1), order) <= 0) {
+            return new OrderTimeIndex(orders.plus(order), removed);
+        }
+        ArrayList<Order> copy = live(orders);
+        copy.add(lowerBound(copy, order.getPlacedAt(), order.getNumber()), order);
+        return new OrderTimeIndex(PersistentVector.copyOf(copy), 0);
+    }
+
+    /**
+     * Returns a new index without an order, or this index if the order is not held. The
+     * order's slot is found by binary search and given a placeholder, which takes O(log n);
+     * the placeholders are dropped together once they reach an eighth of the index.
+     *
+     * @param order the order to remove
+     * @return the new index
+     */
+    public OrderTimeIndex without(Order order) {
+        int index = lowerBound(orders, order.getPlacedAt(), order.getNumber());
+        if (index == orders.size()) {
+            return this;
+        }
+        Order held = orders.get(index);
+        if (!held.isPlaced() || held.getNumber() != order.getNumber()
+                || held.getPlacedAt() != order.getPlacedAt()) {
+            return this;
+        }
+        PersistentVector<Order> replaced = orders.with(index, Order.placeholderFor(held));
+        if ((removed + 1) * COMPACT_RATIO > orders.size()) {
+            return new OrderTimeIndex(PersistentVector.copyOf(live(replaced)), 0);
+        }
+        return new OrderTimeIndex(replaced, removed + 1);
+    }
+
+    /**
+     * Returns the number of indexed orders.
+     *
+     * @return the size
+     */
+    public int size() {
+        return orders.size() - removed;
+    }
+
+    /**
+     * Returns every indexed order in time order.
+     *
+     * @return a read-only list of orders
+     */
+    public List<Order> getOrders() {
+        return removed == 0 ? orders : Collections.unmodifiableList(live(orders));
+    }
+
+    /**
+     * Returns the orders placed in a time range.
+     *
+     * @param from the start of the range, inclusive, in epoch milliseconds
+     * @param to   the end of the range, exclusive, in epoch milliseconds
+     * @return a read-only view of the orders in time order; empty if {@code to <= from}
+     */
+    public List<Order> range(long from, long to) {
+        if (to <= from) {
+            return orders.subList(0, 0);
+        }
+        List<Order> inRange = orders.subList(lowerBound(orders, from, Integer.MIN_VALUE),
+                lowerBound(orders, to, Integer.MIN_VALUE));
+        return removed == 0 ? inRange : Collections.unmodifiableList(live(inRange));
+    }
+
+    /**
+     * Counts the orders placed in a time range.
+     *
+     * @param from the start of the range, inclusive, in epoch milliseconds
+     * @param to   the end of the range, exclusive, in epoch milliseconds
+     * @return the number of orders
+     */
+    public int count(long from, long to) {
+        return range(from, to).size();
+    }
+
+    /**
+     * Aggregates the orders placed in a time range into fixed-length windows, for example
+     * {@link #MINUTE} or {@link #HOUR}. Windows are aligned to multiples of their length since
+     * the epoch, and only windows containing orders are returned.
+     *
+     * @param from         the start of the range, inclusive, in epoch milliseconds
+     * @param to           the end of the range, exclusive, in epoch milliseconds
+     * @param windowMillis the window length in milliseconds
+     * @return the non-empty windows, in time order
+     * @throws IllegalArgumentException if the window length is not positive
+     */
+    public List<Window> rollup(long from, long to, long windowMillis) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Window length must be positive: " + windowMillis);
+        }
+        List<Window> windows = new ArrayList<>();
+        List<Order> inRange = range(from, to);
+        long start = 0;
+        int count = 0;
+        long cents = 0;
+        for (Order order : inRange) {
+            long windowStart = Math.floorDiv(order.getPlacedAt(), windowMillis) * windowMillis;
+            if (count > 0 && windowStart != start) {
+                windows.add(new Window(start, start + windowMillis, count, cents));
+                count = 0;
+                cents = 0;
+            }
+            start = windowStart;
+            count++;
+            cents += OrderHistoryStore.toCents(order.getTotal());
+        }
+        if (count > 0) {
+            windows.add(new Window(start, start + windowMillis, count, cents));
+        }
+        return windows;
+    }
+
+    /**
+     * Copies the orders in a slice of the index, leaving out placeholders.
+     *
+     * @param slice the slice of the index
+     * @return the placed orders in it, in time order
+     */
+    private static ArrayList<Order> live(List<Order> slice) {
+        ArrayList<Order> kept = new ArrayList<>(slice.size());
+        for (Order order : slice) {
+            if (order.isPlaced()) {
+                kept.add(order);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Finds the first order at or after a placement time and number. Placeholders keep the
+     * time and number of the order they replaced, so they do not disturb the search.
+     *
+     * @param orders    the orders in time order
+     * @param timestamp the placement time
+     * @param number    the order number breaking ties between equal times
+     * @return the index of the first order not before the key
+     */
+    private static int lowerBound(List<Order> orders, long timestamp, int number) {
+        int low = 0;
+        int high = orders.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Order order = orders.get(mid);
+            long placedAt = order.getPlacedAt();
+            if (placedAt < timestamp || (placedAt == timestamp && order.getNumber() < number)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
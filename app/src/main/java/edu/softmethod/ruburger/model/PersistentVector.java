@@ -0,0 +1,341 @@
+/**
+ * Immutable list with structural sharing, used for order items in the RU Burger ordering system.
+ * <p>
+ * Elements live in a 32-way trie plus a tail array holding the last partial leaf.
+ * Appending, replacing and removing the last element copy only the path from the root to
+ * the affected leaf, so each edit returns a new version in effectively constant time while
+ * every earlier version stays valid and unchanged. A version can therefore be handed to
+ * readers as a stable snapshot without copying it.
+ * </p>
+ * <p>
+ * The {@link java.util.List} mutators inherited from {@link AbstractList} throw
+ * {@link UnsupportedOperationException}; use {@link #plus(Object)}, {@link #with(int, Object)},
+ * {@link #pop()} and {@link #without(int)} to derive new versions.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ *
+ * @param <E> the element type
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+
+    /** Index bits consumed per trie level. */
+    private static final int BITS = 5;
+
+    /** Branching factor of the trie. */
+    private static final int WIDTH = 1 << BITS;
+
+    /** Mask selecting the index within one node. */
+    private static final int MASK = WIDTH - 1;
+
+    /** Shared empty root node. */
+    private static final Object[] EMPTY_NODE = new Object[WIDTH];
+
+    /** Shared empty vector. */
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+    /** Number of elements. */
+    private final int count;
+
+    /** Bit shift of the root level. */
+    private final int shift;
+
+    /** Root of the trie holding every full leaf before the tail. */
+    private final Object[] root;
+
+    /** Last leaf, holding between 1 and 32 elements (0 only when empty). */
+    private final Object[] tail;
+
+    /**
+     * Constructs a version from its parts.
+     *
+     * @param count the number of elements
+     * @param shift the bit shift of the root level
+     * @param root  the trie root
+     * @param tail  the tail leaf
+     */
+    private PersistentVector(int count, int shift, Object[] root, Object[] tail) {
+        this.count = count;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    /**
+     * Returns the empty vector.
+     *
+     * @param <E> the element type
+     * @return the empty vector
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    /**
+     * Returns a vector holding the given elements in iteration order.
+     *
+     * @param elements the elements
+     * @param <E>      the element type
+     * @return the new vector
+     */
+    public static <E> PersistentVector<E> copyOf(Collection<? extends E> elements) {
+        PersistentVector<E> vector = empty();
+        for (E element : elements) {
+            vector = vector.plus(element);
+        }
+        return vector;
+    }
+
+    /**
+     * Returns the number of elements.
+     *
+     * @return the size
+     */
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the element at an index.
+     *
+     * @param index the index
+     * @return the element
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index);
+        return (E) leafFor(index)[index & MASK];
+    }
+
+    /**
+     * Returns a new version with an element appended.
+     *
+     * @param element the element to append
+     * @return the new version
+     */
+    public PersistentVector<E> plus(E element) {
+        int tailLength = count - tailOffset();
+        if (tailLength < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tailLength + 1);
+            newTail[tailLength] = element;
+            return new PersistentVector<>(count + 1, shift, root, newTail);
+        }
+        Object[] newRoot;
+        int newShift = shift;
+        if ((count >>> BITS) > (1 << shift)) {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new PersistentVector<>(count + 1, newShift, newRoot, new Object[] {element});
+    }
+
+    /**
+     * Returns a new version with the element at an index replaced.
+     *
+     * @param index   the index
+     * @param element the new element
+     * @return the new version
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public PersistentVector<E> with(int index, E element) {
+        checkIndex(index);
+        if (index >= tailOffset()) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = element;
+            return new PersistentVector<>(count, shift, root, newTail);
+        }
+        return new PersistentVector<>(count, shift, replace(shift, root, index, element), tail);
+    }
+
+    /**
+     * Returns a new version without its last element.
+     *
+     * @return the new version
+     * @throws IllegalStateException if the vector is empty
+     */
+    public PersistentVector<E> pop() {
+        if (count == 0) {
+            throw new IllegalStateException("Cannot pop an empty vector");
+        }
+        if (count == 1) {
+            return empty();
+        }
+        if (count - tailOffset() > 1) {
+            return new PersistentVector<>(count - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+        }
+        Object[] newTail = leafFor(count - 2);
+        Object[] newRoot = popTail(shift, root);
+        int newShift = shift;
+        if (newRoot == null) {
+            newRoot = EMPTY_NODE;
+        }
+        if (shift > BITS && newRoot[1] == null) {
+            newRoot = (Object[]) newRoot[0];
+            newShift -= BITS;
+        }
+        return new PersistentVector<>(count - 1, newShift, newRoot, newTail);
+    }
+
+    /**
+     * Returns a new version without the element at an index. Elements before the index are
+     * shared with this version; elements after it are re-appended, so removing near the
+     * end is cheapest.
+     *
+     * @param index the index
+     * @return the new version
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public PersistentVector<E> without(int index) {
+        checkIndex(index);
+        int after = count - index - 1;
+        Object[] rest = new Object[after];
+        for (int i = 0; i < after; i++) {
+            rest[i] = get(index + 1 + i);
+        }
+        PersistentVector<E> result = this;
+        for (int i = 0; i <= after; i++) {
+            result = result.pop();
+        }
+        for (Object element : rest) {
+            @SuppressWarnings("unchecked")
+            E e = (E) element;
+            result = result.plus(e);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the first element of the trie-held leaves, i.e. where the tail starts.
+     *
+     * @return the tail offset
+     */
+    private int tailOffset() {
+        return count < WIDTH ? 0 : ((count - 1) >>> BITS) << BITS;
+    }
+
+    /**
+     * Returns the leaf array holding an index.
+     *
+     * @param index a valid index
+     * @return the leaf
+     */
+    private Object[] leafFor(int index) {
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    /**
+     * Copies the path to the next free leaf slot and places the full tail there.
+     *
+     * @param level    the bit shift of {@code parent}
+     * @param parent   the node to copy
+     * @param tailNode the full tail becoming a leaf
+     * @return the copied node
+     */
+    private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+        int index = ((count - 1) >>> level) & MASK;
+        Object[] copy = parent.clone();
+        if (level == BITS) {
+            copy[index] = tailNode;
+        } else {
+            Object[] child = (Object[]) parent[index];
+            copy[index] = child != null ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+        }
+        return copy;
+    }
+
+    /**
+     * Wraps a leaf in single-child nodes down from a level.
+     *
+     * @param level the bit shift of the outermost node
+     * @param leaf  the leaf
+     * @return the outermost node
+     */
+    private static Object[] newPath(int level, Object[] leaf) {
+        if (level == 0) {
+            return leaf;
+        }
+        Object[] node = new Object[WIDTH];
+        node[0] = newPath(level - BITS, leaf);
+        return node;
+    }
+
+    /**
+     * Copies the path to an index and replaces the element there.
+     *
+     * @param level   the bit shift of {@code node}
+     * @param node    the node to copy
+     * @param index   the element index
+     * @param element the new element
+     * @return the copied node
+     */
+    private static Object[] replace(int level, Object[] node, int index, Object element) {
+        Object[] copy = node.clone();
+        if (level == 0) {
+            copy[index & MASK] = element;
+        } else {
+            int child = (index >>> level) & MASK;
+            copy[child] = replace(level - BITS, (Object[]) node[child], index, element);
+        }
+        return copy;
+    }
+
+    /**
+     * Copies the path to the last leaf of the trie and removes that leaf.
+     *
+     * @param level the bit shift of {@code node}
+     * @param node  the node to copy
+     * @return the copied node, or null if it became empty
+     */
+    private Object[] popTail(int level, Object[] node) {
+        int index = ((count - 2) >>> level) & MASK;
+        if (level > BITS) {
+            Object[] child = popTail(level - BITS, (Object[]) node[index]);
+            if (child == null && index == 0) {
+                return null;
+            }
+            Object[] copy = node.clone();
+            copy[index] = child;
+            return copy;
+        }
+        if (index == 0) {
+            return null;
+        }
+        Object[] copy = node.clone();
+        copy[index] = null;
+        return copy;
+    }
+
+    /**
+     * Throws if an index is out of range.
+     *
+     * @param index the index
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/**
+ * Immutable, versioned snapshot of every menu price in the RU Burger ordering system.
+ * <p>
+ * The active catalog is published through a single volatile reference. Pricing code reads
+ * it once with {@link #current()} and uses that snapshot for the whole calculation, so reads
+ * never lock and a concurrent {@link #reload(File)} can never mix old and new prices within
+ * one item or order. Reloading parses a new snapshot and swaps the reference atomically.
+ * </p>
+ * <p>
+ * Catalog files use the {@link Properties} format. Keys that are missing keep the built-in
+ * default price. Versions only increase: a file without a {@code version} key gets the next
+ * one, and a file naming a version that is not newer than the current catalog is rejected,
+ * so the version frozen on a placed order always identifies one set of prices.
+ * </p>
+ * <pre>
+ * version=2
+ * sandwich.ROAST_BEEF=10.99
+ * burger.single=6.99
+ * burger.doubleSurcharge=2.50
+ * addon.CHEESE=1.00
+ * side.FRIES=2.49
+ * side.size.LARGE=1.00
+ * beverage.MEDIUM=2.49
+ * combo.fee=2.00
+ * </pre>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+public final class PriceCatalog {
+
+    /** Version number of the built-in catalog. */
+    public static final long DEFAULT_VERSION = 1;
+
+    /** The catalog used for all pricing; replaced atomically on reload. */
+    private static volatile PriceCatalog current = defaults();
+
+    /** Version of this snapshot. */
+    private final long version;
+
+    /** Sandwich base prices indexed by {@link Protein} ordinal. */
+    private final double[] sandwichPrices;
+
+    /** Add-on prices indexed by {@link AddOns} ordinal. */
+    private final double[] addOnPrices;
+
+    /** Side base prices indexed by {@link SideType} ordinal. */
+    private final double[] sideBasePrices;
+
+    /** Side size surcharges indexed by {@link Size} ordinal. */
+    private final double[] sideSizeSurcharges;
+
+    /** Beverage prices indexed by {@link Size} ordinal. */
+    private final double[] beveragePrices;
+
+    /** Base price of a single-patty burger. */
+    private final double burgerSinglePrice;
+
+    /** Surcharge for a double-patty burger. */
+    private final double burgerDoubleSurcharge;
+
+    /** Flat fee added to every combo. */
+    private final double comboFee;
+
+    /**
+     * Constructs a catalog snapshot. The arrays are owned by the new instance.
+     *
+     * @param version               the catalog version
+     * @param sandwichPrices        sandwich prices by protein
+     * @param addOnPrices           add-on prices
+     * @param sideBasePrices        side prices by side type
+     * @param sideSizeSurcharges    side surcharges by size
+     * @param beveragePrices        beverage prices by size
+     * @param burgerSinglePrice     single-patty burger price
+     * @param burgerDoubleSurcharge double-patty surcharge
+     * @param comboFee              flat combo fee
+     */
+    private PriceCatalog(long version, double[] sandwichPrices, double[] addOnPrices,
+                         double[] sideBasePrices, double[] sideSizeSurcharges, double[] beveragePrices,
+                         double burgerSinglePrice, double burgerDoubleSurcharge, double comboFee) {
+        this.version = version;
+        this.sandwichPrices = sandwichPrices;
+        this.addOnPrices = addOnPrices;
+        this.sideBasePrices = sideBasePrices;
+        this.sideSizeSurcharges = sideSizeSurcharges;
+        this.beveragePrices = beveragePrices;
+        this.burgerSinglePrice = burgerSinglePrice;
+        this.burgerDoubleSurcharge = burgerDoubleSurcharge;
+        this.comboFee = comboFee;
+    }
+
+    /**
+     * Builds the catalog holding the built-in menu prices.
+     *
+     * @return the default catalog
+     */
+    public static PriceCatalog defaults() {
+        double[] sandwich = new double[Protein.values().length];
+        sandwich[Protein.ROAST_BEEF.ordinal()] = 10.99;
+        sandwich[Protein.SALMON.ordinal()] = 9.99;
+        sandwich[Protein.CHICKEN.ordinal()] = 8.99;
+
+        double[] addOns = new double[AddOns.values().length];
+        for (AddOns addOn : AddOns.values()) {
+            addOns[addOn.ordinal()] = addOn.getDefaultPrice();
+        }
+
+        double[] sides = new double[SideType.values().length];
+        sides[SideType.CHIPS.ordinal()] = 1.99;
+        sides[SideType.FRIES.ordinal()] = 2.49;
+        sides[SideType.ONION_RINGS.ordinal()] = 3.29;
+        sides[SideType.APPLE_SLICES.ordinal()] = 1.29;
+
+        double[] sideSizes = new double[Size.values().length];
+        sideSizes[Size.SMALL.ordinal()] = 0.0;
+        sideSizes[Size.MEDIUM.ordinal()] = 0.50;
+        sideSizes[Size.LARGE.ordinal()] = 1.00;
+
+        double[] beverages = new double[Size.values().length];
+        beverages[Size.SMALL.ordinal()] = 1.99;
+        beverages[Size.MEDIUM.ordinal()] = 2.49;
+        beverages[Size.LARGE.ordinal()] = 2.99;
+
+        return new PriceCatalog(DEFAULT_VERSION, sandwich, addOns, sides, sideSizes, beverages,
+                6.99, 2.50, 2.00);
+    }
+
+    /**
+     * Returns the currently published catalog. Callers should read it once per calculation.
+     *
+     * @return the current {@code PriceCatalog}
+     */
+    public static PriceCatalog current() {
+        return current;
+    }
+
+    /**
+     * Publishes a catalog, making it visible to all subsequent pricing reads. Unlike
+     * {@link #reload(File)} this does not require the version to increase, so it is kept to
+     * the package, where tests use it to put the built-in prices back.
+     *
+     * @param catalog the catalog to publish
+     */
+    static synchronized void publish(PriceCatalog catalog) {
+        if (catalog == null) {
+            throw new IllegalArgumentException("catalog must not be null");
+        }
+        current = catalog;
+    }
+
+    /**
+     * Loads a catalog file and publishes it. Reloads are serialized, so two concurrent
+     * reloads never publish the same version.
+     *
+     * @param file the catalog file
+     * @return the newly published catalog
+     * @throws IOException if the file cannot be read, contains an invalid price, or names a
+     *                     version that is not newer than the current catalog's
+     */
+    public static synchronized PriceCatalog reload(File file) throws IOException {
+        PriceCatalog catalog = load(file, current);
+        publish(catalog);
+        return catalog;
+    }
+
+    /**
+     * Parses a catalog file without publishing it. Missing keys fall back to the defaults,
+     * and a missing version is one more than the given base catalog's version.
+     *
+     * @param file the catalog file
+     * @param base the catalog whose version precedes the loaded one
+     * @return the parsed catalog
+     * @throws IOException if the file cannot be read, contains an invalid price, or names a
+     *                     version that is not greater than the base catalog's
+     */
+    public static PriceCatalog load(File file, PriceCatalog base) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            props.load(in);
+        }
+        PriceCatalog d = defaults();
+        double[] sandwich = d.sandwichPrices.clone();
+        for (Protein protein : Protein.values()) {
+            sandwich[protein.ordinal()] = read(props, "sandwich." + protein.name(), sandwich[protein.ordinal()]);
+        }
+        double[] addOns = d.addOnPrices.clone();
+        for (AddOns addOn : AddOns.values()) {
+            addOns[addOn.ordinal()] = read(props, "addon." + addOn.name(), addOns[addOn.ordinal()]);
+        }
+        double[] sides = d.sideBasePrices.clone();
+        for (SideType type : SideType.values()) {
+            sides[type.ordinal()] = read(props, "side." + type.name(), sides[type.ordinal()]);
+        }
+        double[] sideSizes = d.sideSizeSurcharges.clone();
+        double[] beverages = d.beveragePrices.clone();
+        for (Size size : Size.values()) {
+            sideSizes[size.ordinal()] = read(props, "side.size." + size.name(), sideSizes[size.ordinal()]);
+            beverages[size.ordinal()] = read(props, "beverage." + size.name(), beverages[size.ordinal()]);
+        }
+        long version;
+        String rawVersion = props.getProperty("version");
+        try {
+            version = rawVersion == null ? base.version + 1 : Long.parseLong(rawVersion.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid catalog version: " + rawVersion, e);
+        }
+        if (version <= base.version) {
+            throw new IOException("Catalog version " + version + " is not newer than version " + base.version);
+        }
+        return new PriceCatalog(version, sandwich, addOns, sides, sideSizes, beverages,
+                read(props, "burger.single", d.burgerSinglePrice),
+                read(props, "burger.doubleSurcharge", d.burgerDoubleSurcharge),
+                read(props, "combo.fee", d.comboFee));
+    }
+
+    /**
+     * Reads a non-negative price from the properties, or returns the fallback if absent.
+     *
+     * @param props    the parsed properties
+     * @param key      the key to read
+     * @param fallback the price used when the key is missing
+     * @return the price
+     * @throws IOException if the value is not a valid non-negative number
+     */
+    private static double read(Properties props, String key, double fallback) throws IOException {
+        String value = props.getProperty(key);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            double price = Double.parseDouble(value.trim());
+            if (price < 0 || Double.isNaN(price) || Double.isInfinite(price)) {
+                throw new IOException("Invalid price for " + key + ": " + value);
+            }
+            return price;
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid price for " + key + ": " + value, e);
+        }
+    }
+
+    /**
+     * Returns the version of this snapshot.
+     *
+     * @return the catalog version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the base price of a sandwich with the given protein.
+     *
+     * @param protein the sandwich protein
+     * @return the base price
+     */
+    public double sandwichPrice(Protein protein) {
+        return sandwichPrices[protein.ordinal()];
+    }
+
+    /**
+     * Returns the price of an add-on.
+     *
+     * @param addOn the add-on
+     * @return the add-on price
+     */
+    public double addOnPrice(AddOns addOn) {
+        return addOnPrices[addOn.ordinal()];
+    }
+
+    /**
+     * Returns the base price of a single-patty burger.
+     *
+     * @return the single burger price
+     */
+    public double burgerSinglePrice() {
+        return burgerSinglePrice;
+    }
+
+    /**
+     * Returns the surcharge for a double-patty burger.
+     *
+     * @return the double patty surcharge
+     */
+    public double burgerDoubleSurcharge() {
+        return burgerDoubleSurcharge;
+    }
+
+    /**
+     * Returns the base price of a side type before any size surcharge.
+     *
+     * @param type the side type
+     * @return the base side price
+     */
+    public double sideBasePrice(SideType type) {
+        return sideBasePrices[type.ordinal()];
+    }
+
+    /**
+     * Returns the surcharge added to a side of the given size.
+     *
+     * @param size the side size
+     * @return the size surcharge
+     */
+    public double sideSizeSurcharge(Size size) {
+        return sideSizeSurcharges[size.ordinal()];
+    }
+
+    /**
+     * Returns the price of a beverage of the given size.
+     *
+     * @param size the beverage size
+     * @return the beverage price
+     */
+    public double beveragePrice(Size size) {
+        return beveragePrices[size.ordinal()];
+    }
+
+    /**
+     * Returns the flat fee added to every combo.
+     *
+     * @return the combo fee
+     */
+    public double comboFee() {
+        return comboFee;
+    }
+}
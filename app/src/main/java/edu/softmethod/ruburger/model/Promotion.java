@@ -0,0 +1,226 @@
+/**
+ * Immutable definition of a promotion or discount rule in the RU Burger ordering system.
+ * <p>
+ * A promotion matches line items by item type (a {@link SkuCodec} tag), by an exact
+ * configuration, by required {@link AddOns}, or by any combination of those, and grants
+ * one of three kinds of discount:
+ * </p>
+ * <ul>
+ *     <li>{@link Kind#BUY_X_GET_Y}: for every {@code buy + get} matching units, the
+ *     cheapest {@code get} units are free (e.g. buy one beverage, get one free).</li>
+ *     <li>{@link Kind#ADD_ON_BUNDLE}: a fixed amount off every matching unit that carries
+ *     all of the required add-ons.</li>
+ *     <li>{@link Kind#HAPPY_HOUR}: a percentage off matching items during a daily window.</li>
+ * </ul>
+ * <p>
+ * Promotions are compiled into indexed matchers by {@link PromotionEngine}.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+public final class Promotion {
+
+    /** The kinds of discount a promotion can grant. */
+    public enum Kind {
+        /** Buy a number of units, get some of them free. */
+        BUY_X_GET_Y,
+
+        /** Fixed amount off units that carry a set of add-ons. */
+        ADD_ON_BUNDLE,
+
+        /** Percentage off during a daily time window. */
+        HAPPY_HOUR
+    }
+
+    /** Matches any value for the tag or configuration fields. */
+    public static final int ANY = 0;
+
+    private final String id;
+    private final Kind kind;
+    private final int tag;
+    private final long configuration;
+    private final int requiredAddOns;
+    private final int buy;
+    private final int get;
+    private final long amountOffCents;
+    private final int percentOff;
+    private final int startMinute;
+    private final int endMinute;
+
+    /**
+     * Constructs a promotion. Use the static factory methods instead.
+     *
+     * @param id             unique promotion identifier
+     * @param kind           the discount kind
+     * @param tag            the {@link SkuCodec} tag to match, or {@link #ANY}
+     * @param configuration  the exact SKU configuration to match, or {@link #ANY}
+     * @param requiredAddOns add-on bitmask every matching item must contain
+     * @param buy            units to buy for {@link Kind#BUY_X_GET_Y}
+     * @param get            free units for {@link Kind#BUY_X_GET_Y}
+     * @param amountOffCents cents off per unit for {@link Kind#ADD_ON_BUNDLE}
+     * @param percentOff     percentage off for {@link Kind#HAPPY_HOUR}
+     * @param startMinute    first minute of the day the promotion is active
+     * @param endMinute      minute of the day the promotion stops being active
+     */
+    private Promotion(String id, Kind kind, int tag, long configuration, int requiredAddOns,
+                      int buy, int get, long amountOffCents, int percentOff, int startMinute, int endMinute) {
+        this.id = id;
+        this.kind = kind;
+        this.tag = tag;
+        this.configuration = SkuCodec.configuration(configuration);
+        this.requiredAddOns = requiredAddOns;
+        this.buy = buy;
+        this.get = get;
+        this.amountOffCents = amountOffCents;
+        this.percentOff = percentOff;
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+    }
+
+    /**
+     * Creates a buy-X-get-Y promotion, active all day.
+     *
+     * @param id            unique promotion identifier
+     * @param tag           the {@link SkuCodec} tag to match, or {@link #ANY}
+     * @param configuration the exact SKU configuration to match, or {@link #ANY}
+     * @param buy           units that must be bought
+     * @param get           units given free for every {@code buy} units
+     * @return the promotion
+     */
+    public static Promotion buyXGetY(String id, int tag, long configuration, int buy, int get) {
+        if (buy < 1 || get < 1) {
+            throw new IllegalArgumentException("buy and get must be positive");
+        }
+        return new Promotion(id, Kind.BUY_X_GET_Y, tag, configuration, 0, buy, get, 0, 0, 0, 24 * 60);
+    }
+
+    /**
+     * Creates an add-on bundle promotion, active all day.
+     *
+     * @param id             unique promotion identifier
+     * @param tag            the {@link SkuCodec} tag to match, or {@link #ANY}
+     * @param requiredAddOns the add-ons a unit must carry, see {@link SkuCodec#addOnMask}
+     * @param amountOffCents cents off each matching unit
+     * @return the promotion
+     */
+    public static Promotion addOnBundle(String id, int tag, int requiredAddOns, long amountOffCents) {
+        if (requiredAddOns == 0 || amountOffCents <= 0) {
+            throw new IllegalArgumentException("bundle needs add-ons and a positive discount");
+        }
+        return new Promotion(id, Kind.ADD_ON_BUNDLE, tag, ANY, requiredAddOns, 0, 0, amountOffCents, 0, 0, 24 * 60);
+    }
+
+    /**
+     * Creates a happy hour promotion.
+     *
+     * @param id          unique promotion identifier
+     * @param tag         the {@link SkuCodec} tag to match, or {@link #ANY}
+     * @param percentOff  percentage off matching items (1-100)
+     * @param startMinute first minute of the day the promotion is active (0-1439)
+     * @param endMinute   minute of the day the promotion ends, exclusive
+     * @return the promotion
+     */
+    public static Promotion happyHour(String id, int tag, int percentOff, int startMinute, int endMinute) {
+        if (percentOff < 1 || percentOff > 100 || startMinute < 0 || endMinute > 24 * 60 || startMinute >= endMinute) {
+            throw new IllegalArgumentException("invalid happy hour definition");
+        }
+        return new Promotion(id, Kind.HAPPY_HOUR, tag, ANY, 0, 0, 0, 0, percentOff, startMinute, endMinute);
+    }
+
+    /**
+     * Returns whether this promotion applies to an item with the given SKU.
+     *
+     * @param sku the packed SKU of the item
+     * @return true if the item matches every criterion
+     */
+    public boolean matches(long sku) {
+        return (tag == ANY || SkuCodec.tag(sku) == tag)
+                && (configuration == ANY || SkuCodec.configuration(sku) == configuration)
+                && (SkuCodec.addOnBits(sku) & requiredAddOns) == requiredAddOns;
+    }
+
+    /**
+     * Returns whether the promotion is active at the given minute of the day.
+     *
+     * @param minuteOfDay minutes since midnight
+     * @return true if active
+     */
+    public boolean isActiveAt(int minuteOfDay) {
+        return minuteOfDay >= startMinute && minuteOfDay < endMinute;
+    }
+
+    /**
+     * Returns the promotion identifier.
+     *
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the discount kind.
+     *
+     * @return the {@link Kind}
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the tag this promotion matches.
+     *
+     * @return the tag, or {@link #ANY}
+     */
+    public int getTag() {
+        return tag;
+    }
+
+    /**
+     * Returns the exact configuration this promotion matches.
+     *
+     * @return the configuration, or {@link #ANY}
+     */
+    public long getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Returns the number of units that must be bought for a buy-X-get-Y promotion.
+     *
+     * @return the buy count
+     */
+    public int getBuy() {
+        return buy;
+    }
+
+    /**
+     * Returns the number of free units for a buy-X-get-Y promotion.
+     *
+     * @return the free count
+     */
+    public int getGet() {
+        return get;
+    }
+
+    /**
+     * Returns the cents off each unit for an add-on bundle.
+     *
+     * @return the amount off in cents
+     */
+    public long getAmountOffCents() {
+        return amountOffCents;
+    }
+
+    /**
+     * Returns the percentage off for a happy hour promotion.
+     *
+     * @return the percentage
+     */
+    public int getPercentOff() {
+        return percentOff;
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * Compiles {@link Promotion} definitions into indexed matchers and evaluates them
+ * incrementally against orders in the RU Burger ordering system.
+ * <p>
+ * Promotions are indexed by exact SKU configuration and by item tag, so an item is only
+ * tested against the promotions that could possibly match it. An {@link Evaluation}
+ * keeps running state for each promotion and, when an item is added or removed, updates
+ * only the promotions that item matches. The cost of a cart change therefore depends on
+ * the number of matching promotions, not on the cart size or the total number of rules.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class PromotionEngine {
+
+    /** Promotions in compiled order; the index is the promotion's slot in evaluation state. */
+    private final Promotion[] promotions;
+
+    /** Promotion slots keyed by exact SKU configuration. */
+    private final HashMap<Long, int[]> byConfiguration = new HashMap<>();
+
+    /** Promotion slots keyed by SKU tag (for promotions without an exact configuration). */
+    private final int[][] byTag = new int[SkuCodec.TAG_COUNT][];
+
+    /** Promotion slots that match any item type. */
+    private final int[] wildcard;
+
+    /**
+     * Compiles the given promotions into lookup indexes.
+     *
+     * @param definitions the promotions to compile
+     */
+    public PromotionEngine(Collection<Promotion> definitions) {
+        promotions = definitions.toArray(new Promotion[0]);
+        HashMap<Long, ArrayList<Integer>> configs = new HashMap<>();
+        ArrayList<ArrayList<Integer>> tags = new ArrayList<>();
+        for (int t = 0; t < SkuCodec.TAG_COUNT; t++) {
+            tags.add(new ArrayList<>());
+        }
+        ArrayList<Integer> any = new ArrayList<>();
+        for (int i = 0; i < promotions.length; i++) {
+            Promotion promotion = promotions[i];
+            if (promotion.getConfiguration() != Promotion.ANY) {
+                ArrayList<Integer> slots = configs.get(promotion.getConfiguration());
+                if (slots == null) {
+                    slots = new ArrayList<>();
+                    configs.put(promotion.getConfiguration(), slots);
+                }
+                slots.add(i);
+            } else if (promotion.getTag() != Promotion.ANY) {
+                tags.get(promotion.getTag()).add(i);
+            } else {
+                any.add(i);
+            }
+        }
+        for (Map.Entry<Long, ArrayList<Integer>> entry : configs.entrySet()) {
+            byConfiguration.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        for (int t = 0; t < SkuCodec.TAG_COUNT; t++) {
+            byTag[t] = toArray(tags.get(t));
+        }
+        wildcard = toArray(any);
+    }
+
+    /**
+     * Converts a list of boxed slots into a primitive array.
+     *
+     * @param slots the slots
+     * @return the slots as an int array
+     */
+    private static int[] toArray(ArrayList<Integer> slots) {
+        int[] result = new int[slots.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = slots.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of compiled promotions.
+     *
+     * @return the promotion count
+     */
+    public int size() {
+        return promotions.length;
+    }
+
+    /**
+     * Starts an empty evaluation for promotions active at the given time of day.
+     *
+     * @param minuteOfDay minutes since midnight, used for time-windowed promotions
+     * @return a new {@link Evaluation}
+     */
+    public Evaluation newEvaluation(int minuteOfDay) {
+        return new Evaluation(minuteOfDay);
+    }
+
+    /**
+     * Incremental promotion state for one order.
+     */
+    public class Evaluation {
+
+        /** Minute of the day used to decide which time-windowed promotions are active. */
+        private final int minuteOfDay;
+
+        /** Matching units per promotion slot. */
+        private final long[] units = new long[promotions.length];
+
+        /** Matching extended cents per promotion slot. */
+        private final long[] cents = new long[promotions.length];
+
+        /** Unit price (cents) to unit count per slot, only for buy-X-get-Y promotions. */
+        private final HashMap<Integer, TreeMap<Long, Long>> unitPrices = new HashMap<>();
+
+        /** Current discount per promotion slot. */
+        private final long[] discounts = new long[promotions.length];
+
+        /** Sum of all per-slot discounts. */
+        private long totalDiscount;
+
+        /**
+         * Constructs an empty evaluation.
+         *
+         * @param minuteOfDay minutes since midnight
+         */
+        private Evaluation(int minuteOfDay) {
+            this.minuteOfDay = minuteOfDay;
+        }
+
+        /**
+         * Updates the promotions matched by an item that was added to the order.
+         *
+         * @param item    the added item
+         * @param catalog the catalog to price the item against
+         */
+        public void itemAdded(MenuItem item, PriceCatalog catalog) {
+            apply(item, catalog, 1);
+        }
+
+        /**
+         * Updates the promotions matched by an item that was removed from the order.
+         *
+         * @param item    the removed item
+         * @param catalog the catalog the item was priced against
+         */
+        public void itemRemoved(MenuItem item, PriceCatalog catalog) {
+            apply(item, catalog, -1);
+        }
+
+        /**
+         * Discards all state and re-evaluates every item against a catalog.
+         *
+         * @param items   the items currently in the order
+         * @param catalog the catalog to price against
+         */
+        public void rebuild(Collection<MenuItem> items, PriceCatalog catalog) {
+            Arrays.fill(units, 0);
+            Arrays.fill(cents, 0);
+            Arrays.fill(discounts, 0);
+            unitPrices.clear();
+            totalDiscount = 0;
+            for (MenuItem item : items) {
+                apply(item, catalog, 1);
+            }
+        }
+
+        /**
+         * Returns the total discount currently earned by the order.
+         *
+         * @return the discount in cents
+         */
+        public long getDiscountCents() {
+            return totalDiscount;
+        }
+
+        /**
+         * Returns the total discount currently earned by the order.
+         *
+         * @return the discount in dollars
+         */
+        public double getDiscount() {
+            return totalDiscount / 100.0;
+        }
+
+        /**
+         * Adds or removes an item's contribution to every promotion it matches.
+         *
+         * @param item    the item
+         * @param catalog the catalog to price against
+         * @param sign    1 to add, -1 to remove
+         */
+        private void apply(MenuItem item, PriceCatalog catalog, int sign) {
+            long sku = SkuCodec.encode(item);
+            int quantity = item.getQuantity();
+            if (quantity <= 0) {
+                return;
+            }
+            long extended = OrderHistoryStore.toCents(item.price(catalog));
+            long unit = extended / quantity;
+            int[] exact = byConfiguration.get(SkuCodec.configuration(sku));
+            if (exact != null) {
+                update(exact, sku, quantity, unit, extended, sign);
+            }
+            update(byTag[SkuCodec.tag(sku)], sku, quantity, unit, extended, sign);
+            update(wildcard, sku, quantity, unit, extended, sign);
+        }
+
+        /**
+         * Updates the candidate promotion slots that actually match the item.
+         *
+         * @param slots    candidate promotion slots
+         * @param sku      the item SKU
+         * @param quantity the item quantity
+         * @param unit     the unit price in cents
+         * @param extended the extended price in cents
+         * @param sign     1 to add, -1 to remove
+         */
+        private void update(int[] slots, long sku, int quantity, long unit, long extended, int sign) {
+            for (int slot : slots) {
+                Promotion promotion = promotions[slot];
+                if (!promotion.isActiveAt(minuteOfDay) || !promotion.matches(sku)) {
+                    continue;
+                }
+                units[slot] += sign * quantity;
+                cents[slot] += sign * extended;
+                if (promotion.getKind() == Promotion.Kind.BUY_X_GET_Y) {
+                    TreeMap<Long, Long> prices = unitPrices.get(slot);
+                    if (prices == null) {
+                        prices = new TreeMap<>();
+                        unitPrices.put(slot, prices);
+                    }
+                    Long count = prices.get(unit);
+                    long updated = (count == null ? 0 : count) + sign * quantity;
+                    if (updated <= 0) {
+                        prices.remove(unit);
+                    } else {
+                        prices.put(unit, updated);
+                    }
+                }
+                long discount = discountFor(slot);
+                totalDiscount += discount - discounts[slot];
+                discounts[slot] = discount;
+            }
+        }
+
+        /**
+         * Computes the current discount of a single promotion slot.
+         *
+         * @param slot the promotion slot
+         * @return the discount in cents
+         */
+        private long discountFor(int slot) {
+            Promotion promotion = promotions[slot];
+            switch (promotion.getKind()) {
+                case BUY_X_GET_Y:
+                    long free = units[slot] / (promotion.getBuy() + promotion.getGet()) * promotion.getGet();
+                    long discount = 0;
+                    TreeMap<Long, Long> prices = unitPrices.get(slot);
+                    if (prices == null) {
+                        return 0;
+                    }
+                    for (Map.Entry<Long, Long> entry : prices.entrySet()) {
+                        if (free <= 0) {
+                            break;
+                        }
+                        long take = Math.min(free, entry.getValue());
+                        discount += take * entry.getKey();
+                        free -= take;
+                    }
+                    return discount;
+                case ADD_ON_BUNDLE:
+                    return Math.min(cents[slot], units[slot] * promotion.getAmountOffCents());
+                case HAPPY_HOUR:
+                    return cents[slot] * promotion.getPercentOff() / 100;
+                default:
+                    return 0;
+            }
+        }
+    }
+}
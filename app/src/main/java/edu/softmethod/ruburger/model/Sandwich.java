@@ -23,15 +23,6 @@ public class Sandwich extends MenuItem {
     /** List of optional add-ons selected by the user. */
     protected ArrayList<AddOns> addOns;
 
-    /** Fixed price for roast beef sandwiches. */
-    private static final double ROAST_BEEF_PRICE = 10.99;
-
-    /** Fixed price for chicken sandwiches. */
-    private static final double CHICKEN_PRICE = 8.99;
-
-    /** Fixed price for salmon sandwiches. */
-    private static final double SALMON_PRICE = 9.99;
-
     /**
      * Constructs a sandwich with specified bread, protein, add-ons, and quantity.
      *
@@ -50,29 +41,27 @@ public class Sandwich extends MenuItem {
     /**
      * Calculates the total price of the sandwich based on protein, add-ons, and quantity.
      *
+     * @param catalog the catalog to price against
      * @return total price of the sandwich order
      */
     @Override
-    public double price() {
-        double basePrice = 0.0;
-        switch (protein) {
-            case ROAST_BEEF:
-                basePrice = ROAST_BEEF_PRICE;
-                break;
-            case CHICKEN:
-                basePrice = CHICKEN_PRICE;
-                break;
-            case SALMON:
-                basePrice = SALMON_PRICE;
-                break;
-        }
+    public double price(PriceCatalog catalog) {
+        double basePrice = catalog.sandwichPrice(protein);
+        return (basePrice + addOnPrice(catalog)) * quantity;
+    }
 
+    /**
+     * Sums the prices of the selected add-ons for a single sandwich.
+     *
+     * @param catalog the catalog to price against
+     * @return total add-on price
+     */
+    protected double addOnPrice(PriceCatalog catalog) {
         double addOnPrice = 0.0;
         for (AddOns addOn : addOns) {
-            addOnPrice += addOn.getPrice();
+            addOnPrice += catalog.addOnPrice(addOn);
         }
-
-        return (basePrice + addOnPrice) * quantity;
+        return addOnPrice;
     }
 
     /**
@@ -103,15 +92,24 @@ public class Sandwich extends MenuItem {
     }
 
     /**
-     * Returns a formatted string representation of the sandwich,
-     * including protein, bread, add-ons, quantity, and total price.
+     * Describes the sandwich's protein, bread, add-ons and quantity, without a price.
+     * A {@link Combo} uses this for its sandwich, whose price is part of the combo's.
      *
-     * @return string summary of the sandwich
+     * @return string summary of the sandwich build
      */
-    @Override
-    public String toString() {
+    String describeBuild() {
         StringBuilder sb = new StringBuilder("Sandwich, ");
         sb.append(protein.name()).append(" (").append(bread.name()).append(")");
+        appendAddOnsAndQuantity(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the add-on list, if any, and the quantity to a build description.
+     *
+     * @param sb the description being built
+     */
+    protected void appendAddOnsAndQuantity(StringBuilder sb) {
         if (!addOns.isEmpty()) {
             sb.append(" [");
             for (int i = 0; i < addOns.size(); i++) {
@@ -121,7 +119,27 @@ public class Sandwich extends MenuItem {
             sb.append("]");
         }
         sb.append(" x").append(quantity);
-        sb.append(" — $").append(String.format("%.2f", this.price()));
-        return sb.toString();
+    }
+
+    /**
+     * Describes the sandwich build followed by the given extended price.
+     *
+     * @param linePrice the extended price to show
+     * @return string summary of the sandwich
+     */
+    @Override
+    public String describe(double linePrice) {
+        return describeBuild() + " — $" + String.format("%.2f", linePrice);
+    }
+
+    /**
+     * Returns a formatted string representation of the sandwich,
+     * including protein, bread, add-ons, quantity, and total price.
+     *
+     * @return string summary of the sandwich
+     */
+    @Override
+    public String toString() {
+        return describe(this.price());
     }
 }
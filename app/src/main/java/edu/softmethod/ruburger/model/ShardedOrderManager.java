@@ -0,0 +1,226 @@
+/**
+ * Splits order intake across independent {@link OrderManager} shards, one per register or
+ * store, in the RU Burger ordering system.
+ * <p>
+ * Each shard has its own current order, placed orders, lock, history, indexes and event
+ * publisher, so registers placing orders on different shards never wait for each other. The
+ * only state the shards share is the order number allocator, so order numbers stay unique
+ * across the deployment, and each shard's orders stay in ascending number order.
+ * </p>
+ * <p>
+ * Reports read a {@link View}: one snapshot per shard, merged on demand with a k-way merge
+ * of the shards' already sorted lists. Every shard's part of a view is internally
+ * consistent, but the shards are not frozen at the same instant, so an order placed while
+ * the view is taken may appear in one shard's part and not yet in another's.
+ * </p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ShardedOrderManager {
+
+    /** Order of placed-order lists: ascending number. */
+    private static final Comparator<Order> BY_NUMBER = Comparator.comparingInt(Order::getNumber);
+
+    /** Order of time-index ranges: placement time, then number. */
+    private static final Comparator<Order> BY_TIME =
+            Comparator.comparingLong(Order::getPlacedAt).thenComparingInt(Order::getNumber);
+
+    private final ConcurrentHashMap<String, OrderManager> shards = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the shard for a register or store, creating it on first use.
+     *
+     * @param shardId the register or store identifier
+     * @return the shard's manager
+     */
+    public OrderManager shard(String shardId) {
+        return shards.computeIfAbsent(shardId, id -> new OrderManager());
+    }
+
+    /**
+     * Returns the identifiers of the shards created so far, sorted.
+     *
+     * @return the shard identifiers
+     */
+    public List<String> getShardIds() {
+        List<String> ids = new ArrayList<>(shards.keySet());
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Returns the number of shards created so far.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Takes a snapshot of every shard for reporting, without locking any of them.
+     *
+     * @return the global view
+     */
+    public View snapshot() {
+        TreeMap<String, OrderManager.Snapshot> snapshots = new TreeMap<>();
+        for (Map.Entry<String, OrderManager> entry : shards.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return new View(snapshots);
+    }
+
+    /**
+     * Global, read-only view over one snapshot per shard.
+     */
+    public static final class View {
+        private final TreeMap<String, OrderManager.Snapshot> snapshots;
+        private List<Order> placedOrders;
+
+        /**
+         * Constructs a view.
+         *
+         * @param snapshots the shard snapshots, keyed by shard identifier
+         */
+        View(TreeMap<String, OrderManager.Snapshot> snapshots) {
+            this.snapshots = snapshots;
+        }
+
+        /**
+         * Returns the snapshot of each shard.
+         *
+         * @return a read-only map from shard identifier to snapshot, sorted by identifier
+         */
+        public Map<String, OrderManager.Snapshot> getShards() {
+            return Collections.unmodifiableMap(snapshots);
+        }
+
+        /**
+         * Returns the number of placed orders across all shards.
+         *
+         * @return the order count
+         */
+        public int getOrderCount() {
+            int count = 0;
+            for (OrderManager.Snapshot snapshot : snapshots.values()) {
+                count += snapshot.getPlacedOrders().size();
+            }
+            return count;
+        }
+
+        /**
+         * Returns every shard's placed orders merged into ascending number order. The merge
+         * runs on first use and is kept for later calls.
+         *
+         * @return a read-only list of placed orders
+         */
+        public synchronized List<Order> getPlacedOrders() {
+            if (placedOrders == null) {
+                List<List<Order>> lists = new ArrayList<>();
+                for (OrderManager.Snapshot snapshot : snapshots.values()) {
+                    lists.add(snapshot.getPlacedOrders());
+                }
+                placedOrders = Collections.unmodifiableList(merge(lists, BY_NUMBER));
+            }
+            return placedOrders;
+        }
+
+        /**
+         * Returns the orders placed in a time range across all shards.
+         *
+         * @param from the start of the range, inclusive, in epoch milliseconds
+         * @param to   the end of the range, exclusive, in epoch milliseconds
+         * @return the orders in placement-time order
+         */
+        public List<Order> getOrdersBetween(long from, long to) {
+            List<List<Order>> lists = new ArrayList<>();
+            for (OrderManager.Snapshot snapshot : snapshots.values()) {
+                lists.add(snapshot.getTimeIndex().range(from, to));
+            }
+            return merge(lists, BY_TIME);
+        }
+
+        /**
+         * Aggregates the orders placed in a time range across all shards into fixed windows.
+         *
+         * @param from         the start of the range, inclusive, in epoch milliseconds
+         * @param to           the end of the range, exclusive, in epoch milliseconds
+         * @param windowMillis the window length in milliseconds
+         * @return the non-empty windows, in time order
+         */
+        public List<OrderTimeIndex.Window> rollup(long from, long to, long windowMillis) {
+            TreeMap<Long, long[]> sums = new TreeMap<>();
+            for (OrderManager.Snapshot snapshot : snapshots.values()) {
+                for (OrderTimeIndex.Window window : snapshot.getTimeIndex().rollup(from, to, windowMillis)) {
+                    long[] sum = sums.computeIfAbsent(window.getStart(), start -> new long[2]);
+                    sum[0] += window.getOrders();
+                    sum[1] += window.getTotalCents();
+                }
+            }
+            List<OrderTimeIndex.Window> windows = new ArrayList<>(sums.size());
+            for (Map.Entry<Long, long[]> entry : sums.entrySet()) {
+                long start = entry.getKey();
+                windows.add(new OrderTimeIndex.Window(start, start + windowMillis, (int) entry.getValue()[0],
+                        entry.getValue()[1]));
+            }
+            return windows;
+        }
+
+        /**
+         * Exports every shard's placed orders as one text export in ascending number order,
+         * in the format of {@link OrderManager#exportOrders(File)}.
+         *
+         * @param file the file to replace with the export
+         * @return the finished job
+         */
+        public OrderExportJob exportOrders(File file) {
+            OrderExportJob job = new OrderExportJob(getPlacedOrders(), file, null);
+            job.run();
+            return job;
+        }
+    }
+
+    /**
+     * Merges sorted lists into one sorted list with a heap of list cursors.
+     *
+     * @param lists      the lists, each sorted by {@code comparator}
+     * @param comparator the order of the lists and of the result
+     * @return the merged list
+     */
+    static List<Order> merge(List<List<Order>> lists, Comparator<Order> comparator) {
+        int total = 0;
+        for (List<Order> list : lists) {
+            total += list.size();
+        }
+        List<Order> merged = new ArrayList<>(total);
+        PriorityQueue<int[]> heap = new PriorityQueue<>(Math.max(1, lists.size()),
+                (a, b) -> comparator.compare(lists.get(a[0]).get(a[1]), lists.get(b[0]).get(b[1])));
+        for (int i = 0; i < lists.size(); i++) {
+            if (!lists.get(i).isEmpty()) {
+                heap.add(new int[] {i, 0});
+            }
+        }
+        while (!heap.isEmpty()) {
+            int[] cursor = heap.poll();
+            List<Order> list = lists.get(cursor[0]);
+            merged.add(list.get(cursor[1]));
+            if (++cursor[1] < list.size()) {
+                heap.add(cursor);
+            }
+        }
+        return merged;
+    }
+}
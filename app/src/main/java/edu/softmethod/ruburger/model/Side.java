@@ -19,24 +19,6 @@ public class Side extends MenuItem {
     /** The type of side (CHIPS, FRIES, etc.). */
     private SideType type;
 
-    /** Base price for chips. */
-    private static final double BASE_CHIPS = 1.99;
-
-    /** Base price for fries. */
-    private static final double BASE_FRIES = 2.49;
-
-    /** Base price for onion rings. */
-    private static final double BASE_ONION_RINGS = 3.29;
-
-    /** Base price for apple slices. */
-    private static final double BASE_APPLE = 1.29;
-
-    /** Price added for upgrading to medium size. */
-    private static final double SIZE_MEDIUM_ADD = 0.50;
-
-    /** Price added for upgrading to large size. */
-    private static final double SIZE_LARGE_ADD = 1.00;
-
     /**
      * Constructs a Side object with the specified type, size, and quantity.
      *
@@ -55,39 +37,13 @@ public class Side extends MenuItem {
      * <p>
      * Total price = (base price based on side type + size adjustment) × quantity.
      *
+     * @param catalog the catalog to price against
      * @return total cost of the side order
      */
     @Override
-    public double price() {
-        double basePrice = 0.0;
-        switch (type) {
-            case CHIPS:
-                basePrice = BASE_CHIPS;
-                break;
-            case FRIES:
-                basePrice = BASE_FRIES;
-                break;
-            case ONION_RINGS:
-                basePrice = BASE_ONION_RINGS;
-                break;
-            case APPLE_SLICES:
-                basePrice = BASE_APPLE;
-                break;
-        }
-
-        double sizeAdjustment = 0.0;
-        switch (size) {
-            case SMALL:
-                sizeAdjustment = 0.0;
-                break;
-            case MEDIUM:
-                sizeAdjustment = SIZE_MEDIUM_ADD;
-                break;
-            case LARGE:
-                sizeAdjustment = SIZE_LARGE_ADD;
-                break;
-        }
-
+    public double price(PriceCatalog catalog) {
+        double basePrice = catalog.sideBasePrice(type);
+        double sizeAdjustment = catalog.sideSizeSurcharge(size);
         return (basePrice + sizeAdjustment) * quantity;
     }
 
@@ -117,6 +73,17 @@ public class Side extends MenuItem {
      */
     @Override
     public String toString() {
-        return String.format("Side x%d: [%s, %s] — $%.2f", quantity, type.name(), size.name(), this.price());
+        return describe(this.price());
+    }
+
+    /**
+     * Describes the side followed by the given extended price.
+     *
+     * @param linePrice the extended price to show
+     * @return string summary of the side
+     */
+    @Override
+    public String describe(double linePrice) {
+        return String.format("Side x%d: [%s, %s] — $%.2f", quantity, type.name(), size.name(), linePrice);
     }
 }
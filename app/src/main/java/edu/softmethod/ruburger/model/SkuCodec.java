@@ -0,0 +1,373 @@
+/**
+ * Encodes every {@link MenuItem} configuration into a single packed {@code long} SKU
+ * in the RU Burger ordering system.
+ * <p>
+ * The low 32 bits hold the configuration (item type, bread, protein, patty, add-ons,
+ * side type, size, flavor and, for combos, the nested sandwich) and the high 32 bits
+ * hold the quantity. Two items with the same configuration therefore share the same
+ * {@link #configuration(long)} value regardless of how many were ordered, which lets
+ * caches, indexes and analytics key on a primitive instead of an object graph.
+ * </p>
+ *
+ * <p>Bit layout (low to high):</p>
+ * <ul>
+ *     <li>0-2: item tag ({@link #TAG_SANDWICH}, {@link #TAG_BURGER}, ...)</li>
+ *     <li>3-5: {@link Bread} ordinal</li>
+ *     <li>6-7: {@link Protein} ordinal</li>
+ *     <li>8: double patty flag</li>
+ *     <li>9-13: {@link AddOns} bitmask (one bit per ordinal)</li>
+ *     <li>14-15: {@link SideType} ordinal</li>
+ *     <li>16-17: {@link Size} ordinal</li>
+ *     <li>18-21: {@link Flavor} ordinal</li>
+ *     <li>22: combo sandwich is a burger</li>
+ *     <li>23-30: combo sandwich quantity</li>
+ *     <li>32-63: quantity</li>
+ * </ul>
+ *
+ * <p>Add-ons are stored as a set, so decoding returns them in enum order.</p>
+ *
+ * <p>Authors: Abhinav Acharya, Aditya Rajesh</p>
+ */
+
+package edu.softmethod.ruburger.model;
+
+import java.util.ArrayList;
+
+public final class SkuCodec {
+
+    /** Tag for a plain {@link Sandwich}. */
+    public static final int TAG_SANDWICH = 1;
+
+    /** Tag for a {@link Burger}. */
+    public static final int TAG_BURGER = 2;
+
+    /** Tag for a {@link Combo}. */
+    public static final int TAG_COMBO = 3;
+
+    /** Tag for a {@link Side}. */
+    public static final int TAG_SIDE = 4;
+
+    /** Tag for a {@link Beverage}. */
+    public static final int TAG_BEVERAGE = 5;
+
+    /** Number of distinct tag values (including the unused zero tag). */
+    public static final int TAG_COUNT = 6;
+
+    /** Largest quantity of a combo's sandwich that fits in its 8 SKU bits. */
+    public static final int MAX_INNER_QUANTITY = 0xFF;
+
+    private static final int TAG_SHIFT = 0;
+    private static final int BREAD_SHIFT = 3;
+    private static final int PROTEIN_SHIFT = 6;
+    private static final int PATTY_SHIFT = 8;
+    private static final int ADDONS_SHIFT = 9;
+    private static final int SIDE_SHIFT = 14;
+    private static final int SIZE_SHIFT = 16;
+    private static final int FLAVOR_SHIFT = 18;
+    private static final int INNER_BURGER_SHIFT = 22;
+    private static final int INNER_QTY_SHIFT = 23;
+    private static final int QTY_SHIFT = 32;
+
+    private static final long TAG_MASK = 0x7L;
+    private static final long BREAD_MASK = 0x7L;
+    private static final long PROTEIN_MASK = 0x3L;
+    private static final long ADDONS_MASK = 0x1FL;
+    private static final long SIDE_MASK = 0x3L;
+    private static final long SIZE_MASK = 0x3L;
+    private static final long FLAVOR_MASK = 0xFL;
+    private static final long INNER_QTY_MASK = 0xFFL;
+    private static final long CONFIG_MASK = 0xFFFFFFFFL;
+
+    /** Cached enum values so decoding does not clone the values() array. */
+    private static final Bread[] BREADS = Bread.values();
+    private static final Protein[] PROTEINS = Protein.values();
+    private static final AddOns[] ADD_ONS = AddOns.values();
+    private static final SideType[] SIDE_TYPES = SideType.values();
+    private static final Size[] SIZES = Size.values();
+    private static final Flavor[] FLAVORS = Flavor.values();
+
+    /**
+     * Private constructor; this class only exposes static helpers.
+     */
+    private SkuCodec() {
+    }
+
+    /**
+     * Encodes a menu item, including its quantity, into a packed SKU.
+     *
+     * @param item the item to encode
+     * @return the packed SKU
+     * @throws IllegalArgumentException if the item type is not supported, or a combo's
+     *                                  sandwich quantity is outside 0 to {@link #MAX_INNER_QUANTITY}
+     */
+    public static long encode(MenuItem item) {
+        return configurationOf(item) | ((long) item.getQuantity() << QTY_SHIFT);
+    }
+
+    /**
+     * Encodes only the configuration of a menu item, ignoring its quantity.
+     *
+     * @param item the item to encode
+     * @return the configuration bits of the SKU
+     * @throws IllegalArgumentException if the item type is not supported, or a combo's
+     *                                  sandwich quantity is outside 0 to {@link #MAX_INNER_QUANTITY}
+     */
+    public static long configurationOf(MenuItem item) {
+        if (item instanceof Burger) {
+            return encodeSandwich((Burger) item, TAG_BURGER);
+        }
+        if (item instanceof Sandwich) {
+            return encodeSandwich((Sandwich) item, TAG_SANDWICH);
+        }
+        if (item instanceof Combo) {
+            Combo combo = (Combo) item;
+            Sandwich inner = combo.getSandwich();
+            long bits = encodeSandwich(inner, TAG_COMBO);
+            if (inner instanceof Burger) {
+                bits |= 1L << INNER_BURGER_SHIFT;
+            }
+            int innerQty = inner.getQuantity();
+            if (innerQty < 0 || innerQty > MAX_INNER_QUANTITY) {
+                throw new IllegalArgumentException("Combo sandwich quantity does not fit in a SKU: " + innerQty);
+            }
+            bits |= (long) innerQty << INNER_QTY_SHIFT;
+            bits |= (long) combo.getSideType().ordinal() << SIDE_SHIFT;
+            bits |= (long) combo.getFlavor().ordinal() << FLAVOR_SHIFT;
+            return bits;
+        }
+        if (item instanceof Side) {
+            Side side = (Side) item;
+            return TAG_SIDE
+                    | (long) side.getType().ordinal() << SIDE_SHIFT
+                    | (long) side.getSize().ordinal() << SIZE_SHIFT;
+        }
+        if (item instanceof Beverage) {
+            Beverage beverage = (Beverage) item;
+            return TAG_BEVERAGE
+                    | (long) beverage.getSize().ordinal() << SIZE_SHIFT
+                    | (long) beverage.getFlavor().ordinal() << FLAVOR_SHIFT;
+        }
+        throw new IllegalArgumentException("Unsupported menu item: " + item);
+    }
+
+    /**
+     * Packs the sandwich-specific fields shared by sandwiches, burgers and combos.
+     *
+     * @param sandwich the sandwich to encode
+     * @param tag      the tag to store in the result
+     * @return the packed sandwich bits
+     */
+    private static long encodeSandwich(Sandwich sandwich, int tag) {
+        long bits = tag;
+        bits |= (long) sandwich.getBread().ordinal() << BREAD_SHIFT;
+        bits |= (long) sandwich.getProtein().ordinal() << PROTEIN_SHIFT;
+        if (sandwich instanceof Burger && ((Burger) sandwich).isDoublePatty()) {
+            bits |= 1L << PATTY_SHIFT;
+        }
+        bits |= (long) addOnMask(sandwich.getAddOns()) << ADDONS_SHIFT;
+        return bits;
+    }
+
+    /**
+     * Builds an add-on bitmask with one bit per {@link AddOns} ordinal.
+     *
+     * @param addOns the add-ons to pack
+     * @return the bitmask
+     */
+    public static int addOnMask(ArrayList<AddOns> addOns) {
+        int mask = 0;
+        for (int i = 0; i < addOns.size(); i++) {
+            mask |= 1 << addOns.get(i).ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Rebuilds a menu item from a packed SKU.
+     *
+     * @param sku the packed SKU
+     * @return a new {@link MenuItem} with the encoded configuration and quantity
+     * @throws IllegalArgumentException if the SKU carries an unknown tag
+     */
+    public static MenuItem decode(long sku) {
+        int quantity = quantity(sku);
+        switch (tag(sku)) {
+            case TAG_SANDWICH:
+                return new Sandwich(bread(sku), protein(sku), addOns(sku), quantity);
+            case TAG_BURGER:
+                return new Burger(bread(sku), isDoublePatty(sku), addOns(sku), quantity);
+            case TAG_COMBO:
+                int innerQty = (int) ((sku >>> INNER_QTY_SHIFT) & INNER_QTY_MASK);
+                Sandwich inner = ((sku >>> INNER_BURGER_SHIFT) & 1L) != 0
+                        ? new Burger(bread(sku), isDoublePatty(sku), addOns(sku), innerQty)
+                        : new Sandwich(bread(sku), protein(sku), addOns(sku), innerQty);
+                return new Combo(inner, flavor(sku), sideType(sku), quantity);
+            case TAG_SIDE:
+                return new Side(sideType(sku), size(sku), quantity);
+            case TAG_BEVERAGE:
+                return new Beverage(size(sku), flavor(sku), quantity);
+            default:
+                throw new IllegalArgumentException("Unknown SKU tag: " + Long.toHexString(sku));
+        }
+    }
+
+    /**
+     * Returns the configuration bits of a SKU with the quantity stripped.
+     *
+     * @param sku the packed SKU
+     * @return the configuration bits
+     */
+    public static long configuration(long sku) {
+        return sku & CONFIG_MASK;
+    }
+
+    /**
+     * Returns a copy of the SKU with its quantity replaced.
+     *
+     * @param sku      the packed SKU
+     * @param quantity the new quantity
+     * @return the updated SKU
+     */
+    public static long withQuantity(long sku, int quantity) {
+        return configuration(sku) | ((long) quantity << QTY_SHIFT);
+    }
+
+    /**
+     * Returns the item tag stored in a SKU.
+     *
+     * @param sku the packed SKU
+     * @return one of the {@code TAG_*} constants
+     */
+    public static int tag(long sku) {
+        return (int) ((sku >>> TAG_SHIFT) & TAG_MASK);
+    }
+
+    /**
+     * Returns the quantity stored in a SKU.
+     *
+     * @param sku the packed SKU
+     * @return the quantity
+     */
+    public static int quantity(long sku) {
+        return (int) (sku >>> QTY_SHIFT);
+    }
+
+    /**
+     * Returns the bread stored in a SKU.
+     *
+     * @param sku the packed SKU
+     * @return the {@link Bread}
+     */
+    public static Bread bread(long sku) {
+        return pick(BREADS, (int) ((sku >>> BREAD_SHIFT) & BREAD_MASK), sku);
+    }
+
+    /**
+     * Returns the protein stored in a SKU.
+     *
+     * @param sku the packed SKU
+     * @return the {@link Protein}
+     */
+    public static Protein protein(long sku) {
+        return pick(PROTEINS, (int) ((sku >>> PROTEIN_SHIFT) & PROTEIN_MASK), sku);
+    }
+
+    /**
+     * Returns whether the SKU describes a double patty burger.
+     *
+     * @param sku the packed SKU
+     * @return true if the double patty bit is set
+     */
+    public static boolean isDoublePatty(long sku) {
+        return ((sku >>> PATTY_SHIFT) & 1L) != 0;
+    }
+
+    /**
+     * Returns the add-on bitmask stored in a SKU.
+     *
+     * @param sku the packed SKU
+     * @return the add-on bitmask, one bit per {@link AddOns} ordinal
+     */
+    public static int addOnBits(long sku) {
+        return (int) ((sku >>> ADDONS_SHIFT) & ADDONS_MASK);
+    }
+
+    /**
+     * Returns whether the SKU includes the given add-on.
+     *
+     * @param sku   the packed SKU
+     * @param addOn the add-on to test
+     * @return true if the add-on is present
+     */
+    public static boolean hasAddOn(long sku, AddOns addOn) {
+        return (addOnBits(sku) & (1 << addOn.ordinal())) != 0;
+    }
+
+    /**
+     * Returns the add-ons stored in a SKU as a new list, in enum order.
+     *
+     * @param sku the packed SKU
+     * @return the list of {@link AddOns}
+     * @throws IllegalArgumentException if the mask names an unknown add-on
+     */
+    public static ArrayList<AddOns> addOns(long sku) {
+        int mask = addOnBits(sku);
+        if ((mask >>> ADD_ONS.length) != 0) {
+            throw new IllegalArgumentException("Unknown add-on in SKU: " + Long.toHexString(sku));
+        }
+        ArrayList<AddOns> list = new ArrayList<>(Integer.bitCount(mask));
+        for (AddOns addOn : ADD_ONS) {
+            if ((mask & (1 << addOn.ordinal())) != 0) {
+                list.add(addOn);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns the side type stored in a SKU.
+     *
+     * @param sku the packed SKU
+     * @return the {@link SideType}
+     */
+    public static SideType sideType(long sku) {
+        return pick(SIDE_TYPES, (int) ((sku >>> SIDE_SHIFT) & SIDE_MASK), sku);
+    }
+
+    /**
+     * Returns the size stored in a SKU.
+     *
+     * @param sku the packed SKU
+     * @return the {@link Size}
+     */
+    public static Size size(long sku) {
+        return pick(SIZES, (int) ((sku >>> SIZE_SHIFT) & SIZE_MASK), sku);
+    }
+
+    /**
+     * Returns the flavor stored in a SKU.
+     *
+     * @param sku the packed SKU
+     * @return the {@link Flavor}
+     */
+    public static Flavor flavor(long sku) {
+        return pick(FLAVORS, (int) ((sku >>> FLAVOR_SHIFT) & FLAVOR_MASK), sku);
+    }
+
+    /**
+     * Returns the enum constant with the given ordinal, rejecting out-of-range values.
+     *
+     * @param values  the enum constants
+     * @param ordinal the decoded ordinal
+     * @param sku     the SKU being decoded, for the error message
+     * @param <E>     the enum type
+     * @return the enum constant
+     * @throws IllegalArgumentException if the ordinal is out of range
+     */
+    private static <E> E pick(E[] values, int ordinal, long sku) {
+        if (ordinal >= values.length) {
+            throw new IllegalArgumentException("Invalid SKU: " + Long.toHexString(sku));
+        }
+        return values[ordinal];
+    }
+}
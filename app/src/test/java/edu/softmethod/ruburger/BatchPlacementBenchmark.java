@@ -0,0 +1,61 @@
+package edu.softmethod.ruburger;
+
+import edu.softmethod.ruburger.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Placement benchmark for {@link OrderManager#placeOrders(java.util.Collection)}. The same
+ * number of orders is placed on a journaled manager one at a time through
+ * {@link OrderManager#placeCurrentOrder()} and in batches of several sizes, and the
+ * placement rate of each run is printed. Every placement call syncs the journal once,
+ * so batching mostly saves syncs.
+ * <p>
+ * Usage: {@code BatchPlacementBenchmark [orders]}
+ * </p>
+ */
+public class BatchPlacementBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        for (int batch : new int[] {1, 10, 100, 1_000}) {
+            run(orders / 10, batch);
+            double seconds = run(orders, batch);
+            System.out.printf("%s: %.0f orders/s%n",
+                    batch == 1 ? "one at a time" : "batches of " + batch, orders / seconds);
+        }
+    }
+
+    private static double run(int orders, int batch) throws IOException {
+        File file = File.createTempFile("orders", ".journal");
+        try (OrderJournal journal = new OrderJournal(file)) {
+            OrderManager manager = OrderFixtures.newManager();
+            manager.setJournal(journal);
+            long start = System.nanoTime();
+            if (batch == 1) {
+                for (int i = 0; i < orders; i++) {
+                    manager.addItemToCurrentOrder(new Burger(Bread.BRIOCHE, true, new ArrayList<>(), 1));
+                    manager.addItemToCurrentOrder(new Beverage(Size.MEDIUM, Flavor.COLA, 2));
+                    manager.placeCurrentOrder();
+                }
+            } else {
+                for (int placed = 0; placed < orders; placed += batch) {
+                    List<Order> carts = new ArrayList<>(batch);
+                    for (int i = 0; i < batch && placed + i < orders; i++) {
+                        Order cart = new Order();
+                        cart.addItem(new Burger(Bread.BRIOCHE, true, new ArrayList<>(), 1));
+                        cart.addItem(new Beverage(Size.MEDIUM, Flavor.COLA, 2));
+                        carts.add(cart);
+                    }
+                    manager.placeOrders(carts);
+                }
+            }
+            return (System.nanoTime() - start) / 1e9;
+        } finally {
+            file.delete();
+        }
+    }
+}
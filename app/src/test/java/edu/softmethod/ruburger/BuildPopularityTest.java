@@ -0,0 +1,160 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BuildPopularityTest {
+
+    /**
+     * Lists every sandwich and burger build with a quantity of one.
+     */
+    private static List<Sandwich> builds() {
+        List<Sandwich> builds = new ArrayList<>();
+        AddOns[] addOns = AddOns.values();
+        for (int mask = 0; mask < 1 << addOns.length; mask++) {
+            ArrayList<AddOns> chosen = new ArrayList<>();
+            for (int i = 0; i < addOns.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    chosen.add(addOns[i]);
+                }
+            }
+            for (Bread bread : Bread.values()) {
+                builds.add(new Burger(bread, false, new ArrayList<>(chosen), 1));
+                builds.add(new Burger(bread, true, new ArrayList<>(chosen), 1));
+                for (Protein protein : Protein.values()) {
+                    builds.add(new Sandwich(bread, protein, new ArrayList<>(chosen), 1));
+                }
+            }
+        }
+        return builds;
+    }
+
+    @Test
+    public void testSketchesMatchExactCounts() {
+        List<Sandwich> builds = builds();
+        BuildPopularity popularity = new BuildPopularity();
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            Order order = new Order();
+            // Zipf-like: low indexes are picked far more often than high ones
+            int index = (int) Math.floor(Math.pow(builds.size(), random.nextDouble())) - 1;
+            Sandwich build = builds.get(index);
+            int quantity = 1 + random.nextInt(3);
+            if (random.nextBoolean()) {
+                order.addItem(new Combo(build, Flavor.COLA, SideType.CHIPS, quantity));
+            } else {
+                long sku = SkuCodec.withQuantity(SkuCodec.configurationOf(build), quantity);
+                order.addItem(SkuCodec.decode(sku));
+            }
+            order.addItem(new Side(SideType.APPLE_SLICES, Size.SMALL, 1));
+            exact.merge(SkuCodec.configurationOf(build), (long) quantity, Long::sum);
+            popularity.record(order);
+        }
+
+        long total = 0;
+        for (long count : exact.values()) {
+            total += count;
+        }
+        assertEquals(total, popularity.getTotalBuilds());
+        for (Sandwich build : builds) {
+            long truth = exact.getOrDefault(SkuCodec.configurationOf(build), 0L);
+            long estimate = popularity.estimate(build);
+            assertTrue(estimate >= truth);
+            assertTrue(estimate <= truth + popularity.getCountErrorBound());
+        }
+
+        List<Long> expectedTop = new ArrayList<>(exact.keySet());
+        expectedTop.sort((a, b) -> Long.compare(exact.get(b), exact.get(a)));
+        List<BuildPopularity.Build> top = popularity.getTopBuilds();
+        assertEquals(BuildPopularity.DEFAULT_TOP, top.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals((long) expectedTop.get(i), top.get(i).getConfiguration());
+        }
+        for (BuildPopularity.Build build : top) {
+            assertEquals(build.getConfiguration(), SkuCodec.configurationOf(build.getItem()));
+        }
+
+        double error = Math.abs(popularity.getDistinctBuilds() - exact.size()) / (double) exact.size();
+        assertTrue(error <= 3 * popularity.getDistinctStandardError());
+    }
+
+    @Test
+    public void testHyperLogLogStaysWithinItsErrorBound() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        HashSet<Long> exact = new HashSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            long value = random.nextInt(100_000);
+            sketch.add(value);
+            exact.add(value);
+        }
+        double error = Math.abs(sketch.estimate() - exact.size()) / (double) exact.size();
+        assertTrue(error <= 3 * sketch.getStandardError());
+        assertEquals(4096, sketch.getMemoryBytes());
+    }
+
+    @Test
+    public void testManagerRecordsPlacedBuilds() {
+        OrderManager manager = OrderFixtures.newManager();
+        Burger build = new Burger(Bread.PRETZEL, true, new ArrayList<>(), 1);
+        long before = manager.getPopularity().estimate(build);
+        Order order = new Order();
+        order.addItem(new Combo(new Burger(Bread.PRETZEL, true, new ArrayList<>(), 2), Flavor.COLA,
+                SideType.CHIPS, 3));
+        manager.placeOrders(List.of(order));
+        assertTrue(manager.getPopularity().estimate(build) >= before + 6);
+    }
+
+    @Test
+    public void testRemovingAnOrderTakesItsBuildsBackOut() {
+        BuildPopularity popularity = new BuildPopularity();
+        Burger popular = new Burger(Bread.BRIOCHE, true, new ArrayList<>(), 1);
+        Sandwich other = new Sandwich(Bread.WHEAT, Protein.SALMON, new ArrayList<>(), 1);
+        Order big = new Order();
+        big.addItem(new Burger(Bread.BRIOCHE, true, new ArrayList<>(), 5));
+        Order small = new Order();
+        small.addItem(new Combo(new Sandwich(Bread.WHEAT, Protein.SALMON, new ArrayList<>(), 1),
+                Flavor.COLA, SideType.CHIPS, 2));
+        popularity.record(big);
+        popularity.record(small);
+        assertEquals(configuration(popular), popularity.getTopBuilds().get(0).getConfiguration());
+        long distinct = popularity.getDistinctBuilds();
+
+        popularity.remove(big);
+        assertEquals(0, popularity.estimate(popular));
+        assertEquals(2, popularity.estimate(other));
+        assertEquals(2, popularity.getTotalBuilds());
+        List<BuildPopularity.Build> top = popularity.getTopBuilds();
+        assertEquals(1, top.size());
+        assertEquals(configuration(other), top.get(0).getConfiguration());
+        // HyperLogLog cannot forget, so the cancelled build is still counted as distinct
+        assertEquals(distinct, popularity.getDistinctBuilds());
+    }
+
+    @Test
+    public void testManagerSubtractsCancelledBuilds() {
+        OrderManager manager = OrderFixtures.newManager();
+        Burger build = new Burger(Bread.BAGEL, false, new ArrayList<>(List.of(AddOns.AVOCADO)), 1);
+        Order order = new Order();
+        order.addItem(new Burger(Bread.BAGEL, false, new ArrayList<>(List.of(AddOns.AVOCADO)), 4));
+        Order placed = manager.placeOrders(List.of(order)).get(0);
+        assertEquals(4, manager.getPopularity().estimate(build));
+        manager.cancelOrder(placed);
+        assertEquals(0, manager.getPopularity().estimate(build));
+        assertTrue(manager.getPopularity().getTopBuilds().isEmpty());
+    }
+
+    private static long configuration(Sandwich build) {
+        return SkuCodec.configurationOf(build);
+    }
+}
@@ -0,0 +1,68 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.CompressedBitmap;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CompressedBitmapTest {
+
+    private static int[] toArray(BitSet bits) {
+        return bits.stream().toArray();
+    }
+
+    @Test
+    public void testMatchesBitSetAcrossArrayAndBitmapContainers() {
+        Random random = new Random(7);
+        CompressedBitmap sparse = new CompressedBitmap();
+        CompressedBitmap dense = new CompressedBitmap();
+        BitSet sparseExpected = new BitSet();
+        BitSet denseExpected = new BitSet();
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(1 << 20);
+            assertEquals(!sparseExpected.get(value), sparse.add(value));
+            sparseExpected.set(value);
+        }
+        for (int value = 60_000; value < 140_000; value++) {
+            if (random.nextInt(10) != 0) {
+                dense.add(value);
+                denseExpected.set(value);
+            }
+        }
+        assertEquals(sparseExpected.cardinality(), sparse.cardinality());
+        assertArrayEquals(toArray(sparseExpected), sparse.toArray());
+        assertArrayEquals(toArray(denseExpected), dense.toArray());
+
+        BitSet both = (BitSet) sparseExpected.clone();
+        both.and(denseExpected);
+        assertArrayEquals(toArray(both), sparse.and(dense).toArray());
+        assertArrayEquals(toArray(both), dense.and(sparse).toArray());
+
+        for (int value = 60_000; value < 140_000; value += 2) {
+            assertEquals(denseExpected.get(value), dense.remove(value));
+            denseExpected.clear(value);
+        }
+        assertArrayEquals(toArray(denseExpected), dense.toArray());
+        assertTrue(dense.contains(denseExpected.nextSetBit(0)));
+        assertFalse(dense.contains(60_000));
+        assertFalse(dense.contains(-1));
+    }
+
+    @Test
+    public void testRemovingEverythingLeavesAnEmptySet() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int value = 0; value < 10_000; value++) {
+            bitmap.add(value * 3);
+        }
+        for (int value = 0; value < 10_000; value++) {
+            assertTrue(bitmap.remove(value * 3));
+        }
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.toArray().length);
+        assertTrue(bitmap.add(5));
+        assertArrayEquals(new int[] {5}, bitmap.toArray());
+    }
+}
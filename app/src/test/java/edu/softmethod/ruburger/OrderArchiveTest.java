@@ -0,0 +1,131 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderArchiveTest {
+
+    private static File newDirectory() throws IOException {
+        File directory = File.createTempFile("archive", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        return directory;
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /** Lists an order's lines as {number, timestamp, sku, quantity, cents} rows. */
+    private static List<long[]> lines(List<Order> orders) {
+        List<long[]> lines = new ArrayList<>();
+        for (Order order : orders) {
+            for (int i = 0; i < order.getItems().size(); i++) {
+                MenuItem item = order.getItems().get(i);
+                lines.add(new long[] {order.getNumber(), order.getPlacedAt(), SkuCodec.encode(item),
+                        item.getQuantity(), Math.round(order.getLinePrice(i) * 100)});
+            }
+        }
+        return lines;
+    }
+
+    private static void assertLines(List<long[]> expected, List<long[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void testReopenResumesAppendsAndReadsOrders() throws IOException {
+        // 70,000 lines span two segments
+        List<Order> placed = OrderFixtures.placeSides(56_000);
+        File directory = newDirectory();
+        try {
+            OrderArchive archive = new OrderArchive(directory);
+            for (Order order : placed.subList(0, 40_000)) {
+                archive.append(order, order.getPlacedAt());
+            }
+            archive.close();
+
+            archive = new OrderArchive(directory);
+            assertEquals(lines(placed.subList(0, 40_000)).size(), archive.size());
+            for (Order order : placed.subList(40_000, placed.size())) {
+                archive.append(order, order.getPlacedAt());
+            }
+            Order cancelled = placed.get(123);
+            archive.markCancelled(cancelled.getNumber());
+            archive.close();
+
+            archive = new OrderArchive(directory);
+            assertEquals(70_000, archive.size());
+            assertFalse(archive.readOrder(cancelled.getNumber(),
+                    (n, t, s, q, c) -> fail("A cancelled order must not be read")));
+            Order last = placed.get(placed.size() - 1);
+            List<long[]> read = new ArrayList<>();
+            assertTrue(archive.readOrder(last.getNumber(),
+                    (n, t, s, q, c) -> read.add(new long[] {n, t, s, q, c})));
+            assertLines(lines(List.of(last)), read);
+
+            List<Order> live = new ArrayList<>(placed);
+            live.remove(cancelled);
+            List<long[]> scanned = new ArrayList<>();
+            archive.scan((n, t, s, q, c) -> scanned.add(new long[] {n, t, s, q, c}));
+            assertLines(lines(live), scanned);
+            archive.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testManagerKeepsArchiveInStepWithPlacedOrders() throws IOException {
+        File directory = newDirectory();
+        File export = File.createTempFile("register2", ".txt");
+        try {
+            // A stale archive from an earlier run is rewritten on attach
+            OrderArchive archive = new OrderArchive(directory);
+            for (Order order : OrderFixtures.placeSides(70_000)) {
+                archive.append(order, order.getPlacedAt());
+            }
+            OrderManager manager = OrderFixtures.newManager();
+            OrderFixtures.placeSides(manager, 30);
+            manager.setArchive(archive);
+            assertSame(archive, manager.getHistory());
+
+            Order cancelled = OrderFixtures.placeSides(manager, 10).get(4);
+            manager.cancelOrder(cancelled);
+            new OrderExportJob(OrderFixtures.placeSides(20), export, null).run();
+            assertEquals(20, manager.importOrders(export));
+
+            List<long[]> scanned = new ArrayList<>();
+            manager.scanLines((n, t, s, q, c) -> scanned.add(new long[] {n, t, s, q, c}));
+            assertLines(lines(manager.getPlacedOrders()), scanned);
+            long scannedCents = 0;
+            for (long[] line : scanned) {
+                scannedCents += line[4];
+            }
+            assertEquals(scannedCents, manager.getHistory().totalCents());
+            archive.close();
+            assertEquals(scanned.size(), new OrderArchive(directory).size());
+
+            manager.setArchive(null);
+            assertEquals(scanned.size(), manager.getHistory().size());
+        } finally {
+            export.delete();
+            delete(directory);
+        }
+    }
+}
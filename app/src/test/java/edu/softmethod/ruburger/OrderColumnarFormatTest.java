@@ -0,0 +1,113 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderColumnarFormatTest {
+
+    @Test
+    public void testRoundTripMatchesPlacedLines() throws Exception {
+        List<Order> placed = OrderFixtures.place(5000, (order, i) -> {
+            order.addItem(new Beverage(Size.values()[i % 3], Flavor.values()[i % 15], 1 + i % 4));
+            if (i % 2 == 0) {
+                ArrayList<AddOns> addOns = new ArrayList<>();
+                addOns.add(AddOns.values()[i % 5]);
+                order.addItem(new Burger(Bread.values()[i % 4], i % 3 == 0, addOns, 1));
+            }
+        });
+
+        List<long[]> expected = new ArrayList<>();
+        long expectedCents = 0;
+        for (Order order : placed) {
+            for (int i = 0; i < order.getItems().size(); i++) {
+                MenuItem item = order.getItems().get(i);
+                int cents = (int) Math.round(order.getLinePrice(i) * 100);
+                expected.add(new long[] {order.getNumber(), order.getPlacedAt(), SkuCodec.encode(item),
+                        item.getQuantity(), cents});
+            }
+            // Totals include tax and any discount, so they are not the sum of the line prices
+            expectedCents += Math.round(order.getTotal() * 100);
+        }
+
+        File file = File.createTempFile("orders", ".rbx");
+        try {
+            OrderColumnarFormat.write(placed, file);
+            assertEquals(expected.size(), OrderColumnarFormat.rowCount(file));
+            assertEquals(expectedCents, OrderColumnarFormat.totalCents(file));
+            List<long[]> actual = new ArrayList<>();
+            OrderColumnarFormat.scan(file, (number, timestamp, sku, quantity, cents) ->
+                    actual.add(new long[] {number, timestamp, sku, quantity, cents}));
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertArrayEquals(expected.get(i), actual.get(i));
+            }
+            // Far smaller than the text export's ~60 bytes per line
+            assertTrue(file.length() < expected.size() * 8L);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testTruncatedFileIsAnIOException() throws Exception {
+        List<Order> placed = OrderFixtures.placeSides(5000);
+        File directory = File.createTempFile("columnar", "");
+        directory.delete();
+        directory.mkdirs();
+        File file = new File(directory, "orders.rbx");
+        try {
+            OrderColumnarFormat.write(placed, file);
+            // The temporary file was renamed into place, not left behind
+            assertEquals(List.of("orders.rbx"), Arrays.asList(directory.list()));
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            for (int length : new int[] {30, bytes.length / 2, bytes.length - 1}) {
+                Files.write(file.toPath(), Arrays.copyOf(bytes, length));
+                try {
+                    OrderColumnarFormat.scan(file, (number, timestamp, sku, quantity, cents) -> { });
+                    fail("Scanning " + length + " of " + bytes.length + " bytes must fail");
+                } catch (IOException expected) {
+                    // expected
+                }
+                try {
+                    OrderColumnarFormat.totalCents(file);
+                    fail("Summing " + length + " of " + bytes.length + " bytes must fail");
+                } catch (IOException expected) {
+                    // expected
+                }
+            }
+        } finally {
+            file.delete();
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testOtherVersionsAreRejected() throws Exception {
+        List<Order> placed = OrderFixtures.placeSides(10);
+        File file = File.createTempFile("columnar", ".rbx");
+        try {
+            OrderColumnarFormat.write(placed, file);
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            // The version follows the four-byte magic number
+            bytes[7] = 1;
+            Files.write(file.toPath(), bytes);
+            try {
+                OrderColumnarFormat.scan(file, (number, timestamp, sku, quantity, cents) -> { });
+                fail("A version 1 export must be rejected");
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().startsWith("Unsupported columnar export version 1"));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
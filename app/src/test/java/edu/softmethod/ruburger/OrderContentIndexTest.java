@@ -0,0 +1,83 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderContentIndexTest {
+
+    @Test
+    public void testQueriesMatchALinearScan() {
+        OrderManager manager = OrderFixtures.newManager();
+        List<Order> carts = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            Order order = new Order();
+            Bread bread = Bread.values()[i % Bread.values().length];
+            Protein protein = Protein.values()[(i / 4) % Protein.values().length];
+            if (i % 3 == 0) {
+                order.addItem(new Sandwich(bread, protein, new ArrayList<>(), 1));
+            } else if (i % 3 == 1) {
+                order.addItem(new Combo(new Burger(bread, false, new ArrayList<>(), 1), Flavor.COLA,
+                        SideType.values()[i % SideType.values().length], 1));
+            } else {
+                order.addItem(new Side(SideType.APPLE_SLICES, Size.SMALL, 1));
+            }
+            carts.add(order);
+        }
+        long before = System.currentTimeMillis();
+        List<Order> placed = manager.placeOrders(carts);
+        manager.cancelOrder(placed.get(0));
+
+        List<Order> salmonOnPretzel = manager.findOrders(Protein.SALMON, Bread.PRETZEL);
+        List<Order> expected = new ArrayList<>();
+        for (Order order : manager.getPlacedOrders()) {
+            for (MenuItem item : order.getItems()) {
+                if (item instanceof Sandwich && ((Sandwich) item).getProtein() == Protein.SALMON
+                        && ((Sandwich) item).getBread() == Bread.PRETZEL) {
+                    expected.add(order);
+                    break;
+                }
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, salmonOnPretzel);
+
+        List<Order> combos = manager.findOrdersBetween(before, Long.MAX_VALUE, Combo.class, SideType.APPLE_SLICES);
+        int expectedCombos = 0;
+        for (Order order : placed.subList(1, placed.size())) {
+            MenuItem item = order.getItems().get(0);
+            if (item instanceof Combo && ((Combo) item).getSideType() == SideType.APPLE_SLICES) {
+                expectedCombos++;
+                assertTrue(combos.contains(order));
+            }
+        }
+        assertEquals(expectedCombos, combos.size());
+        assertFalse(manager.getContentIndex().query(Side.class).contains(placed.get(0).getNumber()));
+    }
+
+    @Test
+    public void testAttributesMustMatchOnOneItem() {
+        OrderManager manager = OrderFixtures.newManager();
+        Order split = new Order();
+        split.addItem(new Sandwich(Bread.WHEAT, Protein.SALMON, new ArrayList<>(), 1));
+        split.addItem(new Burger(Bread.PRETZEL, false, new ArrayList<>(), 1));
+        Order together = new Order();
+        together.addItem(new Sandwich(Bread.PRETZEL, Protein.SALMON, new ArrayList<>(), 1));
+        List<Order> placed = manager.placeOrders(List.of(split, together));
+
+        assertEquals(2, manager.getContentIndex().count(Protein.SALMON, Bread.PRETZEL));
+        assertEquals(List.of(placed.get(1)), manager.findOrders(Protein.SALMON, Bread.PRETZEL));
+        assertEquals(List.of(placed.get(1)),
+                manager.findOrdersBetween(Long.MIN_VALUE, Long.MAX_VALUE, Protein.SALMON, Bread.PRETZEL));
+        assertEquals(List.of(placed.get(0)), manager.findOrders(Burger.class, Bread.PRETZEL));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnknownAttributes() {
+        OrderFixtures.newManager().findOrders("salmon");
+    }
+}
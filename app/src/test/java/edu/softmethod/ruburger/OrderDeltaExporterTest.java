@@ -0,0 +1,127 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class OrderDeltaExporterTest {
+
+    private static Order place(OrderManager manager) {
+        manager.addItemToCurrentOrder(new Beverage(Size.MEDIUM, Flavor.LIME, 1));
+        Order order = manager.getCurrentOrder();
+        manager.placeCurrentOrder();
+        return order;
+    }
+
+    @Test
+    public void testAppendsOnlyChangesSinceCheckpoint() throws Exception {
+        OrderManager manager = OrderFixtures.newManager();
+        File export = File.createTempFile("delta", ".txt");
+        File checkpoint = new File(export.getPath() + ".ckpt");
+        File journalFile = new File(export.getPath() + ".journal");
+        manager.setJournal(new OrderJournal(journalFile));
+        try {
+            OrderDeltaExporter exporter = new OrderDeltaExporter(export, checkpoint);
+            place(manager);
+            OrderDeltaExporter.Result first = exporter.export(manager.snapshot());
+            assertTrue(first.isFullRewrite());
+            assertEquals(manager.getPlacedOrders().size(), first.getOrdersWritten());
+
+            Order a = place(manager);
+            place(manager);
+            OrderDeltaExporter.Result second = exporter.export(manager.snapshot());
+            assertFalse(second.isFullRewrite());
+            assertEquals(2, second.getOrdersWritten());
+
+            // A crashed run's unrecorded append is dropped by the next run
+            long length = export.length();
+            try (Writer writer = new FileWriter(export, true)) {
+                writer.write("Order #999999\n- partial");
+            }
+            manager.cancelOrder(a);
+            Order c = place(manager);
+            manager.cancelOrder(c);
+            OrderDeltaExporter.Result third = exporter.export(manager.snapshot());
+            assertEquals(0, third.getOrdersWritten());
+            assertEquals(1, third.getCancellationsWritten());
+
+            byte[] bytes = Files.readAllBytes(export.toPath());
+            assertEquals("Cancelled Order #" + a.getNumber() + "\n====================================\n",
+                    new String(bytes, (int) length, bytes.length - (int) length, StandardCharsets.UTF_8));
+
+            assertEquals(0, exporter.export(manager.snapshot()).getOrdersWritten());
+            checkpoint.delete();
+            OrderDeltaExporter.Result rewrite = exporter.export(manager.snapshot());
+            assertTrue(rewrite.isFullRewrite());
+            assertEquals(manager.getPlacedOrders().size(), rewrite.getOrdersWritten());
+        } finally {
+            manager.getJournal().close();
+            export.delete();
+            checkpoint.delete();
+            journalFile.delete();
+        }
+    }
+
+    @Test
+    public void testContinuesAfterRecoveryFromTheSameJournal() throws Exception {
+        File directory = File.createTempFile("delta", "");
+        directory.delete();
+        directory.mkdirs();
+        File export = new File(directory, "orders.txt");
+        File checkpoint = new File(directory, "orders.ckpt");
+        File journalFile = new File(directory, "orders.journal");
+        OrderSnapshots snapshots = new OrderSnapshots(new File(directory, "snapshots"));
+        OrderDeltaExporter exporter = new OrderDeltaExporter(export, checkpoint);
+        try {
+            OrderManager manager = OrderFixtures.newManager();
+            manager.recover(snapshots, journalFile);
+            Order a = place(manager);
+            place(manager);
+            assertTrue(exporter.export(manager.snapshot()).isFullRewrite());
+            manager.getJournal().close();
+
+            // Nothing happened between the checkpoint and the restart, so the export continues
+            OrderManager restarted = OrderFixtures.newManager();
+            restarted.recover(snapshots, journalFile);
+            place(restarted);
+            restarted.cancelOrder(restarted.getPlacedOrders().get(0));
+            OrderDeltaExporter.Result resumed = exporter.export(restarted.snapshot());
+            assertFalse(resumed.isFullRewrite());
+            assertEquals(1, resumed.getOrdersWritten());
+            assertEquals(1, resumed.getCancellationsWritten());
+            assertEquals(a.getNumber(), restarted.snapshot().getCancellations().get(0).intValue());
+
+            // A cancellation made after the checkpoint but lost from memory forces a rewrite
+            place(restarted);
+            restarted.cancelOrder(restarted.getPlacedOrders().get(0));
+            restarted.getJournal().close();
+            OrderManager again = OrderFixtures.newManager();
+            again.recover(snapshots, journalFile);
+            OrderDeltaExporter.Result rewrite = exporter.export(again.snapshot());
+            assertTrue(rewrite.isFullRewrite());
+            assertEquals(again.getPlacedOrders().size(), rewrite.getOrdersWritten());
+            again.getJournal().close();
+
+            // A manager without a journal has no durable position to resume from
+            assertTrue(exporter.export(OrderFixtures.newManager().snapshot()).isFullRewrite());
+        } finally {
+            for (File file : directory.listFiles()) {
+                File[] children = file.listFiles();
+                if (children != null) {
+                    for (File child : children) {
+                        child.delete();
+                    }
+                }
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderEventPublisherTest {
+
+    /** Subscriber that records events and requests only what the test asks for. */
+    private static class Recorder implements OrderEventPublisher.Subscriber {
+        final List<OrderEvent> events = Collections.synchronizedList(new ArrayList<>());
+        volatile OrderEventPublisher.Subscription subscription;
+        final List<String> signals = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean completed;
+        volatile Throwable error;
+
+        @Override
+        public void onSubscribe(OrderEventPublisher.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(OrderEvent event) {
+            events.add(event);
+            signals.add("event");
+        }
+
+        @Override
+        public void onDropped(long count) {
+            signals.add("dropped " + count);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            // Recorded here and asserted on the test thread, where a failure is reported
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    public void testDeliversOnlyRequestedEventsAndDropsOnFullBuffer() {
+        OrderEventPublisher publisher = new OrderEventPublisher(Runnable::run, 3);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(2);
+
+        Order order = new Order();
+        for (int i = 0; i < 5; i++) {
+            publisher.publish(newEvent(order));
+        }
+        // Two delivered, three buffered, nothing dropped yet
+        assertEquals(2, recorder.events.size());
+        assertEquals(0, publisher.getDroppedCount());
+        assertEquals(1, publisher.publish(newEvent(order)));
+        assertEquals(1, publisher.getDroppedCount());
+
+        recorder.subscription.request(1);
+        assertEquals(3, recorder.events.size());
+        // Room was freed, but nothing may be delivered ahead of the gap
+        assertEquals(1, publisher.publish(newEvent(order)));
+        assertEquals(2, publisher.getDroppedCount());
+
+        recorder.subscription.request(10);
+        assertEquals(5, recorder.events.size());
+        assertEquals(0, publisher.publish(newEvent(order)));
+        assertEquals(6, recorder.events.size());
+        assertEquals(List.of("event", "event", "event", "event", "event", "dropped 2", "event"), recorder.signals);
+
+        publisher.close();
+        assertTrue(recorder.completed);
+        assertFalse(publisher.hasSubscribers());
+        assertNull(recorder.error);
+    }
+
+    @Test
+    public void testInvalidRequestIsSignalledOnTheDeliveryExecutor() {
+        List<Runnable> tasks = new ArrayList<>();
+        OrderEventPublisher publisher = new OrderEventPublisher(tasks::add, 3);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        tasks.remove(0).run();
+
+        recorder.subscription.request(0);
+        // Nothing is signalled on the requesting thread
+        assertNull(recorder.error);
+        assertEquals(1, tasks.size());
+        publisher.publish(newEvent(new Order()));
+
+        tasks.remove(0).run();
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertFalse(publisher.hasSubscribers());
+        recorder.subscription.request(5);
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+        assertTrue(recorder.events.isEmpty());
+    }
+
+    @Test
+    public void testManagerPublishesCartEdits() throws Exception {
+        OrderManager manager = OrderFixtures.newManager();
+        Recorder recorder = new Recorder();
+        manager.getEvents().subscribe(recorder);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (recorder.subscription == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        recorder.subscription.request(Long.MAX_VALUE);
+
+        Side side = new Side(SideType.FRIES, Size.SMALL, 1);
+        manager.addItemToCurrentOrder(side);
+        manager.removeItemFromCurrentOrder(side);
+        while (recorder.events.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        recorder.subscription.cancel();
+
+        assertNull(recorder.error);
+        assertEquals(OrderEvent.Type.ITEM_ADDED, recorder.events.get(0).getType());
+        assertEquals(OrderEvent.Type.ITEM_REMOVED, recorder.events.get(1).getType());
+        assertSame(side, recorder.events.get(1).getItem());
+    }
+
+    @Test
+    public void testConcurrentCartEditsArriveInEditOrder() throws Exception {
+        OrderManager manager = OrderFixtures.newManager();
+        Recorder recorder = new Recorder();
+        manager.getEvents().subscribe(recorder);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (recorder.subscription == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        recorder.subscription.request(Long.MAX_VALUE);
+
+        long cart = manager.openCart();
+        Thread[] clerks = new Thread[2];
+        for (int t = 0; t < clerks.length; t++) {
+            clerks[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    manager.addItemToCart(cart, new Side(SideType.CHIPS, Size.SMALL, 1));
+                }
+            });
+            clerks[t].start();
+        }
+        for (Thread clerk : clerks) {
+            clerk.join();
+        }
+        while (recorder.events.size() < 200 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        recorder.subscription.cancel();
+
+        List<MenuItem> items = manager.getCartItems(cart);
+        assertEquals(200, recorder.events.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertSame(items.get(i), recorder.events.get(i).getItem());
+        }
+    }
+
+    private static OrderEvent newEvent(Order order) {
+        return new OrderEvent(OrderEvent.Type.ITEM_ADDED, order, new Side(SideType.CHIPS, Size.SMALL, 1),
+                System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,174 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderExportJobTest {
+
+    @Test
+    public void testExportReplacesTargetAndReportsProgress() throws Exception {
+        List<Order> orders = OrderFixtures.placeSides(1000);
+        File target = File.createTempFile("export", ".txt");
+        long[] lastProgress = new long[2];
+        try {
+            OrderExportJob job = new OrderExportJob(orders, target, new OrderExportJob.Listener() {
+                @Override
+                public void onProgress(int ordersWritten, int totalOrders, long bytesWritten) {
+                    lastProgress[0] = ordersWritten;
+                    lastProgress[1] = bytesWritten;
+                }
+
+                @Override
+                public void onFinished(OrderExportJob job) {
+                }
+            });
+            job.run();
+            assertEquals(OrderExportJob.Status.COMPLETED, job.await());
+            assertEquals(1000, lastProgress[0]);
+            assertEquals(target.length(), lastProgress[1]);
+            String text = new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8);
+            assertTrue(text.startsWith("Order #" + orders.get(0).getNumber() + "\n- "));
+            assertEquals(1000, text.split("====================================\n", -1).length - 1);
+        } finally {
+            target.delete();
+        }
+    }
+
+    @Test
+    public void testCancelledExportLeavesTargetUntouched() throws Exception {
+        List<Order> orders = OrderFixtures.placeSides(2000);
+        File target = File.createTempFile("export", ".txt");
+        try (Writer writer = new FileWriter(target)) {
+            writer.write("previous export\n");
+        }
+        try {
+            OrderExportJob[] self = new OrderExportJob[1];
+            self[0] = new OrderExportJob(orders, target, new OrderExportJob.Listener() {
+                @Override
+                public void onProgress(int ordersWritten, int totalOrders, long bytesWritten) {
+                    self[0].cancel();
+                }
+
+                @Override
+                public void onFinished(OrderExportJob job) {
+                }
+            });
+            self[0].run();
+            assertEquals(OrderExportJob.Status.CANCELLED, self[0].await());
+            assertEquals("previous export\n",
+                    new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+            File[] leftovers = target.getParentFile().listFiles(
+                    (dir, name) -> name.startsWith(target.getName() + ".") && name.endsWith(".tmp"));
+            assertEquals(0, leftovers.length);
+        } finally {
+            target.delete();
+        }
+    }
+
+    @Test
+    public void testAsyncExport() throws Exception {
+        OrderManager manager = OrderFixtures.newManager();
+        OrderFixtures.placeSides(manager, 10);
+        File target = File.createTempFile("export", ".txt");
+        try {
+            OrderExportJob job = manager.exportOrdersAsync(target, null);
+            assertEquals(OrderExportJob.Status.COMPLETED, job.await());
+            assertTrue(target.length() > 0);
+        } finally {
+            target.delete();
+        }
+    }
+
+    @Test
+    public void testCompressedExportsRoundTrip() throws Exception {
+        List<Order> orders = OrderFixtures.place(40, (order, i) -> {
+            order.addItem(new Beverage(Size.LARGE, Flavor.values()[i % Flavor.values().length], 1));
+            order.addItem(new Side(SideType.ONION_RINGS, Size.MEDIUM, 1 + i % 2));
+        });
+        File plain = File.createTempFile("export", ".txt");
+        File gzip = File.createTempFile("export", ".txt.gz");
+        File dictionary = File.createTempFile("export", ".txt.rbz");
+        try {
+            new OrderExportJob(orders, plain, null).run();
+            OrderExportJob gzipJob = new OrderExportJob(orders, gzip, ExportCompression.GZIP, null);
+            gzipJob.run();
+            OrderExportJob dictionaryJob =
+                    new OrderExportJob(orders, dictionary, ExportCompression.DEFLATE_DICTIONARY, null);
+            dictionaryJob.run();
+
+            byte[] expected = Files.readAllBytes(plain.toPath());
+            for (File file : new File[] {plain, gzip, dictionary}) {
+                try (InputStream in = ExportCompression.open(file)) {
+                    assertArrayEquals(expected, in.readAllBytes());
+                }
+            }
+            assertEquals(OrderExportJob.Status.COMPLETED, dictionaryJob.getStatus());
+            assertEquals(expected.length, dictionaryJob.getBytesWritten());
+            assertEquals(dictionary.length(), dictionaryJob.getCompressedBytes());
+            assertEquals(gzip.length(), gzipJob.getCompressedBytes());
+            assertTrue(gzipJob.getCompressionRatio() > 2);
+            assertTrue(dictionary.length() < gzip.length());
+            // The stream names the frozen dictionary it was compressed against
+            try (InputStream in = new FileInputStream(dictionary)) {
+                byte[] header = new byte[4];
+                assertEquals(4, in.read(header));
+                assertArrayEquals(new byte[] {'R', 'B', 'Z', (byte) ExportCompression.DICTIONARY_VERSION}, header);
+            }
+            assertTrue(dictionaryJob.getThroughput() > 0);
+        } finally {
+            plain.delete();
+            gzip.delete();
+            dictionary.delete();
+        }
+    }
+
+    @Test
+    public void testParallelExportMatchesSequential() throws Exception {
+        List<Order> orders = OrderFixtures.place(5000, (order, i) -> {
+            order.addItem(new Beverage(Size.values()[i % 3], Flavor.values()[i % Flavor.values().length], 1));
+            for (int j = 0; j < i % 4; j++) {
+                order.addItem(new Side(SideType.values()[j], Size.SMALL, 1 + j));
+            }
+        });
+        File sequential = File.createTempFile("export", ".txt");
+        File parallel = File.createTempFile("export", ".txt");
+        try {
+            new OrderExportJob(orders, sequential, null).run();
+            OrderExportJob job = new OrderExportJob(orders, parallel, ExportCompression.NONE, 4, null);
+            job.run();
+            assertEquals(OrderExportJob.Status.COMPLETED, job.getStatus());
+            assertEquals(5000, job.getOrdersWritten());
+            assertEquals(parallel.length(), job.getBytesWritten());
+            assertArrayEquals(Files.readAllBytes(sequential.toPath()), Files.readAllBytes(parallel.toPath()));
+        } finally {
+            sequential.delete();
+            parallel.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownDictionaryVersionIsRejected() throws Exception {
+        File file = File.createTempFile("export", ".txt.rbz");
+        try {
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(new byte[] {'R', 'B', 'Z', (byte) (ExportCompression.DICTIONARY_VERSION + 1), 0x78, (byte) 0xBB});
+            }
+            ExportCompression.open(file).close();
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderHistoryStoreTest {
+
+    @Test
+    public void testScanMatchesPlacedLinesAndSkipsCancelledOrders() {
+        OrderManager manager = OrderFixtures.newManager();
+        // 3000 lines span several chunks
+        List<Order> placed = OrderFixtures.place(manager, 2000, (order, i) -> {
+            order.addItem(new Beverage(Size.values()[i % 3], Flavor.values()[i % 15], 1 + i % 5));
+            if (i % 2 == 0) {
+                order.addItem(new Burger(Bread.values()[i % 4], i % 3 == 0, new ArrayList<>(), 2));
+            }
+        });
+        Order cancelled = placed.get(700);
+        manager.cancelOrder(cancelled);
+
+        List<long[]> expected = new ArrayList<>();
+        long expectedCents = 0;
+        for (Order order : placed) {
+            if (order == cancelled) {
+                continue;
+            }
+            for (int i = 0; i < order.getItems().size(); i++) {
+                MenuItem item = order.getItems().get(i);
+                int cents = (int) Math.round(order.getLinePrice(i) * 100);
+                expected.add(new long[] {order.getNumber(), order.getPlacedAt(), SkuCodec.encode(item),
+                        item.getQuantity(), cents});
+                expectedCents += cents;
+            }
+        }
+
+        OrderLineHistory history = manager.getHistory();
+        assertEquals(3000, history.size());
+        assertEquals(expectedCents, history.totalCents());
+        List<long[]> actual = new ArrayList<>();
+        history.scan((number, timestamp, sku, quantity, cents) ->
+                actual.add(new long[] {number, timestamp, sku, quantity, cents}));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+}
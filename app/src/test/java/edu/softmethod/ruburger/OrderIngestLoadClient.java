@@ -0,0 +1,106 @@
+package edu.softmethod.ruburger;
+
+import edu.softmethod.ruburger.model.OrderFixtures;
+import edu.softmethod.ruburger.model.OrderIngestServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load generator for {@link OrderIngestServer}. Starts an in-process server unless a URL is
+ * given, then posts JSON orders from several threads; every tenth request is retried with the
+ * same idempotency key and must return the original order number.
+ * <p>
+ * Usage: {@code OrderIngestLoadClient [threads] [requestsPerThread] [url]}
+ * </p>
+ */
+public class OrderIngestLoadClient {
+
+    private static final String BODY = "{\"items\":["
+            + "{\"type\":\"burger\",\"bread\":\"BRIOCHE\",\"double\":true,\"addOns\":[\"CHEESE\"],\"quantity\":1},"
+            + "{\"type\":\"beverage\",\"flavor\":\"COLA\",\"size\":\"SMALL\",\"quantity\":2}]}";
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        OrderIngestServer server = null;
+        String url;
+        if (args.length > 2) {
+            url = args[2];
+        } else {
+            server = new OrderIngestServer(OrderFixtures.newManager(), 0, threads, 256, 2);
+            url = "http://127.0.0.1:" + server.getPort() + OrderIngestServer.ORDERS_PATH;
+        }
+        AtomicInteger failures = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    String key = id + "-" + i;
+                    try {
+                        int first = orderNumber(post(url, key));
+                        if (i % 10 == 0 && orderNumber(post(url, key)) != first) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int requests = threads * perThread + threads * ((perThread + 9) / 10);
+        System.out.printf("%d requests in %.2f s (%.0f req/s), %d failures%n",
+                requests, seconds, requests / seconds, failures.get());
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static int orderNumber(String response) {
+        int start = response.indexOf(':') + 1;
+        int end = start;
+        while (end < response.length() && Character.isDigit(response.charAt(end))) {
+            end++;
+        }
+        return Integer.parseInt(response.substring(start, end));
+    }
+
+    private static String post(String url, String key) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setRequestProperty("Idempotency-Key", key);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(BODY.getBytes(StandardCharsets.UTF_8));
+        }
+        if (connection.getResponseCode() != 200) {
+            throw new IOException("HTTP " + connection.getResponseCode());
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] chunk = new byte[256];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                buffer.write(chunk, 0, n);
+            }
+        }
+        return buffer.toString("UTF-8");
+    }
+}
@@ -0,0 +1,116 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class OrderIngestServerTest {
+
+    private static final String BODY = "{\"items\":["
+            + "{\"type\":\"side\",\"side\":\"FRIES\",\"size\":\"SMALL\",\"quantity\":1}]}";
+
+    /**
+     * Sends one request on a new connection and returns the whole response.
+     */
+    private static String send(OrderIngestServer server, String head, String body) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write((head + "Connection: close\r\n\r\n" + body).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            InputStream in = socket.getInputStream();
+            byte[] chunk = new byte[256];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                response.write(chunk, 0, n);
+            }
+            return response.toString("UTF-8");
+        }
+    }
+
+    private static String post(OrderIngestServer server, String key, String body) throws IOException {
+        String head = "POST " + OrderIngestServer.ORDERS_PATH + " HTTP/1.1\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + body.getBytes(StandardCharsets.UTF_8).length + "\r\n";
+        if (key != null) {
+            head += "Idempotency-Key: " + key + "\r\n";
+        }
+        return send(server, head, body);
+    }
+
+    @Test
+    public void testRepeatedKeyReturnsTheOriginalOrder() throws IOException {
+        OrderManager manager = OrderFixtures.newManager();
+        try (OrderIngestServer server = new OrderIngestServer(manager, 0, 2, 16, 1)) {
+            String first = post(server, "k-1", BODY);
+            assertTrue(first, first.startsWith("HTTP/1.1 200"));
+            String again = post(server, "k-1", BODY);
+            assertTrue(again, again.contains("\"duplicate\":true"));
+            assertEquals(first.substring(first.indexOf("{\"order\":"), first.indexOf('}', first.indexOf("{\"order\":"))),
+                    again.substring(again.indexOf("{\"order\":"), again.indexOf(',', again.indexOf("{\"order\":"))));
+            assertEquals(1, manager.getPlacedOrders().size());
+        }
+    }
+
+    @Test
+    public void testRejectedBodyDoesNotHoldItsKey() throws IOException {
+        OrderManager manager = OrderFixtures.newManager();
+        try (OrderIngestServer server = new OrderIngestServer(manager, 0, 2, 16, 1)) {
+            String rejected = post(server, "k-2", "{\"items\":[]}");
+            assertTrue(rejected, rejected.startsWith("HTTP/1.1 400"));
+            String retried = post(server, "k-2", BODY);
+            assertTrue(retried, retried.startsWith("HTTP/1.1 200"));
+            assertFalse(retried, retried.contains("duplicate"));
+        }
+    }
+
+    @Test
+    public void testInvalidContentLengthIsABadRequest() throws IOException {
+        try (OrderIngestServer server = new OrderIngestServer(OrderFixtures.newManager(), 0, 2, 16, 1)) {
+            String response = send(server, "POST " + OrderIngestServer.ORDERS_PATH + " HTTP/1.1\r\n"
+                    + "Content-Length: twelve\r\n", "");
+            assertTrue(response, response.startsWith("HTTP/1.1 400"));
+            response = send(server, "POST " + OrderIngestServer.ORDERS_PATH + " HTTP/1.1\r\n"
+                    + "Content-Length: -5\r\n", "");
+            assertTrue(response, response.startsWith("HTTP/1.1 400"));
+            // The server is still serving after the bad requests
+            assertTrue(post(server, null, BODY).startsWith("HTTP/1.1 200"));
+        }
+    }
+
+    @Test
+    public void testFailedPlacementCanBeRetriedWithTheSameKey() throws IOException {
+        OrderManager manager = OrderFixtures.newManager();
+        OrderNumberAllocator original = Order.getNumberAllocator();
+        File corrupt = File.createTempFile("order-numbers", ".bin");
+        try (OrderIngestServer server = new OrderIngestServer(manager, 0, 2, 16, 1)) {
+            try (FileOutputStream out = new FileOutputStream(corrupt)) {
+                out.write(new byte[] {1, 2});
+            }
+            Order.setNumberAllocator(new OrderNumberAllocator(corrupt, 10));
+            String failed = post(server, "k-3", BODY);
+            assertTrue(failed, failed.startsWith("HTTP/1.1 500"));
+            assertEquals(0, manager.getPlacedOrders().size());
+
+            Order.setNumberAllocator(original);
+            String retried = post(server, "k-3", BODY);
+            assertTrue(retried, retried.startsWith("HTTP/1.1 200"));
+            assertFalse(retried, retried.contains("duplicate"));
+            assertEquals(1, manager.getPlacedOrders().size());
+        } finally {
+            Order.setNumberAllocator(original);
+            corrupt.delete();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderJournalTest {
+
+    private static File tempDirectory() throws IOException {
+        File directory = File.createTempFile("journal", "");
+        directory.delete();
+        directory.mkdirs();
+        return directory;
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static List<Integer> numbers(List<Order> orders) {
+        List<Integer> numbers = new ArrayList<>();
+        for (Order order : orders) {
+            numbers.add(order.getNumber());
+        }
+        return numbers;
+    }
+
+    @Test
+    public void testRecoveryReadsOnlyTheJournalAfterTheSnapshot() throws IOException {
+        File directory = tempDirectory();
+        File journalFile = new File(directory, "orders.journal");
+        try {
+            OrderManager manager = OrderFixtures.newManager();
+            OrderJournal journal = new OrderJournal(journalFile);
+            manager.setJournal(journal);
+            List<Order> early = OrderFixtures.placeSides(manager, 5);
+            OrderSnapshots snapshots = new OrderSnapshots(directory);
+            manager.writeSnapshot(snapshots);
+            OrderFixtures.placeSides(manager, 3);
+            manager.cancelOrder(early.get(1));
+            List<Integer> expected = numbers(manager.getPlacedOrders());
+            long length = journal.getLength();
+            journal.close();
+            assertEquals(length, journalFile.length());
+
+            // Damage the first entry: the snapshot covers it, so recovery never reads it
+            try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+                raf.seek(20);
+                raf.write(raf.read() ^ 0xFF);
+            }
+            OrderManager recovered = OrderFixtures.newManager();
+            recovered.recover(snapshots, journalFile);
+            assertEquals(expected, numbers(recovered.getPlacedOrders()));
+            assertEquals(9, recovered.getJournal().getLastSequence());
+            recovered.getJournal().close();
+
+            try {
+                new OrderJournal(journalFile).close();
+                fail("A damaged entry before the end must fail a full read");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("Checksum"));
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testJournalFailureLeavesOrdersUnchanged() throws IOException {
+        File directory = tempDirectory();
+        File journalFile = new File(directory, "orders.journal");
+        try {
+            OrderManager manager = OrderFixtures.newManager();
+            OrderJournal journal = new OrderJournal(journalFile);
+            manager.setJournal(journal);
+            List<Order> placed = OrderFixtures.placeSides(manager, 2);
+            long sequence = manager.snapshot().getJournalSequence();
+            journal.close();
+
+            manager.addItemToCurrentOrder(new Beverage(Size.SMALL, Flavor.COLA, 1));
+            Order current = manager.getCurrentOrder();
+            try {
+                manager.placeCurrentOrder();
+                fail("A placement that cannot be journaled must fail");
+            } catch (UncheckedIOException expected) {
+                assertSame(current, manager.getCurrentOrder());
+                assertFalse(current.isPlaced());
+                assertEquals(1, current.getItems().size());
+            }
+            try {
+                manager.cancelOrder(placed.get(0));
+                fail("A cancellation that cannot be journaled must fail");
+            } catch (UncheckedIOException expected) {
+                assertEquals(numbers(placed), numbers(manager.getPlacedOrders()));
+            }
+            assertEquals(sequence, manager.snapshot().getJournalSequence());
+            assertTrue(manager.snapshot().getCancellations().isEmpty());
+
+            OrderManager recovered = OrderFixtures.newManager();
+            recovered.recover(new OrderSnapshots(directory), journalFile);
+            assertEquals(numbers(placed), numbers(recovered.getPlacedOrders()));
+            recovered.getJournal().close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testTornFinalEntryIsTruncated() throws IOException {
+        File directory = tempDirectory();
+        File journalFile = new File(directory, "orders.journal");
+        try {
+            List<Order> placed = OrderFixtures.placeSides(4);
+            long length;
+            try (OrderJournal journal = new OrderJournal(journalFile)) {
+                journal.appendPlaced(placed.subList(0, 3));
+                length = journal.getLength();
+                journal.appendPlaced(placed.get(3));
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+                raf.setLength(raf.length() - 5);
+            }
+            try (OrderJournal journal = new OrderJournal(journalFile)) {
+                assertEquals(3, journal.getLastSequence());
+                assertEquals(length, journalFile.length());
+                assertEquals(4, journal.appendCancelled(placed.get(0).getNumber()));
+            }
+            try (OrderJournal journal = new OrderJournal(journalFile)) {
+                assertEquals(4, journal.getLastSequence());
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testZeroFilledTailIsTruncated() throws IOException {
+        File directory = tempDirectory();
+        File journalFile = new File(directory, "orders.journal");
+        try {
+            long length;
+            try (OrderJournal journal = new OrderJournal(journalFile)) {
+                journal.appendPlaced(OrderFixtures.placeSides(2));
+                length = journal.getLength();
+            }
+            try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+                out.write(new byte[4096]);
+            }
+            try (OrderJournal journal = new OrderJournal(journalFile)) {
+                assertEquals(2, journal.getLastSequence());
+                assertEquals(length, journalFile.length());
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testGarbageLengthPrefixIsRejected() throws IOException {
+        File directory = tempDirectory();
+        File journalFile = new File(directory, "orders.journal");
+        try {
+            try (OrderJournal journal = new OrderJournal(journalFile)) {
+                journal.appendPlaced(OrderFixtures.placeSides(2));
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+                raf.seek(0);
+                raf.writeInt(0x7FFFFFF0);
+            }
+            try {
+                new OrderJournal(journalFile).close();
+                fail("A garbage length prefix must be rejected");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("Invalid entry length"));
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testJournalThatDoesNotContinueTheSnapshotIsRejected() throws IOException {
+        File directory = tempDirectory();
+        File journalFile = new File(directory, "orders.journal");
+        try {
+            long length;
+            try (OrderJournal journal = new OrderJournal(journalFile)) {
+                journal.appendPlaced(OrderFixtures.placeSides(3));
+                length = journal.getLength();
+                journal.appendPlaced(OrderFixtures.placeSides(1));
+            }
+            try {
+                new OrderJournal(journalFile, length, 2).close();
+                fail("The entry after the offset must have the next sequence number");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("Expected journal entry 3"));
+            }
+            long fullLength = journalFile.length();
+            try {
+                new OrderJournal(journalFile, fullLength + 1, 4).close();
+                fail("An offset past the end must be rejected");
+            } catch (IOException expected) {
+                assertEquals(fullLength, journalFile.length());
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderManagerTest {
+
+    @Test
+    public void testSnapshotIsUnaffectedByLaterPlacementsAndCancellations() {
+        OrderManager manager = OrderFixtures.newManager();
+        manager.addItemToCurrentOrder(new Side(SideType.CHIPS, Size.SMALL, 1));
+        manager.placeCurrentOrder();
+        OrderManager.Snapshot before = manager.snapshot();
+        List<Order> placed = before.getPlacedOrders();
+        int size = placed.size();
+        Order last = placed.get(size - 1);
+
+        manager.addItemToCurrentOrder(new Side(SideType.FRIES, Size.SMALL, 1));
+        manager.placeCurrentOrder();
+        manager.cancelOrder(last);
+
+        assertEquals(size, placed.size());
+        assertSame(last, placed.get(size - 1));
+        assertFalse(manager.getPlacedOrders().contains(last));
+        assertEquals(size, manager.getPlacedOrders().size());
+    }
+
+    @Test
+    public void testCancellationsLeaveEveryViewConsistent() {
+        OrderManager manager = OrderFixtures.newManager();
+        List<Order> placed = OrderFixtures.placeSides(manager, 100);
+        List<Order> remaining = new ArrayList<>(placed);
+        for (int i = 0; i < placed.size(); i += 5) {
+            Order cancelled = placed.get(i);
+            manager.cancelOrder(cancelled);
+            remaining.remove(cancelled);
+            manager.cancelOrder(cancelled);
+            assertEquals(remaining, manager.getPlacedOrders());
+            assertEquals(remaining, manager.getOrdersBetween(Long.MIN_VALUE, Long.MAX_VALUE));
+            assertEquals(remaining.size(), manager.snapshot().getTimeIndex().size());
+            assertEquals(remaining, manager.findOrders(Side.class));
+        }
+        assertEquals(80, manager.getPlacedOrders().size());
+    }
+
+    @Test
+    public void testBatchPlacementNumbersConsecutivelyAndSkipsEmptyCarts() {
+        OrderManager manager = OrderFixtures.newManager();
+        List<Order> carts = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Order cart = new Order();
+            if (i % 3 != 1) {
+                cart.addItem(new Side(SideType.CHIPS, Size.SMALL, 1 + i));
+            }
+            carts.add(cart);
+        }
+        List<Order> placed = manager.placeOrders(carts);
+        assertEquals(4, placed.size());
+        assertSame(carts.get(0), placed.get(0));
+        assertSame(carts.get(5), placed.get(3));
+        for (int i = 0; i < placed.size(); i++) {
+            assertTrue(placed.get(i).isPlaced());
+            assertEquals(placed.get(0).getNumber() + i, placed.get(i).getNumber());
+            assertEquals(placed.get(0).getPlacedAt(), placed.get(i).getPlacedAt());
+        }
+        assertFalse(carts.get(1).isPlaced());
+        assertFalse(carts.get(4).isPlaced());
+        assertEquals(placed, manager.getPlacedOrders());
+    }
+
+    @Test
+    public void testBatchPlacementAppendsOneJournalEntryPerOrder() throws IOException {
+        File file = File.createTempFile("orders", ".journal");
+        try {
+            OrderManager manager = OrderFixtures.newManager();
+            try (OrderJournal journal = new OrderJournal(file)) {
+                manager.setJournal(journal);
+                OrderFixtures.placeSides(manager, 2);
+                List<Order> placed = OrderFixtures.placeSides(manager, 5);
+                assertEquals(7, journal.getLastSequence());
+                assertEquals(7, manager.snapshot().getJournalSequence());
+                assertEquals(journal.getLength(), manager.snapshot().getJournalOffset());
+                List<Integer> replayed = new ArrayList<>();
+                journal.replay(2, new OrderJournal.Visitor() {
+                    @Override
+                    public void placed(long sequence, Order order) {
+                        replayed.add(order.getNumber());
+                    }
+
+                    @Override
+                    public void cancelled(long sequence, int orderNumber) {
+                        fail("No cancellation was journaled");
+                    }
+                });
+                assertEquals(5, replayed.size());
+                for (int i = 0; i < 5; i++) {
+                    assertEquals(placed.get(i).getNumber(), (int) replayed.get(i));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testBatchThatCannotBeJournaledPlacesNothing() throws IOException {
+        File file = File.createTempFile("orders", ".journal");
+        try {
+            OrderManager manager = OrderFixtures.newManager();
+            OrderJournal journal = new OrderJournal(file);
+            manager.setJournal(journal);
+            OrderFixtures.placeSides(manager, 2);
+            journal.close();
+            Order first = new Order();
+            first.addItem(new Side(SideType.CHIPS, Size.SMALL, 1));
+            Order second = new Order();
+            second.addItem(new Side(SideType.FRIES, Size.SMALL, 1));
+            try {
+                manager.placeOrders(List.of(first, second));
+                fail("A batch that cannot be journaled must be rejected");
+            } catch (UncheckedIOException expected) {
+                assertFalse(first.isPlaced());
+                assertFalse(second.isPlaced());
+                assertEquals(2, manager.getPlacedOrders().size());
+                assertEquals(2, manager.snapshot().getJournalSequence());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCartThatCannotBeJournaledStaysOpen() throws IOException {
+        File file = File.createTempFile("orders", ".journal");
+        try {
+            OrderManager manager = OrderFixtures.newManager();
+            OrderJournal journal = new OrderJournal(file);
+            manager.setJournal(journal);
+            journal.close();
+            long handle = manager.openCart();
+            manager.addItemToCart(handle, new Side(SideType.CHIPS, Size.SMALL, 1));
+            try {
+                manager.placeCart(handle);
+                fail("A cart that cannot be journaled must not be placed");
+            } catch (UncheckedIOException expected) {
+                assertEquals(1, manager.getCartItems(handle).size());
+                assertEquals(1, manager.getOpenCartCount());
+            }
+            manager.setJournal(null);
+            Order placed = manager.placeCart(handle);
+            assertTrue(placed.isPlaced());
+            assertEquals(0, manager.getOpenCartCount());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testBatchWithTheSameOrderTwicePlacesNothing() {
+        OrderManager manager = OrderFixtures.newManager();
+        Order first = new Order();
+        first.addItem(new Side(SideType.CHIPS, Size.SMALL, 1));
+        Order repeated = new Order();
+        repeated.addItem(new Side(SideType.FRIES, Size.SMALL, 1));
+        try {
+            manager.placeOrders(List.of(first, repeated, repeated));
+            fail("A batch listing an order twice must be rejected");
+        } catch (IllegalArgumentException expected) {
+            assertFalse(first.isPlaced());
+            assertFalse(repeated.isPlaced());
+            assertTrue(manager.getPlacedOrders().isEmpty());
+        }
+    }
+
+    @Test
+    public void testExportDuringConcurrentPlacement() throws Exception {
+        OrderManager manager = OrderFixtures.newManager();
+        File file = File.createTempFile("orders", ".txt");
+        Thread intake = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                Order order = new Order();
+                order.addItem(new Beverage(Size.SMALL, Flavor.TEA, 1));
+                manager.placeOrders(List.of(order));
+            }
+        });
+        intake.start();
+        try {
+            while (intake.isAlive()) {
+                manager.exportOrders(file);
+            }
+            intake.join();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testImportMergesOrdersFromAnotherRegister() throws IOException {
+        OrderManager manager = OrderFixtures.newManager();
+        File file = File.createTempFile("register2", ".txt");
+        try {
+            try (Writer writer = new FileWriter(file)) {
+                writer.write("Order #5000000\n"
+                        + "- Beverage x2: [COLA, SMALL] — $3.98\n"
+                        + "Total: $4.24\n"
+                        + "====================================\n");
+            }
+            assertEquals(1, manager.importOrders(file));
+            assertEquals(0, manager.importOrders(file));
+            List<Order> placed = manager.getPlacedOrders();
+            Order imported = placed.get(placed.size() - 1);
+            assertEquals(5000000, imported.getNumber());
+            assertEquals(4.24, imported.getTotal(), 0.005);
+
+            manager.addItemToCurrentOrder(new Side(SideType.CHIPS, Size.SMALL, 1));
+            Order next = manager.getCurrentOrder();
+            manager.placeCurrentOrder();
+            assertTrue(next.getNumber() > 5000000);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testImportRejectsANumberUsedByADifferentOrder() throws IOException {
+        OrderManager manager = OrderFixtures.newManager();
+        File first = File.createTempFile("register2", ".txt");
+        File second = File.createTempFile("register3", ".txt");
+        try {
+            try (Writer writer = new FileWriter(first)) {
+                writer.write("Order #6000000\n"
+                        + "- Beverage x2: [COLA, SMALL] — $3.98\n"
+                        + "Total: $4.24\n"
+                        + "====================================\n");
+            }
+            try (Writer writer = new FileWriter(second)) {
+                writer.write("Order #6000001\n"
+                        + "- Beverage x1: [COLA, SMALL] — $1.99\n"
+                        + "Total: $2.12\n"
+                        + "====================================\n"
+                        + "Order #6000000\n"
+                        + "- Side x1: [CHIPS, SMALL] — $1.99\n"
+                        + "Total: $2.12\n"
+                        + "====================================\n");
+            }
+            assertEquals(1, manager.importOrders(first));
+            try {
+                manager.importOrders(second);
+                fail("A number already used by a different order must be rejected");
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().contains("6000000"));
+            }
+            // Nothing from the rejected file was imported
+            assertEquals(1, manager.getPlacedOrders().size());
+            assertEquals(4.24, manager.getPlacedOrders().get(0).getTotal(), 0.005);
+        } finally {
+            first.delete();
+            second.delete();
+        }
+    }
+
+    @Test
+    public void testCartsAreBuiltConcurrentlyAndPlacedByHandle() throws Exception {
+        OrderManager manager = OrderFixtures.newManager();
+        int clerks = 4;
+        long[] handles = new long[clerks];
+        for (int c = 0; c < clerks; c++) {
+            handles[c] = manager.openCart();
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clerks; c++) {
+            long handle = handles[c];
+            int items = c + 1;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < items * 50; i++) {
+                    Side side = new Side(SideType.CHIPS, Size.SMALL, 1);
+                    manager.addItemToCart(handle, side);
+                    if (i % 2 == 1) {
+                        manager.removeItemFromCart(handle, side);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int c = 0; c < clerks; c++) {
+            assertEquals((c + 1) * 25, manager.getCartItems(handles[c]).size());
+            assertTrue(manager.getCartTotal(handles[c]) > 0);
+        }
+        Order placed = manager.placeCart(handles[2]);
+        assertTrue(placed.isPlaced());
+        assertEquals(75, placed.getItems().size());
+        assertSame(placed, manager.getPlacedOrders().get(manager.getPlacedOrders().size() - 1));
+        try {
+            manager.addItemToCart(handles[2], new Side(SideType.FRIES, Size.SMALL, 1));
+            fail("A placed cart must not accept items");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        assertTrue(manager.discardCart(handles[3]));
+        assertFalse(manager.discardCart(handles[3]));
+        assertNull(manager.placeCart(manager.openCart()));
+    }
+
+    @Test
+    public void testIdleCartsExpire() throws Exception {
+        OrderManager manager = OrderFixtures.newManager();
+        long idle = manager.openCart();
+        // Wide margins on both sides: the idle cart is 400 ms old, and the active one only
+        // expires if this thread stalls for 200 ms between opening it and expiring
+        Thread.sleep(400);
+        long active = manager.openCart();
+        assertTrue(manager.expireIdleCarts(200) >= 1);
+        try {
+            manager.getCartItems(idle);
+            fail("An expired cart must not be usable");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        assertTrue(manager.getCartItems(active).isEmpty());
+        manager.discardCart(active);
+    }
+}
@@ -0,0 +1,239 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderMergerTest {
+
+    private static final OrderMerger.Handler IGNORE = new OrderMerger.Handler() {
+        @Override
+        public void order(int source, Order order) {
+        }
+
+        @Override
+        public void cancelled(int source, int number) {
+        }
+    };
+
+    private static File export(List<Order> orders) throws IOException {
+        File file = File.createTempFile("register", ".txt");
+        new OrderExportJob(orders, file, null).run();
+        return file;
+    }
+
+    @Test
+    public void testMergesExportsByOrderNumber() throws Exception {
+        List<Order> placed = OrderFixtures.placeSides(300);
+        List<Order> even = new ArrayList<>();
+        List<Order> odd = new ArrayList<>();
+        long expectedCents = 0;
+        for (int i = 0; i < placed.size(); i++) {
+            (i % 2 == 0 ? even : odd).add(placed.get(i));
+            expectedCents += Math.round(placed.get(i).getTotal() * 100);
+        }
+        File first = export(even);
+        File second = export(odd);
+        File empty = File.createTempFile("register", ".txt");
+        File merged = File.createTempFile("merged", ".txt");
+        try {
+            OrderMerger.Totals totals = OrderMerger.merge(List.of(first, empty, second), merged);
+            assertEquals(3, totals.getSources());
+            assertEquals(300, totals.getOrders());
+            assertEquals(375, totals.getLines());
+            assertEquals(expectedCents, totals.getTotalCents());
+
+            List<Order> read = OrderTextParser.readOrders(merged);
+            assertEquals(300, read.size());
+            for (int i = 0; i < read.size(); i++) {
+                assertEquals(placed.get(i).getNumber(), read.get(i).getNumber());
+            }
+        } finally {
+            first.delete();
+            second.delete();
+            empty.delete();
+            merged.delete();
+        }
+    }
+
+    @Test
+    public void testMergesJournalsWithCancellations() throws Exception {
+        List<Order> placed = OrderFixtures.placeSides(50);
+        File first = File.createTempFile("journal", ".bin");
+        File second = File.createTempFile("journal", ".bin");
+        try {
+            try (OrderJournal a = new OrderJournal(first); OrderJournal b = new OrderJournal(second)) {
+                a.appendPlaced(placed.subList(0, 20));
+                a.appendCancelled(placed.get(3).getNumber());
+                b.appendPlaced(placed.subList(20, 50));
+            }
+            List<Integer> numbers = new ArrayList<>();
+            List<Integer> cancelled = new ArrayList<>();
+            OrderMerger.Totals totals = OrderMerger.merge(List.of(second, first), new OrderMerger.Handler() {
+                @Override
+                public void order(int source, Order order) {
+                    numbers.add(order.getNumber());
+                }
+
+                @Override
+                public void cancelled(int source, int number) {
+                    assertEquals(1, source);
+                    cancelled.add(number);
+                }
+            });
+            assertEquals(50, totals.getOrders());
+            assertEquals(1, totals.getCancellations());
+            assertEquals(List.of(placed.get(3).getNumber()), cancelled);
+            for (int i = 0; i < 50; i++) {
+                assertEquals(placed.get(i).getNumber(), (int) numbers.get(i));
+            }
+        } finally {
+            first.delete();
+            second.delete();
+        }
+    }
+
+    /**
+     * Places one side order per millisecond tick, so every order has its own placement time.
+     */
+    private static List<Order> placeOneAtATime(OrderManager manager, int count) throws InterruptedException {
+        List<Order> placed = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            placed.addAll(OrderFixtures.place(manager, 1,
+                    (order, j) -> order.addItem(new Side(SideType.CHIPS, Size.SMALL, 1))));
+            Thread.sleep(2);
+        }
+        return placed;
+    }
+
+    @Test
+    public void testInterleavesExportsAndJournalsByTime() throws Exception {
+        List<Order> placed = placeOneAtATime(OrderFixtures.newManager(), 10);
+        List<Order> exported = new ArrayList<>();
+        List<Order> journaled = new ArrayList<>();
+        for (int i = 0; i < placed.size(); i++) {
+            (i % 3 == 0 ? exported : journaled).add(placed.get(i));
+        }
+        File text = export(exported);
+        File journalFile = File.createTempFile("journal", ".bin");
+        File merged = File.createTempFile("merged", ".txt");
+        try {
+            try (OrderJournal journal = new OrderJournal(journalFile)) {
+                journal.appendPlaced(journaled);
+            }
+            OrderMerger.merge(List.of(journalFile, text), merged);
+            List<Order> read = OrderTextParser.readOrders(merged);
+            assertEquals(placed.size(), read.size());
+            for (int i = 0; i < read.size(); i++) {
+                assertEquals(placed.get(i).getNumber(), read.get(i).getNumber());
+                assertEquals(placed.get(i).getPlacedAt(), read.get(i).getPlacedAt());
+            }
+        } finally {
+            text.delete();
+            journalFile.delete();
+            merged.delete();
+        }
+    }
+
+    @Test
+    public void testUntimedImportedOrdersKeepTheirJournalPosition() throws Exception {
+        OrderManager manager = OrderFixtures.newManager();
+        File journalFile = File.createTempFile("journal", ".bin");
+        File importFile = File.createTempFile("register2", ".txt");
+        File other = File.createTempFile("journal", ".bin");
+        try {
+            manager.setJournal(new OrderJournal(journalFile));
+            List<Order> timed = placeOneAtATime(manager, 3);
+            try (Writer writer = new FileWriter(importFile)) {
+                writer.write("Order #7000000\n- Beverage x2: [COLA, SMALL] — $3.98\nTotal: $4.24\n"
+                        + "====================================\n");
+            }
+            assertEquals(1, manager.importOrders(importFile));
+            manager.getJournal().close();
+            List<Order> later = placeOneAtATime(OrderFixtures.newManager(), 2);
+            try (OrderJournal journal = new OrderJournal(other)) {
+                journal.appendPlaced(later);
+            }
+
+            List<Integer> numbers = new ArrayList<>();
+            OrderMerger.merge(List.of(other, journalFile), new OrderMerger.Handler() {
+                @Override
+                public void order(int source, Order order) {
+                    numbers.add(order.getNumber());
+                }
+
+                @Override
+                public void cancelled(int source, int number) {
+                }
+            });
+            assertEquals(List.of(timed.get(0).getNumber(), timed.get(1).getNumber(), timed.get(2).getNumber(),
+                    7000000, later.get(0).getNumber(), later.get(1).getNumber()), numbers);
+        } finally {
+            journalFile.delete();
+            importFile.delete();
+            other.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsTheSameNumberFromTwoInputs() throws Exception {
+        List<Order> placed = OrderFixtures.placeSides(5);
+        File first = export(placed);
+        File second = export(placed.subList(2, 3));
+        try {
+            OrderMerger.merge(List.of(first, second), IGNORE);
+        } finally {
+            first.delete();
+            second.delete();
+        }
+    }
+
+    @Test
+    public void testCancellationOnlyAppliesToItsOwnInput() throws Exception {
+        List<Order> placed = placeOneAtATime(OrderFixtures.newManager(), 2);
+        File first = export(placed.subList(0, 1));
+        File second = export(placed.subList(1, 2));
+        File merged = File.createTempFile("merged", ".txt");
+        try {
+            // The second register cancels a number that belongs to the first register's order
+            try (Writer writer = new FileWriter(second, true)) {
+                writer.write("Cancelled Order #" + placed.get(0).getNumber() + "\n"
+                        + "====================================\n");
+            }
+            OrderMerger.Totals totals = OrderMerger.merge(List.of(first, second), merged);
+            assertEquals(0, totals.getCancellations());
+            List<Order> read = OrderTextParser.readOrders(merged);
+            assertEquals(2, read.size());
+            assertEquals(placed.get(0).getNumber(), read.get(0).getNumber());
+        } finally {
+            first.delete();
+            second.delete();
+            merged.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsUnsortedInput() throws Exception {
+        List<Order> placed = OrderFixtures.placeSides(2);
+        File file = File.createTempFile("register", ".txt");
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("Order #" + placed.get(1).getNumber() + "\nTotal: $0.00\n"
+                    + "====================================\n");
+            writer.write("Order #" + placed.get(0).getNumber() + "\nTotal: $0.00\n"
+                    + "====================================\n");
+        }
+        try {
+            OrderMerger.merge(List.of(file), IGNORE);
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class OrderNumberAllocatorTest {
+
+    /**
+     * Allocates numbers from a shared file in a separate process and prints them, one per line.
+     * Usage: {@code OrderNumberAllocatorTest <file> <blockSize> <count>}
+     */
+    public static void main(String[] args) {
+        OrderNumberAllocator allocator = new OrderNumberAllocator(new File(args[0]), Integer.parseInt(args[1]));
+        StringBuilder out = new StringBuilder();
+        for (int i = Integer.parseInt(args[2]); i > 0; i--) {
+            out.append(allocator.next()).append('\n');
+        }
+        System.out.print(out);
+    }
+
+    private static File allocationFile() throws IOException {
+        File file = File.createTempFile("order-numbers", ".bin");
+        file.delete();
+        return file;
+    }
+
+    @Test
+    public void testRestartContinuesAfterLeasedBlock() throws IOException {
+        File file = allocationFile();
+        try {
+            OrderNumberAllocator first = new OrderNumberAllocator(file, 10);
+            assertEquals(1, first.next());
+            assertEquals(2, first.next());
+            OrderNumberAllocator restarted = new OrderNumberAllocator(file, 10);
+            assertEquals(11, restarted.next());
+            // The rest of the block cannot hold 25 numbers, so a new one is leased
+            assertEquals(21, restarted.nextRange(25));
+            assertEquals(46, restarted.next());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSkipPastAdvancesTheSharedFile() throws IOException {
+        File file = allocationFile();
+        try {
+            OrderNumberAllocator first = new OrderNumberAllocator(file, 10);
+            assertEquals(1, first.next());
+            first.skipPast(4);
+            assertEquals(5, first.next());
+            // Numbers recovered beyond the block are written past in the file
+            first.skipPast(37);
+            assertEquals(38, first.next());
+            assertEquals(48, new OrderNumberAllocator(file, 10).next());
+            OrderNumberAllocator second = new OrderNumberAllocator(file, 10);
+            second.skipPast(30);
+            assertEquals(58, second.next());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCorruptFileFailsInsteadOfRestartingAtOne() throws IOException {
+        File file = allocationFile();
+        try {
+            try (OutputStream out = new FileOutputStream(file)) {
+                out.write(new byte[] {0, 1});
+            }
+            try {
+                new OrderNumberAllocator(file, 10).next();
+                fail("A truncated allocation file must be rejected");
+            } catch (UncheckedIOException expected) {
+                assertEquals(2, file.length());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testAllocatorsInOneProcessShareAFile() throws Exception {
+        File file = allocationFile();
+        try {
+            int threads = 4;
+            int perThread = 500;
+            List<List<Integer>> issued = new ArrayList<>();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                List<Integer> numbers = new ArrayList<>();
+                issued.add(numbers);
+                OrderNumberAllocator allocator = new OrderNumberAllocator(file, 7);
+                Thread worker = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        numbers.add(allocator.next());
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            Set<Integer> unique = new HashSet<>();
+            for (int t = 0; t < threads; t++) {
+                workers.get(t).join();
+                assertEquals(perThread, issued.get(t).size());
+                unique.addAll(issued.get(t));
+            }
+            assertEquals(threads * perThread, unique.size());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testProcessesSharingAFileNeverIssueTheSameNumber() throws Exception {
+        File file = allocationFile();
+        try {
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            int processes = 3;
+            int perProcess = 300;
+            List<Process> children = new ArrayList<>();
+            for (int p = 0; p < processes; p++) {
+                children.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        OrderNumberAllocatorTest.class.getName(), file.getPath(), "5", String.valueOf(perProcess))
+                        .redirectErrorStream(true).start());
+            }
+            Set<Integer> unique = new HashSet<>();
+            int count = 0;
+            for (Process child : children) {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(child.getInputStream()))) {
+                    for (String line = in.readLine(); line != null; line = in.readLine()) {
+                        unique.add(Integer.parseInt(line));
+                        count++;
+                    }
+                }
+                assertEquals(0, child.waitFor());
+            }
+            assertEquals(processes * perProcess, count);
+            assertEquals(count, unique.size());
+        } finally {
+            file.delete();
+        }
+    }
+}
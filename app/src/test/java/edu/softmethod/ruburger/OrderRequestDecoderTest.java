@@ -0,0 +1,113 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderRequestDecoderTest {
+
+    @Test
+    public void testDecodesEveryJsonItemType() {
+        Order order = OrderRequestDecoder.decodeJson("{\"items\": ["
+                + "{\"type\": \"burger\", \"bread\": \"BRIOCHE\", \"double\": true, \"addOns\": [\"CHEESE\"], \"quantity\": 2},"
+                + "{\"type\": \"sandwich\", \"bread\": \"WHEAT\", \"protein\": \"CHICKEN\", \"addOns\": [], \"quantity\": 1},"
+                + "{\"type\": \"combo\", \"sandwich\": {\"type\": \"sandwich\", \"bread\": \"PRETZEL\","
+                + " \"protein\": \"SALMON\", \"addOns\": [], \"quantity\": 1}, \"side\": \"CHIPS\", \"drink\": \"COLA\", \"quantity\": 1},"
+                + "{\"type\": \"side\", \"side\": \"FRIES\", \"size\": \"LARGE\", \"quantity\": 1},"
+                + "{\"type\": \"beverage\", \"flavor\": \"COLA\", \"size\": \"SMALL\", \"quantity\": 3}"
+                + "]}");
+        List<MenuItem> items = order.getItems();
+        assertEquals(5, items.size());
+        assertEquals(new Burger(Bread.BRIOCHE, true, new ArrayList<>(List.of(AddOns.CHEESE)), 2).toString(),
+                items.get(0).toString());
+        assertEquals(new Sandwich(Bread.WHEAT, Protein.CHICKEN, new ArrayList<>(), 1).toString(),
+                items.get(1).toString());
+        assertTrue(items.get(2) instanceof Combo);
+        assertEquals(new Side(SideType.FRIES, Size.LARGE, 1).toString(), items.get(3).toString());
+        assertEquals(3, items.get(4).getQuantity());
+    }
+
+    @Test
+    public void testJsonSkuAndBinaryDecodeToTheSameOrder() {
+        MenuItem burger = new Burger(Bread.PRETZEL, false, new ArrayList<>(), 2);
+        MenuItem side = new Side(SideType.ONION_RINGS, Size.MEDIUM, 1);
+        long burgerSku = SkuCodec.encode(burger);
+        long sideSku = SkuCodec.encode(side);
+
+        Order json = OrderRequestDecoder.decodeJson(
+                "{\"items\":[{\"sku\":" + burgerSku + "},{\"sku\":" + sideSku + "}]}");
+        byte[] body = ByteBuffer.allocate(16).putLong(burgerSku).putLong(sideSku).array();
+        Order binary = OrderRequestDecoder.decodeBinary(body, body.length);
+
+        assertEquals(2, binary.getItems().size());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(json.getItems().get(i).toString(), binary.getItems().get(i).toString());
+        }
+        assertEquals(burger.toString(), binary.getItems().get(0).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMisalignedBinaryIsRejected() {
+        OrderRequestDecoder.decodeBinary(new byte[12], 12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyItemsAreRejected() {
+        OrderRequestDecoder.decodeJson("{\"items\":[]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownTypeIsRejected() {
+        OrderRequestDecoder.decodeJson("{\"items\":[{\"type\":\"salad\",\"quantity\":1}]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testQuantityAboveTheLimitIsRejected() {
+        OrderRequestDecoder.decodeJson(
+                "{\"items\":[{\"type\":\"side\",\"side\":\"FRIES\",\"size\":\"SMALL\",\"quantity\":1001}]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testQuantityBeyondIntIsRejected() {
+        // 2^32 + 1 would wrap to a quantity of 1 if it were narrowed before the range check
+        OrderRequestDecoder.decodeJson(
+                "{\"items\":[{\"type\":\"side\",\"side\":\"FRIES\",\"size\":\"SMALL\",\"quantity\":4294967297}]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testComboSandwichQuantityAboveWhatASkuHoldsIsRejected() {
+        OrderRequestDecoder.decodeJson("{\"items\":[{\"type\":\"combo\",\"sandwich\":{\"type\":\"sandwich\","
+                + "\"bread\":\"WHEAT\",\"protein\":\"CHICKEN\",\"quantity\":300},"
+                + "\"side\":\"CHIPS\",\"drink\":\"COLA\",\"quantity\":1}]}");
+    }
+
+    @Test
+    public void testDeepNestingIsRejectedWithoutOverflowingTheStack() {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 60_000; i++) {
+            json.append('[');
+        }
+        try {
+            OrderRequestDecoder.decodeJson(json.toString());
+            fail("Deeply nested input must be rejected");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().startsWith("Nesting deeper than"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownEnumNameIsRejected() {
+        OrderRequestDecoder.decodeJson(
+                "{\"items\":[{\"type\":\"side\",\"side\":\"SOUP\",\"size\":\"SMALL\",\"quantity\":1}]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedJsonIsRejected() {
+        OrderRequestDecoder.decodeJson("{\"items\":[{\"type\":\"side\"");
+    }
+}
@@ -0,0 +1,77 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderTest {
+
+    @Test
+    public void testPlacedOrderKeepsPricesAfterCatalogReload() throws IOException {
+        OrderManager manager = OrderFixtures.newManager();
+        Order order = manager.getCurrentOrder();
+        order.addItem(new Beverage(Size.SMALL, Flavor.COLA, 2));
+        manager.placeCurrentOrder();
+        // 1.99 * 2 = 3.98, plus 6.625% tax
+        assertEquals(3.98, order.getSubtotal(), 0.001);
+        assertEquals(1.99, order.getUnitPrice(0), 0.001);
+
+        File file = File.createTempFile("catalog", ".properties");
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("beverage.SMALL=5.00\n");
+        }
+        try {
+            PriceCatalog.reload(file);
+            assertEquals(3.98, order.getSubtotal(), 0.001);
+            assertEquals(3.98 * 1.06625, order.getTotal(), 0.001);
+            assertEquals(10.00, new Beverage(Size.SMALL, Flavor.COLA, 2).price(), 0.001);
+        } finally {
+            OrderFixtures.restoreDefaultPrices();
+            file.delete();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPlacedOrderRejectsEdits() {
+        OrderManager manager = OrderFixtures.newManager();
+        Order order = manager.getCurrentOrder();
+        order.addItem(new Side(SideType.FRIES, Size.LARGE, 1));
+        manager.placeCurrentOrder();
+        order.addItem(new Side(SideType.CHIPS, Size.SMALL, 1));
+    }
+
+    @Test
+    public void testUndoRedoRestoresVersions() {
+        Order order = new Order();
+        Side fries = new Side(SideType.FRIES, Size.SMALL, 1);
+        Beverage cola = new Beverage(Size.SMALL, Flavor.COLA, 1);
+        order.addItem(fries);
+        order.addItem(cola);
+        List<MenuItem> snapshot = order.getItems();
+        order.removeItem(fries);
+        assertEquals(List.of(cola), order.getItems());
+        // A list handed out earlier is a stable snapshot
+        assertEquals(List.of(fries, cola), snapshot);
+
+        assertTrue(order.undo());
+        assertEquals(List.of(fries, cola), order.getItems());
+        assertTrue(order.undo());
+        assertEquals(List.of(fries), order.getItems());
+        assertTrue(order.redo());
+        assertTrue(order.redo());
+        assertEquals(List.of(cola), order.getItems());
+        assertFalse(order.redo());
+
+        order.clear();
+        assertTrue(order.getItems().isEmpty());
+        order.undo();
+        assertEquals(cola.price(), order.getSubtotal(), 0.001);
+    }
+}
@@ -0,0 +1,68 @@
+package edu.softmethod.ruburger;
+
+import edu.softmethod.ruburger.model.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures {@link OrderTextParser} on a generated export with millions of lines, next to a
+ * baseline that only reads the same file line by line and splits each line.
+ * <p>
+ * Usage: {@code OrderTextParserBenchmark [orders]}
+ * </p>
+ */
+public class OrderTextParserBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<Order> carts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Order order = new Order();
+            ArrayList<AddOns> addOns = new ArrayList<>();
+            addOns.add(AddOns.values()[i % 5]);
+            order.addItem(new Burger(Bread.values()[i % 4], i % 2 == 0, addOns, 1 + i % 3));
+            order.addItem(new Beverage(Size.values()[i % 3], Flavor.values()[i % 15], 1));
+            if (i % 4 == 0) {
+                order.addItem(new Side(SideType.values()[i % 4], Size.values()[i % 3], 2));
+            }
+            carts.add(order);
+        }
+        List<Order> placed = OrderFixtures.newManager().placeOrders(carts);
+        File file = File.createTempFile("bench", ".txt");
+        try {
+            new OrderExportJob(placed, file, null).run();
+            long lines = 0;
+            for (Order order : placed) {
+                lines += order.getItems().size() + 3;
+            }
+            System.out.printf("%d orders, %d lines, %.1f MB%n", count, lines, file.length() / 1e6);
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                long[] rows = new long[1];
+                OrderTextParser.scan(file, (number, timestamp, sku, quantity, cents) -> rows[0]++);
+                double parse = (System.nanoTime() - start) / 1e9;
+
+                start = System.nanoTime();
+                long fields = 0;
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        fields += line.split(" ").length;
+                    }
+                }
+                double split = (System.nanoTime() - start) / 1e9;
+                System.out.printf("parser: %.2f s (%.1f M lines/s, %d rows)   readLine+split only: %.2f s%n",
+                        parse, lines / parse / 1e6, rows[0], split);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderTextParserTest {
+
+    private static List<Order> placeSampleOrders() {
+        ArrayList<AddOns> addOns = new ArrayList<>();
+        addOns.add(AddOns.CHEESE);
+        addOns.add(AddOns.ONIONS);
+        List<Order> carts = new ArrayList<>();
+        Order first = new Order();
+        first.addItem(new Burger(Bread.PRETZEL, true, addOns, 2));
+        first.addItem(new Sandwich(Bread.BAGEL, Protein.values()[0], new ArrayList<>(), 1));
+        first.addItem(new Combo(new Burger(Bread.BRIOCHE, false, addOns, 1), Flavor.STRAWBERRY,
+                SideType.ONION_RINGS, 3));
+        carts.add(first);
+        Order second = new Order();
+        second.addItem(new Combo(new Sandwich(Bread.WHEAT, Protein.values()[1], addOns, 1), Flavor.LEMON,
+                SideType.APPLE_SLICES, 1));
+        second.addItem(new Side(SideType.FRIES, Size.values()[2], 4));
+        second.addItem(new Beverage(Size.MEDIUM, Flavor.BLUEBERRY, 12));
+        carts.add(second);
+        return OrderFixtures.newManager().placeOrders(carts);
+    }
+
+    @Test
+    public void testReadsBackEveryItemType() throws IOException {
+        List<Order> placed = placeSampleOrders();
+        File file = File.createTempFile("orders", ".txt");
+        try {
+            new OrderExportJob(placed, file, null).run();
+            List<Order> read = OrderTextParser.readOrders(file);
+            assertEquals(placed.size(), read.size());
+            for (int i = 0; i < placed.size(); i++) {
+                Order expected = placed.get(i);
+                Order actual = read.get(i);
+                assertEquals(expected.getNumber(), actual.getNumber());
+                assertTrue(actual.isPlaced());
+                assertEquals(expected.getTotal(), actual.getTotal(), 0.005);
+                assertEquals(expected.getItems().size(), actual.getItems().size());
+                for (int j = 0; j < expected.getItems().size(); j++) {
+                    assertEquals(expected.getItems().get(j).toString(), actual.getItems().get(j).toString());
+                    assertEquals(SkuCodec.encode(expected.getItems().get(j)),
+                            SkuCodec.encode(actual.getItems().get(j)));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testExportKeepsFrozenPricesAfterCatalogReload() throws IOException {
+        List<Order> placed = placeSampleOrders();
+        File catalog = File.createTempFile("catalog", ".properties");
+        File file = File.createTempFile("orders", ".txt");
+        try {
+            try (Writer writer = new FileWriter(catalog)) {
+                writer.write("burger.single=9.99\nsandwich.SALMON=14.99\nside.FRIES=4.00\n"
+                        + "beverage.MEDIUM=3.49\ncombo.fee=3.00\naddon.CHEESE=1.50\n");
+            }
+            PriceCatalog.reload(catalog);
+            new OrderExportJob(placed, file, null).run();
+            List<Order> read = OrderTextParser.readOrders(file);
+            assertEquals(placed.size(), read.size());
+            for (int i = 0; i < placed.size(); i++) {
+                Order expected = placed.get(i);
+                Order actual = read.get(i);
+                assertEquals(expected.getDiscount(), actual.getDiscount(), 0.005);
+                assertEquals(expected.getTotal(), actual.getTotal(), 0.005);
+                for (int j = 0; j < expected.getItems().size(); j++) {
+                    assertEquals(expected.getLinePrice(j), actual.getLinePrice(j), 0.005);
+                    assertEquals(expected.getLineText(j), actual.getLineText(j));
+                }
+            }
+        } finally {
+            OrderFixtures.restoreDefaultPrices();
+            catalog.delete();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testReadsOlderCombosThatPriceTheirSandwich() throws IOException {
+        File file = File.createTempFile("orders", ".txt");
+        try {
+            try (Writer writer = new FileWriter(file)) {
+                writer.write("Order #4\n- Combo x1: [Burger, single (BRIOCHE) x1 — $6.99], Side: CHIPS, "
+                        + "Drink: COLA — $10.97\nTotal: $11.70\n====================================\n");
+            }
+            List<Order> read = OrderTextParser.readOrders(file);
+            assertEquals(1, read.size());
+            assertEquals(10.97, read.get(0).getLinePrice(0), 0.005);
+            assertEquals(0.0, read.get(0).getDiscount(), 0.005);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testAppliesCancellationRecords() throws IOException {
+        List<Order> placed = placeSampleOrders();
+        File file = File.createTempFile("orders", ".txt");
+        try {
+            new OrderExportJob(placed, file, null).run();
+            try (Writer writer = new FileWriter(file, true)) {
+                writer.write("Cancelled Order #" + placed.get(0).getNumber() + "\n");
+                writer.write("====================================\n");
+            }
+            List<Order> read = OrderTextParser.readOrders(file);
+            assertEquals(1, read.size());
+            assertEquals(placed.get(1).getNumber(), read.get(0).getNumber());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsMalformedItem() throws IOException {
+        File file = File.createTempFile("orders", ".txt");
+        try {
+            try (Writer writer = new FileWriter(file)) {
+                writer.write("Order #1\n- Pizza x1 — $9.99\nTotal: $10.65\n====================================\n");
+            }
+            OrderTextParser.readOrders(file);
+        } finally {
+            file.delete();
+        }
+    }
+}
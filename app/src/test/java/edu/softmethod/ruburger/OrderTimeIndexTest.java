@@ -0,0 +1,67 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderTimeIndexTest {
+
+    @Test
+    public void testRangeQueriesFindOrdersByPlacementTime() throws Exception {
+        OrderManager manager = OrderFixtures.newManager();
+        List<Order> first = OrderFixtures.placeSides(manager, 20);
+        Thread.sleep(5);
+        List<Order> second = OrderFixtures.placeSides(manager, 30);
+        long firstAt = first.get(0).getPlacedAt();
+        long secondAt = second.get(0).getPlacedAt();
+        assertTrue(secondAt > firstAt);
+
+        List<Order> range = manager.getOrdersBetween(firstAt, secondAt);
+        assertEquals(20, range.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(first.get(i).getNumber(), range.get(i).getNumber());
+        }
+        assertEquals(50, manager.getOrdersBetween(firstAt, secondAt + 1).size());
+        assertEquals(0, manager.getOrdersBetween(secondAt, firstAt).size());
+
+        manager.cancelOrder(first.get(5));
+        assertEquals(19, manager.getOrdersBetween(firstAt, secondAt).size());
+        assertEquals(20, range.size());
+    }
+
+    @Test
+    public void testTimestampsNeverDecreaseAndRollupsCoverEveryOrder() throws Exception {
+        OrderManager manager = OrderFixtures.newManager();
+        OrderFixtures.placeSides(manager, 10);
+        Thread.sleep(2);
+        OrderFixtures.placeSides(manager, 10);
+        OrderManager.Snapshot snapshot = manager.snapshot();
+        OrderTimeIndex index = snapshot.getTimeIndex();
+        assertEquals(snapshot.getPlacedOrders().size(), index.size());
+        List<Order> placed = snapshot.getPlacedOrders();
+        for (int i = 1; i < placed.size(); i++) {
+            assertTrue(placed.get(i).getPlacedAt() >= placed.get(i - 1).getPlacedAt());
+        }
+
+        long expectedCents = 0;
+        for (Order order : placed) {
+            expectedCents += Math.round(order.getTotal() * 100);
+        }
+        int orders = 0;
+        long cents = 0;
+        long previousEnd = Long.MIN_VALUE;
+        for (OrderTimeIndex.Window window : index.rollup(Long.MIN_VALUE, Long.MAX_VALUE, OrderTimeIndex.MINUTE)) {
+            assertEquals(0, window.getStart() % OrderTimeIndex.MINUTE);
+            assertTrue(window.getStart() >= previousEnd);
+            assertEquals(window.getOrders(), index.count(window.getStart(), window.getEnd()));
+            previousEnd = window.getEnd();
+            orders += window.getOrders();
+            cents += window.getTotalCents();
+        }
+        assertEquals(index.size(), orders);
+        assertEquals(expectedCents, cents);
+    }
+}
@@ -0,0 +1,57 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PersistentVectorTest {
+
+    @Test
+    public void testMatchesArrayListAcrossTrieLevels() {
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        List<Integer> expected = new ArrayList<>();
+        List<PersistentVector<Integer>> versions = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            vector = vector.plus(i);
+            expected.add(i);
+            if (i % 997 == 0) {
+                versions.add(vector);
+            }
+        }
+        assertEquals(expected, vector);
+        // Earlier versions are unaffected by later appends
+        for (PersistentVector<Integer> version : versions) {
+            assertEquals(expected.subList(0, version.size()), version);
+        }
+
+        vector = vector.with(5, -5).with(39_999, -1);
+        assertEquals(-5, (int) vector.get(5));
+        assertEquals(-1, (int) vector.get(39_999));
+        assertEquals(5, (int) versions.get(versions.size() - 1).get(5));
+
+        while (vector.size() > 10) {
+            vector = vector.pop();
+            expected.remove(expected.size() - 1);
+        }
+        expected.set(5, -5);
+        assertEquals(expected, vector);
+    }
+
+    @Test
+    public void testWithoutSharesPrefix() {
+        PersistentVector<String> vector = PersistentVector.copyOf(List.of("a", "b", "c", "d"));
+        PersistentVector<String> removed = vector.without(1);
+        assertEquals(List.of("a", "c", "d"), removed);
+        assertEquals(List.of("a", "b", "c", "d"), vector);
+        assertEquals(List.of("a", "b", "c"), vector.without(3));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIsReadOnly() {
+        PersistentVector.<String>empty().plus("a").add("b");
+    }
+}
@@ -0,0 +1,81 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import static org.junit.Assert.*;
+
+public class PriceCatalogTest {
+
+    private static File catalogFile(String contents) throws IOException {
+        File file = File.createTempFile("catalog", ".properties");
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(contents);
+        }
+        return file;
+    }
+
+    private static void assertRejected(String contents) throws IOException {
+        PriceCatalog before = PriceCatalog.current();
+        File file = catalogFile(contents);
+        try {
+            PriceCatalog.reload(file);
+            fail("Catalog should have been rejected: " + contents);
+        } catch (IOException expected) {
+            assertSame(before, PriceCatalog.current());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testReloadOverridesGivenKeysAndKeepsDefaultsForTheRest() throws IOException {
+        File file = catalogFile("side.FRIES=3.00\ncombo.fee=1.50\n");
+        try {
+            PriceCatalog before = PriceCatalog.current();
+            PriceCatalog loaded = PriceCatalog.reload(file);
+            assertSame(loaded, PriceCatalog.current());
+            assertEquals(before.getVersion() + 1, loaded.getVersion());
+            assertEquals(3.00, loaded.sideBasePrice(SideType.FRIES), 0.001);
+            assertEquals(1.50, loaded.comboFee(), 0.001);
+            PriceCatalog defaults = PriceCatalog.defaults();
+            assertEquals(defaults.sideBasePrice(SideType.CHIPS), loaded.sideBasePrice(SideType.CHIPS), 0.001);
+            assertEquals(defaults.beveragePrice(Size.LARGE), loaded.beveragePrice(Size.LARGE), 0.001);
+            assertEquals(defaults.sandwichPrice(Protein.SALMON), loaded.sandwichPrice(Protein.SALMON), 0.001);
+            assertEquals(3.00, new Side(SideType.FRIES, Size.SMALL, 1).price(), 0.001);
+
+            assertEquals(loaded.getVersion() + 1, PriceCatalog.reload(file).getVersion());
+        } finally {
+            OrderFixtures.restoreDefaultPrices();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testVersionsMustIncrease() throws IOException {
+        long current = PriceCatalog.current().getVersion();
+        File file = catalogFile("version=" + (current + 10) + "\nbeverage.SMALL=2.10\n");
+        try {
+            assertEquals(current + 10, PriceCatalog.reload(file).getVersion());
+            assertRejected("version=" + (current + 10) + "\nbeverage.SMALL=2.20\n");
+            assertRejected("version=" + current + "\nbeverage.SMALL=2.20\n");
+            assertRejected("version=seven\n");
+        } finally {
+            OrderFixtures.restoreDefaultPrices();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testInvalidPricesAreRejected() throws IOException {
+        assertRejected("side.CHIPS=-1\n");
+        assertRejected("burger.single=cheap\n");
+        assertRejected("addon.CHEESE=NaN\n");
+        assertRejected("beverage.LARGE=Infinity\n");
+    }
+}
@@ -0,0 +1,106 @@
+package edu.softmethod.ruburger;
+
+import edu.softmethod.ruburger.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cart-edit benchmark for {@link PromotionEngine}. For several rule counts, a cart is filled
+ * item by item and then emptied again, once updating an {@link PromotionEngine.Evaluation}
+ * incrementally and once rebuilding it after every edit, and the time per edit is printed.
+ * <p>
+ * Usage: {@code PromotionBenchmark [cartSize] [rounds]}
+ * </p>
+ */
+public class PromotionBenchmark {
+
+    public static void main(String[] args) {
+        int cartSize = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        List<MenuItem> cart = cart(cartSize);
+        PriceCatalog catalog = PriceCatalog.defaults();
+        for (int rules : new int[] {10, 100, 1_000}) {
+            PromotionEngine engine = new PromotionEngine(promotions(rules));
+            run(engine, cart, catalog, rounds / 10, true);
+            run(engine, cart, catalog, rounds / 10, false);
+            double incremental = run(engine, cart, catalog, rounds, true);
+            double rebuilt = run(engine, cart, catalog, rounds, false);
+            System.out.printf("%d rules, %d items: %.0f ns/edit incremental, %.0f ns/edit rebuilt%n",
+                    rules, cartSize, incremental, rebuilt);
+        }
+    }
+
+    private static double run(PromotionEngine engine, List<MenuItem> cart, PriceCatalog catalog, int rounds,
+                              boolean incremental) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            PromotionEngine.Evaluation evaluation = engine.newEvaluation(16 * 60);
+            List<MenuItem> items = new ArrayList<>();
+            for (MenuItem item : cart) {
+                items.add(item);
+                if (incremental) {
+                    evaluation.itemAdded(item, catalog);
+                } else {
+                    evaluation.rebuild(items, catalog);
+                }
+                sink += evaluation.getDiscountCents();
+            }
+            for (int i = cart.size() - 1; i >= 0; i--) {
+                MenuItem item = items.remove(i);
+                if (incremental) {
+                    evaluation.itemRemoved(item, catalog);
+                } else {
+                    evaluation.rebuild(items, catalog);
+                }
+                sink += evaluation.getDiscountCents();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return (double) elapsed / ((long) rounds * cart.size() * 2);
+    }
+
+    private static List<MenuItem> cart(int size) {
+        List<MenuItem> cart = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ArrayList<AddOns> addOns = new ArrayList<>();
+            addOns.add(AddOns.values()[i % AddOns.values().length]);
+            switch (i % 4) {
+                case 0:
+                    cart.add(new Sandwich(Bread.values()[i % 3], Protein.values()[i % 3], addOns, 1 + i % 2));
+                    break;
+                case 1:
+                    cart.add(new Burger(Bread.values()[i % 3], i % 2 == 0, addOns, 1));
+                    break;
+                case 2:
+                    cart.add(new Side(SideType.values()[i % 4], Size.values()[i % 3], 1 + i % 3));
+                    break;
+                default:
+                    cart.add(new Beverage(Size.values()[i % 3], Flavor.values()[i % Flavor.values().length], 2));
+            }
+        }
+        return cart;
+    }
+
+    private static List<Promotion> promotions(int count) {
+        List<Promotion> promotions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            switch (i % 3) {
+                case 0:
+                    promotions.add(Promotion.buyXGetY("bogo-" + i, SkuCodec.TAG_BEVERAGE, Promotion.ANY, 1, 1));
+                    break;
+                case 1:
+                    promotions.add(Promotion.addOnBundle("bundle-" + i, Promotion.ANY, 1 << (i % 5), 25));
+                    break;
+                default:
+                    promotions.add(Promotion.happyHour("happy-" + i, SkuCodec.TAG_SIDE, 10 + i % 40,
+                            (i % 22) * 60, (i % 22) * 60 + 120));
+            }
+        }
+        return promotions;
+    }
+}
@@ -0,0 +1,88 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PromotionEngineTest {
+
+    @Test
+    public void testBuyOneGetOneBeverage() {
+        PromotionEngine engine = new PromotionEngine(List.of(
+                Promotion.buyXGetY("bogo-drinks", SkuCodec.TAG_BEVERAGE, Promotion.ANY, 1, 1)));
+        PromotionEngine.Evaluation evaluation = engine.newEvaluation(12 * 60);
+        PriceCatalog catalog = PriceCatalog.defaults();
+        Beverage small = new Beverage(Size.SMALL, Flavor.COLA, 1);
+        Beverage large = new Beverage(Size.LARGE, Flavor.TEA, 1);
+
+        evaluation.itemAdded(large, catalog);
+        assertEquals(0, evaluation.getDiscountCents());
+        evaluation.itemAdded(small, catalog);
+        // Cheapest unit (SMALL 1.99) is free
+        assertEquals(199, evaluation.getDiscountCents());
+        evaluation.itemRemoved(small, catalog);
+        assertEquals(0, evaluation.getDiscountCents());
+    }
+
+    @Test
+    public void testAddOnBundleAndHappyHour() {
+        int cheeseAvocado = SkuCodec.addOnMask(new ArrayList<>(List.of(AddOns.CHEESE, AddOns.AVOCADO)));
+        PromotionEngine engine = new PromotionEngine(List.of(
+                Promotion.addOnBundle("deluxe", Promotion.ANY, cheeseAvocado, 50),
+                Promotion.happyHour("sides", SkuCodec.TAG_SIDE, 50, 15 * 60, 17 * 60)));
+        PriceCatalog catalog = PriceCatalog.defaults();
+        Sandwich deluxe = new Sandwich(Bread.WHEAT, Protein.CHICKEN,
+                new ArrayList<>(List.of(AddOns.CHEESE, AddOns.AVOCADO)), 2);
+        Side fries = new Side(SideType.FRIES, Size.SMALL, 2);
+
+        PromotionEngine.Evaluation duringHappyHour = engine.newEvaluation(16 * 60);
+        duringHappyHour.itemAdded(deluxe, catalog);
+        duringHappyHour.itemAdded(fries, catalog);
+        // 2 x 0.50 bundle + 50% of 4.98 fries
+        assertEquals(100 + 249, duringHappyHour.getDiscountCents());
+
+        PromotionEngine.Evaluation afterHappyHour = engine.newEvaluation(18 * 60);
+        afterHappyHour.itemAdded(deluxe, catalog);
+        afterHappyHour.itemAdded(fries, catalog);
+        assertEquals(100, afterHappyHour.getDiscountCents());
+    }
+
+    @Test
+    public void testCartIsReevaluatedAfterCatalogReload() throws IOException {
+        OrderManager manager = OrderFixtures.newManager();
+        manager.setPromotionEngine(new PromotionEngine(List.of(
+                Promotion.buyXGetY("bogo-drinks", SkuCodec.TAG_BEVERAGE, Promotion.ANY, 1, 1))));
+        Beverage small = new Beverage(Size.SMALL, Flavor.COLA, 1);
+        manager.addItemToCurrentOrder(new Beverage(Size.LARGE, Flavor.TEA, 1));
+        manager.addItemToCurrentOrder(small);
+        manager.addItemToCurrentOrder(new Beverage(Size.SMALL, Flavor.LEMON, 1));
+        assertEquals(1.99, manager.getCurrentOrder().getDiscount(), 0.001);
+
+        File catalog = File.createTempFile("catalog", ".properties");
+        try {
+            try (Writer writer = new FileWriter(catalog)) {
+                writer.write("beverage.SMALL=0.99\n");
+            }
+            PriceCatalog.reload(catalog);
+            assertEquals(0.99, manager.getCurrentOrder().getDiscount(), 0.001);
+            // The removed drink was added at 1.99 but is now priced at 0.99
+            manager.removeItemFromCurrentOrder(small);
+            assertEquals(0.99, manager.getCurrentOrder().getDiscount(), 0.001);
+            manager.placeCurrentOrder();
+            Order placed = manager.getPlacedOrders().get(0);
+            assertEquals(0.99, placed.getDiscount(), 0.001);
+            assertEquals(2.99, placed.getSubtotal(), 0.001);
+        } finally {
+            OrderFixtures.restoreDefaultPrices();
+            catalog.delete();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package edu.softmethod.ruburger;
+
+import edu.softmethod.ruburger.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Time-to-ready harness for {@link OrderManager} recovery. For each history size, orders
+ * are placed through a journaled manager, a snapshot is written, and a short tail of
+ * orders is placed after it. The time to become ready is then printed for a full journal
+ * replay and for recovery from the snapshot, which reads only the journal tail.
+ * <p>
+ * Usage: {@code RecoveryBenchmark [tail] [orders...]}, by default a tail of 1,000 after
+ * 10,000, 100,000 and 1,000,000 orders. The largest size needs a heap of about 3 GB.
+ * </p>
+ */
+public class RecoveryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int tail = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            sizes.add(Integer.parseInt(args[i]));
+        }
+        if (sizes.isEmpty()) {
+            sizes.add(10_000);
+            sizes.add(100_000);
+            sizes.add(1_000_000);
+        }
+        for (int orders : sizes) {
+            run(orders, tail);
+        }
+    }
+
+    private static void run(int orders, int tail) throws IOException {
+        File directory = File.createTempFile("recovery", "");
+        directory.delete();
+        directory.mkdirs();
+        File journalFile = new File(directory, "orders.journal");
+        File emptySnapshots = new File(directory, "none");
+        try {
+            OrderSnapshots snapshots = new OrderSnapshots(directory);
+            OrderManager manager = OrderFixtures.newManager();
+            manager.setJournal(new OrderJournal(journalFile));
+            place(manager, orders - tail);
+            manager.writeSnapshot(snapshots);
+            place(manager, tail);
+            manager.getJournal().close();
+
+            OrderManager full = OrderFixtures.newManager();
+            long start = System.nanoTime();
+            OrderJournal journal = new OrderJournal(journalFile);
+            full.recover(new OrderSnapshots(emptySnapshots), journal);
+            long fullMillis = (System.nanoTime() - start) / 1_000_000;
+            journal.close();
+
+            OrderManager fromSnapshot = OrderFixtures.newManager();
+            long snapshotMillis = fromSnapshot.recover(snapshots, journalFile);
+            fromSnapshot.getJournal().close();
+            if (fromSnapshot.getPlacedOrders().size() != orders || full.getPlacedOrders().size() != orders) {
+                throw new IllegalStateException("Recovered the wrong number of orders");
+            }
+            System.out.printf("%,d orders (%.1f MB journal): full replay %d ms, snapshot + %,d-order tail %d ms%n",
+                    orders, journalFile.length() / 1e6, fullMillis, tail, snapshotMillis);
+        } finally {
+            for (File dir : new File[] {emptySnapshots, directory}) {
+                File[] files = dir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+                dir.delete();
+            }
+        }
+    }
+
+    private static void place(OrderManager manager, int count) {
+        for (int placed = 0; placed < count; placed += 10_000) {
+            OrderFixtures.placeSides(manager, Math.min(10_000, count - placed));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package edu.softmethod.ruburger;
+
+import edu.softmethod.ruburger.model.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Intake load test for {@link ShardedOrderManager}. Several register threads place orders
+ * for a fixed time, first all on one shard and then spread over one shard per register,
+ * and the placement rate of each run is printed.
+ * <p>
+ * Usage: {@code ShardedIntakeBenchmark [registers] [seconds]}
+ * </p>
+ */
+public class ShardedIntakeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int registers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 3;
+        for (int shards : new int[] {1, registers}) {
+            run(registers, 1, 0.5);
+            long placed = run(registers, shards, seconds);
+            System.out.printf("%d registers on %d shard(s): %.0f orders/s%n", registers, shards, placed / seconds);
+        }
+    }
+
+    private static long run(int registers, int shards, double seconds) throws InterruptedException {
+        ShardedOrderManager manager = new ShardedOrderManager();
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        long[] counts = new long[registers];
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < registers; r++) {
+            int id = r;
+            OrderManager shard = manager.shard("register-" + (r % shards));
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    Order cart = new Order();
+                    cart.addItem(new Burger(Bread.BRIOCHE, true, new ArrayList<>(), 1));
+                    cart.addItem(new Beverage(Size.MEDIUM, Flavor.COLA, 2));
+                    shard.placeOrders(Collections.singletonList(cart));
+                    counts[id]++;
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        long total = 0;
+        for (int r = 0; r < registers; r++) {
+            threads.get(r).join();
+            total += counts[r];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,62 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ShardedOrderManagerTest {
+
+    @Test
+    public void testConcurrentIntakeAcrossShardsMergesIntoOneView() throws Exception {
+        ShardedOrderManager manager = new ShardedOrderManager();
+        int registers = 4;
+        int perRegister = 500;
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < registers; r++) {
+            OrderManager shard = manager.shard("register-" + r);
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perRegister; i++) {
+                    shard.addItemToCurrentOrder(new Beverage(Size.SMALL, Flavor.COLA, 1 + i % 2));
+                    shard.placeCurrentOrder();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertSame(manager.shard("register-0"), manager.shard("register-0"));
+        assertEquals(List.of("register-0", "register-1", "register-2", "register-3"), manager.getShardIds());
+
+        ShardedOrderManager.View view = manager.snapshot();
+        assertEquals(registers * perRegister, view.getOrderCount());
+        List<Order> placed = view.getPlacedOrders();
+        assertEquals(registers * perRegister, placed.size());
+        for (int i = 1; i < placed.size(); i++) {
+            assertTrue(placed.get(i - 1).getNumber() < placed.get(i).getNumber());
+        }
+        for (OrderManager.Snapshot snapshot : view.getShards().values()) {
+            assertEquals(perRegister, snapshot.getPlacedOrders().size());
+        }
+
+        List<Order> byTime = view.getOrdersBetween(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(placed.size(), byTime.size());
+        long cents = 0;
+        int orders = 0;
+        for (OrderTimeIndex.Window window : view.rollup(Long.MIN_VALUE, Long.MAX_VALUE, OrderTimeIndex.HOUR)) {
+            orders += window.getOrders();
+            cents += window.getTotalCents();
+        }
+        long expectedCents = 0;
+        for (Order order : placed) {
+            expectedCents += Math.round(order.getTotal() * 100);
+        }
+        assertEquals(placed.size(), orders);
+        assertEquals(expectedCents, cents);
+    }
+}
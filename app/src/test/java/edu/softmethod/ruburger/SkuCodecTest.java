@@ -0,0 +1,71 @@
+package edu.softmethod.ruburger;
+
+import org.junit.Test;
+import edu.softmethod.ruburger.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SkuCodecTest {
+
+    @Test
+    public void testBurgerRoundTrip() {
+        Burger burger = new Burger(
+                Bread.PRETZEL,
+                true,
+                new ArrayList<>(List.of(AddOns.CHEESE, AddOns.LETTUCE)),
+                3
+        );
+        long sku = SkuCodec.encode(burger);
+        MenuItem decoded = SkuCodec.decode(sku);
+        assertTrue(decoded instanceof Burger);
+        assertTrue(((Burger) decoded).isDoublePatty());
+        assertEquals(3, decoded.getQuantity());
+        assertEquals(burger.price(), decoded.price(), 0.001);
+        assertEquals(sku, SkuCodec.encode(decoded));
+    }
+
+    @Test
+    public void testComboKeepsNestedSandwich() {
+        Sandwich sandwich = new Sandwich(
+                Bread.BAGEL,
+                Protein.SALMON,
+                new ArrayList<>(List.of(AddOns.AVOCADO)),
+                1
+        );
+        Combo combo = new Combo(sandwich, Flavor.JUICE, SideType.APPLE_SLICES, 2);
+        Combo decoded = (Combo) SkuCodec.decode(SkuCodec.encode(combo));
+        assertEquals(Protein.SALMON, decoded.getSandwich().getProtein());
+        assertEquals(Bread.BAGEL, decoded.getSandwich().getBread());
+        assertEquals(Flavor.JUICE, decoded.getFlavor());
+        assertEquals(SideType.APPLE_SLICES, decoded.getSideType());
+        // (SALMON 9.99 + AVOCADO 0.50 + COMBO 2.00) * 2 = 24.98
+        assertEquals(24.98, decoded.price(), 0.01);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testComboSandwichQuantityMustFit() {
+        Sandwich sandwich = new Sandwich(Bread.BAGEL, Protein.SALMON, new ArrayList<>(), 300);
+        SkuCodec.encode(new Combo(sandwich, Flavor.JUICE, SideType.APPLE_SLICES, 1));
+    }
+
+    @Test
+    public void testConfigurationIgnoresQuantity() {
+        long one = SkuCodec.encode(new Beverage(Size.LARGE, Flavor.MANGO, 1));
+        long five = SkuCodec.encode(new Beverage(Size.LARGE, Flavor.MANGO, 5));
+        assertNotEquals(one, five);
+        assertEquals(SkuCodec.configuration(one), SkuCodec.configuration(five));
+        assertEquals(five, SkuCodec.withQuantity(one, 5));
+        assertEquals(SkuCodec.TAG_BEVERAGE, SkuCodec.tag(one));
+    }
+
+    @Test
+    public void testSideRoundTrip() {
+        Side side = (Side) SkuCodec.decode(SkuCodec.encode(new Side(SideType.ONION_RINGS, Size.MEDIUM, 4)));
+        assertEquals(SideType.ONION_RINGS, side.getType());
+        assertEquals(Size.MEDIUM, side.getSize());
+        assertEquals(4, side.getQuantity());
+    }
+}
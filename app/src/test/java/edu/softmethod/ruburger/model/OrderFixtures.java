@@ -0,0 +1,91 @@
+package edu.softmethod.ruburger.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Builds managers and placed orders for tests. Every manager is independent of the
+ * application's {@link OrderManager#getInstance()} singleton, so tests cannot see each
+ * other's orders, carts or subscribers. Order numbers still come from the shared allocator,
+ * so they stay unique across managers.
+ */
+public final class OrderFixtures {
+
+    private OrderFixtures() {
+    }
+
+    /**
+     * Publishes the built-in menu prices again after a test reloaded the catalog.
+     */
+    public static void restoreDefaultPrices() {
+        PriceCatalog.publish(PriceCatalog.defaults());
+    }
+
+    /**
+     * Returns a new, empty manager.
+     *
+     * @return the manager
+     */
+    public static OrderManager newManager() {
+        return new OrderManager();
+    }
+
+    /**
+     * Places orders on a new manager.
+     *
+     * @param count the number of orders
+     * @param fill  adds the items of the i-th order
+     * @return the placed orders, in number order
+     */
+    public static List<Order> place(int count, ObjIntConsumer<Order> fill) {
+        return place(newManager(), count, fill);
+    }
+
+    /**
+     * Places orders on a manager in one batch.
+     *
+     * @param manager the manager to place on
+     * @param count   the number of orders
+     * @param fill    adds the items of the i-th order
+     * @return the placed orders, in number order
+     */
+    public static List<Order> place(OrderManager manager, int count, ObjIntConsumer<Order> fill) {
+        List<Order> carts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Order order = new Order();
+            fill.accept(order, i);
+            carts.add(order);
+        }
+        return manager.placeOrders(carts);
+    }
+
+    /**
+     * Places orders of sides on a new manager: one side per order, cycling through the side
+     * types, sizes and quantities 1 to 3, plus a tea in every fourth order.
+     *
+     * @param count the number of orders
+     * @return the placed orders, in number order
+     */
+    public static List<Order> placeSides(int count) {
+        return placeSides(newManager(), count);
+    }
+
+    /**
+     * Places orders of sides on a manager, as {@link #placeSides(int)} does.
+     *
+     * @param manager the manager to place on
+     * @param count   the number of orders
+     * @return the placed orders, in number order
+     */
+    public static List<Order> placeSides(OrderManager manager, int count) {
+        SideType[] types = SideType.values();
+        Size[] sizes = Size.values();
+        return place(manager, count, (order, i) -> {
+            order.addItem(new Side(types[i % types.length], sizes[i % sizes.length], 1 + i % 3));
+            if (i % 4 == 0) {
+                order.addItem(new Beverage(Size.SMALL, Flavor.TEA, 1));
+            }
+        });
+    }
+}